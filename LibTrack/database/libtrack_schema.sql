@@ -18,12 +18,18 @@ CREATE TABLE authors (
     biography TEXT,
     birth_year INT,
     country VARCHAR(50),
-    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP(3) DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3),
+    change_seq BIGINT NOT NULL DEFAULT 0,
+    INDEX idx_name (last_name, first_name),
+    INDEX idx_change_seq (change_seq)
 );
 
 CREATE TABLE books (
     book_id INT PRIMARY KEY AUTO_INCREMENT,
     isbn VARCHAR(20) UNIQUE,
+    -- ISBN без дефисов и пробелов для сканера (поиск по точному совпадению)
+    isbn_normalized VARCHAR(20) AS (UPPER(REPLACE(REPLACE(isbn, '-', ''), ' ', ''))) STORED,
     title VARCHAR(200) NOT NULL,
     author_id INT NOT NULL,
     genre VARCHAR(50),
@@ -34,10 +40,14 @@ CREATE TABLE books (
     copies_available INT DEFAULT 1,
     description TEXT,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP(3) DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3),
+    change_seq BIGINT NOT NULL DEFAULT 0,
     FOREIGN KEY (author_id) REFERENCES authors(author_id) ON DELETE CASCADE,
+    UNIQUE INDEX idx_isbn_normalized (isbn_normalized),
     INDEX idx_title (title),
     INDEX idx_genre (genre),
-    INDEX idx_author (author_id)
+    INDEX idx_author (author_id),
+    INDEX idx_change_seq (change_seq)
 );
 
 CREATE TABLE visitors (
@@ -51,8 +61,15 @@ CREATE TABLE visitors (
     birth_date DATE,
     status ENUM('active', 'blocked', 'inactive') DEFAULT 'active',
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP(3) DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3),
+    change_seq BIGINT NOT NULL DEFAULT 0,
     INDEX idx_email (email),
-    INDEX idx_status (status)
+    INDEX idx_status (status),
+    INDEX idx_name (last_name, first_name),
+    -- Активные читатели по алфавиту и подсказки по фамилии без сортировки
+    INDEX idx_status_name (status, last_name, first_name),
+    INDEX idx_phone (phone),
+    INDEX idx_change_seq (change_seq)
 );
 
 CREATE TABLE loans (
@@ -67,13 +84,87 @@ CREATE TABLE loans (
     notes TEXT,
     issued_by INT,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP(3) DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3),
+    change_seq BIGINT NOT NULL DEFAULT 0,
     FOREIGN KEY (book_id) REFERENCES books(book_id) ON DELETE CASCADE,
     FOREIGN KEY (visitor_id) REFERENCES visitors(visitor_id) ON DELETE CASCADE,
     FOREIGN KEY (issued_by) REFERENCES users(user_id) ON DELETE SET NULL,
+    -- (status) с неявным loan_id в конце - сортировка страниц по статусу
     INDEX idx_status (status),
+    -- Просрочки по сроку, ночная отметка просрочек, статистика возвратов (покрывающий)
+    INDEX idx_status_due (status, due_date, return_date),
     INDEX idx_loan_date (loan_date),
-    INDEX idx_visitor (visitor_id),
-    INDEX idx_book (book_id)
+    -- Книги на руках и штрафы читателя (покрывающий), история читателя
+    INDEX idx_visitor_status (visitor_id, status, fine_amount),
+    -- Невозвращённые экземпляры книги при возврате, история книги
+    INDEX idx_book_status (book_id, status, loan_date),
+    INDEX idx_change_seq (change_seq)
+);
+
+-- Сквозной номер изменения для books, authors, visitors и loans (delta-sync, getChangedSince).
+-- Каждая запись берёт номер вставкой строки (AUTO_INCREMENT): общей строки-счётчика
+-- под блокировкой до COMMIT нет, и пишущие транзакции не ждут друг друга.
+-- Номера видны не строго по возрастанию (дыра - транзакция ещё идёт или откатилась),
+-- поэтому курсор клиента не переходит дыру моложе libtrack.sync.graceMs (ChangeTracking.safeSeq).
+-- Старые номера удаляет ночная очистка журнала
+CREATE TABLE change_sequence (
+    seq BIGINT PRIMARY KEY AUTO_INCREMENT,
+    created_at TIMESTAMP(3) DEFAULT CURRENT_TIMESTAMP(3),
+    INDEX idx_created_at (created_at)
+);
+
+-- Надгробия удалённых строк (в т.ч. удалённых каскадом по внешнему ключу)
+CREATE TABLE deleted_rows (
+    tombstone_id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    entity VARCHAR(20) NOT NULL,
+    entity_id INT NOT NULL,
+    change_seq BIGINT NOT NULL,
+    deleted_at TIMESTAMP(3) DEFAULT CURRENT_TIMESTAMP(3),
+    INDEX idx_entity_seq (entity, change_seq)
+);
+
+-- Журнал изменений для синхронизации рабочих мест (ChangeLogPoller).
+-- Пишется триггерами в той же транзакции, что и изменение; старые записи удаляет ночная задача
+CREATE TABLE change_log (
+    log_id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    change_seq BIGINT NOT NULL,
+    entity VARCHAR(20) NOT NULL,
+    entity_id INT NOT NULL,
+    op CHAR(1) NOT NULL, -- I - вставка, U - изменение, D - удаление
+    origin VARCHAR(36) NULL, -- рабочее место (@libtrack_origin), NULL - запись не из приложения
+    changed_at TIMESTAMP(3) DEFAULT CURRENT_TIMESTAMP(3),
+    INDEX idx_change_seq (change_seq),
+    INDEX idx_changed_at (changed_at)
+);
+
+-- Архив возвращённых выдач старше N лет (LoanArchiveJob переносит их из loans).
+-- loans остаётся горячей таблицей без секций: MySQL не секционирует таблицы
+-- с внешними ключами, а на них держатся каскады и триггеры выдач.
+-- Архив без внешних ключей и триггеров секционирован по году выдачи;
+-- название книги и имя читателя хранятся в строке, notes не переносятся.
+-- Новые секции отделяет от pmax сама задача архивации
+CREATE TABLE loans_archive (
+    loan_id INT NOT NULL,
+    loan_year SMALLINT NOT NULL,
+    book_id INT NOT NULL,
+    visitor_id INT NOT NULL,
+    book_title VARCHAR(200) NOT NULL,
+    visitor_name VARCHAR(101) NOT NULL,
+    loan_date DATE NOT NULL,
+    due_date DATE NOT NULL,
+    return_date DATE,
+    fine_amount DECIMAL(10, 2) NOT NULL DEFAULT 0.00,
+    archived_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (loan_year, loan_id),
+    INDEX idx_archive_visitor (visitor_id, loan_date),
+    INDEX idx_archive_book (book_id, loan_date)
+) ROW_FORMAT=COMPRESSED
+PARTITION BY RANGE (loan_year) (
+    PARTITION p2020 VALUES LESS THAN (2021),
+    PARTITION p2021 VALUES LESS THAN (2022),
+    PARTITION p2022 VALUES LESS THAN (2023),
+    PARTITION p2023 VALUES LESS THAN (2024),
+    PARTITION pmax VALUES LESS THAN MAXVALUE
 );
 
 -- Триггер для уменьшения количества доступных книг при выдаче
@@ -90,16 +181,238 @@ BEGIN
 END//
 
 -- Триггер для увеличения количества доступных книг при возврате
+-- (в т.ч. просроченной выдачи; переход active -> overdue книгу не возвращает)
 CREATE TRIGGER after_loan_update
 AFTER UPDATE ON loans
 FOR EACH ROW
 BEGIN
-    IF OLD.status = 'active' AND NEW.status = 'returned' THEN
+    IF OLD.status IN ('active', 'overdue') AND NEW.status = 'returned' THEN
         UPDATE books
         SET copies_available = copies_available + 1
         WHERE book_id = NEW.book_id;
     END IF;
 END//
+
+-- Номер изменения при вставке и обновлении
+-- (LAST_INSERT_ID внутри триггера восстанавливается после него и не портит ключ вставки)
+
+CREATE TRIGGER authors_change_seq_insert
+BEFORE INSERT ON authors
+FOR EACH ROW
+BEGIN
+    INSERT INTO change_sequence () VALUES ();
+    SET NEW.change_seq = LAST_INSERT_ID();
+END//
+
+CREATE TRIGGER authors_change_seq_update
+BEFORE UPDATE ON authors
+FOR EACH ROW
+BEGIN
+    INSERT INTO change_sequence () VALUES ();
+    SET NEW.change_seq = LAST_INSERT_ID();
+END//
+
+CREATE TRIGGER books_change_seq_insert
+BEFORE INSERT ON books
+FOR EACH ROW
+BEGIN
+    INSERT INTO change_sequence () VALUES ();
+    SET NEW.change_seq = LAST_INSERT_ID();
+END//
+
+CREATE TRIGGER books_change_seq_update
+BEFORE UPDATE ON books
+FOR EACH ROW
+BEGIN
+    INSERT INTO change_sequence () VALUES ();
+    SET NEW.change_seq = LAST_INSERT_ID();
+END//
+
+CREATE TRIGGER visitors_change_seq_insert
+BEFORE INSERT ON visitors
+FOR EACH ROW
+BEGIN
+    INSERT INTO change_sequence () VALUES ();
+    SET NEW.change_seq = LAST_INSERT_ID();
+END//
+
+CREATE TRIGGER visitors_change_seq_update
+BEFORE UPDATE ON visitors
+FOR EACH ROW
+BEGIN
+    INSERT INTO change_sequence () VALUES ();
+    SET NEW.change_seq = LAST_INSERT_ID();
+END//
+
+CREATE TRIGGER loans_change_seq_insert
+BEFORE INSERT ON loans
+FOR EACH ROW
+BEGIN
+    INSERT INTO change_sequence () VALUES ();
+    SET NEW.change_seq = LAST_INSERT_ID();
+END//
+
+CREATE TRIGGER loans_change_seq_update
+BEFORE UPDATE ON loans
+FOR EACH ROW
+BEGIN
+    INSERT INTO change_sequence () VALUES ();
+    SET NEW.change_seq = LAST_INSERT_ID();
+END//
+
+
+-- Надгробия при удалении. Каскадное удаление по внешнему ключу триггеры
+-- дочерней таблицы не вызывает, поэтому дочерние строки записываются здесь же
+
+CREATE TRIGGER authors_tombstone
+BEFORE DELETE ON authors
+FOR EACH ROW
+BEGIN
+    DECLARE seq BIGINT;
+    INSERT INTO change_sequence () VALUES ();
+    SET seq = LAST_INSERT_ID();
+    INSERT INTO deleted_rows (entity, entity_id, change_seq)
+    SELECT 'loans', l.loan_id, seq FROM loans l
+    JOIN books b ON b.book_id = l.book_id
+    WHERE b.author_id = OLD.author_id;
+    INSERT INTO change_log (entity, entity_id, change_seq, op, origin)
+    SELECT 'loans', l.loan_id, seq, 'D', @libtrack_origin FROM loans l
+    JOIN books b ON b.book_id = l.book_id
+    WHERE b.author_id = OLD.author_id;
+    INSERT INTO deleted_rows (entity, entity_id, change_seq)
+    SELECT 'books', book_id, seq FROM books WHERE author_id = OLD.author_id;
+    INSERT INTO change_log (entity, entity_id, change_seq, op, origin)
+    SELECT 'books', book_id, seq, 'D', @libtrack_origin FROM books WHERE author_id = OLD.author_id;
+    INSERT INTO deleted_rows (entity, entity_id, change_seq) VALUES ('authors', OLD.author_id, seq);
+    INSERT INTO change_log (entity, entity_id, change_seq, op, origin) VALUES ('authors', OLD.author_id, seq, 'D', @libtrack_origin);
+END//
+
+CREATE TRIGGER books_tombstone
+BEFORE DELETE ON books
+FOR EACH ROW
+BEGIN
+    DECLARE seq BIGINT;
+    INSERT INTO change_sequence () VALUES ();
+    SET seq = LAST_INSERT_ID();
+    INSERT INTO deleted_rows (entity, entity_id, change_seq)
+    SELECT 'loans', loan_id, seq FROM loans WHERE book_id = OLD.book_id;
+    INSERT INTO change_log (entity, entity_id, change_seq, op, origin)
+    SELECT 'loans', loan_id, seq, 'D', @libtrack_origin FROM loans WHERE book_id = OLD.book_id;
+    INSERT INTO deleted_rows (entity, entity_id, change_seq) VALUES ('books', OLD.book_id, seq);
+    INSERT INTO change_log (entity, entity_id, change_seq, op, origin) VALUES ('books', OLD.book_id, seq, 'D', @libtrack_origin);
+END//
+
+CREATE TRIGGER visitors_tombstone
+BEFORE DELETE ON visitors
+FOR EACH ROW
+BEGIN
+    DECLARE seq BIGINT;
+    INSERT INTO change_sequence () VALUES ();
+    SET seq = LAST_INSERT_ID();
+    INSERT INTO deleted_rows (entity, entity_id, change_seq)
+    SELECT 'loans', loan_id, seq FROM loans WHERE visitor_id = OLD.visitor_id;
+    INSERT INTO change_log (entity, entity_id, change_seq, op, origin)
+    SELECT 'loans', loan_id, seq, 'D', @libtrack_origin FROM loans WHERE visitor_id = OLD.visitor_id;
+    INSERT INTO deleted_rows (entity, entity_id, change_seq) VALUES ('visitors', OLD.visitor_id, seq);
+    INSERT INTO change_log (entity, entity_id, change_seq, op, origin) VALUES ('visitors', OLD.visitor_id, seq, 'D', @libtrack_origin);
+END//
+
+-- Перенос в архив (LoanDAO.archiveReturnedLoans ставит @libtrack_archiving) - не удаление:
+-- без надгробия и записи в журнал, иначе каждое рабочее место перечитывает выдачи целиком
+CREATE TRIGGER loans_tombstone
+BEFORE DELETE ON loans
+FOR EACH ROW
+BEGIN
+    DECLARE seq BIGINT;
+    IF @libtrack_archiving IS NULL THEN
+        INSERT INTO change_sequence () VALUES ();
+        SET seq = LAST_INSERT_ID();
+        INSERT INTO deleted_rows (entity, entity_id, change_seq) VALUES ('loans', OLD.loan_id, seq);
+        INSERT INTO change_log (entity, entity_id, change_seq, op, origin) VALUES ('loans', OLD.loan_id, seq, 'D', @libtrack_origin);
+    END IF;
+END//
+
+
+-- Запись в журнал изменений после вставки и обновления
+
+CREATE TRIGGER authors_log_insert
+AFTER INSERT ON authors
+FOR EACH ROW
+BEGIN
+    INSERT INTO change_log (entity, entity_id, change_seq, op, origin) VALUES ('authors', NEW.author_id, NEW.change_seq, 'I', @libtrack_origin);
+END//
+
+CREATE TRIGGER authors_log_update
+AFTER UPDATE ON authors
+FOR EACH ROW
+BEGIN
+    INSERT INTO change_log (entity, entity_id, change_seq, op, origin) VALUES ('authors', NEW.author_id, NEW.change_seq, 'U', @libtrack_origin);
+END//
+
+CREATE TRIGGER books_log_insert
+AFTER INSERT ON books
+FOR EACH ROW
+BEGIN
+    INSERT INTO change_log (entity, entity_id, change_seq, op, origin) VALUES ('books', NEW.book_id, NEW.change_seq, 'I', @libtrack_origin);
+END//
+
+CREATE TRIGGER books_log_update
+AFTER UPDATE ON books
+FOR EACH ROW
+BEGIN
+    INSERT INTO change_log (entity, entity_id, change_seq, op, origin) VALUES ('books', NEW.book_id, NEW.change_seq, 'U', @libtrack_origin);
+END//
+
+CREATE TRIGGER visitors_log_insert
+AFTER INSERT ON visitors
+FOR EACH ROW
+BEGIN
+    INSERT INTO change_log (entity, entity_id, change_seq, op, origin) VALUES ('visitors', NEW.visitor_id, NEW.change_seq, 'I', @libtrack_origin);
+END//
+
+CREATE TRIGGER visitors_log_update
+AFTER UPDATE ON visitors
+FOR EACH ROW
+BEGIN
+    INSERT INTO change_log (entity, entity_id, change_seq, op, origin) VALUES ('visitors', NEW.visitor_id, NEW.change_seq, 'U', @libtrack_origin);
+END//
+
+CREATE TRIGGER loans_log_insert
+AFTER INSERT ON loans
+FOR EACH ROW
+BEGIN
+    INSERT INTO change_log (entity, entity_id, change_seq, op, origin) VALUES ('loans', NEW.loan_id, NEW.change_seq, 'I', @libtrack_origin);
+END//
+
+CREATE TRIGGER loans_log_update
+AFTER UPDATE ON loans
+FOR EACH ROW
+BEGIN
+    INSERT INTO change_log (entity, entity_id, change_seq, op, origin) VALUES ('loans', NEW.loan_id, NEW.change_seq, 'U', @libtrack_origin);
+END//
+
+-- Длинный опрос: ждать на сервере, пока наибольший зафиксированный номер изменения
+-- не станет больше after_seq, но не дольше timeout_ms. Возвращает этот номер
+-- (клиент получает ответ сразу после изменения)
+CREATE PROCEDURE wait_for_change(IN after_seq BIGINT, IN timeout_ms INT)
+BEGIN
+    DECLARE waited INT DEFAULT 0;
+    WHILE waited < timeout_ms AND (SELECT COALESCE(MAX(seq), 0) FROM change_sequence) <= after_seq DO
+        DO SLEEP(0.1);
+        SET waited = waited + 100;
+    END WHILE;
+    SELECT COALESCE(MAX(seq), 0) FROM change_sequence;
+END//
+
+-- Имя автора входит в строку книги: переименование автора - изменение его книг
+CREATE TRIGGER authors_rename_books
+AFTER UPDATE ON authors
+FOR EACH ROW
+BEGIN
+    IF NOT (OLD.first_name <=> NEW.first_name AND OLD.last_name <=> NEW.last_name) THEN
+        UPDATE books SET updated_at = CURRENT_TIMESTAMP(3) WHERE author_id = NEW.author_id;
+    END IF;
+END//
 DELIMITER ;
 
 -- Пользователи с правильным BCrypt хешем (пароль: admin123)
@@ -173,12 +486,25 @@ SELECT
     CONCAT(v.first_name, ' ', v.last_name) AS visitor_name,
     v.email,
     COUNT(l.loan_id) AS total_loans,
-    SUM(CASE WHEN l.status = 'active' THEN 1 ELSE 0 END) AS active_loans
+    SUM(CASE WHEN l.status IN ('active', 'overdue') THEN 1 ELSE 0 END) AS active_loans
 FROM visitors v
 LEFT JOIN loans l ON v.visitor_id = l.visitor_id
 GROUP BY v.visitor_id, visitor_name, v.email
 ORDER BY total_loans DESC;
 
+-- Полная история выдач: горячая таблица и архив
+CREATE VIEW v_loan_history AS
+SELECT l.loan_id, l.book_id, l.visitor_id, b.title AS book_title,
+    CONCAT(v.first_name, ' ', v.last_name) AS visitor_name,
+    l.loan_date, l.due_date, l.return_date, l.status, l.fine_amount, 0 AS archived
+FROM loans l
+JOIN books b ON l.book_id = b.book_id
+JOIN visitors v ON l.visitor_id = v.visitor_id
+UNION ALL
+SELECT loan_id, book_id, visitor_id, book_title, visitor_name,
+    loan_date, due_date, return_date, 'returned', fine_amount, 1
+FROM loans_archive;
+
 -- Статистика по месяцам
 CREATE VIEW v_monthly_statistics AS
 SELECT
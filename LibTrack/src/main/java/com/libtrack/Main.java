@@ -1,6 +1,17 @@
 package com.libtrack;
 
+import com.libtrack.dao.BCryptCost;
+import com.libtrack.dao.ChangeLogPoller;
+import com.libtrack.dao.DatabaseConnection;
+import com.libtrack.dao.EntityCache;
+import com.libtrack.service.ChangeLogPurgeJob;
+import com.libtrack.service.FineAccrualJob;
+import com.libtrack.service.LoanArchiveJob;
+import com.libtrack.service.OverdueStatusJob;
+import com.libtrack.util.BackgroundTasks;
+import com.libtrack.util.NightlyScheduler;
 import com.libtrack.util.SceneManager;
+import com.libtrack.util.StartupTimer;
 import javafx.application.Application;
 import javafx.stage.Stage;
 
@@ -8,6 +19,14 @@ public class Main extends Application {
 
     @Override
     public void start(Stage stage) {
+        StartupTimer.mark("JavaFX запущен");
+
+        // Прогрев, пока открыт экран входа: пул БД и калибровка BCrypt (она же прогрев) в фоне
+        // параллельно, главный экран и стили - на FX-потоке (SceneManager.showLogin)
+        BackgroundTasks.execute(() -> StartupTimer.measure("Прогрев драйвера и пула БД",
+                DatabaseConnection::warmUp));
+        BackgroundTasks.execute(() -> StartupTimer.measure("Калибровка BCrypt", BCryptCost::calibrate));
+
         // ГЛАВНОЕ: установить stage в SceneManager
         SceneManager.setPrimaryStage(stage);
 
@@ -28,9 +47,27 @@ public class Main extends Application {
         }
 
         stage.show();
+        StartupTimer.mark("Экран входа показан");
+
+        // Ночные задачи: при запуске и каждую полночь
+        NightlyScheduler scheduler = NightlyScheduler.getInstance();
+        scheduler.register(new OverdueStatusJob());
+        scheduler.register(new FineAccrualJob());
+        scheduler.register(new LoanArchiveJob());
+        scheduler.register(new ChangeLogPurgeJob());
+        scheduler.start();
+    }
+
+    @Override
+    public void stop() {
+        NightlyScheduler.getInstance().stop();
+        ChangeLogPoller.getInstance().stop();
+        EntityCache.printStats();
+        DatabaseConnection.closeConnection();
     }
 
     public static void main(String[] args) {
+        StartupTimer.mark("Запуск main");
         launch(args);
     }
 }
\ No newline at end of file
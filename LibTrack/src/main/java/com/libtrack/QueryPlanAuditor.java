@@ -0,0 +1,159 @@
+package com.libtrack;
+
+import com.libtrack.dao.AuthorDAO;
+import com.libtrack.dao.BookDAO;
+import com.libtrack.dao.DatabaseConnection;
+import com.libtrack.dao.LoanDAO;
+import com.libtrack.dao.QueryPlanRecorder;
+import com.libtrack.dao.QueryPlanRecorder.PlanCheck;
+import com.libtrack.dao.UserDAO;
+import com.libtrack.dao.VisitorDAO;
+import com.libtrack.model.Author;
+import com.libtrack.model.Book;
+import com.libtrack.model.Loan;
+import com.libtrack.model.Visitor;
+import com.libtrack.service.StatisticsService;
+import com.libtrack.util.AppConfig;
+
+import java.util.List;
+
+/**
+ * Проверка планов всех запросов DAO и StatisticsService на заполненной базе.
+ * Вызывает каждый читающий метод (и идемпотентную ночную отметку просрочек),
+ * пул прогоняет каждый запрос через EXPLAIN (QueryPlanRecorder).
+ * Код выхода 1 - есть полный просмотр или filesort больше порога строк.
+ * Запуск: java -Dlibtrack.db.url=... -Dlibtrack.explain.maxRows=1000 com.libtrack.QueryPlanAuditor
+ * Базу нужно заполнить до запуска: на пустых таблицах оптимизатор выбирает другие планы
+ */
+public class QueryPlanAuditor {
+
+    private static final long MAX_ROWS = AppConfig.getInt("libtrack.explain.maxRows", 1000);
+    private static final int PAGE = 100;
+
+    public static void main(String[] args) {
+        if (DatabaseConnection.isEmbedded()) {
+            System.err.println("Проверка планов работает только с MySQL (EXPLAIN), а выбрана встроенная база");
+            System.exit(2);
+        }
+        QueryPlanRecorder.start(MAX_ROWS);
+        try {
+            exercise();
+        } finally {
+            List<PlanCheck> checks = QueryPlanRecorder.stop();
+            DatabaseConnection.closeConnection();
+            System.exit(report(checks) ? 0 : 1);
+        }
+    }
+
+    private static void exercise() {
+        AuthorDAO authorDAO = new AuthorDAO();
+        BookDAO bookDAO = new BookDAO();
+        VisitorDAO visitorDAO = new VisitorDAO();
+        LoanDAO loanDAO = new LoanDAO();
+
+        int authors = authorDAO.countAuthors();
+        authorDAO.getAllAuthors();
+        for (String sortKey : new String[]{"authorId", "lastName"}) {
+            authorDAO.getAuthorsPage(0, PAGE, sortKey, true);
+            authorDAO.getAuthorsPage(authors / 2, PAGE, sortKey, false);
+        }
+        authorDAO.searchAuthors("ов", PAGE);
+        authorDAO.getChangedSince(0);
+
+        int books = bookDAO.countBooks();
+        List<Book> someBooks = bookDAO.getBooksPage(0, 1, "bookId", true);
+        bookDAO.getAllBooks();
+        for (String sortKey : new String[]{"bookId", "title", "isbn", "genre"}) {
+            bookDAO.getBooksPage(0, PAGE, sortKey, true);
+            bookDAO.getBooksPage(books / 2, PAGE, sortKey, false);
+        }
+        bookDAO.findAvailableBooksByPrefix("А", 20);
+        bookDAO.searchBooks("а", PAGE);
+        bookDAO.getAvailableBooks();
+        bookDAO.getBookIdsByNormalizedIsbn();
+        bookDAO.findBookIdByNormalizedIsbn(List.of("9785170000000", "5170000000"));
+        bookDAO.getChangedSince(0);
+
+        int visitors = visitorDAO.countVisitors();
+        List<Visitor> someVisitors = visitorDAO.getVisitorsPage(0, 1, "visitorId", true);
+        visitorDAO.getAllVisitors();
+        for (String sortKey : new String[]{"visitorId", "lastName", "email", "status"}) {
+            visitorDAO.getVisitorsPage(0, PAGE, sortKey, true);
+            visitorDAO.getVisitorsPage(visitors / 2, PAGE, sortKey, false);
+        }
+        visitorDAO.findActiveVisitorsByPrefix("И", 20);
+        visitorDAO.searchVisitors("ов", PAGE);
+        visitorDAO.getActiveVisitors();
+        visitorDAO.getChangedSince(0);
+
+        int loans = loanDAO.countLoans();
+        List<Loan> someLoans = loanDAO.getLoansPage(0, 1, "loanId", true);
+        loanDAO.getAllLoans();
+        for (String sortKey : new String[]{"loanId", "loanDate", "status"}) {
+            loanDAO.getLoansPage(0, PAGE, sortKey, true);
+            loanDAO.getLoansPage(loans / 2, PAGE, sortKey, false);
+        }
+        loanDAO.getActiveLoans();
+        loanDAO.getOverdueLoans();
+        loanDAO.markOverdueLoans(1000);
+        loanDAO.getOverdueLoanIdRange();
+        loanDAO.getChangedSince(0);
+        if (!someLoans.isEmpty()) {
+            loanDAO.getLoansByIds(List.of(someLoans.get(0).getLoanId()));
+        }
+
+        if (!someBooks.isEmpty()) {
+            int bookId = someBooks.get(0).getBookId();
+            bookDAO.getBookById(bookId);
+            loanDAO.findActiveLoanIds(bookId, null);
+            loanDAO.getLoansByBook(bookId);
+            if (!someVisitors.isEmpty()) {
+                loanDAO.findActiveLoanIds(bookId, someVisitors.get(0).getVisitorId());
+            }
+        }
+        if (!someVisitors.isEmpty()) {
+            int visitorId = someVisitors.get(0).getVisitorId();
+            visitorDAO.getVisitorById(visitorId);
+            loanDAO.countActiveLoansByVisitor(visitorId);
+            loanDAO.getTotalFinesByVisitor(visitorId);
+            loanDAO.getLoansByVisitor(visitorId);
+        }
+        List<Author> someAuthors = authorDAO.getAuthorsPage(0, 1, "authorId", true);
+        if (!someAuthors.isEmpty()) {
+            authorDAO.getAuthorById(someAuthors.get(0).getAuthorId());
+        }
+        new UserDAO().getUserById(1);
+
+        StatisticsService statistics = new StatisticsService();
+        statistics.getGeneralStatistics();
+        statistics.getPopularBooks();
+        statistics.getBooksByGenre();
+        statistics.getLoansByMonth();
+        statistics.getMostActiveVisitors();
+        statistics.getReturnStatistics();
+    }
+
+    /**
+     * Вывести планы; true - нарушений нет
+     */
+    private static boolean report(List<PlanCheck> checks) {
+        int failed = 0;
+        for (PlanCheck check : checks) {
+            if (check.isOk()) {
+                continue;
+            }
+            failed++;
+            System.out.println("✗ " + check.getSql());
+            for (String problem : check.getProblems()) {
+                System.out.println("    " + problem);
+            }
+            for (String step : check.getPlan()) {
+                System.out.println("    | " + step);
+            }
+        }
+
+        System.out.println("Проверено запросов: " + checks.size() + ", с нарушениями: " + failed +
+                " (порог " + MAX_ROWS + " строк)");
+        return failed == 0;
+    }
+}
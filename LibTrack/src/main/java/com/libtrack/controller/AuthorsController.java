@@ -1,16 +1,35 @@
 package com.libtrack.controller;
 
-import com.libtrack.dao.AuthorDAO;
+import com.libtrack.dao.AuthorRepository;
+import com.libtrack.dao.ChangeLogPoller;
+import com.libtrack.dao.ChangeLogPoller.ChangeEvent;
+import com.libtrack.dao.Repositories;
 import com.libtrack.model.Author;
+import com.libtrack.util.BackgroundTasks;
+import com.libtrack.util.ListPatcher;
+import com.libtrack.util.LiveSearch;
+import com.libtrack.util.LocalSearchIndex;
+import com.libtrack.util.PagedList;
+import com.libtrack.util.Refreshable;
+import com.libtrack.util.RefreshScheduler;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Контроллер управления авторами
  */
-public class AuthorsController {
+public class AuthorsController implements Refreshable {
+
+    // Источник для RefreshScheduler: полная запись выбранной строки
+    private static final String DETAIL_SOURCE = "authors.detail";
+    // Больше изменений с другого рабочего места - проще перечитать таблицу
+    private static final int REMOTE_PATCH_LIMIT = 50;
 
     @FXML private TableView<Author> authorsTable;
     @FXML private TableColumn<Author, Integer> colAuthorId;
@@ -31,15 +50,21 @@ public class AuthorsController {
     @FXML private Button deleteButton;
     @FXML private Label totalAuthorsLabel;
 
-    private AuthorDAO authorDAO;
+    private AuthorRepository authorDAO;
     private Author selectedAuthor;
+    private LiveSearch<ObservableList<Author>> liveSearch;
+    // Снимок для фильтрации на клиенте; null - таблица большая, ищем на сервере
+    private LocalSearchIndex<Author> localIndex;
+    // Большой справочник без поиска показывается постранично
+    private PagedList<Author> pagedAuthors;
+    // Изменения после записи применяются к текущему списку таблицы, без перезагрузки
+    private final ListPatcher<Author> patcher = new ListPatcher<>(Author::getAuthorId, Author::copyFrom);
 
     @FXML
     public void initialize() {
-        authorDAO = new AuthorDAO();
+        authorDAO = Repositories.authors();
 
         setupTable();
-        loadAuthors();
 
         // Обработка выбора автора
         authorsTable.getSelectionModel().selectedItemProperty().addListener(
@@ -47,18 +72,39 @@ public class AuthorsController {
                     if (newSelection != null) {
                         selectedAuthor = newSelection;
                         fillForm(newSelection);
+                        loadDetails(newSelection);
                     }
                 }
         );
 
-        // Поиск
+        // Поиск: небольшой справочник фильтруется в памяти,
+        // большой - запросом в фоновом потоке после паузы в наборе
+        liveSearch = new LiveSearch<>(searchField.textProperty(),
+                keyword -> authorDAO.searchAuthors(keyword, LiveSearch.MAX_RESULTS),
+                this::showSearchResults,
+                this::loadAuthors);
         searchField.textProperty().addListener((obs, oldVal, newVal) -> {
-            if (newVal == null || newVal.trim().isEmpty()) {
-                loadAuthors();
-            } else {
-                searchAuthors(newVal.trim());
+            if (localIndex != null) {
+                localIndex.filter(newVal);
+                updateTotalLabel();
             }
         });
+
+        loadAuthors();
+
+        ChangeLogPoller.getInstance().addListener(ChangeLogPoller.AUTHORS, this::applyRemoteChanges);
+    }
+
+    /**
+     * Перечитать авторов при повторном показе экрана
+     */
+    @Override
+    public void refresh() {
+        if (localIndex == null && !searchField.getText().trim().isEmpty()) {
+            liveSearch.search(searchField.getText());
+        } else {
+            loadAuthors();
+        }
     }
 
     /**
@@ -70,24 +116,103 @@ public class AuthorsController {
         colLastName.setCellValueFactory(new PropertyValueFactory<>("lastName"));
         colCountry.setCellValueFactory(new PropertyValueFactory<>("country"));
         colBirthYear.setCellValueFactory(new PropertyValueFactory<>("birthYear"));
+
+        PagedList.bindSorting(authorsTable, Map.of(
+                colAuthorId, "authorId",
+                colLastName, "lastName"));
     }
 
     /**
      * Загрузить всех авторов
      */
     private void loadAuthors() {
-        ObservableList<Author> authors = authorDAO.getAllAuthors();
-        authorsTable.setItems(authors);
-        totalAuthorsLabel.setText("Всего авторов: " + authors.size());
+        int total = authorDAO.countAuthors();
+        boolean clientSide = total <= LocalSearchIndex.CLIENT_FILTER_THRESHOLD;
+        liveSearch.setEnabled(!clientSide);
+
+        if (clientSide) {
+            if (localIndex == null) {
+                localIndex = new LocalSearchIndex<>(author -> LocalSearchIndex.key(
+                        author.getFirstName(), author.getLastName(), author.getCountry()));
+            }
+            localIndex.setAll(authorDAO.getAllAuthors());
+            localIndex.filter(searchField.getText());
+            authorsTable.setItems(localIndex.getItems());
+            updateTotalLabel();
+        } else {
+            localIndex = null;
+            if (pagedAuthors == null) {
+                pagedAuthors = new PagedList<>(authorDAO::countAuthors, authorDAO::getAuthorsPage);
+                // Количество перечитывается при каждом refresh() (в том числе после добавления)
+                pagedAuthors.addListener((ListChangeListener<Author>) change ->
+                        totalAuthorsLabel.setText("Всего авторов: " + pagedAuthors.size()));
+            }
+            if (authorsTable.getItems() != pagedAuthors) {
+                authorsTable.setItems(pagedAuthors);
+            }
+            pagedAuthors.refresh();
+            totalAuthorsLabel.setText("Всего авторов: " + total);
+        }
+    }
+
+    /**
+     * Изменения с другого рабочего места: страница большой таблицы правится на месте,
+     * снимок клиентского фильтра, результаты поиска и крупные изменения перечитываются
+     */
+    private void applyRemoteChanges(ChangeEvent event) {
+        if (authorsTable.getItems() != pagedAuthors || event.isReset() || event.size() > REMOTE_PATCH_LIMIT) {
+            refresh();
+            return;
+        }
+
+        BackgroundTasks.run(() -> {
+            List<Author> changed = new ArrayList<>();
+            for (int id : event.getChangedIds()) {
+                Author author = authorDAO.getAuthorById(id);
+                if (author != null) {
+                    changed.add(author);
+                }
+            }
+            return changed;
+        }, changed -> patcher.apply(pagedAuthors, changed, event.getInserted(), event.getDeleted(), any -> true));
     }
 
     /**
-     * Поиск авторов
+     * Обновить счётчик для клиентского фильтра
      */
-    private void searchAuthors(String keyword) {
-        ObservableList<Author> authors = authorDAO.searchAuthors(keyword);
+    private void updateTotalLabel() {
+        int shown = localIndex.getItems().size();
+        int total = localIndex.getTotalCount();
+        totalAuthorsLabel.setText(shown == total ?
+                "Всего авторов: " + total :
+                "Найдено: " + shown);
+    }
+
+    /**
+     * Показать результаты поиска
+     */
+    private void showSearchResults(ObservableList<Author> authors) {
         authorsTable.setItems(authors);
-        totalAuthorsLabel.setText("Найдено: " + authors.size());
+        totalAuthorsLabel.setText(authors.size() < LiveSearch.MAX_RESULTS ?
+                "Найдено: " + authors.size() :
+                "Найдено более " + LiveSearch.MAX_RESULTS + ", уточните запрос");
+    }
+
+    /**
+     * Дочитать биографию выбранного автора (в списки она не загружается)
+     */
+    private void loadDetails(Author author) {
+        biographyArea.setDisable(true);
+        RefreshScheduler.getInstance().request(DETAIL_SOURCE, () -> authorDAO.getAuthorById(author.getAuthorId()), full -> {
+            if (selectedAuthor != author) {
+                return;
+            }
+            if (full != null) {
+                author.setBiography(full.getBiography());
+                biographyArea.setText(full.getBiography());
+            }
+            biographyArea.setDisable(false);
+        });
     }
 
     /**
@@ -113,9 +238,15 @@ public class AuthorsController {
         Author author = new Author();
         fillAuthorFromForm(author);
 
-        if (authorDAO.addAuthor(author)) {
+        Author saved = authorDAO.addAuthor(author);
+        if (saved != null) {
             showAlert(Alert.AlertType.INFORMATION, "Успех", "Автор успешно добавлен");
-            loadAuthors();
+            if (localIndex != null) {
+                localIndex.add(saved);
+                updateTotalLabel();
+            } else {
+                patcher.inserted(authorsTable.getItems(), saved);
+            }
             clearForm();
         } else {
             showAlert(Alert.AlertType.ERROR, "Ошибка", "Не удалось добавить автора");
@@ -132,15 +263,26 @@ public class AuthorsController {
             return;
         }
 
+        if (biographyArea.isDisabled()) {
+            showAlert(Alert.AlertType.WARNING, "Предупреждение", "Биография автора ещё загружается, повторите через секунду");
+            return;
+        }
+
         if (!validateInput()) {
             return;
         }
 
         fillAuthorFromForm(selectedAuthor);
 
-        if (authorDAO.updateAuthor(selectedAuthor)) {
+        Author saved = authorDAO.updateAuthor(selectedAuthor);
+        if (saved != null) {
             showAlert(Alert.AlertType.INFORMATION, "Успех", "Автор успешно обновлен");
-            loadAuthors();
+            if (localIndex != null) {
+                localIndex.update(saved);
+                updateTotalLabel();
+            } else {
+                patcher.updated(authorsTable.getItems(), saved);
+            }
             clearForm();
         } else {
             showAlert(Alert.AlertType.ERROR, "Ошибка", "Не удалось обновить автора");
@@ -167,7 +309,12 @@ public class AuthorsController {
         if (confirmation.showAndWait().get() == ButtonType.OK) {
             if (authorDAO.deleteAuthor(selectedAuthor.getAuthorId())) {
                 showAlert(Alert.AlertType.INFORMATION, "Успех", "Автор успешно удален");
-                loadAuthors();
+                if (localIndex != null) {
+                    localIndex.remove(selectedAuthor);
+                    updateTotalLabel();
+                } else {
+                    patcher.removed(authorsTable.getItems(), selectedAuthor.getAuthorId());
+                }
                 clearForm();
             } else {
                 showAlert(Alert.AlertType.ERROR, "Ошибка",
@@ -210,6 +357,8 @@ public class AuthorsController {
         countryField.clear();
         birthYearField.clear();
         biographyArea.clear();
+        biographyArea.setDisable(false);
+        RefreshScheduler.getInstance().cancel(DETAIL_SOURCE);
         selectedAuthor = null;
         authorsTable.getSelectionModel().clearSelection();
     }
@@ -1,16 +1,34 @@
 package com.libtrack.controller;
 
-import com.libtrack.dao.AuthorDAO;
-import com.libtrack.dao.BookDAO;
+import com.libtrack.dao.AuthorRepository;
+import com.libtrack.dao.BookRepository;
+import com.libtrack.dao.ChangeLogPoller;
+import com.libtrack.dao.ChangeLogPoller.ChangeEvent;
+import com.libtrack.dao.Repositories;
 import com.libtrack.model.Author;
 import com.libtrack.model.Book;
+import com.libtrack.util.BackgroundTasks;
+import com.libtrack.util.ListPatcher;
+import com.libtrack.util.LiveSearch;
+import com.libtrack.util.PagedList;
+import com.libtrack.util.Refreshable;
+import com.libtrack.util.RefreshScheduler;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 
-public class BooksController {
+public class BooksController implements Refreshable {
+
+    // Источник для RefreshScheduler: полная запись выбранной строки
+    private static final String DETAIL_SOURCE = "books.detail";
+    // Больше изменений с другого рабочего места - проще перечитать таблицу
+    private static final int REMOTE_PATCH_LIMIT = 50;
 
     @FXML private TableView<Book> booksTable;
     @FXML private TableColumn<Book, Integer> colBookId;
@@ -22,6 +40,7 @@ public class BooksController {
     @FXML private TableColumn<Book, Integer> colAvailable;
 
     @FXML private TextField searchField;
+    @FXML private Label totalBooksLabel;
     @FXML private TextField titleField;
     @FXML private TextField isbnField;
     @FXML private ComboBox<Author> authorComboBox;
@@ -38,14 +57,18 @@ public class BooksController {
     @FXML private Button deleteButton;
     @FXML private Button clearButton;
 
-    private BookDAO bookDAO;
-    private AuthorDAO authorDAO;
+    private BookRepository bookDAO;
+    private AuthorRepository authorDAO;
     private Book selectedBook;
+    private PagedList<Book> pagedBooks;
+    private LiveSearch<ObservableList<Book>> liveSearch;
+    // Изменения после записи применяются к текущему списку таблицы, без перезагрузки
+    private final ListPatcher<Book> patcher = new ListPatcher<>(Book::getBookId, Book::copyFrom);
 
     @FXML
     public void initialize() {
-        bookDAO = new BookDAO();
-        authorDAO = new AuthorDAO();
+        bookDAO = Repositories.books();
+        authorDAO = Repositories.authors();
 
         setupTable();
         loadBooks();
@@ -57,18 +80,29 @@ public class BooksController {
                     if (newSelection != null) {
                         selectedBook = newSelection;
                         fillForm(newSelection);
+                        loadDetails(newSelection);
                     }
                 }
         );
 
 
-        searchField.textProperty().addListener((obs, oldVal, newVal) -> {
-            if (newVal == null || newVal.trim().isEmpty()) {
-                loadBooks();
-            } else {
-                searchBooks(newVal.trim());
-            }
-        });
+        liveSearch = new LiveSearch<>(searchField.textProperty(),
+                keyword -> bookDAO.searchBooks(keyword, LiveSearch.MAX_RESULTS),
+                this::showSearchResults,
+                this::loadBooks);
+
+        ChangeLogPoller.getInstance().addListener(ChangeLogPoller.BOOKS, this::applyRemoteChanges);
+        ChangeLogPoller.getInstance().addListener(ChangeLogPoller.AUTHORS, event -> loadAuthors());
+    }
+
+
+    /**
+     * Перечитать книги (с учётом текущего поиска) и список авторов
+     */
+    @Override
+    public void refresh() {
+        liveSearch.search(searchField.getText());
+        loadAuthors();
     }
 
 
@@ -80,24 +114,93 @@ public class BooksController {
         colGenre.setCellValueFactory(new PropertyValueFactory<>("genre"));
         colYear.setCellValueFactory(new PropertyValueFactory<>("publicationYear"));
         colAvailable.setCellValueFactory(new PropertyValueFactory<>("copiesAvailable"));
+
+        PagedList.bindSorting(booksTable, Map.of(
+                colBookId, "bookId",
+                colIsbn, "isbn",
+                colTitle, "title",
+                colGenre, "genre"));
     }
 
 
     private void loadBooks() {
-        ObservableList<Book> books = bookDAO.getAllBooks();
-        booksTable.setItems(books);
+        if (pagedBooks == null) {
+            pagedBooks = new PagedList<>(bookDAO::countBooks, bookDAO::getBooksPage);
+            // Количество перечитывается при каждом refresh() и меняется при сдвиге строк
+            pagedBooks.addListener((ListChangeListener<Book>) change -> {
+                if (booksTable.getItems() == pagedBooks) {
+                    totalBooksLabel.setText("Всего книг: " + pagedBooks.size());
+                }
+            });
+        }
+        if (booksTable.getItems() != pagedBooks) {
+            booksTable.setItems(pagedBooks);
+            totalBooksLabel.setText("Всего книг: " + pagedBooks.size());
+        }
+        pagedBooks.refresh();
     }
 
 
     private void loadAuthors() {
-        ObservableList<Author> authors = authorDAO.getAllAuthors();
-        authorComboBox.setItems(authors);
+        RefreshScheduler.getInstance().request("books.authors", authorDAO::getAllAuthors, authors -> {
+            Author selected = authorComboBox.getValue();
+            authorComboBox.setItems(authors);
+            if (selected != null) {
+                authors.stream()
+                        .filter(author -> author.getAuthorId() == selected.getAuthorId())
+                        .findFirst()
+                        .ifPresent(authorComboBox::setValue);
+            }
+        });
     }
 
 
-    private void searchBooks(String keyword) {
-        ObservableList<Book> books = bookDAO.searchBooks(keyword);
+    /**
+     * Изменения книг с другого рабочего места: страница таблицы правится на месте,
+     * результаты поиска и крупные изменения перечитываются
+     */
+    private void applyRemoteChanges(ChangeEvent event) {
+        if (booksTable.getItems() != pagedBooks || event.isReset() || event.size() > REMOTE_PATCH_LIMIT) {
+            liveSearch.search(searchField.getText());
+            return;
+        }
+
+        BackgroundTasks.run(() -> {
+            List<Book> changed = new ArrayList<>();
+            for (int bookId : event.getChangedIds()) {
+                Book book = bookDAO.getBookById(bookId);
+                if (book != null) {
+                    changed.add(book);
+                }
+            }
+            return changed;
+        }, changed -> patcher.apply(pagedBooks, changed, event.getInserted(), event.getDeleted(), book -> true));
+    }
+
+
+    private void showSearchResults(ObservableList<Book> books) {
         booksTable.setItems(books);
+        totalBooksLabel.setText(books.size() < LiveSearch.MAX_RESULTS ?
+                "Найдено: " + books.size() :
+                "Найдено более " + LiveSearch.MAX_RESULTS + ", уточните запрос");
+    }
+
+
+    /**
+     * Дочитать описание выбранной книги (в списки оно не загружается)
+     */
+    private void loadDetails(Book book) {
+        descriptionArea.setDisable(true);
+        RefreshScheduler.getInstance().request(DETAIL_SOURCE, () -> bookDAO.getBookById(book.getBookId()), full -> {
+            if (selectedBook != book) {
+                return;
+            }
+            if (full != null) {
+                book.setDescription(full.getDescription());
+                descriptionArea.setText(full.getDescription());
+            }
+            descriptionArea.setDisable(false);
+        });
     }
 
 
@@ -131,9 +234,10 @@ public class BooksController {
         Book book = new Book();
         fillBookFromForm(book);
 
-        if (bookDAO.addBook(book)) {
+        Book saved = bookDAO.addBook(book);
+        if (saved != null) {
             showAlert(Alert.AlertType.INFORMATION, "Успех", "Книга успешно добавлена");
-            loadBooks();
+            patcher.inserted(booksTable.getItems(), saved);
             clearForm();
         } else {
             showAlert(Alert.AlertType.ERROR, "Ошибка", "Не удалось добавить книгу");
@@ -148,15 +252,21 @@ public class BooksController {
             return;
         }
 
+        if (descriptionArea.isDisabled()) {
+            showAlert(Alert.AlertType.WARNING, "Предупреждение", "Описание книги ещё загружается, повторите через секунду");
+            return;
+        }
+
         if (!validateInput()) {
             return;
         }
 
         fillBookFromForm(selectedBook);
 
-        if (bookDAO.updateBook(selectedBook)) {
+        Book saved = bookDAO.updateBook(selectedBook);
+        if (saved != null) {
             showAlert(Alert.AlertType.INFORMATION, "Успех", "Книга успешно обновлена");
-            loadBooks();
+            patcher.updated(booksTable.getItems(), saved);
             clearForm();
         } else {
             showAlert(Alert.AlertType.ERROR, "Ошибка", "Не удалось обновить книгу");
@@ -179,7 +289,7 @@ public class BooksController {
         if (confirmation.showAndWait().get() == ButtonType.OK) {
             if (bookDAO.deleteBook(selectedBook.getBookId())) {
                 showAlert(Alert.AlertType.INFORMATION, "Успех", "Книга успешно удалена");
-                loadBooks();
+                patcher.removed(booksTable.getItems(), selectedBook.getBookId());
                 clearForm();
             } else {
                 showAlert(Alert.AlertType.ERROR, "Ошибка", "Не удалось удалить книгу");
@@ -219,6 +329,8 @@ public class BooksController {
         copiesAvailableField.clear();
         descriptionArea.clear();
         authorComboBox.setValue(null);
+        descriptionArea.setDisable(false);
+        RefreshScheduler.getInstance().cancel(DETAIL_SOURCE);
         selectedBook = null;
         booksTable.getSelectionModel().clearSelection();
     }
@@ -1,17 +1,18 @@
 package com.libtrack.controller;
 
+import com.libtrack.dao.ChangeLogPoller;
 import com.libtrack.dao.DatabaseConnection;
 import com.libtrack.util.CurrentUser;
+import com.libtrack.util.Refreshable;
+import com.libtrack.util.RefreshScheduler;
 import com.libtrack.util.SceneManager;
+import com.libtrack.util.ViewRegistry;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Parent;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.layout.StackPane;
 import javafx.scene.layout.VBox;
 
-import java.io.IOException;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.Statement;
@@ -19,7 +20,7 @@ import java.sql.Statement;
 /**
  * Контроллер главного экрана с боковым меню
  */
-public class DashboardController {
+public class DashboardController implements Refreshable {
 
     @FXML
     private Label welcomeLabel;
@@ -55,6 +56,15 @@ public class DashboardController {
 
     @FXML
     public void initialize() {
+        // Разметка может быть собрана до входа (SceneManager.prepareDashboard),
+        // поэтому данные загружаются в refresh() при показе экрана
+    }
+
+    /**
+     * Заполнить главный экран данными вошедшего пользователя
+     */
+    @Override
+    public void refresh() {
         // Установить приветствие
         CurrentUser currentUser = CurrentUser.getInstance();
         if (currentUser.isLoggedIn()) {
@@ -63,30 +73,44 @@ public class DashboardController {
 
         // Загрузить статистику Dashboard
         loadStatistics();
+
+        // Изменения с других рабочих мест: счётчики главной и открытые таблицы разделов
+        ChangeLogPoller poller = ChangeLogPoller.getInstance();
+        for (String entity : new String[]{ChangeLogPoller.BOOKS, ChangeLogPoller.AUTHORS,
+                ChangeLogPoller.VISITORS, ChangeLogPoller.LOANS}) {
+            poller.addListener(entity, event -> {
+                if (dashboardContent.isVisible()) {
+                    loadStatistics();
+                }
+            });
+        }
+        poller.start();
+
+        // Разобрать экраны разделов заранее, пока пользователь смотрит на главную
+        ViewRegistry.getInstance().preload(
+                SceneManager.BOOKS_FXML,
+                SceneManager.AUTHORS_FXML,
+                SceneManager.VISITORS_FXML,
+                SceneManager.LOANS_FXML,
+                SceneManager.STATISTICS_FXML);
     }
 
     /**
-     * Загрузить контент в центральную область
+     * Показать экран в центральной области (из кэша или загрузить)
      */
     private void loadContent(String fxmlPath) {
-        try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource(fxmlPath));
-            Parent content = loader.load();
-
-            // Скрыть Dashboard, показать contentArea
-            dashboardContent.setVisible(false);
-            dashboardContent.setManaged(false);
-            contentArea.setVisible(true);
-            contentArea.setManaged(true);
-
-            contentArea.getChildren().clear();
-            contentArea.getChildren().add(content);
-
-            System.out.println("✓ Загружен контент: " + fxmlPath);
-        } catch (IOException e) {
-            System.err.println("✗ Ошибка загрузки контента: " + e.getMessage());
-            e.printStackTrace();
+        ViewRegistry.View view = ViewRegistry.getInstance().show(fxmlPath);
+        if (view == null) {
+            return;
         }
+
+        // Скрыть Dashboard, показать contentArea
+        dashboardContent.setVisible(false);
+        dashboardContent.setManaged(false);
+        contentArea.setVisible(true);
+        contentArea.setManaged(true);
+
+        contentArea.getChildren().setAll(view.getRoot());
     }
 
     /**
@@ -128,39 +152,51 @@ public class DashboardController {
     }
 
     /**
-     * Загрузить статистику Dashboard
+     * Загрузить статистику Dashboard (повторные запросы подряд сливаются в один)
      */
     private void loadStatistics() {
-        try (Connection conn = DatabaseConnection.getConnection();
-             Statement stmt = conn.createStatement()) {
-
-            // Подсчет книг
-            ResultSet rs = stmt.executeQuery("SELECT COUNT(*) as count FROM books");
-            if (rs.next() && totalBooksLabel != null) {
-                totalBooksLabel.setText(String.valueOf(rs.getInt("count")));
-            }
+        RefreshScheduler.getInstance().request("dashboard.counters", this::queryCounters, this::showCounters);
+    }
 
-            // Подсчет активных выдач
-            rs = stmt.executeQuery("SELECT COUNT(*) as count FROM loans WHERE status = 'active'");
-            if (rs.next() && activeLoanLabel != null) {
-                activeLoanLabel.setText(String.valueOf(rs.getInt("count")));
-            }
+    /**
+     * Счётчики книг, активных выдач, посетителей и авторов (в фоновом потоке)
+     */
+    private int[] queryCounters() {
+        String[] queries = {
+                "SELECT COUNT(*) as count FROM books",
+                "SELECT COUNT(*) as count FROM loans WHERE status IN ('active', 'overdue')",
+                "SELECT COUNT(*) as count FROM visitors",
+                "SELECT COUNT(*) as count FROM authors"
+        };
+        int[] counters = new int[queries.length];
 
-            // Подсчет посетителей
-            rs = stmt.executeQuery("SELECT COUNT(*) as count FROM visitors");
-            if (rs.next() && totalVisitorsLabel != null) {
-                totalVisitorsLabel.setText(String.valueOf(rs.getInt("count")));
-            }
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             Statement stmt = conn.createStatement()) {
 
-            // Подсчет авторов
-            rs = stmt.executeQuery("SELECT COUNT(*) as count FROM authors");
-            if (rs.next() && totalAuthorsLabel != null) {
-                totalAuthorsLabel.setText(String.valueOf(rs.getInt("count")));
+            for (int i = 0; i < queries.length; i++) {
+                ResultSet rs = stmt.executeQuery(queries[i]);
+                if (rs.next()) {
+                    counters[i] = rs.getInt("count");
+                }
             }
 
         } catch (Exception e) {
             System.err.println("Ошибка загрузки статистики: " + e.getMessage());
             e.printStackTrace();
+            return null;
+        }
+        return counters;
+    }
+
+    private void showCounters(int[] counters) {
+        if (counters == null) {
+            return;
+        }
+        Label[] labels = {totalBooksLabel, activeLoanLabel, totalVisitorsLabel, totalAuthorsLabel};
+        for (int i = 0; i < labels.length; i++) {
+            if (labels[i] != null) {
+                labels[i].setText(String.valueOf(counters[i]));
+            }
         }
     }
 
@@ -169,7 +205,7 @@ public class DashboardController {
      */
     @FXML
     private void showBooks() {
-        loadContent("/fxml/books.fxml");
+        loadContent(SceneManager.BOOKS_FXML);
         setActiveButton(btnBooks);
     }
 
@@ -178,7 +214,7 @@ public class DashboardController {
      */
     @FXML
     private void showAuthors() {
-        loadContent("/fxml/authors.fxml");
+        loadContent(SceneManager.AUTHORS_FXML);
         setActiveButton(btnAuthors);
     }
 
@@ -187,7 +223,7 @@ public class DashboardController {
      */
     @FXML
     private void showVisitors() {
-        loadContent("/fxml/visitors.fxml");
+        loadContent(SceneManager.VISITORS_FXML);
         setActiveButton(btnVisitors);
     }
 
@@ -196,7 +232,7 @@ public class DashboardController {
      */
     @FXML
     private void showLoans() {
-        loadContent("/fxml/loans.fxml");
+        loadContent(SceneManager.LOANS_FXML);
         setActiveButton(btnLoans);
     }
 
@@ -205,7 +241,7 @@ public class DashboardController {
      */
     @FXML
     private void showStatistics() {
-        loadContent("/fxml/statistics.fxml");
+        loadContent(SceneManager.STATISTICS_FXML);
         setActiveButton(btnStatistics);
     }
 
@@ -215,6 +251,9 @@ public class DashboardController {
     @FXML
     private void handleLogout() {
         CurrentUser.getInstance().logout();
+        ChangeLogPoller.getInstance().stop();
+        ViewRegistry.getInstance().clear();
+        RefreshScheduler.getInstance().cancelAll();
         SceneManager.showLogin();
     }
 }
\ No newline at end of file
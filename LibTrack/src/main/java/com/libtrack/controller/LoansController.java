@@ -1,19 +1,43 @@
 package com.libtrack.controller;
 
-import com.libtrack.dao.BookDAO;
-import com.libtrack.dao.LoanDAO;
-import com.libtrack.dao.VisitorDAO;
+import com.libtrack.dao.BookRepository;
+import com.libtrack.dao.ChangeLogPoller;
+import com.libtrack.dao.ChangeLogPoller.ChangeEvent;
+import com.libtrack.dao.IsbnIndex;
+import com.libtrack.dao.LoanRepository;
+import com.libtrack.dao.Repositories;
+import com.libtrack.dao.VisitorRepository;
 import com.libtrack.model.Book;
 import com.libtrack.model.Loan;
 import com.libtrack.model.Visitor;
+import com.libtrack.service.LoanService;
+import com.libtrack.service.LoanService.BatchItemResult;
+import com.libtrack.util.BackgroundTasks;
+import com.libtrack.util.CurrentUser;
+import com.libtrack.util.ListPatcher;
+import com.libtrack.util.PagedList;
+import com.libtrack.util.Refreshable;
+import com.libtrack.util.RefreshScheduler;
+import com.libtrack.util.Typeahead;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.scene.input.KeyCode;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
 
 
-public class LoansController {
+public class LoansController implements Refreshable {
+
+    // Источник для RefreshScheduler: отфильтрованный список выдач
+    private static final String LOANS_SOURCE = "loans.table";
+    // Больше изменений с другого рабочего места - проще перечитать таблицу
+    private static final int REMOTE_PATCH_LIMIT = 200;
 
     @FXML private TableView<Loan> loansTable;
     @FXML private TableColumn<Loan, Integer> colLoanId;
@@ -29,6 +53,12 @@ public class LoansController {
     @FXML private DatePicker loanDatePicker;
     @FXML private DatePicker dueDatePicker;
     @FXML private TextField daysField;
+    @FXML private ListView<Book> issueBasketList;
+
+    @FXML private TextField scanField;
+    @FXML private RadioButton scanIssueRadio;
+    @FXML private RadioButton scanReturnRadio;
+    @FXML private Label scanStatusLabel;
 
     @FXML private RadioButton allLoansRadio;
     @FXML private RadioButton activeLoansRadio;
@@ -36,31 +66,48 @@ public class LoansController {
 
     @FXML private Button issueButton;
     @FXML private Button returnButton;
-
-    private LoanDAO loanDAO;
-    private BookDAO bookDAO;
-    private VisitorDAO visitorDAO;
-    private Loan selectedLoan;
+    @FXML private Label selectedLoanInfo;
+
+    private LoanRepository loanDAO;
+    private BookRepository bookDAO;
+    private VisitorRepository visitorDAO;
+    private LoanService loanService;
+    // Все выдачи грузятся страницами, активные и просроченные - целиком
+    private PagedList<Loan> pagedLoans;
+    // Фильтр, выдачи которого сейчас в таблице (для отфильтрованных списков)
+    private Toggle loadedFilter;
+    private final ListPatcher<Loan> patcher = new ListPatcher<>(Loan::getLoanId, Loan::copyFrom);
+    // Книги и читатели подбираются по префиксу, а не загружаются целиком
+    private Typeahead<Book> bookTypeahead;
+    private Typeahead<Visitor> visitorTypeahead;
 
     @FXML
     public void initialize() {
-        loanDAO = new LoanDAO();
-        bookDAO = new BookDAO();
-        visitorDAO = new VisitorDAO();
+        loanDAO = Repositories.loans();
+        bookDAO = Repositories.books();
+        visitorDAO = Repositories.visitors();
+        loanService = new LoanService();
 
         setupTable();
         loadLoans();
-        loadBooksAndVisitors();
+        setupTypeahead();
         setupDatePickers();
+        setupScanner();
 
 
-        loansTable.getSelectionModel().selectedItemProperty().addListener(
-                (obs, oldSelection, newSelection) -> {
-                    selectedLoan = newSelection;
-                    returnButton.setDisable(newSelection == null ||
-                            !"active".equals(newSelection.getStatus()));
-                }
-        );
+        // Несколько выдач можно вернуть разом (Ctrl/Shift + клик)
+        loansTable.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
+        loansTable.getSelectionModel().getSelectedItems().addListener(
+                (ListChangeListener<Loan>) change -> updateReturnControls());
+        updateReturnControls();
+
+        // Корзина выдачи: Delete убирает книгу из списка
+        issueBasketList.setOnKeyPressed(event -> {
+            if (event.getCode() == KeyCode.DELETE || event.getCode() == KeyCode.BACK_SPACE) {
+                issueBasketList.getItems().removeAll(
+                        List.copyOf(issueBasketList.getSelectionModel().getSelectedItems()));
+            }
+        });
 
 
         ToggleGroup filterGroup = new ToggleGroup();
@@ -91,6 +138,24 @@ public class LoansController {
                 }
             }
         });
+
+
+        // Выдачи и возвраты на других рабочих местах
+        ChangeLogPoller poller = ChangeLogPoller.getInstance();
+        poller.addListener(ChangeLogPoller.LOANS, this::applyRemoteChanges);
+        poller.addListener(ChangeLogPoller.BOOKS, event -> bookTypeahead.invalidate());
+        poller.addListener(ChangeLogPoller.VISITORS, event -> visitorTypeahead.invalidate());
+    }
+
+
+    /**
+     * Перечитать выдачи по текущему фильтру и сбросить кэш подсказок
+     */
+    @Override
+    public void refresh() {
+        reloadCurrentFilter();
+        bookTypeahead.invalidate();
+        visitorTypeahead.invalidate();
     }
 
 
@@ -103,6 +168,11 @@ public class LoansController {
         colReturnDate.setCellValueFactory(new PropertyValueFactory<>("returnDate"));
         colStatus.setCellValueFactory(new PropertyValueFactory<>("displayStatus"));
 
+        PagedList.bindSorting(loansTable, Map.of(
+                colLoanId, "loanId",
+                colLoanDate, "loanDate",
+                colStatus, "status"));
+
 
         colStatus.setCellFactory(column -> new TableCell<Loan, String>() {
             @Override
@@ -134,29 +204,150 @@ public class LoansController {
 
 
     private void loadLoans() {
-        ObservableList<Loan> loans = loanDAO.getAllLoans();
-        loansTable.setItems(loans);
+        // Отфильтрованная загрузка, если ещё не завершилась, таблицу уже не касается
+        RefreshScheduler.getInstance().cancel(LOANS_SOURCE);
+        loadedFilter = null;
+        if (pagedLoans == null) {
+            pagedLoans = new PagedList<>(loanDAO::countLoans, loanDAO::getLoansPage);
+        }
+        if (loansTable.getItems() != pagedLoans) {
+            loansTable.setItems(pagedLoans);
+        }
+        pagedLoans.refresh();
     }
 
 
     private void loadActiveLoans() {
-        ObservableList<Loan> loans = loanDAO.getActiveLoans();
-        loansTable.setItems(loans);
+        loadFilteredLoans(activeLoansRadio, loanDAO::getActiveLoans);
     }
 
 
     private void loadOverdueLoans() {
-        ObservableList<Loan> loans = loanDAO.getOverdueLoans();
-        loansTable.setItems(loans);
+        loadFilteredLoans(overdueLoansRadio, loanDAO::getOverdueLoans);
+    }
+
+
+    /**
+     * Загрузить отфильтрованные выдачи в фоне. Несколько запросов подряд
+     * (переключение фильтра, возврат, показ экрана) дают одну загрузку;
+     * тот же фильтр сверяется с таблицей, новый - заменяет список
+     */
+    private void loadFilteredLoans(Toggle filter, Callable<ObservableList<Loan>> query) {
+        RefreshScheduler.getInstance().request(LOANS_SOURCE, query, loans -> {
+            if (loadedFilter == filter) {
+                patcher.sync(loansTable.getItems(), loans);
+            } else {
+                loadedFilter = filter;
+                loansTable.setItems(loans);
+            }
+            loansTable.refresh();
+            updateReturnControls();
+        });
+    }
+
+
+    /**
+     * Попадает ли выдача в текущий фильтр таблицы
+     */
+    private boolean belongsToCurrentFilter(Loan loan) {
+        if (activeLoansRadio.isSelected()) {
+            return loan.isActive();
+        }
+        if (overdueLoansRadio.isSelected()) {
+            return loan.isOverdue();
+        }
+        return true;
     }
 
 
-    private void loadBooksAndVisitors() {
-        ObservableList<Book> availableBooks = bookDAO.getAvailableBooks();
-        bookComboBox.setItems(availableBooks);
+    /**
+     * Изменения выдач с другого рабочего места: изменённые строки перечитываются по ID
+     * и вносятся в таблицу так же, как результаты своих выдач и возвратов
+     */
+    private void applyRemoteChanges(ChangeEvent event) {
+        if (event.isReset() || event.size() > REMOTE_PATCH_LIMIT) {
+            reloadCurrentFilter();
+            return;
+        }
 
-        ObservableList<Visitor> activeVisitors = visitorDAO.getActiveVisitors();
-        visitorComboBox.setItems(activeVisitors);
+        BackgroundTasks.run(() -> loanDAO.getLoansByIds(event.getChangedIds()), loans -> {
+            patcher.apply(loansTable.getItems(), loans, event.getInserted(), event.getDeleted(),
+                    this::belongsToCurrentFilter);
+            loansTable.refresh();
+            updateReturnControls();
+        });
+    }
+
+
+    /**
+     * Внести результаты выдачи/возврата в таблицу без перезагрузки списка
+     */
+    private void applyResults(List<BatchItemResult> results, boolean issued) {
+        List<Loan> loans = new ArrayList<>();
+        for (BatchItemResult result : results) {
+            if (result.getLoan() != null) {
+                loans.add(result.getLoan());
+            }
+        }
+        if (issued) {
+            patcher.insertedAll(loansTable.getItems(), loans, this::belongsToCurrentFilter);
+        } else {
+            for (Loan loan : loans) {
+                patcher.updated(loansTable.getItems(), loan, this::belongsToCurrentFilter);
+            }
+        }
+        // Статус в ячейке не наблюдаемый - перерисовать видимые строки
+        loansTable.refresh();
+        updateReturnControls();
+    }
+
+
+    private void setupTypeahead() {
+        bookComboBox.setPromptText("Название или ISBN");
+        bookTypeahead = new Typeahead<>(bookComboBox,
+                bookDAO::findAvailableBooksByPrefix,
+                (book, prefix) -> startsWith(book.getTitle(), prefix) ||
+                        startsWith(book.getIsbn(), prefix));
+
+        visitorComboBox.setPromptText("Фамилия, email или телефон");
+        visitorTypeahead = new Typeahead<>(visitorComboBox,
+                visitorDAO::findActiveVisitorsByPrefix,
+                (visitor, prefix) -> startsWith(visitor.getLastName(), prefix) ||
+                        startsWith(visitor.getEmail(), prefix) ||
+                        startsWith(visitor.getPhone(), prefix));
+    }
+
+
+    private void setupScanner() {
+        ToggleGroup scanModeGroup = new ToggleGroup();
+        scanIssueRadio.setToggleGroup(scanModeGroup);
+        scanReturnRadio.setToggleGroup(scanModeGroup);
+        scanIssueRadio.setSelected(true);
+
+        // Индекс ISBN грузится в фоне, первый скан не ждёт загрузки
+        BackgroundTasks.execute(IsbnIndex.getInstance()::preload);
+    }
+
+
+    private static boolean startsWith(String value, String lowerCasePrefix) {
+        return value != null && value.toLowerCase().startsWith(lowerCasePrefix);
+    }
+
+
+    /**
+     * Добавить выбранную книгу в список на выдачу
+     */
+    @FXML
+    private void handleAddToBasket() {
+        Book book = bookComboBox.getValue();
+        if (book == null) {
+            showAlert(Alert.AlertType.WARNING, "Предупреждение", "Выберите книгу");
+            return;
+        }
+
+        issueBasketList.getItems().add(book);
+        bookComboBox.setValue(null);
+        bookComboBox.requestFocus();
     }
 
 
@@ -166,57 +357,187 @@ public class LoansController {
             return;
         }
 
-        Book book = bookComboBox.getValue();
+        List<Book> books = issueBasketList.getItems().isEmpty() ?
+                List.of(bookComboBox.getValue()) :
+                List.copyOf(issueBasketList.getItems());
         Visitor visitor = visitorComboBox.getValue();
-        LocalDate loanDate = loanDatePicker.getValue();
-        LocalDate dueDate = dueDatePicker.getValue();
-
 
-        if (book.getCopiesAvailable() <= 0) {
-            showAlert(Alert.AlertType.ERROR, "Ошибка", "Книга недоступна для выдачи");
+        List<BatchItemResult> results;
+        try {
+            results = loanService.issueBooks(visitor.getVisitorId(),
+                    books.stream().map(Book::getBookId).toList(),
+                    loanDatePicker.getValue(), dueDatePicker.getValue(),
+                    CurrentUser.getInstance().getUserId());
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            showAlert(Alert.AlertType.ERROR, "Ошибка", e.getMessage());
             return;
         }
 
-        if (loanDAO.issueLoan(book.getBookId(), visitor.getVisitorId(),
-                loanDate, dueDate, 1)) { // 1 - ID пользователя (временно)
-            showAlert(Alert.AlertType.INFORMATION, "Успех",
-                    "Книга \"" + book.getTitle() + "\" выдана читателю " + visitor.getFullName());
-            loadLoans();
-            loadBooksAndVisitors();
+        applyResults(results, true);
+        // Изменилось число доступных экземпляров
+        bookTypeahead.invalidate();
+
+        long issued = results.stream().filter(BatchItemResult::isSuccess).count();
+        if (issued > 0) {
             clearIssueForm();
-        } else {
-            showAlert(Alert.AlertType.ERROR, "Ошибка", "Не удалось выдать книгу");
         }
+        showBatchSummary("Выдано читателю " + visitor.getFullName(), results);
     }
 
 
     @FXML
     private void handleReturn() {
-        if (selectedLoan == null) {
+        List<Loan> loans = getSelectedActiveLoans();
+        if (loans.isEmpty()) {
             showAlert(Alert.AlertType.WARNING, "Предупреждение", "Выберите выдачу для возврата");
             return;
         }
 
         Alert confirmation = new Alert(Alert.AlertType.CONFIRMATION);
         confirmation.setTitle("Подтверждение возврата");
-        confirmation.setHeaderText("Вернуть книгу?");
-        confirmation.setContentText("Книга: " + selectedLoan.getBookTitle() + "\n" +
-                "Читатель: " + selectedLoan.getVisitorName());
+        if (loans.size() == 1) {
+            Loan loan = loans.get(0);
+            confirmation.setHeaderText("Вернуть книгу?");
+            confirmation.setContentText("Книга: " + loan.getBookTitle() + "\n" +
+                    "Читатель: " + loan.getVisitorName());
+        } else {
+            confirmation.setHeaderText("Вернуть книги: " + loans.size() + "?");
+            StringBuilder content = new StringBuilder();
+            for (Loan loan : loans) {
+                content.append("• ").append(loan.getBookTitle())
+                        .append(" (").append(loan.getVisitorName()).append(")\n");
+            }
+            confirmation.setContentText(content.toString());
+        }
 
         if (confirmation.showAndWait().get() == ButtonType.OK) {
-            if (loanDAO.returnLoan(selectedLoan.getLoanId(), LocalDate.now())) {
-                showAlert(Alert.AlertType.INFORMATION, "Успех", "Книга успешно возвращена");
-                loadLoans();
-                loadBooksAndVisitors();
+            List<BatchItemResult> results = loanService.returnBooks(
+                    loans.stream().map(Loan::getLoanId).toList());
+
+            applyResults(results, false);
+            bookTypeahead.invalidate();
+            showBatchSummary("Возвращено", results);
+        }
+    }
+
+
+    /**
+     * Скан ISBN (сканер вводит код и Enter): сразу выдать выбранному читателю
+     * или вернуть его выдачу этой книги
+     */
+    @FXML
+    private void handleScan() {
+        String isbn = scanField.getText().trim();
+        scanField.clear();
+        scanField.requestFocus();
+        if (isbn.isEmpty()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        Visitor visitor = visitorComboBox.getValue();
+        BatchItemResult result;
+
+        try {
+            if (scanReturnRadio.isSelected()) {
+                result = loanService.returnByIsbn(isbn, visitor != null ? visitor.getVisitorId() : null);
             } else {
-                showAlert(Alert.AlertType.ERROR, "Ошибка", "Не удалось вернуть книгу");
+                if (visitor == null) {
+                    showScanStatus(false, "Выберите читателя для выдачи");
+                    return;
+                }
+                LocalDate loanDate = loanDatePicker.getValue() != null ? loanDatePicker.getValue() : LocalDate.now();
+                LocalDate dueDate = dueDatePicker.getValue() != null ? dueDatePicker.getValue() : loanDate.plusDays(14);
+                result = loanService.issueByIsbn(isbn, visitor.getVisitorId(), loanDate, dueDate,
+                        CurrentUser.getInstance().getUserId());
             }
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            showScanStatus(false, e.getMessage());
+            return;
+        }
+
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        if (result.isSuccess()) {
+            applyResults(List.of(result), !scanReturnRadio.isSelected());
+            bookTypeahead.invalidate();
+
+            String action = scanReturnRadio.isSelected() ? "Возвращена" : "Выдана";
+            String fine = result.getFine() > 0 ? String.format(", штраф %.2f", result.getFine()) : "";
+            showScanStatus(true, action + ": " + result.getTitle() + fine + " (" + elapsedMs + " мс)");
+        } else {
+            showScanStatus(false, result.getTitle() + ": " + result.getMessage());
+        }
+    }
+
+
+    private void showScanStatus(boolean success, String message) {
+        scanStatusLabel.setText((success ? "✓ " : "✗ ") + message);
+        scanStatusLabel.setStyle(success ? "-fx-text-fill: #10b981;" : "-fx-text-fill: #ef4444; -fx-font-weight: bold;");
+    }
+
+
+    /**
+     * Выбранные в таблице выдачи, которые ещё не возвращены
+     * (строки постраничного списка, которые не успели загрузиться, пропускаются)
+     */
+    private List<Loan> getSelectedActiveLoans() {
+        return loansTable.getSelectionModel().getSelectedItems().stream()
+                .filter(loan -> loan != null && loan.isActive())
+                .toList();
+    }
+
+
+    private void updateReturnControls() {
+        int count = getSelectedActiveLoans().size();
+        returnButton.setDisable(count == 0);
+        returnButton.setText(count > 1 ? "Вернуть книги (" + count + ")" : "Вернуть книгу");
+        selectedLoanInfo.setText(count == 0 ?
+                "Выберите выдачи для возврата (Ctrl/Shift - несколько)" :
+                "Выбрано для возврата: " + count);
+    }
+
+
+    /**
+     * Итог пакетной операции: сколько выполнено, штрафы и причины отказов
+     */
+    private void showBatchSummary(String action, List<BatchItemResult> results) {
+        long succeeded = results.stream().filter(BatchItemResult::isSuccess).count();
+        double fines = results.stream().mapToDouble(BatchItemResult::getFine).sum();
+
+        StringBuilder content = new StringBuilder(action + ": " + succeeded + " из " + results.size());
+        if (fines > 0) {
+            content.append(String.format("%nШтраф к оплате: %.2f", fines));
+        }
+        for (BatchItemResult result : results) {
+            if (!result.isSuccess()) {
+                content.append("\n✗ ").append(result.getTitle()).append(": ").append(result.getMessage());
+            }
+        }
+
+        Alert.AlertType type = succeeded == results.size() ? Alert.AlertType.INFORMATION :
+                succeeded == 0 ? Alert.AlertType.ERROR : Alert.AlertType.WARNING;
+        showAlert(type, succeeded == results.size() ? "Успех" : "Результат", content.toString());
+    }
+
+
+    /**
+     * Перечитать текущий фильтр; отфильтрованные списки сверяются с таблицей,
+     * чтобы не сбрасывать выделение и прокрутку
+     */
+    private void reloadCurrentFilter() {
+        if (activeLoansRadio.isSelected()) {
+            loadActiveLoans();
+        } else if (overdueLoansRadio.isSelected()) {
+            loadOverdueLoans();
+        } else {
+            loadLoans();
         }
     }
 
 
     private void clearIssueForm() {
         bookComboBox.setValue(null);
+        issueBasketList.getItems().clear();
         visitorComboBox.setValue(null);
         loanDatePicker.setValue(LocalDate.now());
         daysField.setText("14");
@@ -225,7 +546,7 @@ public class LoansController {
 
 
     private boolean validateIssueInput() {
-        if (bookComboBox.getValue() == null) {
+        if (bookComboBox.getValue() == null && issueBasketList.getItems().isEmpty()) {
             showAlert(Alert.AlertType.ERROR, "Ошибка", "Выберите книгу");
             return false;
         }
@@ -1,8 +1,11 @@
 package com.libtrack.controller;
 
-import com.libtrack.dao.UserDAO;
+import com.libtrack.dao.Repositories;
+import com.libtrack.dao.UserRepository;
 import com.libtrack.model.User;
+import com.libtrack.util.BackgroundTasks;
 import com.libtrack.util.SceneManager;
+import com.libtrack.util.StartupTimer;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.scene.input.KeyCode;
@@ -25,11 +28,17 @@ public class LoginController {
     @FXML
     private Button loginButton;
 
-    private UserDAO userDAO;
+    @FXML
+    private ProgressIndicator loginProgress;
+
+    private UserRepository userDAO;
+
+    // Идёт проверка пароля (повторный Enter игнорируется)
+    private boolean authenticating;
 
     @FXML
     public void initialize() {
-        userDAO = new UserDAO();
+        userDAO = Repositories.users();
 
         usernameField.setOnKeyPressed(this::handleKeyPress);
         passwordField.setOnKeyPressed(this::handleKeyPress);
@@ -46,6 +55,10 @@ public class LoginController {
 
     @FXML
     private void handleLogin() {
+        if (authenticating) {
+            return;
+        }
+
         String username = usernameField.getText().trim();
         String password = passwordField.getText();
 
@@ -55,31 +68,46 @@ public class LoginController {
             return;
         }
 
-        // Блокировка кнопки во время проверки
-        loginButton.setDisable(true);
+        // Форма заблокирована, пока BCrypt проверяет пароль в фоне
+        setAuthenticating(true);
 
-        try {
-            // Аутентификация через UserDAO
-            User user = userDAO.authenticate(username, password);
-
-            if (user != null) {
-                // Успешный вход - переход на главный экран
-                SceneManager.showDashboard();
-            } else {
-                // Неудачный вход - показать ошибку
-                showError("Неверный логин или пароль");
-                passwordField.clear();
-                passwordField.requestFocus();
-            }
+        BackgroundTasks.run(() -> userDAO.authenticate(username, password), this::onAuthenticated, error -> {
+            setAuthenticating(false);
+            showError("Ошибка подключения к базе данных");
+            error.printStackTrace();
+        });
+    }
+
+    private void onAuthenticated(User user) {
+        if (user == null) {
+            // Неудачный вход - показать ошибку
+            setAuthenticating(false);
+            showError("Неверный логин или пароль");
+            passwordField.clear();
+            passwordField.requestFocus();
+            return;
+        }
 
+        try {
+            // Успешный вход - переход на главный экран
+            StartupTimer.mark("Вход выполнен");
+            SceneManager.showDashboard();
         } catch (Exception e) {
-            showError("Ошибка подключения к базе данных");
+            setAuthenticating(false);
+            showError("Ошибка открытия главного экрана");
             e.printStackTrace();
-        } finally {
-            loginButton.setDisable(false);
         }
     }
 
+    private void setAuthenticating(boolean value) {
+        authenticating = value;
+        usernameField.setDisable(value);
+        passwordField.setDisable(value);
+        loginButton.setDisable(value);
+        loginButton.setText(value ? "Вход..." : "Войти");
+        loginProgress.setVisible(value);
+    }
+
     private void showError(String message) {
         errorLabel.setText(message);
         errorLabel.setVisible(true);
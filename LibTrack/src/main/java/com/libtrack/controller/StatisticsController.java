@@ -2,6 +2,7 @@ package com.libtrack.controller;
 
 import com.libtrack.service.StatisticsService;
 import com.libtrack.service.StatisticsService.StatData;
+import com.libtrack.util.Refreshable;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.scene.chart.*;
@@ -11,7 +12,7 @@ import java.util.Map;
 /**
  * Контроллер статистики и аналитики
  */
-public class StatisticsController {
+public class StatisticsController implements Refreshable {
 
     // Метрики
     @FXML private Label totalBooksLabel;
@@ -178,6 +179,14 @@ public class StatisticsController {
      */
     @FXML
     private void handleRefresh() {
+        refresh();
+    }
+
+    /**
+     * Перечитать метрики и графики при повторном показе экрана
+     */
+    @Override
+    public void refresh() {
         loadGeneralStatistics();
         loadGenreChart();
         loadPopularBooksChart();
@@ -1,17 +1,37 @@
 package com.libtrack.controller;
 
-import com.libtrack.dao.VisitorDAO;
+import com.libtrack.dao.ChangeLogPoller;
+import com.libtrack.dao.ChangeLogPoller.ChangeEvent;
+import com.libtrack.dao.Repositories;
+import com.libtrack.dao.VisitorRepository;
 import com.libtrack.model.Visitor;
+import com.libtrack.model.VisitorStatus;
+import com.libtrack.util.BackgroundTasks;
+import com.libtrack.util.ListPatcher;
+import com.libtrack.util.LiveSearch;
+import com.libtrack.util.LocalSearchIndex;
+import com.libtrack.util.PagedList;
+import com.libtrack.util.Refreshable;
+import com.libtrack.util.RefreshScheduler;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Контроллер управления посетителями
  */
-public class VisitorsController {
+public class VisitorsController implements Refreshable {
+
+    // Источник для RefreshScheduler: полная запись выбранной строки
+    private static final String DETAIL_SOURCE = "visitors.detail";
+    // Больше изменений с другого рабочего места - проще перечитать таблицу
+    private static final int REMOTE_PATCH_LIMIT = 50;
 
     @FXML private TableView<Visitor> visitorsTable;
     @FXML private TableColumn<Visitor, Integer> colVisitorId;
@@ -19,7 +39,7 @@ public class VisitorsController {
     @FXML private TableColumn<Visitor, String> colLastName;
     @FXML private TableColumn<Visitor, String> colEmail;
     @FXML private TableColumn<Visitor, String> colPhone;
-    @FXML private TableColumn<Visitor, String> colStatus;
+    @FXML private TableColumn<Visitor, VisitorStatus> colStatus;
 
     @FXML private TextField searchField;
     @FXML private TextField firstNameField;
@@ -28,23 +48,29 @@ public class VisitorsController {
     @FXML private TextField phoneField;
     @FXML private TextArea addressArea;
     @FXML private DatePicker birthDatePicker;
-    @FXML private ComboBox<String> statusComboBox;
+    @FXML private ComboBox<VisitorStatus> statusComboBox;
 
     @FXML private Button addButton;
     @FXML private Button updateButton;
     @FXML private Button deleteButton;
     @FXML private Label totalVisitorsLabel;
 
-    private VisitorDAO visitorDAO;
+    private VisitorRepository visitorDAO;
     private Visitor selectedVisitor;
+    private LiveSearch<ObservableList<Visitor>> liveSearch;
+    // Снимок для фильтрации на клиенте; null - таблица большая, ищем на сервере
+    private LocalSearchIndex<Visitor> localIndex;
+    // Большой список без поиска показывается постранично
+    private PagedList<Visitor> pagedVisitors;
+    // Изменения после записи применяются к текущему списку таблицы, без перезагрузки
+    private final ListPatcher<Visitor> patcher = new ListPatcher<>(Visitor::getVisitorId, Visitor::copyFrom);
 
     @FXML
     public void initialize() {
-        visitorDAO = new VisitorDAO();
+        visitorDAO = Repositories.visitors();
 
         setupTable();
         setupStatusComboBox();
-        loadVisitors();
 
         // Обработка выбора посетителя
         visitorsTable.getSelectionModel().selectedItemProperty().addListener(
@@ -52,18 +78,39 @@ public class VisitorsController {
                     if (newSelection != null) {
                         selectedVisitor = newSelection;
                         fillForm(newSelection);
+                        loadDetails(newSelection);
                     }
                 }
         );
 
-        // Поиск
+        // Поиск: небольшая база читателей фильтруется в памяти,
+        // большая - запросом в фоновом потоке после паузы в наборе
+        liveSearch = new LiveSearch<>(searchField.textProperty(),
+                keyword -> visitorDAO.searchVisitors(keyword, LiveSearch.MAX_RESULTS),
+                this::showSearchResults,
+                this::loadVisitors);
         searchField.textProperty().addListener((obs, oldVal, newVal) -> {
-            if (newVal == null || newVal.trim().isEmpty()) {
-                loadVisitors();
-            } else {
-                searchVisitors(newVal.trim());
+            if (localIndex != null) {
+                localIndex.filter(newVal);
+                updateTotalLabel();
             }
         });
+
+        loadVisitors();
+
+        ChangeLogPoller.getInstance().addListener(ChangeLogPoller.VISITORS, this::applyRemoteChanges);
+    }
+
+    /**
+     * Перечитать посетителей при повторном показе экрана
+     */
+    @Override
+    public void refresh() {
+        if (localIndex == null && !searchField.getText().trim().isEmpty()) {
+            liveSearch.search(searchField.getText());
+        } else {
+            loadVisitors();
+        }
     }
 
     /**
@@ -77,25 +124,26 @@ public class VisitorsController {
         colPhone.setCellValueFactory(new PropertyValueFactory<>("phone"));
         colStatus.setCellValueFactory(new PropertyValueFactory<>("status"));
 
+        PagedList.bindSorting(visitorsTable, Map.of(
+                colVisitorId, "visitorId",
+                colLastName, "lastName",
+                colEmail, "email",
+                colStatus, "status"));
+
         // Цветная индикация статуса
-        colStatus.setCellFactory(column -> new TableCell<Visitor, String>() {
+        colStatus.setCellFactory(column -> new TableCell<Visitor, VisitorStatus>() {
             @Override
-            protected void updateItem(String item, boolean empty) {
+            protected void updateItem(VisitorStatus item, boolean empty) {
                 super.updateItem(item, empty);
                 if (empty || item == null) {
                     setText(null);
                     setStyle("");
                 } else {
-                    setText(item);
-                    if (item.equals("active")) {
-                        setStyle("-fx-text-fill: #10b981; -fx-font-weight: bold;");
-                        setText("Активен");
-                    } else if (item.equals("blocked")) {
-                        setStyle("-fx-text-fill: #ef4444; -fx-font-weight: bold;");
-                        setText("Заблокирован");
-                    } else {
-                        setStyle("-fx-text-fill: #64748b;");
-                        setText("Неактивен");
+                    setText(item.getDisplayName());
+                    switch (item) {
+                        case ACTIVE -> setStyle("-fx-text-fill: #10b981; -fx-font-weight: bold;");
+                        case BLOCKED -> setStyle("-fx-text-fill: #ef4444; -fx-font-weight: bold;");
+                        default -> setStyle("-fx-text-fill: #64748b;");
                     }
                 }
             }
@@ -106,26 +154,102 @@ public class VisitorsController {
      * Настройка ComboBox статусов
      */
     private void setupStatusComboBox() {
-        statusComboBox.getItems().addAll("active", "inactive", "blocked");
-        statusComboBox.setValue("active");
+        statusComboBox.getItems().addAll(VisitorStatus.ACTIVE, VisitorStatus.INACTIVE, VisitorStatus.BLOCKED);
+        statusComboBox.setValue(VisitorStatus.ACTIVE);
     }
 
     /**
      * Загрузить всех посетителей
      */
     private void loadVisitors() {
-        ObservableList<Visitor> visitors = visitorDAO.getAllVisitors();
-        visitorsTable.setItems(visitors);
-        totalVisitorsLabel.setText("Всего читателей: " + visitors.size());
+        int total = visitorDAO.countVisitors();
+        boolean clientSide = total <= LocalSearchIndex.CLIENT_FILTER_THRESHOLD;
+        liveSearch.setEnabled(!clientSide);
+
+        if (clientSide) {
+            if (localIndex == null) {
+                localIndex = new LocalSearchIndex<>(visitor -> LocalSearchIndex.key(
+                        visitor.getFirstName(), visitor.getLastName(),
+                        visitor.getEmail(), visitor.getPhone()));
+            }
+            localIndex.setAll(visitorDAO.getAllVisitors());
+            localIndex.filter(searchField.getText());
+            visitorsTable.setItems(localIndex.getItems());
+            updateTotalLabel();
+        } else {
+            localIndex = null;
+            if (pagedVisitors == null) {
+                pagedVisitors = new PagedList<>(visitorDAO::countVisitors, visitorDAO::getVisitorsPage);
+                // Количество перечитывается при каждом refresh() (в том числе после добавления)
+                pagedVisitors.addListener((ListChangeListener<Visitor>) change ->
+                        totalVisitorsLabel.setText("Всего читателей: " + pagedVisitors.size()));
+            }
+            if (visitorsTable.getItems() != pagedVisitors) {
+                visitorsTable.setItems(pagedVisitors);
+            }
+            pagedVisitors.refresh();
+            totalVisitorsLabel.setText("Всего читателей: " + total);
+        }
     }
 
     /**
-     * Поиск посетителей
+     * Изменения с другого рабочего места: страница большой таблицы правится на месте,
+     * снимок клиентского фильтра, результаты поиска и крупные изменения перечитываются
      */
-    private void searchVisitors(String keyword) {
-        ObservableList<Visitor> visitors = visitorDAO.searchVisitors(keyword);
+    private void applyRemoteChanges(ChangeEvent event) {
+        if (visitorsTable.getItems() != pagedVisitors || event.isReset() || event.size() > REMOTE_PATCH_LIMIT) {
+            refresh();
+            return;
+        }
+
+        BackgroundTasks.run(() -> {
+            List<Visitor> changed = new ArrayList<>();
+            for (int id : event.getChangedIds()) {
+                Visitor visitor = visitorDAO.getVisitorById(id);
+                if (visitor != null) {
+                    changed.add(visitor);
+                }
+            }
+            return changed;
+        }, changed -> patcher.apply(pagedVisitors, changed, event.getInserted(), event.getDeleted(), any -> true));
+    }
+
+    /**
+     * Обновить счётчик для клиентского фильтра
+     */
+    private void updateTotalLabel() {
+        int shown = localIndex.getItems().size();
+        int total = localIndex.getTotalCount();
+        totalVisitorsLabel.setText(shown == total ?
+                "Всего читателей: " + total :
+                "Найдено: " + shown);
+    }
+
+    /**
+     * Показать результаты поиска
+     */
+    private void showSearchResults(ObservableList<Visitor> visitors) {
         visitorsTable.setItems(visitors);
-        totalVisitorsLabel.setText("Найдено: " + visitors.size());
+        totalVisitorsLabel.setText(visitors.size() < LiveSearch.MAX_RESULTS ?
+                "Найдено: " + visitors.size() :
+                "Найдено более " + LiveSearch.MAX_RESULTS + ", уточните запрос");
+    }
+
+    /**
+     * Дочитать адрес выбранного читателя (в списки он не загружается)
+     */
+    private void loadDetails(Visitor visitor) {
+        addressArea.setDisable(true);
+        RefreshScheduler.getInstance().request(DETAIL_SOURCE, () -> visitorDAO.getVisitorById(visitor.getVisitorId()), full -> {
+            if (selectedVisitor != visitor) {
+                return;
+            }
+            if (full != null) {
+                visitor.setAddress(full.getAddress());
+                addressArea.setText(full.getAddress());
+            }
+            addressArea.setDisable(false);
+        });
     }
 
     /**
@@ -138,7 +262,7 @@ public class VisitorsController {
         phoneField.setText(visitor.getPhone());
         addressArea.setText(visitor.getAddress());
         birthDatePicker.setValue(visitor.getBirthDate());
-        statusComboBox.setValue(visitor.getStatus());
+        statusComboBox.setValue(visitor.getVisitorStatus());
     }
 
     /**
@@ -154,9 +278,15 @@ public class VisitorsController {
         fillVisitorFromForm(visitor);
         visitor.setRegistrationDate(LocalDate.now());
 
-        if (visitorDAO.addVisitor(visitor)) {
+        Visitor saved = visitorDAO.addVisitor(visitor);
+        if (saved != null) {
             showAlert(Alert.AlertType.INFORMATION, "Успех", "Читатель успешно добавлен");
-            loadVisitors();
+            if (localIndex != null) {
+                localIndex.add(saved);
+                updateTotalLabel();
+            } else {
+                patcher.inserted(visitorsTable.getItems(), saved);
+            }
             clearForm();
         } else {
             showAlert(Alert.AlertType.ERROR, "Ошибка", "Не удалось добавить читателя");
@@ -173,15 +303,26 @@ public class VisitorsController {
             return;
         }
 
+        if (addressArea.isDisabled()) {
+            showAlert(Alert.AlertType.WARNING, "Предупреждение", "Адрес читателя ещё загружается, повторите через секунду");
+            return;
+        }
+
         if (!validateInput()) {
             return;
         }
 
         fillVisitorFromForm(selectedVisitor);
 
-        if (visitorDAO.updateVisitor(selectedVisitor)) {
+        Visitor saved = visitorDAO.updateVisitor(selectedVisitor);
+        if (saved != null) {
             showAlert(Alert.AlertType.INFORMATION, "Успех", "Читатель успешно обновлен");
-            loadVisitors();
+            if (localIndex != null) {
+                localIndex.update(saved);
+                updateTotalLabel();
+            } else {
+                patcher.updated(visitorsTable.getItems(), saved);
+            }
             clearForm();
         } else {
             showAlert(Alert.AlertType.ERROR, "Ошибка", "Не удалось обновить читателя");
@@ -208,7 +349,12 @@ public class VisitorsController {
         if (confirmation.showAndWait().get() == ButtonType.OK) {
             if (visitorDAO.deleteVisitor(selectedVisitor.getVisitorId())) {
                 showAlert(Alert.AlertType.INFORMATION, "Успех", "Читатель успешно удален");
-                loadVisitors();
+                if (localIndex != null) {
+                    localIndex.remove(selectedVisitor);
+                    updateTotalLabel();
+                } else {
+                    patcher.removed(visitorsTable.getItems(), selectedVisitor.getVisitorId());
+                }
                 clearForm();
             } else {
                 showAlert(Alert.AlertType.ERROR, "Ошибка",
@@ -235,7 +381,7 @@ public class VisitorsController {
         visitor.setPhone(phoneField.getText().trim());
         visitor.setAddress(addressArea.getText().trim());
         visitor.setBirthDate(birthDatePicker.getValue());
-        visitor.setStatus(statusComboBox.getValue());
+        visitor.setVisitorStatus(statusComboBox.getValue());
     }
 
     /**
@@ -248,7 +394,9 @@ public class VisitorsController {
         phoneField.clear();
         addressArea.clear();
         birthDatePicker.setValue(null);
-        statusComboBox.setValue("active");
+        statusComboBox.setValue(VisitorStatus.ACTIVE);
+        addressArea.setDisable(false);
+        RefreshScheduler.getInstance().cancel(DETAIL_SOURCE);
         selectedVisitor = null;
         visitorsTable.getSelectionModel().clearSelection();
     }
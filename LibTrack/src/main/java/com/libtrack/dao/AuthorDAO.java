@@ -4,25 +4,38 @@ import com.libtrack.model.Author;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import java.sql.*;
+import java.util.Map;
 
 /**
  * DAO для работы с авторами
  */
-public class AuthorDAO {
+public class AuthorDAO implements AuthorRepository {
+
+    private static final EntityCache<Author> cache = new EntityCache<>("authors", AuthorDAO::copyOf);
+
+    // Колонки для списков и таблиц: без biography (TEXT), она читается в getAuthorById
+    private static final String LIST_COLUMNS =
+            "a.author_id, a.first_name, a.last_name, a.birth_year, a.country";
+
+    // Ключи сортировки для постраничной загрузки -> индексированные колонки
+    private static final Map<String, String> PAGE_SORT_COLUMNS = Map.of(
+            "authorId", "author_id",
+            "lastName", "last_name, first_name"
+    );
 
     /**
      * Получить всех авторов
      */
     public ObservableList<Author> getAllAuthors() {
         ObservableList<Author> authors = FXCollections.observableArrayList();
-        String sql = "SELECT * FROM authors ORDER BY last_name, first_name";
+        String sql = "SELECT " + LIST_COLUMNS + " FROM authors a ORDER BY last_name, first_name";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
             while (rs.next()) {
-                authors.add(extractAuthorFromResultSet(rs));
+                authors.add(extractAuthorFromResultSet(rs, false));
             }
 
         } catch (SQLException e) {
@@ -34,9 +47,66 @@ public class AuthorDAO {
     }
 
     /**
-     * Получить автора по ID
+     * Получить количество авторов
+     */
+    public int countAuthors() {
+        String sql = "SELECT COUNT(*) FROM authors";
+
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+
+            if (rs.next()) {
+                return rs.getInt(1);
+            }
+
+        } catch (SQLException e) {
+            System.err.println("Ошибка подсчёта авторов: " + e.getMessage());
+        }
+
+        return 0;
+    }
+
+    /**
+     * Получить страницу авторов
+     * @param sortKey ключ из PAGE_SORT_COLUMNS, null - по фамилии и имени
+     */
+    public ObservableList<Author> getAuthorsPage(int offset, int limit, String sortKey, boolean ascending) {
+        ObservableList<Author> authors = FXCollections.observableArrayList();
+        String columns = PAGE_SORT_COLUMNS.getOrDefault(sortKey, "last_name, first_name");
+
+        String sql = "SELECT " + LIST_COLUMNS + " FROM (SELECT author_id FROM authors " +
+                "ORDER BY " + PageSql.orderBy("", columns, "author_id", ascending) + " " +
+                "LIMIT ?, ?) page " +
+                "JOIN authors a ON a.author_id = page.author_id " +
+                "ORDER BY " + PageSql.orderBy("a", columns, "author_id", ascending);
+
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, offset);
+            stmt.setInt(2, limit);
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                authors.add(extractAuthorFromResultSet(rs, false));
+            }
+
+        } catch (SQLException e) {
+            System.err.println("Ошибка получения страницы авторов: " + e.getMessage());
+        }
+
+        return authors;
+    }
+
+    /**
+     * Получить автора по ID (через кэш)
      */
     public Author getAuthorById(int authorId) {
+        return cache.get(authorId, this::loadAuthorById);
+    }
+
+    private Author loadAuthorById(int authorId) {
         String sql = "SELECT * FROM authors WHERE author_id = ?";
 
         try (Connection conn = DatabaseConnection.getConnection();
@@ -46,7 +116,7 @@ public class AuthorDAO {
             ResultSet rs = stmt.executeQuery();
 
             if (rs.next()) {
-                return extractAuthorFromResultSet(rs);
+                return extractAuthorFromResultSet(rs, true);
             }
 
         } catch (SQLException e) {
@@ -58,8 +128,9 @@ public class AuthorDAO {
 
     /**
      * Добавить автора
+     * @return автор с присвоенным ID или null при ошибке
      */
-    public boolean addAuthor(Author author) {
+    public Author addAuthor(Author author) {
         String sql = "INSERT INTO authors (first_name, last_name, biography, birth_year, country) " +
                 "VALUES (?, ?, ?, ?, ?)";
 
@@ -79,7 +150,7 @@ public class AuthorDAO {
                 if (generatedKeys.next()) {
                     author.setAuthorId(generatedKeys.getInt(1));
                 }
-                return true;
+                return author;
             }
 
         } catch (SQLException e) {
@@ -87,13 +158,14 @@ public class AuthorDAO {
             e.printStackTrace();
         }
 
-        return false;
+        return null;
     }
 
     /**
      * Обновить автора
+     * @return обновлённый автор или null при ошибке
      */
-    public boolean updateAuthor(Author author) {
+    public Author updateAuthor(Author author) {
         String sql = "UPDATE authors SET first_name = ?, last_name = ?, biography = ?, " +
                 "birth_year = ?, country = ? WHERE author_id = ?";
 
@@ -107,14 +179,20 @@ public class AuthorDAO {
             stmt.setString(5, author.getCountry());
             stmt.setInt(6, author.getAuthorId());
 
-            return stmt.executeUpdate() > 0;
+            if (stmt.executeUpdate() == 0) {
+                return null;
+            }
+            cache.invalidate(author.getAuthorId());
+            // Имя автора хранится в закэшированных книгах
+            BookDAO.invalidateCachedAll();
+            return author;
 
         } catch (SQLException e) {
             System.err.println("Ошибка обновления автора: " + e.getMessage());
             e.printStackTrace();
         }
 
-        return false;
+        return null;
     }
 
     /**
@@ -127,7 +205,12 @@ public class AuthorDAO {
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setInt(1, authorId);
-            return stmt.executeUpdate() > 0;
+            boolean deleted = stmt.executeUpdate() > 0;
+            if (deleted) {
+                cache.invalidate(authorId);
+                BookDAO.invalidateCachedAll();
+            }
+            return deleted;
 
         } catch (SQLException e) {
             System.err.println("Ошибка удаления автора: " + e.getMessage());
@@ -141,23 +224,31 @@ public class AuthorDAO {
      * Поиск авторов
      */
     public ObservableList<Author> searchAuthors(String keyword) {
+        return searchAuthors(keyword, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Поиск авторов с ограничением количества результатов
+     */
+    public ObservableList<Author> searchAuthors(String keyword, int limit) {
         ObservableList<Author> authors = FXCollections.observableArrayList();
-        String sql = "SELECT * FROM authors WHERE " +
+        String sql = "SELECT " + LIST_COLUMNS + " FROM authors a WHERE " +
                 "first_name LIKE ? OR last_name LIKE ? OR country LIKE ? " +
-                "ORDER BY last_name, first_name";
+                "ORDER BY last_name, first_name LIMIT ?";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             String searchPattern = "%" + keyword + "%";
             stmt.setString(1, searchPattern);
             stmt.setString(2, searchPattern);
             stmt.setString(3, searchPattern);
+            stmt.setInt(4, limit);
 
             ResultSet rs = stmt.executeQuery();
 
             while (rs.next()) {
-                authors.add(extractAuthorFromResultSet(rs));
+                authors.add(extractAuthorFromResultSet(rs, false));
             }
 
         } catch (SQLException e) {
@@ -168,16 +259,50 @@ public class AuthorDAO {
     }
 
     /**
-     * Создать объект Author из ResultSet
+     * Сбросить кэш записи (изменение на другом рабочем месте)
+     */
+    static void invalidateCached(int authorId) {
+        cache.invalidate(authorId);
+    }
+
+    private static Author copyOf(Author author) {
+        Author copy = new Author();
+        copy.setAuthorId(author.getAuthorId());
+        copy.copyFrom(author);
+        return copy;
+    }
+
+    /**
+     * Изменения авторов после курсора (строки без biography, как в списках)
+     * @param cursor курсор предыдущего запроса или ChangeTracking.currentCursor() после полной загрузки
+     * @return изменения или null при ошибке
+     */
+    public ChangeSet<Author> getChangedSince(long cursor) {
+        String sql = "SELECT " + LIST_COLUMNS + " FROM authors a " +
+                "WHERE a.change_seq > ? AND a.change_seq <= ? " +
+                "ORDER BY a.change_seq";
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return ChangeTracking.load(conn, "authors", sql, cursor, rs -> extractAuthorFromResultSet(rs, false));
+        } catch (SQLException e) {
+            System.err.println("Ошибка получения изменений авторов: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        return null;
+    }
+
+    /**
+     * Создать объект Author из ResultSet (detail - запрос выбрал и TEXT-колонку)
      */
-    private Author extractAuthorFromResultSet(ResultSet rs) throws SQLException {
+    private Author extractAuthorFromResultSet(ResultSet rs, boolean detail) throws SQLException {
         return new Author(
                 rs.getInt("author_id"),
-                rs.getString("first_name"),
+                StringPool.canonical(rs.getString("first_name")),
                 rs.getString("last_name"),
-                rs.getString("biography"),
+                detail ? rs.getString("biography") : null,
                 rs.getInt("birth_year"),
-                rs.getString("country")
+                StringPool.canonical(rs.getString("country"))
         );
     }
 }
\ No newline at end of file
@@ -0,0 +1,65 @@
+package com.libtrack.dao;
+
+import com.libtrack.model.Author;
+import javafx.collections.ObservableList;
+
+/**
+ * Хранилище авторов. Реализации: AuthorDAO (MySQL или встроенная H2)
+ */
+public interface AuthorRepository {
+
+    /**
+     * Получить всех авторов
+     */
+    ObservableList<Author> getAllAuthors();
+
+    /**
+     * Получить количество авторов
+     */
+    int countAuthors();
+
+    /**
+     * Получить страницу авторов
+     * @param sortKey ключ из PAGE_SORT_COLUMNS, null - по фамилии и имени
+     */
+    ObservableList<Author> getAuthorsPage(int offset, int limit, String sortKey, boolean ascending);
+
+    /**
+     * Получить автора по ID (через кэш)
+     */
+    Author getAuthorById(int authorId);
+
+    /**
+     * Добавить автора
+     * @return автор с присвоенным ID или null при ошибке
+     */
+    Author addAuthor(Author author);
+
+    /**
+     * Обновить автора
+     * @return обновлённый автор или null при ошибке
+     */
+    Author updateAuthor(Author author);
+
+    /**
+     * Удалить автора
+     */
+    boolean deleteAuthor(int authorId);
+
+    /**
+     * Поиск авторов
+     */
+    ObservableList<Author> searchAuthors(String keyword);
+
+    /**
+     * Поиск авторов с ограничением количества результатов
+     */
+    ObservableList<Author> searchAuthors(String keyword, int limit);
+
+    /**
+     * Изменения авторов после курсора (строки без biography, как в списках)
+     * @param cursor курсор предыдущего запроса или ChangeTracking.currentCursor() после полной загрузки
+     * @return изменения или null при ошибке
+     */
+    ChangeSet<Author> getChangedSince(long cursor);
+}
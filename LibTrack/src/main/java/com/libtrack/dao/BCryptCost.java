@@ -0,0 +1,116 @@
+package com.libtrack.dao;
+
+import at.favre.lib.crypto.bcrypt.BCrypt;
+import com.libtrack.util.AppConfig;
+
+/**
+ * Стоимость BCrypt для новых хешей паролей.
+ * При запуске подбирается наибольшая стоимость, при которой проверка пароля на этой машине
+ * укладывается в бюджет libtrack.auth.verifyBudgetMs. Хеши с меньшей стоимостью
+ * пересчитываются при успешном входе (UserDAO.authenticate); более стойкие не понижаются.
+ * libtrack.auth.bcryptCost задаёт стоимость явно и отключает калибровку
+ */
+public class BCryptCost {
+
+    // Ниже 10 хеш слишком слаб даже для медленных машин, выше 16 вход занимает секунды
+    static final int MIN_COST = 10;
+    static final int MAX_COST = 16;
+    // До окончания калибровки (и для хешей начальных данных schema.sql)
+    private static final int DEFAULT_COST = 12;
+
+    private static final long BUDGET_MS = AppConfig.getInt("libtrack.auth.verifyBudgetMs", 250);
+    private static final int CONFIGURED_COST = AppConfig.getInt("libtrack.auth.bcryptCost", 0);
+
+    private static volatile int cost = DEFAULT_COST;
+    private static volatile boolean calibrated;
+
+    private BCryptCost() {
+    }
+
+    /**
+     * Стоимость для новых хешей
+     */
+    public static int current() {
+        return cost;
+    }
+
+    /**
+     * Стоимость подобрана (или задана настройкой): по ней можно пересчитывать хеши
+     */
+    public static boolean isCalibrated() {
+        return calibrated;
+    }
+
+    /**
+     * Подобрать стоимость по времени хеширования (вызывать из фонового потока при запуске).
+     * Проверка пароля стоит столько же, сколько хеширование с той же стоимостью,
+     * а каждая единица стоимости удваивает время - замеры идут вверх до превышения бюджета
+     */
+    public static synchronized void calibrate() {
+        if (calibrated) {
+            return;
+        }
+        if (CONFIGURED_COST > 0) {
+            cost = Math.max(4, Math.min(31, CONFIGURED_COST));
+            calibrated = true;
+            log("стоимость " + cost + " задана в libtrack.auth.bcryptCost");
+            return;
+        }
+
+        char[] probe = "calibration-probe".toCharArray();
+        // Прогрев: загрузка классов и JIT не должны попасть в первый замер
+        BCrypt.withDefaults().hash(4, probe);
+
+        int chosen = MIN_COST;
+        StringBuilder timings = new StringBuilder();
+        for (int candidate = MIN_COST; candidate <= MAX_COST; candidate++) {
+            long started = System.nanoTime();
+            BCrypt.withDefaults().hash(candidate, probe);
+            long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+
+            if (timings.length() > 0) {
+                timings.append(", ");
+            }
+            timings.append(candidate).append(": ").append(elapsedMs).append(" мс");
+
+            if (elapsedMs > BUDGET_MS) {
+                if (candidate == MIN_COST) {
+                    System.err.println("⚠ BCrypt: даже стоимость " + MIN_COST + " дольше бюджета " +
+                            BUDGET_MS + " мс, используется она");
+                }
+                break;
+            }
+            chosen = candidate;
+            // Следующая стоимость вдвое дольше: если она заведомо не уложится, не замерять
+            if (elapsedMs * 2 > BUDGET_MS * 3) {
+                break;
+            }
+        }
+
+        cost = chosen;
+        calibrated = true;
+        log("стоимость " + chosen + " (бюджет проверки " + BUDGET_MS + " мс; замеры " + timings + ")");
+    }
+
+    /**
+     * Сообщение о стоимости хешей (калибровка и пересчёт хешей при входе)
+     */
+    static void log(String message) {
+        System.out.println("✓ BCrypt: " + message);
+    }
+
+    /**
+     * Стоимость, с которой создан хеш ($2a$12$...)
+     * @return стоимость или -1, если хеш не в формате BCrypt
+     */
+    static int costOf(String hash) {
+        if (hash == null || hash.length() < 7 || hash.charAt(0) != '$' || hash.charAt(3) != '$') {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(hash.substring(4, 6));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
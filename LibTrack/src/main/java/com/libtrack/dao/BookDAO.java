@@ -4,28 +4,48 @@ import com.libtrack.model.Book;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import java.sql.*;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * DAO для работы с книгами
  */
-public class BookDAO {
+public class BookDAO implements BookRepository {
+
+    // Ключи сортировки для постраничной загрузки -> индексированные колонки
+    private static final Map<String, String> PAGE_SORT_COLUMNS = Map.of(
+            "bookId", "book_id",
+            "title", "title",
+            "isbn", "isbn",
+            "genre", "genre"
+    );
+
+    // Колонки для списков и таблиц: без description (TEXT), он читается в getBookById
+    private static final String LIST_COLUMNS =
+            "b.book_id, b.isbn, b.title, b.author_id, b.genre, b.publisher, b.publication_year, " +
+            "b.pages, b.copies_total, b.copies_available";
+
+    // Книги по ID (общий для всех экземпляров DAO); доступность меняется выдачами в LoanDAO
+    private static final EntityCache<Book> cache = new EntityCache<>("books", BookDAO::copyOf);
 
     /**
      * Получить все книги с информацией об авторе
      */
     public ObservableList<Book> getAllBooks() {
         ObservableList<Book> books = FXCollections.observableArrayList();
-        String sql = "SELECT b.*, CONCAT(a.first_name, ' ', a.last_name) as author_name " +
+        String sql = "SELECT " + LIST_COLUMNS + ", CONCAT(a.first_name, ' ', a.last_name) as author_name " +
                 "FROM books b " +
                 "JOIN authors a ON b.author_id = a.author_id " +
                 "ORDER BY b.title";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
             while (rs.next()) {
-                books.add(extractBookFromResultSet(rs));
+                books.add(extractBookFromResultSet(rs, false));
             }
 
         } catch (SQLException e) {
@@ -37,9 +57,156 @@ public class BookDAO {
     }
 
     /**
-     * Получить книгу по ID
+     * Получить количество книг
+     */
+    public int countBooks() {
+        String sql = "SELECT COUNT(*) FROM books";
+
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+
+            if (rs.next()) {
+                return rs.getInt(1);
+            }
+
+        } catch (SQLException e) {
+            System.err.println("Ошибка подсчёта книг: " + e.getMessage());
+        }
+
+        return 0;
+    }
+
+    /**
+     * Получить страницу книг (сначала ID по индексу, затем JOIN только для страницы)
+     * @param sortKey ключ из PAGE_SORT_COLUMNS, null - по названию
+     */
+    public ObservableList<Book> getBooksPage(int offset, int limit, String sortKey, boolean ascending) {
+        ObservableList<Book> books = FXCollections.observableArrayList();
+        String columns = PAGE_SORT_COLUMNS.getOrDefault(sortKey, "title");
+
+        String sql = "SELECT " + LIST_COLUMNS + ", CONCAT(a.first_name, ' ', a.last_name) as author_name " +
+                "FROM (SELECT book_id FROM books " +
+                "ORDER BY " + PageSql.orderBy("", columns, "book_id", ascending) + " " +
+                "LIMIT ?, ?) page " +
+                "JOIN books b ON b.book_id = page.book_id " +
+                "JOIN authors a ON b.author_id = a.author_id " +
+                "ORDER BY " + PageSql.orderBy("b", columns, "book_id", ascending);
+
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, offset);
+            stmt.setInt(2, limit);
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                books.add(extractBookFromResultSet(rs, false));
+            }
+
+        } catch (SQLException e) {
+            System.err.println("Ошибка получения страницы книг: " + e.getMessage());
+        }
+
+        return books;
+    }
+
+    /**
+     * Доступные книги, у которых название или ISBN начинаются с префикса (для подсказок).
+     * Каждая ветка UNION идёт по своему индексу (idx_title, isbn)
+     */
+    public ObservableList<Book> findAvailableBooksByPrefix(String prefix, int limit) {
+        ObservableList<Book> books = FXCollections.observableArrayList();
+        String sql = "SELECT " + LIST_COLUMNS + ", CONCAT(a.first_name, ' ', a.last_name) as author_name " +
+                "FROM ((SELECT book_id FROM books WHERE title LIKE ? AND copies_available > 0 " +
+                "ORDER BY title LIMIT ?) " +
+                "UNION (SELECT book_id FROM books WHERE isbn LIKE ? AND copies_available > 0 " +
+                "LIMIT ?)) m " +
+                "JOIN books b ON b.book_id = m.book_id " +
+                "JOIN authors a ON b.author_id = a.author_id " +
+                "ORDER BY b.title, b.book_id LIMIT ?";
+
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            String pattern = LikePatterns.prefix(prefix);
+            stmt.setString(1, pattern);
+            stmt.setInt(2, limit);
+            stmt.setString(3, pattern);
+            stmt.setInt(4, limit);
+            stmt.setInt(5, limit);
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                books.add(extractBookFromResultSet(rs, false));
+            }
+
+        } catch (SQLException e) {
+            System.err.println("Ошибка поиска книг по префиксу: " + e.getMessage());
+        }
+
+        return books;
+    }
+
+    /**
+     * Все нормализованные ISBN с ID книг (для IsbnIndex)
+     * @return null при ошибке
+     */
+    public Map<String, Integer> getBookIdsByNormalizedIsbn() {
+        String sql = "SELECT book_id, isbn_normalized FROM books WHERE isbn_normalized IS NOT NULL";
+        Map<String, Integer> bookIds = new HashMap<>();
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+
+            while (rs.next()) {
+                bookIds.put(rs.getString("isbn_normalized"), rs.getInt("book_id"));
+            }
+            return bookIds;
+
+        } catch (SQLException e) {
+            System.err.println("Ошибка загрузки индекса ISBN: " + e.getMessage());
+        }
+
+        return null;
+    }
+
+    /**
+     * Найти ID книги по нормализованному ISBN (любой из вариантов)
+     * @return ID книги или null
+     */
+    public Integer findBookIdByNormalizedIsbn(List<String> keys) {
+        String placeholders = String.join(", ", Collections.nCopies(keys.size(), "?"));
+        String sql = "SELECT book_id FROM books WHERE isbn_normalized IN (" + placeholders + ") LIMIT 1";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            for (int i = 0; i < keys.size(); i++) {
+                stmt.setString(i + 1, keys.get(i));
+            }
+            ResultSet rs = stmt.executeQuery();
+
+            if (rs.next()) {
+                return rs.getInt("book_id");
+            }
+
+        } catch (SQLException e) {
+            System.err.println("Ошибка поиска книги по ISBN: " + e.getMessage());
+        }
+
+        return null;
+    }
+
+    /**
+     * Получить книгу по ID (через кэш)
      */
     public Book getBookById(int bookId) {
+        return cache.get(bookId, this::loadBookById);
+    }
+
+    private Book loadBookById(int bookId) {
         String sql = "SELECT b.*, CONCAT(a.first_name, ' ', a.last_name) as author_name " +
                 "FROM books b " +
                 "JOIN authors a ON b.author_id = a.author_id " +
@@ -52,7 +219,7 @@ public class BookDAO {
             ResultSet rs = stmt.executeQuery();
 
             if (rs.next()) {
-                return extractBookFromResultSet(rs);
+                return extractBookFromResultSet(rs, true);
             }
 
         } catch (SQLException e) {
@@ -64,8 +231,9 @@ public class BookDAO {
 
     /**
      * Добавить книгу
+     * @return сохранённая книга (с ID и именем автора) или null при ошибке
      */
-    public boolean addBook(Book book) {
+    public Book addBook(Book book) {
         String sql = "INSERT INTO books (isbn, title, author_id, genre, publisher, " +
                 "publication_year, pages, copies_total, copies_available, description) " +
                 "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
@@ -91,7 +259,10 @@ public class BookDAO {
                 if (generatedKeys.next()) {
                     book.setBookId(generatedKeys.getInt(1));
                 }
-                return true;
+                IsbnIndex.getInstance().invalidate();
+                // Перечитать с именем автора для строки таблицы
+                Book saved = getBookById(book.getBookId());
+                return saved != null ? saved : book;
             }
 
         } catch (SQLException e) {
@@ -99,13 +270,14 @@ public class BookDAO {
             e.printStackTrace();
         }
 
-        return false;
+        return null;
     }
 
     /**
      * Обновить книгу
+     * @return сохранённая книга (с именем автора) или null при ошибке
      */
-    public boolean updateBook(Book book) {
+    public Book updateBook(Book book) {
         String sql = "UPDATE books SET isbn = ?, title = ?, author_id = ?, genre = ?, " +
                 "publisher = ?, publication_year = ?, pages = ?, copies_total = ?, " +
                 "copies_available = ?, description = ? WHERE book_id = ?";
@@ -125,14 +297,21 @@ public class BookDAO {
             stmt.setString(10, book.getDescription());
             stmt.setInt(11, book.getBookId());
 
-            return stmt.executeUpdate() > 0;
+            if (stmt.executeUpdate() == 0) {
+                return null;
+            }
+            IsbnIndex.getInstance().invalidate();
+            cache.invalidate(book.getBookId());
+            // Перечитать: автор мог смениться
+            Book saved = getBookById(book.getBookId());
+            return saved != null ? saved : book;
 
         } catch (SQLException e) {
             System.err.println("Ошибка обновления книги: " + e.getMessage());
             e.printStackTrace();
         }
 
-        return false;
+        return null;
     }
 
     /**
@@ -145,7 +324,12 @@ public class BookDAO {
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setInt(1, bookId);
-            return stmt.executeUpdate() > 0;
+            boolean deleted = stmt.executeUpdate() > 0;
+            if (deleted) {
+                IsbnIndex.getInstance().invalidate();
+                cache.invalidate(bookId);
+            }
+            return deleted;
 
         } catch (SQLException e) {
             System.err.println("Ошибка удаления книги: " + e.getMessage());
@@ -155,30 +339,82 @@ public class BookDAO {
         return false;
     }
 
+    /**
+     * Изменения книг после курсора (строки без description, как в списках).
+     * Переименование автора тоже отмечает его книги изменёнными
+     * @param cursor курсор предыдущего запроса или ChangeTracking.currentCursor() после полной загрузки
+     * @return изменения или null при ошибке
+     */
+    public ChangeSet<Book> getChangedSince(long cursor) {
+        String sql = "SELECT " + LIST_COLUMNS + ", CONCAT(a.first_name, ' ', a.last_name) as author_name " +
+                "FROM books b " +
+                "JOIN authors a ON b.author_id = a.author_id " +
+                "WHERE b.change_seq > ? AND b.change_seq <= ? " +
+                "ORDER BY b.change_seq";
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return ChangeTracking.load(conn, "books", sql, cursor, rs -> extractBookFromResultSet(rs, false));
+        } catch (SQLException e) {
+            System.err.println("Ошибка получения изменений книг: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        return null;
+    }
+
+    /**
+     * Сбросить кэш книги (изменилось число доступных экземпляров)
+     */
+    static void invalidateCached(int bookId) {
+        cache.invalidate(bookId);
+    }
+
+    /**
+     * Сбросить кэш всех книг (массовый возврат, изменение автора)
+     */
+    static void invalidateCachedAll() {
+        cache.invalidateAll();
+    }
+
+    private static Book copyOf(Book book) {
+        Book copy = new Book();
+        copy.setBookId(book.getBookId());
+        copy.copyFrom(book);
+        return copy;
+    }
+
     /**
      * Поиск книг
      */
     public ObservableList<Book> searchBooks(String keyword) {
+        return searchBooks(keyword, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Поиск книг с ограничением количества результатов
+     */
+    public ObservableList<Book> searchBooks(String keyword, int limit) {
         ObservableList<Book> books = FXCollections.observableArrayList();
-        String sql = "SELECT b.*, CONCAT(a.first_name, ' ', a.last_name) as author_name " +
+        String sql = "SELECT " + LIST_COLUMNS + ", CONCAT(a.first_name, ' ', a.last_name) as author_name " +
                 "FROM books b " +
                 "JOIN authors a ON b.author_id = a.author_id " +
                 "WHERE b.title LIKE ? OR b.isbn LIKE ? OR b.genre LIKE ? " +
                 "OR a.first_name LIKE ? OR a.last_name LIKE ? " +
-                "ORDER BY b.title";
+                "ORDER BY b.title LIMIT ?";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             String searchPattern = "%" + keyword + "%";
             for (int i = 1; i <= 5; i++) {
                 stmt.setString(i, searchPattern);
             }
+            stmt.setInt(6, limit);
 
             ResultSet rs = stmt.executeQuery();
 
             while (rs.next()) {
-                books.add(extractBookFromResultSet(rs));
+                books.add(extractBookFromResultSet(rs, false));
             }
 
         } catch (SQLException e) {
@@ -193,18 +429,18 @@ public class BookDAO {
      */
     public ObservableList<Book> getAvailableBooks() {
         ObservableList<Book> books = FXCollections.observableArrayList();
-        String sql = "SELECT b.*, CONCAT(a.first_name, ' ', a.last_name) as author_name " +
+        String sql = "SELECT " + LIST_COLUMNS + ", CONCAT(a.first_name, ' ', a.last_name) as author_name " +
                 "FROM books b " +
                 "JOIN authors a ON b.author_id = a.author_id " +
                 "WHERE b.copies_available > 0 " +
                 "ORDER BY b.title";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
             while (rs.next()) {
-                books.add(extractBookFromResultSet(rs));
+                books.add(extractBookFromResultSet(rs, false));
             }
 
         } catch (SQLException e) {
@@ -215,22 +451,22 @@ public class BookDAO {
     }
 
     /**
-     * Создать объект Book из ResultSet
+     * Создать объект Book из ResultSet (detail - запрос выбрал и TEXT-колонку)
      */
-    private Book extractBookFromResultSet(ResultSet rs) throws SQLException {
+    private Book extractBookFromResultSet(ResultSet rs, boolean detail) throws SQLException {
         return new Book(
                 rs.getInt("book_id"),
                 rs.getString("isbn"),
                 rs.getString("title"),
                 rs.getInt("author_id"),
-                rs.getString("author_name"),
-                rs.getString("genre"),
-                rs.getString("publisher"),
+                StringPool.canonical(rs.getString("author_name")),
+                StringPool.canonical(rs.getString("genre")),
+                StringPool.canonical(rs.getString("publisher")),
                 rs.getInt("publication_year"),
                 rs.getInt("pages"),
                 rs.getInt("copies_total"),
                 rs.getInt("copies_available"),
-                rs.getString("description")
+                detail ? rs.getString("description") : null
         );
     }
 }
\ No newline at end of file
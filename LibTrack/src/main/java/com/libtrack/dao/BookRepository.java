@@ -0,0 +1,91 @@
+package com.libtrack.dao;
+
+import com.libtrack.model.Book;
+import javafx.collections.ObservableList;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Хранилище книг. Реализации: BookDAO (MySQL или встроенная H2)
+ */
+public interface BookRepository {
+
+    /**
+     * Получить все книги с информацией об авторе
+     */
+    ObservableList<Book> getAllBooks();
+
+    /**
+     * Получить количество книг
+     */
+    int countBooks();
+
+    /**
+     * Получить страницу книг
+     * @param sortKey ключ из PAGE_SORT_COLUMNS, null - по названию
+     */
+    ObservableList<Book> getBooksPage(int offset, int limit, String sortKey, boolean ascending);
+
+    /**
+     * Доступные книги, у которых название или ISBN начинаются с префикса (для подсказок)
+     */
+    ObservableList<Book> findAvailableBooksByPrefix(String prefix, int limit);
+
+    /**
+     * Все нормализованные ISBN с ID книг (для IsbnIndex)
+     * @return null при ошибке
+     */
+    Map<String, Integer> getBookIdsByNormalizedIsbn();
+
+    /**
+     * Найти ID книги по нормализованному ISBN (любой из вариантов)
+     * @return ID книги или null
+     */
+    Integer findBookIdByNormalizedIsbn(List<String> keys);
+
+    /**
+     * Получить книгу по ID (через кэш)
+     */
+    Book getBookById(int bookId);
+
+    /**
+     * Добавить книгу
+     * @return сохранённая книга (с ID и именем автора) или null при ошибке
+     */
+    Book addBook(Book book);
+
+    /**
+     * Обновить книгу
+     * @return сохранённая книга (с именем автора) или null при ошибке
+     */
+    Book updateBook(Book book);
+
+    /**
+     * Удалить книгу
+     */
+    boolean deleteBook(int bookId);
+
+    /**
+     * Изменения книг после курсора (строки без description, как в списках).
+     * Переименование автора тоже отмечает его книги изменёнными
+     * @param cursor курсор предыдущего запроса или ChangeTracking.currentCursor() после полной загрузки
+     * @return изменения или null при ошибке
+     */
+    ChangeSet<Book> getChangedSince(long cursor);
+
+    /**
+     * Поиск книг
+     */
+    ObservableList<Book> searchBooks(String keyword);
+
+    /**
+     * Поиск книг с ограничением количества результатов
+     */
+    ObservableList<Book> searchBooks(String keyword, int limit);
+
+    /**
+     * Получить доступные книги
+     */
+    ObservableList<Book> getAvailableBooks();
+}
@@ -0,0 +1,333 @@
+package com.libtrack.dao;
+
+import com.libtrack.util.AppConfig;
+import com.libtrack.util.BackgroundTasks;
+
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Синхронизация рабочих мест через журнал изменений (таблица change_log).
+ * Фоновый поток ждёт новых изменений длинным опросом (процедура wait_for_change
+ * отвечает сразу после COMMIT на любом рабочем месте), сбрасывает кэши DAO
+ * и передаёт изменения подписанным экранам в FX-потоке.
+ * Если процедуры нет (старая схема), используется обычный опрос с интервалом,
+ * который растёт в тишине и сбрасывается при изменениях.
+ * -Dlibtrack.sync.enabled=false отключает синхронизацию
+ */
+public class ChangeLogPoller {
+
+    public static final String BOOKS = "books";
+    public static final String AUTHORS = "authors";
+    public static final String VISITORS = "visitors";
+    public static final String LOANS = "loans";
+
+    private static final boolean ENABLED = AppConfig.getBoolean("libtrack.sync.enabled", true);
+    // Сколько сервер держит длинный опрос без изменений
+    private static final int LONG_POLL_TIMEOUT_MS = AppConfig.getInt("libtrack.sync.longPollMs", 10_000);
+    // Интервал обычного опроса: сразу после изменения и предельный в тишине
+    private static final long MIN_INTERVAL_MS = 200;
+    private static final long MAX_INTERVAL_MS = AppConfig.getInt("libtrack.sync.maxIntervalMs", 1_000);
+    // Пауза после изменения, чтобы пачка записей пришла одним событием
+    private static final long COALESCE_MS = 100;
+    private static final long MAX_ERROR_BACKOFF_MS = 30_000;
+    // MySQL: PROCEDURE does not exist
+    private static final int ER_SP_DOES_NOT_EXIST = 1305;
+
+    private static final ChangeLogPoller instance = new ChangeLogPoller();
+
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private volatile Thread thread;
+
+    private ChangeLogPoller() {
+    }
+
+    public static ChangeLogPoller getInstance() {
+        return instance;
+    }
+
+    /**
+     * Подписаться на изменения сущности (обработчик вызывается в FX-потоке)
+     */
+    public void addListener(String entity, Consumer<ChangeEvent> listener) {
+        subscriptions.add(new Subscription(entity, listener));
+    }
+
+    /**
+     * Запустить опрос (повторный вызов ничего не делает)
+     */
+    public synchronized void start() {
+        // Встроенную базу открывает только эта программа - синхронизировать некого
+        if (!ENABLED || thread != null || DatabaseConnection.isEmbedded()) {
+            return;
+        }
+        thread = new Thread(this::run, "libtrack-change-log");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Остановить опрос и снять подписки (выход из системы, завершение)
+     */
+    public synchronized void stop() {
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
+        subscriptions.clear();
+    }
+
+    private void run() {
+        Thread self = Thread.currentThread();
+        Connection conn = null;
+        boolean longPoll = true;
+        long cursor = -1;
+        long interval = MIN_INTERVAL_MS;
+        int failures = 0;
+
+        while (thread == self) {
+            try {
+                if (conn == null) {
+                    conn = DatabaseConnection.openDedicated();
+                }
+                if (cursor < 0) {
+                    cursor = ChangeTracking.settledSeq(conn);
+                }
+
+                long seq = longPoll ? waitForChange(conn, cursor) : ChangeTracking.currentSeq(conn);
+                failures = 0;
+
+                if (seq != cursor) {
+                    // Дать транзакциям пачки (пакетная выдача, ночные задачи) закончиться
+                    Thread.sleep(COALESCE_MS);
+                    // Номера после незафиксированного (дыра) ждут следующего круга;
+                    // номер меньше курсора - база пересоздана, readChanges вернёт сброс
+                    long upTo = seq < cursor ? seq : ChangeTracking.safeSeq(conn, cursor);
+                    if (upTo == cursor) {
+                        Thread.sleep(MIN_INTERVAL_MS);
+                        continue;
+                    }
+                    // Экраны перечитают изменения - с реплики только после того, как она их получит
+                    ReplicaMonitor.getInstance().require(upTo);
+                    Map<String, ChangeEvent> own = new LinkedHashMap<>();
+                    dispatch(readChanges(conn, cursor, upTo, own), own);
+                    cursor = upTo;
+                    interval = MIN_INTERVAL_MS;
+                } else if (!longPoll) {
+                    interval = Math.min(interval * 2, MAX_INTERVAL_MS);
+                }
+
+                if (!longPoll) {
+                    Thread.sleep(interval);
+                }
+            } catch (InterruptedException e) {
+                break;
+            } catch (SQLException e) {
+                if (longPoll && e.getErrorCode() == ER_SP_DOES_NOT_EXIST) {
+                    System.err.println("⚠ Процедура wait_for_change не найдена, используется обычный опрос");
+                    longPoll = false;
+                    continue;
+                }
+                System.err.println("✗ Ошибка синхронизации изменений: " + e.getMessage());
+                closeQuietly(conn);
+                conn = null;
+                try {
+                    Thread.sleep(Math.min(MAX_ERROR_BACKOFF_MS, 1_000L << Math.min(failures++, 5)));
+                } catch (InterruptedException interrupted) {
+                    break;
+                }
+            }
+        }
+
+        closeQuietly(conn);
+    }
+
+    private long waitForChange(Connection conn, long cursor) throws SQLException {
+        try (CallableStatement stmt = conn.prepareCall("{CALL wait_for_change(?, ?)}")) {
+            stmt.setLong(1, cursor);
+            stmt.setInt(2, LONG_POLL_TIMEOUT_MS);
+            ResultSet rs = stmt.executeQuery();
+            return rs.next() ? rs.getLong(1) : cursor;
+        }
+    }
+
+    /**
+     * Изменения в диапазоне (after, upTo] по сущностям.
+     * Записи этого рабочего места (экраны уже показали их сами) попадают в own
+     * null - журнал не покрывает диапазон (база пересоздана или записи уже удалены ночной задачей)
+     */
+    private Map<String, ChangeEvent> readChanges(Connection conn, long after, long upTo,
+                                                 Map<String, ChangeEvent> own) throws SQLException {
+        if (upTo < after || !logCovers(conn, after)) {
+            return null;
+        }
+
+        Map<String, ChangeEvent> events = new LinkedHashMap<>();
+        String sql = "SELECT entity, entity_id, op, origin FROM change_log " +
+                "WHERE change_seq > ? AND change_seq <= ? ORDER BY change_seq, log_id";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, after);
+            stmt.setLong(2, upTo);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                Map<String, ChangeEvent> target =
+                        DatabaseConnection.origin().equals(rs.getString("origin")) ? own : events;
+                target.computeIfAbsent(rs.getString("entity"), ChangeEvent::new)
+                        .add(rs.getInt("entity_id"), rs.getString("op"));
+            }
+        }
+        return events;
+    }
+
+    private boolean logCovers(Connection conn, long after) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MIN(change_seq) FROM change_log")) {
+            long oldest = rs.next() ? rs.getLong(1) : 0;
+            return oldest == 0 || oldest <= after + 1;
+        }
+    }
+
+    /**
+     * Сбросить кэши в этом потоке и передать события экранам.
+     * Свои записи только сбрасывают кэши (триггеры меняют и связанные строки),
+     * экранам они не передаются: иначе вставка или удаление применится дважды
+     */
+    private void dispatch(Map<String, ChangeEvent> events, Map<String, ChangeEvent> own) {
+        if (events == null) {
+            BookDAO.invalidateCachedAll();
+            IsbnIndex.getInstance().invalidate();
+            events = new LinkedHashMap<>();
+            for (String entity : List.of(BOOKS, AUTHORS, VISITORS, LOANS)) {
+                events.put(entity, ChangeEvent.reset(entity));
+            }
+        } else {
+            invalidateCaches(own);
+            invalidateCaches(events);
+            if (events.isEmpty()) {
+                return;
+            }
+        }
+
+        Map<String, ChangeEvent> ready = events;
+        BackgroundTasks.runOnFxThread(() -> {
+            for (Subscription subscription : subscriptions) {
+                ChangeEvent event = ready.get(subscription.entity);
+                if (event != null) {
+                    subscription.listener.accept(event);
+                }
+            }
+        });
+    }
+
+    private void invalidateCaches(Map<String, ChangeEvent> events) {
+        ChangeEvent books = events.get(BOOKS);
+        if (books != null) {
+            books.getChangedIds().forEach(BookDAO::invalidateCached);
+            books.getDeleted().forEach(BookDAO::invalidateCached);
+            IsbnIndex.getInstance().invalidate();
+        }
+        ChangeEvent authors = events.get(AUTHORS);
+        if (authors != null) {
+            authors.getChangedIds().forEach(AuthorDAO::invalidateCached);
+            authors.getDeleted().forEach(AuthorDAO::invalidateCached);
+        }
+        ChangeEvent visitors = events.get(VISITORS);
+        if (visitors != null) {
+            visitors.getChangedIds().forEach(VisitorDAO::invalidateCached);
+            visitors.getDeleted().forEach(VisitorDAO::invalidateCached);
+        }
+    }
+
+    private static void closeQuietly(Connection conn) {
+        if (conn != null) {
+            try {
+                conn.close();
+            } catch (SQLException ignored) {
+                // соединение уже непригодно
+            }
+        }
+    }
+
+    /**
+     * Изменения одной сущности за один опрос
+     */
+    public static class ChangeEvent {
+        private final String entity;
+        private final Set<Integer> inserted = new HashSet<>();
+        private final Set<Integer> updated = new HashSet<>();
+        private final Set<Integer> deleted = new HashSet<>();
+        private boolean reset;
+
+        private ChangeEvent(String entity) {
+            this.entity = entity;
+        }
+
+        private static ChangeEvent reset(String entity) {
+            ChangeEvent event = new ChangeEvent(entity);
+            event.reset = true;
+            return event;
+        }
+
+        private void add(int id, String op) {
+            switch (op) {
+                case "I" -> inserted.add(id);
+                case "D" -> {
+                    inserted.remove(id);
+                    updated.remove(id);
+                    deleted.add(id);
+                }
+                default -> {
+                    if (!inserted.contains(id)) {
+                        updated.add(id);
+                    }
+                }
+            }
+        }
+
+        public String getEntity() { return entity; }
+        public Set<Integer> getInserted() { return Collections.unmodifiableSet(inserted); }
+        public Set<Integer> getUpdated() { return Collections.unmodifiableSet(updated); }
+        public Set<Integer> getDeleted() { return Collections.unmodifiableSet(deleted); }
+
+        /**
+         * Вставленные и изменённые ID (их нужно перечитать)
+         */
+        public Set<Integer> getChangedIds() {
+            Set<Integer> ids = new HashSet<>(inserted);
+            ids.addAll(updated);
+            return ids;
+        }
+
+        /**
+         * Список изменений неизвестен (пропущен журнал) - экран должен перечитать всё
+         */
+        public boolean isReset() { return reset; }
+
+        public int size() {
+            return inserted.size() + updated.size() + deleted.size();
+        }
+    }
+
+    private static class Subscription {
+        private final String entity;
+        private final Consumer<ChangeEvent> listener;
+
+        Subscription(String entity, Consumer<ChangeEvent> listener) {
+            this.entity = entity;
+            this.listener = listener;
+        }
+    }
+}
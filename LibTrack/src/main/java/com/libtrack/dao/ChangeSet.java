@@ -0,0 +1,47 @@
+package com.libtrack.dao;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Изменения сущностей после курсора (getChangedSince):
+ * изменённые и новые строки, ID удалённых и курсор для следующего запроса
+ */
+public class ChangeSet<T> {
+
+    private final List<T> changed;
+    private final Set<Integer> deletedIds;
+    private final long cursor;
+    private final boolean reset;
+
+    ChangeSet(List<T> changed, Set<Integer> deletedIds, long cursor, boolean reset) {
+        this.changed = changed;
+        this.deletedIds = deletedIds;
+        this.cursor = cursor;
+        this.reset = reset;
+    }
+
+    /**
+     * Изменённые и добавленные строки (в порядке изменения)
+     */
+    public List<T> getChanged() { return changed; }
+
+    /**
+     * ID удалённых строк
+     */
+    public Set<Integer> getDeletedIds() { return deletedIds; }
+
+    /**
+     * Курсор для следующего getChangedSince
+     */
+    public long getCursor() { return cursor; }
+
+    /**
+     * Курсор больше текущего номера изменения (база пересоздана) - нужна полная перезагрузка
+     */
+    public boolean isReset() { return reset; }
+
+    public boolean isEmpty() {
+        return changed.isEmpty() && deletedIds.isEmpty();
+    }
+}
@@ -0,0 +1,192 @@
+package com.libtrack.dao;
+
+import com.libtrack.util.AppConfig;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Номер изменения (change_sequence) и надгробия (deleted_rows) для getChangedSince.
+ * Клиент делает полную загрузку, запоминает currentCursor() и дальше
+ * запрашивает только изменения после него.
+ * Номера выдаёт AUTO_INCREMENT без общей блокировки, поэтому зафиксированы они
+ * не строго по порядку: курсор не переходит дыру (транзакция ещё идёт),
+ * пока она не старше GRACE_MS - тогда номер считается откатившимся
+ */
+public class ChangeTracking {
+
+    // Сколько ждать незафиксированный номер перед следующими
+    private static final long GRACE_MS = Math.max(0, AppConfig.getInt("libtrack.sync.graceMs", 5_000));
+    // Номеров за один запрос при проходе от курсора
+    private static final int SCAN_BATCH = 1_000;
+
+    private ChangeTracking() {
+    }
+
+    /**
+     * Текущий номер изменения (курсор для первого getChangedSince)
+     * @return номер или -1 при ошибке
+     */
+    public static long currentCursor() {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return settledSeq(conn);
+        } catch (SQLException e) {
+            System.err.println("Ошибка получения номера изменения: " + e.getMessage());
+        }
+        return -1;
+    }
+
+    /**
+     * Наибольший зафиксированный номер изменения. Меньшие номера могут быть
+     * ещё не видны (для сравнения основного сервера с репликой и ожидания изменений)
+     */
+    static long currentSeq(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(seq), 0) FROM change_sequence")) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    /**
+     * Курсор без предыдущего: номера старше GRACE_MS и зафиксированные сразу за ними
+     */
+    static long settledSeq(Connection conn) throws SQLException {
+        Timestamp settledBefore;
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT CURRENT_TIMESTAMP(3)")) {
+            rs.next();
+            settledBefore = new Timestamp(rs.getTimestamp(1).getTime() - GRACE_MS);
+        }
+
+        long settled = 0;
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT COALESCE(MAX(seq), 0) FROM change_sequence WHERE created_at < ?")) {
+            stmt.setTimestamp(1, settledBefore);
+            ResultSet rs = stmt.executeQuery();
+            if (rs.next()) {
+                settled = rs.getLong(1);
+            }
+        }
+        return safeSeq(conn, settled);
+    }
+
+    /**
+     * Номер, до которого все изменения после after уже видны:
+     * номера идут подряд, а дыра пропускается, только если следующий за ней номер старше GRACE_MS
+     */
+    static long safeSeq(Connection conn, long after) throws SQLException {
+        String sql = "SELECT seq, created_at, CURRENT_TIMESTAMP(3) AS db_now FROM change_sequence " +
+                "WHERE seq > ? ORDER BY seq LIMIT " + SCAN_BATCH;
+        long safe = after;
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int rows = SCAN_BATCH;
+            while (rows == SCAN_BATCH) {
+                rows = 0;
+                stmt.setLong(1, safe);
+                ResultSet rs = stmt.executeQuery();
+                while (rs.next()) {
+                    rows++;
+                    long seq = rs.getLong("seq");
+                    long age = rs.getTimestamp("db_now").getTime() - rs.getTimestamp("created_at").getTime();
+                    if (seq != safe + 1 && age < GRACE_MS) {
+                        // Перед этим номером есть незафиксированный
+                        return safe;
+                    }
+                    safe = seq;
+                }
+            }
+        }
+        return safe;
+    }
+
+    /**
+     * Изменения одной таблицы в диапазоне (after, upTo]
+     * @param sql запрос строк с двумя параметрами: change_seq > ? AND change_seq <= ?
+     */
+    static <T> ChangeSet<T> load(Connection conn, String entity, String sql, long after,
+                                 RowMapper<T> mapper) throws SQLException {
+        long last = currentSeq(conn);
+        if (after > last) {
+            // База пересоздана
+            return new ChangeSet<>(List.of(), Set.of(), last, true);
+        }
+        long upTo = safeSeq(conn, after);
+
+        List<T> changed = new ArrayList<>();
+        Set<Integer> deleted = new HashSet<>();
+        if (after == upTo) {
+            return new ChangeSet<>(changed, deleted, upTo, false);
+        }
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, after);
+            stmt.setLong(2, upTo);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                changed.add(mapper.map(rs));
+            }
+        }
+
+        String tombstones = "SELECT entity_id FROM deleted_rows " +
+                "WHERE entity = ? AND change_seq > ? AND change_seq <= ?";
+        try (PreparedStatement stmt = conn.prepareStatement(tombstones)) {
+            stmt.setString(1, entity);
+            stmt.setLong(2, after);
+            stmt.setLong(3, upTo);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                deleted.add(rs.getInt("entity_id"));
+            }
+        }
+
+        return new ChangeSet<>(changed, deleted, upTo, false);
+    }
+
+    /**
+     * Удалить старые записи журнала изменений, номера изменений и надгробия.
+     * Клиент с более старым курсором получит сброс (полную перезагрузку)
+     * @return число удалённых строк или -1 при ошибке
+     */
+    public static int purge(int logHours, int tombstoneDays) {
+        // Границы считаются здесь: INTERVAL в MySQL и H2 записывается по-разному
+        String purgeLog = "DELETE FROM change_log WHERE changed_at < ?";
+        String purgeTombstones = "DELETE FROM deleted_rows WHERE deleted_at < ?";
+        // Последний номер остаётся: по нему AUTO_INCREMENT продолжит счёт после перезапуска сервера
+        String purgeSequence = "DELETE FROM change_sequence WHERE created_at < ? AND seq < ?";
+        Instant now = Instant.now();
+        Timestamp logBefore = Timestamp.from(now.minus(logHours, ChronoUnit.HOURS));
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement logStmt = conn.prepareStatement(purgeLog);
+             PreparedStatement tombstoneStmt = conn.prepareStatement(purgeTombstones);
+             PreparedStatement sequenceStmt = conn.prepareStatement(purgeSequence)) {
+            logStmt.setTimestamp(1, logBefore);
+            tombstoneStmt.setTimestamp(1, Timestamp.from(now.minus(tombstoneDays, ChronoUnit.DAYS)));
+            sequenceStmt.setTimestamp(1, logBefore);
+            sequenceStmt.setLong(2, currentSeq(conn));
+            return logStmt.executeUpdate() + tombstoneStmt.executeUpdate() + sequenceStmt.executeUpdate();
+        } catch (SQLException e) {
+            System.err.println("Ошибка очистки журнала изменений: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return -1;
+    }
+
+    /**
+     * Разбор строки результата в сущность
+     */
+    interface RowMapper<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
+}
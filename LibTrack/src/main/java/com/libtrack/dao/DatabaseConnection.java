@@ -1,53 +1,466 @@
 package com.libtrack.dao;
 
+import com.libtrack.util.AppConfig;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Paths;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 //Класс для управления подключением к базе данных
+//DAO закрывают соединение после каждого запроса (try-with-resources),
+//поэтому close() у выданного соединения возвращает его в пул, а не рвёт сокет.
+//Чтение списков и статистики может идти на реплику (getReadConnection),
+//запись и чтение сразу после записи - всегда на основной сервер.
+//-Dlibtrack.db.backend=embedded - встроенная база H2 в файле (без сервера MySQL),
+//те же DAO работают с ней в режиме совместимости MODE=MySQL.
 public class DatabaseConnection {
 
+    public static final String BACKEND_MYSQL = "mysql";
+    public static final String BACKEND_EMBEDDED = "embedded";
 
-    private static final String URL = "jdbc:mysql://localhost:3306/libtrack?useSSL=false&serverTimezone=UTC";
-    private static final String USERNAME = "root";
-    private static final String PASSWORD = "Masek040407";
+    private static final String BACKEND = AppConfig.getString("libtrack.db.backend", BACKEND_MYSQL)
+            .toLowerCase(Locale.ROOT);
+    private static final boolean EMBEDDED = BACKEND_EMBEDDED.equals(BACKEND);
 
-    private static Connection connection = null;
+    // Файл встроенной базы (без расширения .mv.db)
+    private static final String EMBEDDED_PATH = AppConfig.getString("libtrack.db.embeddedPath",
+            Paths.get(System.getProperty("user.home"), ".libtrack", "libtrack").toString());
+    private static final String EMBEDDED_URL = "jdbc:h2:file:" + EMBEDDED_PATH +
+            ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=VALUE";
 
+    private static final String URL = EMBEDDED ? EMBEDDED_URL : AppConfig.getString("libtrack.db.url",
+            "jdbc:mysql://localhost:3306/libtrack?useSSL=false&serverTimezone=UTC");
+    private static final String USERNAME = EMBEDDED ? "sa" : "root";
+    private static final String PASSWORD = EMBEDDED ? "" : "Masek040407";
+    private static final String DRIVER = EMBEDDED ? "org.h2.Driver" : "com.mysql.cj.jdbc.Driver";
+    private static final String DRIVER_NAME = EMBEDDED ? "H2" : "MySQL";
 
-    public static Connection getConnection() {
-        try {
-            if (connection == null || connection.isClosed()) {
+    // Реплика для чтения (пусто - все запросы идут на основной сервер; во встроенной базе не бывает)
+    private static final String REPLICA_URL = EMBEDDED ? "" : AppConfig.getString("libtrack.db.replicaUrl", "");
+    private static final String REPLICA_USERNAME = AppConfig.getString("libtrack.db.replicaUser", USERNAME);
+    private static final String REPLICA_PASSWORD = AppConfig.getString("libtrack.db.replicaPassword", PASSWORD);
+    // Недоступная реплика не должна надолго задерживать чтение
+    private static final int REPLICA_CONNECT_TIMEOUT_MS = 2_000;
 
-                Class.forName("com.mysql.cj.jdbc.Driver");
+    // Максимум физических соединений (фоновые задачи работают параллельно с UI)
+    private static final int MAX_POOL_SIZE = 8;
+    private static final long ACQUIRE_TIMEOUT_MS = 10_000;
+    // Соединение, простоявшее дольше, проверяется перед выдачей
+    private static final long VALIDATE_AFTER_IDLE_MS = 30_000;
+    // Сколько соединений открыть заранее, пока пользователь вводит пароль
+    private static final int WARM_UP_CONNECTIONS = 2;
 
+    private static final Pool primary = new Pool(URL, USERNAME, PASSWORD, false);
+    private static final Pool replica = REPLICA_URL.isBlank() ? null :
+            new Pool(REPLICA_URL, REPLICA_USERNAME, REPLICA_PASSWORD, true);
 
-                connection = DriverManager.getConnection(URL, USERNAME, PASSWORD);
+    // Метка этого рабочего места в журнале изменений (@libtrack_origin в триггерах)
+    private static final String ORIGIN = UUID.randomUUID().toString();
 
-                System.out.println("Успешное подключение к базе данных MySQL");
+    private static final AtomicLong replicaReads = new AtomicLong();
+    private static final AtomicLong primaryReads = new AtomicLong();
+
+    static {
+        if (!EMBEDDED && !BACKEND_MYSQL.equals(BACKEND)) {
+            System.err.println("⚠ Неизвестное значение libtrack.db.backend=" + BACKEND + ", используется mysql");
+        }
+    }
+
+
+    /**
+     * Работает ли приложение со встроенной базой H2 (а не с сервером MySQL)
+     */
+    public static boolean isEmbedded() {
+        return EMBEDDED;
+    }
+
+
+    /**
+     * Метка записей этого рабочего места в change_log
+     */
+    static String origin() {
+        return ORIGIN;
+    }
+
+
+    /**
+     * Соединение с основным сервером (запись и чтение, которое должно видеть свою запись)
+     * @throws SQLException сервер недоступен или пул исчерпан (SQLTransientConnectionException)
+     */
+    public static Connection getConnection() throws SQLException {
+        return primary.acquire(true);
+    }
+
+
+    /**
+     * Соединение только для чтения: реплика, если она настроена, доступна и не отстаёт;
+     * иначе основной сервер. После своей записи чтение идёт на основной сервер,
+     * пока реплика её не получит
+     */
+    public static Connection getReadConnection() throws SQLException {
+        if (replica != null && ReplicaMonitor.getInstance().isUsable()) {
+            try {
+                Connection connection = replica.acquire(false);
+                replicaReads.incrementAndGet();
+                return connection;
+            } catch (SQLException e) {
+                // Чтение уйдёт на основной сервер
+                System.err.println("Реплика недоступна: " + e.getMessage());
+                ReplicaMonitor.getInstance().markDown();
+            }
+        }
+        primaryReads.incrementAndGet();
+        return primary.acquire(false);
+    }
+
+
+    /**
+     * Прогрев: загрузить драйвер и открыть соединения заранее (они остаются в пуле)
+     */
+    public static void warmUp() {
+        Connection[] connections = new Connection[WARM_UP_CONNECTIONS];
+        try {
+            for (int i = 0; i < connections.length; i++) {
+                connections[i] = getConnection();
             }
-        } catch (ClassNotFoundException e) {
-            System.err.println("Драйвер MySQL не найден!");
-            System.err.println("Убедитесь, что в pom.xml есть зависимость mysql-connector-j");
-            e.printStackTrace();
         } catch (SQLException e) {
-            System.err.println("Ошибка подключения к БД: " + e.getMessage());
-            System.err.println("Проверьте:");
+            System.err.println("Ошибка прогрева пула соединений: " + e.getMessage());
+        }
+        for (Connection connection : connections) {
+            if (connection != null) {
+                try {
+                    connection.close();
+                } catch (SQLException e) {
+                    System.err.println("Ошибка при возврате соединения: " + e.getMessage());
+                }
+            }
+        }
+        if (replica != null) {
+            ReplicaMonitor.getInstance().start();
+        }
+    }
+
 
-            e.printStackTrace();
+    /**
+     * Отдельное соединение вне пула для долгих запросов (длинный опрос журнала изменений).
+     * Закрывается вызывающим
+     */
+    static Connection openDedicated() throws SQLException {
+        try {
+            return primary.openPhysical();
+        } catch (ClassNotFoundException e) {
+            throw new SQLException("Драйвер " + DRIVER_NAME + " не найден", e);
+        }
+    }
+
+
+    /**
+     * Отдельные соединения для проверки реплики (не учитываются как запись).
+     * null - реплика не настроена
+     */
+    static Connection openReplicaCheck() throws SQLException {
+        return replica == null ? null : replica.acquire(false);
+    }
+
+    static Connection openPrimaryCheck() throws SQLException {
+        return primary.acquire(false);
+    }
+
+
+    /**
+     * Сбросить свободные соединения реплики (она перестала отвечать)
+     */
+    static void discardReplicaConnections() {
+        if (replica != null) {
+            replica.closeIdle();
         }
-        return connection;
     }
 
 
     public static void closeConnection() {
-        try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
-                System.out.println("Соединение с БД закрыто");
+        ReplicaMonitor.getInstance().stop();
+        primary.closeIdle();
+        if (replica != null) {
+            replica.closeIdle();
+            System.out.println("Чтений с реплики: " + replicaReads.get() +
+                    ", с основного сервера: " + primaryReads.get());
+        }
+        System.out.println("Соединения с БД закрыты");
+    }
+
+
+    /**
+     * Пул соединений одного сервера
+     */
+    private static class Pool {
+        private final String url;
+        private final String username;
+        private final String password;
+        private final boolean readOnly;
+        private final BlockingQueue<IdleConnection> idle = new LinkedBlockingQueue<>();
+        private final Semaphore permits = new Semaphore(MAX_POOL_SIZE);
+
+        Pool(String url, String username, String password, boolean readOnly) {
+            this.url = url;
+            this.username = username;
+            this.password = password;
+            this.readOnly = readOnly;
+        }
+
+        /**
+         * Выдать соединение
+         * @param trackWrites отметить запись для маршрутизации чтения
+         * @throws SQLException сервер недоступен, драйвер не найден или пул исчерпан
+         */
+        Connection acquire(boolean trackWrites) throws SQLException {
+            try {
+                return wrap(take(), trackWrites);
+            } catch (ClassNotFoundException e) {
+                System.err.println("Драйвер " + DRIVER_NAME + " не найден!");
+                System.err.println("Убедитесь, что в pom.xml есть зависимость " +
+                        (EMBEDDED ? "h2" : "mysql-connector-j"));
+                throw new SQLException("Драйвер " + DRIVER_NAME + " не найден", e);
             }
-        } catch (SQLException e) {
-            System.err.println("Ошибка при закрытии соединения: " + e.getMessage());
+        }
+
+        private Connection take() throws ClassNotFoundException, SQLException {
+            try {
+                if (!permits.tryAcquire(ACQUIRE_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                    throw new SQLTransientConnectionException("пул соединений исчерпан (ожидание " +
+                            ACQUIRE_TIMEOUT_MS + " мс)");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLTransientConnectionException("ожидание соединения прервано", e);
+            }
+
+            try {
+                Connection physical = takeIdle();
+                return physical != null ? physical : openPhysical();
+            } catch (ClassNotFoundException | SQLException | RuntimeException e) {
+                permits.release();
+                throw e;
+            }
+        }
+
+        /**
+         * Взять свободное соединение из пула (null если пул пуст)
+         */
+        private Connection takeIdle() {
+            IdleConnection entry;
+            while ((entry = idle.poll()) != null) {
+                try {
+                    boolean stale = System.currentTimeMillis() - entry.returnedAt > VALIDATE_AFTER_IDLE_MS;
+                    if (!entry.connection.isClosed() && (!stale || entry.connection.isValid(2))) {
+                        return entry.connection;
+                    }
+                    entry.connection.close();
+                } catch (SQLException e) {
+                    // Битое соединение просто выбрасываем
+                }
+            }
+            return null;
+        }
+
+        private Connection openPhysical() throws ClassNotFoundException, SQLException {
+            Class.forName(DRIVER);
+            Properties properties = new Properties();
+            properties.setProperty("user", username);
+            properties.setProperty("password", password);
+            if (readOnly) {
+                properties.setProperty("connectTimeout", String.valueOf(REPLICA_CONNECT_TIMEOUT_MS));
+            }
+            Connection connection = DriverManager.getConnection(url, properties);
+            if (readOnly) {
+                connection.setReadOnly(true);
+                System.out.println("Успешное подключение к реплике MySQL");
+            } else if (EMBEDDED) {
+                try {
+                    EmbeddedSchema.ensureCreated(connection);
+                } catch (SQLException e) {
+                    connection.close();
+                    throw e;
+                }
+                System.out.println("Успешное подключение к встроенной базе H2: " + EMBEDDED_PATH);
+            } else {
+                // Триггеры подписывают записи журнала изменений, чтобы опрос пропускал свои
+                try (Statement stmt = connection.createStatement()) {
+                    stmt.execute("SET @libtrack_origin = '" + ORIGIN + "'");
+                } catch (SQLException e) {
+                    connection.close();
+                    throw e;
+                }
+                System.out.println("Успешное подключение к базе данных MySQL");
+            }
+            return connection;
+        }
+
+        /**
+         * Вернуть соединение в пул (вызывается из close() обёртки)
+         */
+        private void release(Connection physical) {
+            try {
+                if (!physical.isClosed()) {
+                    if (!physical.getAutoCommit()) {
+                        physical.rollback();
+                        physical.setAutoCommit(true);
+                    }
+                    idle.offer(new IdleConnection(physical, System.currentTimeMillis()));
+                }
+            } catch (SQLException e) {
+                try {
+                    physical.close();
+                } catch (SQLException ignored) {
+                    // соединение уже непригодно
+                }
+            } finally {
+                permits.release();
+            }
+        }
+
+        private void closeIdle() {
+            IdleConnection entry;
+            while ((entry = idle.poll()) != null) {
+                try {
+                    entry.connection.close();
+                } catch (SQLException e) {
+                    System.err.println("Ошибка при закрытии соединения: " + e.getMessage());
+                }
+            }
+        }
+
+        /**
+         * Обёртка над физическим соединением: close() возвращает его в пул.
+         * Если через соединение шла запись, после возврата чтение
+         * закрепляется за основным сервером (ReplicaMonitor)
+         */
+        private Connection wrap(Connection physical, boolean trackWrites) {
+            boolean[] closed = {false};
+            boolean[] wrote = {false};
+
+            return (Connection) Proxy.newProxyInstance(
+                    DatabaseConnection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "close":
+                                if (!closed[0]) {
+                                    closed[0] = true;
+                                    release(physical);
+                                    if (wrote[0]) {
+                                        ReplicaMonitor.getInstance().primaryWritten();
+                                    }
+                                }
+                                return null;
+                            case "isClosed":
+                                return closed[0] || physical.isClosed();
+                            default:
+                                if (closed[0]) {
+                                    throw new SQLException("Соединение уже возвращено в пул");
+                                }
+                                if (trackWrites && !wrote[0] && isWrite(method.getName(), args)) {
+                                    wrote[0] = true;
+                                }
+                                Object result;
+                                try {
+                                    result = method.invoke(physical, args);
+                                } catch (InvocationTargetException e) {
+                                    throw e.getCause();
+                                }
+                                if (QueryPlanRecorder.isActive()) {
+                                    result = QueryPlanRecorder.wrap(physical, method.getName(), args, result);
+                                }
+                                // SQL обычного Statement известен только при execute*
+                                if (trackWrites && "createStatement".equals(method.getName()) &&
+                                        result instanceof Statement statement) {
+                                    return trackStatementWrites(statement, wrote);
+                                }
+                                return result;
+                        }
+                    });
+        }
+    }
+
+    /**
+     * Обёртка над Statement: запись через executeUpdate/executeBatch/execute
+     * отмечается так же, как подготовленная запись на соединении
+     */
+    private static Statement trackStatementWrites(Statement target, boolean[] wrote) {
+        return (Statement) Proxy.newProxyInstance(
+                DatabaseConnection.class.getClassLoader(),
+                new Class<?>[]{Statement.class},
+                (proxy, method, args) -> {
+                    if (!wrote[0] && isStatementWrite(method.getName(), args)) {
+                        wrote[0] = true;
+                    }
+                    try {
+                        return method.invoke(target, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    /**
+     * Похоже ли обращение к соединению на запись: транзакция,
+     * INSERT/UPDATE/DELETE/REPLACE или вызов процедуры
+     */
+    private static boolean isWrite(String method, Object[] args) {
+        switch (method) {
+            case "setAutoCommit":
+                return Boolean.FALSE.equals(args[0]);
+            case "prepareCall":
+                return true;
+            case "prepareStatement":
+                return isWriteSql((String) args[0]);
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Похоже ли выполнение SQL через Statement на запись
+     */
+    private static boolean isStatementWrite(String method, Object[] args) {
+        switch (method) {
+            case "executeUpdate":
+            case "executeLargeUpdate":
+            case "executeBatch":
+            case "executeLargeBatch":
+                return true;
+            case "execute":
+            case "addBatch":
+                return isWriteSql((String) args[0]);
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isWriteSql(String sql) {
+        String keyword = sql.stripLeading().toUpperCase(Locale.ROOT);
+        return !keyword.startsWith("SELECT") && !keyword.startsWith("WITH");
+    }
+
+    private static class IdleConnection {
+        private final Connection connection;
+        private final long returnedAt;
+
+        IdleConnection(Connection connection, long returnedAt) {
+            this.connection = connection;
+            this.returnedAt = returnedAt;
         }
     }
-}
\ No newline at end of file
+}
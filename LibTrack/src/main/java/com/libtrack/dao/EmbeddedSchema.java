@@ -0,0 +1,91 @@
+package com.libtrack.dao;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Схема встроенной базы H2: создаётся из database/libtrack_schema_h2.sql
+ * при первом подключении к пустому файлу базы
+ */
+class EmbeddedSchema {
+
+    private static final String SCHEMA_RESOURCE = "/database/libtrack_schema_h2.sql";
+    private static final String LAST_OBJECT = "v_loan_history";
+
+    private static volatile boolean checked;
+
+    private EmbeddedSchema() {
+    }
+
+    /**
+     * Создать таблицы, триггеры и начальные данные, если базы ещё нет
+     */
+    static synchronized void ensureCreated(Connection connection) throws SQLException {
+        if (checked) {
+            return;
+        }
+        // Представление создаётся последним: есть оно - схема создана целиком
+        if (exists(connection, LAST_OBJECT)) {
+            checked = true;
+            return;
+        }
+        if (exists(connection, "users")) {
+            // DDL в H2 фиксируется сразу, откатить наполовину созданную схему нельзя
+            throw new SQLException("Встроенная база создана не полностью, удалите её файл и запустите заново");
+        }
+
+        List<String> statements = readStatements();
+        try (Statement stmt = connection.createStatement()) {
+            for (String sql : statements) {
+                stmt.execute(sql);
+            }
+        }
+
+        checked = true;
+        System.out.println("✓ Встроенная база создана (" + statements.size() + " команд)");
+    }
+
+    private static boolean exists(Connection connection, String name) throws SQLException {
+        try (ResultSet rs = connection.getMetaData().getTables(null, connection.getSchema(), name, null)) {
+            return rs.next();
+        }
+    }
+
+    /**
+     * Команды схемы: без строк-комментариев, разделены ';' в конце строки
+     */
+    private static List<String> readStatements() throws SQLException {
+        String script;
+        try (InputStream in = EmbeddedSchema.class.getResourceAsStream(SCHEMA_RESOURCE)) {
+            if (in == null) {
+                throw new SQLException("Не найден ресурс " + SCHEMA_RESOURCE);
+            }
+            script = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new SQLException("Ошибка чтения " + SCHEMA_RESOURCE, e);
+        }
+
+        List<String> statements = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (String line : script.split("\\R")) {
+            String trimmed = line.strip();
+            if (trimmed.isEmpty() || trimmed.startsWith("--")) {
+                continue;
+            }
+            current.append(line).append('\n');
+            if (trimmed.endsWith(";")) {
+                String sql = current.toString().strip();
+                statements.add(sql.substring(0, sql.length() - 1));
+                current.setLength(0);
+            }
+        }
+        return statements;
+    }
+}
@@ -0,0 +1,226 @@
+package com.libtrack.dao;
+
+import org.h2.api.Trigger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Objects;
+
+/**
+ * Триггеры встроенной базы H2 - те же правила, что у триггеров MySQL в libtrack_schema.sql:
+ * свободные экземпляры при выдаче и возврате, номер изменения, надгробия,
+ * изменение книг при переименовании автора.
+ * Журнал change_log не пишется: синхронизация рабочих мест работает только с MySQL.
+ * H2 создаёт классы по имени (CREATE TRIGGER ... CALL), поэтому они публичные
+ */
+public class EmbeddedTriggers {
+
+    private EmbeddedTriggers() {
+    }
+
+    /**
+     * Следующий номер изменения (новая строка change_sequence, без общей блокировки)
+     */
+    static long nextChangeSeq(Connection conn) throws SQLException {
+        try (PreparedStatement insert = conn.prepareStatement(
+                "INSERT INTO change_sequence (created_at) VALUES (DEFAULT)", Statement.RETURN_GENERATED_KEYS)) {
+            insert.executeUpdate();
+            ResultSet keys = insert.getGeneratedKeys();
+            if (!keys.next()) {
+                throw new SQLException("Не получен номер изменения");
+            }
+            return keys.getLong(1);
+        }
+    }
+
+    /**
+     * Позиция столбца в строке триггера
+     */
+    static int columnIndex(Connection conn, String schema, String table, String column) throws SQLException {
+        try (ResultSet rs = conn.getMetaData().getColumns(null, schema, table, column)) {
+            if (rs.next()) {
+                return rs.getInt("ORDINAL_POSITION") - 1;
+            }
+        }
+        throw new SQLException("Нет столбца " + table + "." + column);
+    }
+
+    private static int intValue(Object value) {
+        return ((Number) value).intValue();
+    }
+
+    /**
+     * loans, после вставки и изменения: выдача уменьшает свободные экземпляры книги,
+     * возврат (в т.ч. просроченной) увеличивает
+     */
+    public static class LoanCopies implements Trigger {
+        private int bookIdIndex;
+        private int statusIndex;
+
+        @Override
+        public void init(Connection conn, String schemaName, String triggerName, String tableName,
+                         boolean before, int type) throws SQLException {
+            bookIdIndex = columnIndex(conn, schemaName, tableName, "book_id");
+            statusIndex = columnIndex(conn, schemaName, tableName, "status");
+        }
+
+        @Override
+        public void fire(Connection conn, Object[] oldRow, Object[] newRow) throws SQLException {
+            String newStatus = String.valueOf(newRow[statusIndex]);
+            int delta;
+            if (oldRow == null) {
+                delta = "active".equals(newStatus) ? -1 : 0;
+            } else {
+                String oldStatus = String.valueOf(oldRow[statusIndex]);
+                boolean wasOut = "active".equals(oldStatus) || "overdue".equals(oldStatus);
+                delta = wasOut && "returned".equals(newStatus) ? 1 : 0;
+            }
+            if (delta == 0) {
+                return;
+            }
+
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "UPDATE books SET copies_available = copies_available + ? WHERE book_id = ?")) {
+                stmt.setInt(1, delta);
+                stmt.setInt(2, intValue(newRow[bookIdIndex]));
+                stmt.executeUpdate();
+            }
+        }
+    }
+
+    /**
+     * authors, books, visitors, loans, перед вставкой и изменением: номер изменения строки
+     */
+    public static class ChangeSeq implements Trigger {
+        private int changeSeqIndex;
+
+        @Override
+        public void init(Connection conn, String schemaName, String triggerName, String tableName,
+                         boolean before, int type) throws SQLException {
+            changeSeqIndex = columnIndex(conn, schemaName, tableName, "change_seq");
+        }
+
+        @Override
+        public void fire(Connection conn, Object[] oldRow, Object[] newRow) throws SQLException {
+            newRow[changeSeqIndex] = nextChangeSeq(conn);
+        }
+    }
+
+    /**
+     * authors, books, visitors, loans, перед удалением: надгробия строки
+     * и строк, которые удалятся каскадом по внешнему ключу
+     */
+    public static class Tombstone implements Trigger {
+        private String table;
+        private int idIndex;
+
+        @Override
+        public void init(Connection conn, String schemaName, String triggerName, String tableName,
+                         boolean before, int type) throws SQLException {
+            table = tableName.toLowerCase();
+            idIndex = columnIndex(conn, schemaName, tableName, idColumn(table));
+        }
+
+        private static String idColumn(String table) {
+            switch (table) {
+                case "authors": return "author_id";
+                case "books": return "book_id";
+                case "visitors": return "visitor_id";
+                default: return "loan_id";
+            }
+        }
+
+        @Override
+        public void fire(Connection conn, Object[] oldRow, Object[] newRow) throws SQLException {
+            if ("loans".equals(table) && isArchiving(conn)) {
+                return;
+            }
+            long seq = nextChangeSeq(conn);
+            int id = intValue(oldRow[idIndex]);
+
+            switch (table) {
+                case "authors":
+                    insertChildren(conn, "loans", "l.loan_id", "FROM loans l " +
+                            "JOIN books b ON b.book_id = l.book_id WHERE b.author_id = ?", id, seq);
+                    insertChildren(conn, "books", "book_id", "FROM books WHERE author_id = ?", id, seq);
+                    break;
+                case "books":
+                    insertChildren(conn, "loans", "loan_id", "FROM loans WHERE book_id = ?", id, seq);
+                    break;
+                case "visitors":
+                    insertChildren(conn, "loans", "loan_id", "FROM loans WHERE visitor_id = ?", id, seq);
+                    break;
+                default:
+                    break;
+            }
+
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "INSERT INTO deleted_rows (entity, entity_id, change_seq) VALUES (?, ?, ?)")) {
+                stmt.setString(1, table);
+                stmt.setInt(2, id);
+                stmt.setLong(3, seq);
+                stmt.executeUpdate();
+            }
+        }
+
+        /**
+         * Выдача переносится в архив, а не удаляется (@libtrack_archiving, как в loans_tombstone MySQL)
+         */
+        private static boolean isArchiving(Connection conn) throws SQLException {
+            try (PreparedStatement stmt = conn.prepareStatement("SELECT @libtrack_archiving");
+                 ResultSet rs = stmt.executeQuery()) {
+                return rs.next() && rs.getObject(1) != null;
+            }
+        }
+
+        /**
+         * Надгробия дочерних строк родителя
+         * @param fromWhere "FROM ... WHERE ... = ?" с параметром ID родителя
+         */
+        private static void insertChildren(Connection conn, String entity, String idColumn, String fromWhere,
+                                           int parentId, long seq) throws SQLException {
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "INSERT INTO deleted_rows (entity, entity_id, change_seq) " +
+                            "SELECT CAST(? AS VARCHAR(20)), " + idColumn + ", CAST(? AS BIGINT) " + fromWhere)) {
+                stmt.setString(1, entity);
+                stmt.setLong(2, seq);
+                stmt.setInt(3, parentId);
+                stmt.executeUpdate();
+            }
+        }
+    }
+
+    /**
+     * authors, после изменения: имя автора входит в строку книги,
+     * поэтому переименование отмечает его книги изменёнными
+     */
+    public static class AuthorRename implements Trigger {
+        private int authorIdIndex;
+        private int firstNameIndex;
+        private int lastNameIndex;
+
+        @Override
+        public void init(Connection conn, String schemaName, String triggerName, String tableName,
+                         boolean before, int type) throws SQLException {
+            authorIdIndex = columnIndex(conn, schemaName, tableName, "author_id");
+            firstNameIndex = columnIndex(conn, schemaName, tableName, "first_name");
+            lastNameIndex = columnIndex(conn, schemaName, tableName, "last_name");
+        }
+
+        @Override
+        public void fire(Connection conn, Object[] oldRow, Object[] newRow) throws SQLException {
+            if (Objects.equals(oldRow[firstNameIndex], newRow[firstNameIndex]) &&
+                    Objects.equals(oldRow[lastNameIndex], newRow[lastNameIndex])) {
+                return;
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "UPDATE books SET updated_at = CURRENT_TIMESTAMP(3) WHERE author_id = ?")) {
+                stmt.setInt(1, intValue(newRow[authorIdIndex]));
+                stmt.executeUpdate();
+            }
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.libtrack.dao;
+
+import com.libtrack.util.AppConfig;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+import java.util.function.UnaryOperator;
+
+/**
+ * Кэш сущностей по ID перед запросами getXxxById.
+ * Ограничен по размеру (вытесняется давно не читанная запись) и по времени жизни записи.
+ * Наружу отдаются копии: модели изменяемые и попадают в таблицы, правка копии кэш не портит.
+ * Сбрасывается записями через DAO; -Dlibtrack.cache.enabled=false отключает кэш для отладки
+ */
+public class EntityCache<T> {
+
+    static final boolean ENABLED = AppConfig.getBoolean("libtrack.cache.enabled", true);
+    private static final int MAX_SIZE = Math.max(1, AppConfig.getInt("libtrack.cache.size", 1000));
+    private static final long TTL_MS = Math.max(0, AppConfig.getInt("libtrack.cache.ttlSeconds", 60)) * 1000L;
+
+    private static final List<EntityCache<?>> all = new CopyOnWriteArrayList<>();
+
+    private final String name;
+    private final UnaryOperator<T> copier;
+    private final Map<Integer, Entry<T>> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Entry<T>> eldest) {
+            if (size() > MAX_SIZE) {
+                evictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    };
+    // Растёт при каждом сбросе: загрузка, начатая до сброса, в кэш не кладётся
+    private long version;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    EntityCache(String name, UnaryOperator<T> copier) {
+        this.name = name;
+        this.copier = copier;
+        all.add(this);
+    }
+
+    /**
+     * Вывести статистику всех кэшей (при завершении приложения)
+     */
+    public static void printStats() {
+        if (!ENABLED) {
+            System.out.println("Кэш сущностей отключён");
+            return;
+        }
+        for (EntityCache<?> cache : all) {
+            System.out.println("Кэш " + cache.getStats());
+        }
+    }
+
+    /**
+     * Получить сущность из кэша или загрузить (null не кэшируется)
+     */
+    T get(int id, IntFunction<T> loader) {
+        if (!ENABLED) {
+            return loader.apply(id);
+        }
+
+        long loadVersion;
+        synchronized (this) {
+            Entry<T> entry = entries.get(id);
+            if (entry != null && System.currentTimeMillis() - entry.loadedAt <= TTL_MS) {
+                hits.incrementAndGet();
+                return copier.apply(entry.value);
+            }
+            if (entry != null) {
+                entries.remove(id);
+            }
+            loadVersion = version;
+        }
+
+        misses.incrementAndGet();
+        T value = loader.apply(id);
+        if (value == null) {
+            return null;
+        }
+
+        synchronized (this) {
+            if (loadVersion == version) {
+                entries.put(id, new Entry<>(copier.apply(value), System.currentTimeMillis()));
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Сбросить запись после изменения или удаления сущности
+     */
+    synchronized void invalidate(int id) {
+        entries.remove(id);
+        version++;
+    }
+
+    /**
+     * Сбросить весь кэш (массовые изменения, изменение связанных таблиц)
+     */
+    synchronized void invalidateAll() {
+        entries.clear();
+        version++;
+    }
+
+    /**
+     * Статистика обращений для журнала
+     */
+    String getStats() {
+        long hitCount = hits.get();
+        long total = hitCount + misses.get();
+        int size;
+        synchronized (this) {
+            size = entries.size();
+        }
+        return String.format("%s: %d записей, попаданий %d из %d (%.1f%%), вытеснено %d",
+                name, size, hitCount, total, total == 0 ? 0.0 : hitCount * 100.0 / total, evictions.get());
+    }
+
+    private static class Entry<T> {
+        private final T value;
+        private final long loadedAt;
+
+        Entry(T value, long loadedAt) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.libtrack.dao;
+
+import com.libtrack.model.Author;
+import javafx.collections.ObservableList;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Авторы в памяти (InMemoryStore) - те же результаты, что у AuthorDAO, без базы
+ */
+public class InMemoryAuthorRepository implements AuthorRepository {
+
+    private static final Comparator<Author> BY_NAME =
+            InMemoryStore.<Author>text(Author::getLastName).thenComparing(InMemoryStore.text(Author::getFirstName));
+    private static final Comparator<Author> BY_ID = Comparator.comparingInt(Author::getAuthorId);
+
+    // Ключи сортировки для постраничной загрузки (как PAGE_SORT_COLUMNS в AuthorDAO)
+    private static final Map<String, Comparator<Author>> PAGE_SORT_COLUMNS = Map.of(
+            "authorId", BY_ID,
+            "lastName", BY_NAME
+    );
+
+    private final InMemoryStore store;
+
+    public InMemoryAuthorRepository(InMemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public ObservableList<Author> getAllAuthors() {
+        return InMemoryStore.select(store.authors.values(), author -> true, BY_NAME,
+                0, Long.MAX_VALUE, this::listView);
+    }
+
+    @Override
+    public int countAuthors() {
+        return store.authors.size();
+    }
+
+    @Override
+    public ObservableList<Author> getAuthorsPage(int offset, int limit, String sortKey, boolean ascending) {
+        Comparator<Author> columns = PAGE_SORT_COLUMNS.getOrDefault(sortKey, BY_NAME);
+        return InMemoryStore.select(store.authors.values(), author -> true,
+                InMemoryStore.pageOrder(columns, BY_ID, ascending), offset, limit, this::listView);
+    }
+
+    @Override
+    public Author getAuthorById(int authorId) {
+        Author author = store.authors.get(authorId);
+        return author != null ? InMemoryStore.copyOf(author) : null;
+    }
+
+    @Override
+    public Author addAuthor(Author author) {
+        int authorId = store.authors.nextId();
+        author.setAuthorId(authorId);
+        store.write(store.authors, authorId, InMemoryStore.copyOf(author));
+        return author;
+    }
+
+    @Override
+    public Author updateAuthor(Author author) {
+        int authorId = author.getAuthorId();
+        synchronized (store) {
+            Author old = store.authors.get(authorId);
+            if (old == null) {
+                return null;
+            }
+            store.write(store.authors, authorId, InMemoryStore.copyOf(author));
+
+            // Имя автора входит в строку книги (триггер after_author_update)
+            if (!Objects.equals(old.getFirstName(), author.getFirstName()) ||
+                    !Objects.equals(old.getLastName(), author.getLastName())) {
+                for (int bookId : InMemoryStore.idsOf(store.booksByAuthor, authorId)) {
+                    store.touch(store.books, bookId);
+                }
+            }
+        }
+        return author;
+    }
+
+    @Override
+    public boolean deleteAuthor(int authorId) {
+        return store.deleteAuthor(authorId);
+    }
+
+    @Override
+    public ObservableList<Author> searchAuthors(String keyword) {
+        return searchAuthors(keyword, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public ObservableList<Author> searchAuthors(String keyword, int limit) {
+        return InMemoryStore.select(store.authors.values(),
+                author -> InMemoryStore.contains(author.getFirstName(), keyword) ||
+                        InMemoryStore.contains(author.getLastName(), keyword) ||
+                        InMemoryStore.contains(author.getCountry(), keyword),
+                BY_NAME, 0, limit, this::listView);
+    }
+
+    @Override
+    public ChangeSet<Author> getChangedSince(long cursor) {
+        return store.changedSince(store.authors, cursor, this::listView);
+    }
+
+    /**
+     * Строка списка: без biography
+     */
+    private Author listView(Author author) {
+        Author copy = InMemoryStore.copyOf(author);
+        copy.setBiography(null);
+        return copy;
+    }
+}
@@ -0,0 +1,188 @@
+package com.libtrack.dao;
+
+import com.libtrack.model.Author;
+import com.libtrack.model.Book;
+import javafx.collections.ObservableList;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Книги в памяти (InMemoryStore) - те же результаты, что у BookDAO, без базы.
+ * Свободные экземпляры и имя автора подставляются при чтении
+ */
+public class InMemoryBookRepository implements BookRepository {
+
+    private static final Comparator<Book> BY_ID = Comparator.comparingInt(Book::getBookId);
+    private static final Comparator<Book> BY_TITLE = InMemoryStore.text(Book::getTitle);
+
+    // Ключи сортировки для постраничной загрузки (как PAGE_SORT_COLUMNS в BookDAO)
+    private static final Map<String, Comparator<Book>> PAGE_SORT_COLUMNS = Map.of(
+            "bookId", BY_ID,
+            "title", BY_TITLE,
+            "isbn", InMemoryStore.text(Book::getIsbn),
+            "genre", InMemoryStore.text(Book::getGenre)
+    );
+
+    private final InMemoryStore store;
+
+    public InMemoryBookRepository(InMemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public ObservableList<Book> getAllBooks() {
+        return InMemoryStore.select(store.books.values(), book -> true, BY_TITLE,
+                0, Long.MAX_VALUE, this::listView);
+    }
+
+    @Override
+    public int countBooks() {
+        return store.books.size();
+    }
+
+    @Override
+    public ObservableList<Book> getBooksPage(int offset, int limit, String sortKey, boolean ascending) {
+        Comparator<Book> columns = PAGE_SORT_COLUMNS.getOrDefault(sortKey, BY_TITLE);
+        return InMemoryStore.select(store.books.values(), book -> true,
+                InMemoryStore.pageOrder(columns, BY_ID, ascending), offset, limit, this::listView);
+    }
+
+    @Override
+    public ObservableList<Book> findAvailableBooksByPrefix(String prefix, int limit) {
+        return InMemoryStore.select(store.books.values(),
+                book -> store.copiesAvailable(book.getBookId()) > 0 &&
+                        (InMemoryStore.startsWith(book.getTitle(), prefix) ||
+                                InMemoryStore.startsWith(book.getIsbn(), prefix)),
+                BY_TITLE.thenComparing(BY_ID), 0, limit, this::listView);
+    }
+
+    @Override
+    public Map<String, Integer> getBookIdsByNormalizedIsbn() {
+        return new HashMap<>(store.bookIdsByNormalizedIsbn);
+    }
+
+    @Override
+    public Integer findBookIdByNormalizedIsbn(List<String> keys) {
+        for (String key : keys) {
+            Integer bookId = store.bookIdsByNormalizedIsbn.get(key);
+            if (bookId != null) {
+                return bookId;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Book getBookById(int bookId) {
+        Book book = store.books.get(bookId);
+        return book != null ? view(book) : null;
+    }
+
+    @Override
+    public Book addBook(Book book) {
+        synchronized (store) {
+            // FOREIGN KEY (author_id)
+            if (store.authors.get(book.getAuthorId()) == null) {
+                System.err.println("Ошибка добавления книги: нет автора " + book.getAuthorId());
+                return null;
+            }
+            int bookId = store.books.nextId();
+            if (!store.indexIsbn(book, bookId)) {
+                System.err.println("Ошибка добавления книги: ISBN " + book.getIsbn() + " уже есть");
+                return null;
+            }
+            book.setBookId(bookId);
+            store.setCopiesAvailable(bookId, book.getCopiesAvailable());
+            store.write(store.books, bookId, InMemoryStore.copyOf(book));
+            InMemoryStore.link(store.booksByAuthor, book.getAuthorId(), bookId);
+            return view(book);
+        }
+    }
+
+    @Override
+    public Book updateBook(Book book) {
+        int bookId = book.getBookId();
+        synchronized (store) {
+            Book old = store.books.get(bookId);
+            if (old == null) {
+                return null;
+            }
+            if (store.authors.get(book.getAuthorId()) == null) {
+                System.err.println("Ошибка обновления книги: нет автора " + book.getAuthorId());
+                return null;
+            }
+            store.unindexIsbn(old, bookId);
+            if (!store.indexIsbn(book, bookId)) {
+                store.indexIsbn(old, bookId);
+                System.err.println("Ошибка обновления книги: ISBN " + book.getIsbn() + " уже есть");
+                return null;
+            }
+            store.setCopiesAvailable(bookId, book.getCopiesAvailable());
+            store.write(store.books, bookId, InMemoryStore.copyOf(book));
+            if (old.getAuthorId() != book.getAuthorId()) {
+                InMemoryStore.unlink(store.booksByAuthor, old.getAuthorId(), bookId);
+                InMemoryStore.link(store.booksByAuthor, book.getAuthorId(), bookId);
+            }
+            return view(book);
+        }
+    }
+
+    @Override
+    public boolean deleteBook(int bookId) {
+        return store.deleteBook(bookId);
+    }
+
+    @Override
+    public ChangeSet<Book> getChangedSince(long cursor) {
+        return store.changedSince(store.books, cursor, this::listView);
+    }
+
+    @Override
+    public ObservableList<Book> searchBooks(String keyword) {
+        return searchBooks(keyword, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public ObservableList<Book> searchBooks(String keyword, int limit) {
+        return InMemoryStore.select(store.books.values(), book -> {
+            if (InMemoryStore.contains(book.getTitle(), keyword) ||
+                    InMemoryStore.contains(book.getIsbn(), keyword) ||
+                    InMemoryStore.contains(book.getGenre(), keyword)) {
+                return true;
+            }
+            Author author = store.authors.get(book.getAuthorId());
+            return author != null && (InMemoryStore.contains(author.getFirstName(), keyword) ||
+                    InMemoryStore.contains(author.getLastName(), keyword));
+        }, BY_TITLE, 0, limit, this::listView);
+    }
+
+    @Override
+    public ObservableList<Book> getAvailableBooks() {
+        return InMemoryStore.select(store.books.values(),
+                book -> store.copiesAvailable(book.getBookId()) > 0,
+                BY_TITLE, 0, Long.MAX_VALUE, this::listView);
+    }
+
+    /**
+     * Книга для ответа: свободные экземпляры из счётчика, имя автора (JOIN authors)
+     */
+    private Book view(Book book) {
+        Book copy = InMemoryStore.copyOf(book);
+        copy.setCopiesAvailable(store.copiesAvailable(book.getBookId()));
+        Author author = store.authors.get(book.getAuthorId());
+        copy.setAuthorName(author != null ? author.getFullName() : null);
+        return copy;
+    }
+
+    /**
+     * Строка списка: без description
+     */
+    private Book listView(Book book) {
+        Book copy = view(book);
+        copy.setDescription(null);
+        return copy;
+    }
+}
@@ -0,0 +1,342 @@
+package com.libtrack.dao;
+
+import com.libtrack.model.Book;
+import com.libtrack.model.Loan;
+import com.libtrack.model.LoanStatus;
+import com.libtrack.model.Visitor;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Выдачи в памяти (InMemoryStore) - те же результаты, что у LoanDAO, без базы.
+ * Выдача и возврат меняют свободные экземпляры книги, как триггеры loans
+ */
+public class InMemoryLoanRepository implements LoanRepository {
+
+    private static final Comparator<Loan> BY_ID = Comparator.comparingInt(Loan::getLoanId);
+    private static final Comparator<Loan> BY_LOAN_DATE = Comparator.comparing(Loan::getLoanDate);
+    private static final Comparator<Loan> BY_DUE_DATE = Comparator.comparing(Loan::getDueDate);
+
+    // Ключи сортировки для постраничной загрузки (как PAGE_SORT_COLUMNS в LoanDAO);
+    // статусы сортируются в порядке ENUM, он совпадает с LoanStatus
+    private static final Map<String, Comparator<Loan>> PAGE_SORT_COLUMNS = Map.of(
+            "loanId", BY_ID,
+            "loanDate", BY_LOAN_DATE,
+            "status", Comparator.comparing(Loan::getLoanStatus)
+    );
+
+    private final InMemoryStore store;
+
+    public InMemoryLoanRepository(InMemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public ObservableList<Loan> getAllLoans() {
+        return InMemoryStore.select(store.loans.values(), loan -> true, BY_LOAN_DATE.reversed(),
+                0, Long.MAX_VALUE, this::view);
+    }
+
+    @Override
+    public int countLoans() {
+        return store.loans.size();
+    }
+
+    @Override
+    public ObservableList<Loan> getLoansPage(int offset, int limit, String sortKey, boolean ascending) {
+        Comparator<Loan> columns = PAGE_SORT_COLUMNS.get(sortKey);
+        Comparator<Loan> order = columns != null ?
+                InMemoryStore.pageOrder(columns, BY_ID, ascending) :
+                InMemoryStore.pageOrder(BY_LOAN_DATE, BY_ID, false);
+        return InMemoryStore.select(store.loans.values(), loan -> true, order, offset, limit, this::view);
+    }
+
+    @Override
+    public ObservableList<Loan> getActiveLoans() {
+        return InMemoryStore.select(store.loans.values(), InMemoryStore::isOut, BY_DUE_DATE,
+                0, Long.MAX_VALUE, this::view);
+    }
+
+    @Override
+    public ObservableList<Loan> getOverdueLoans() {
+        return InMemoryStore.select(store.loans.values(),
+                loan -> loan.getLoanStatus() == LoanStatus.OVERDUE, BY_DUE_DATE,
+                0, Long.MAX_VALUE, this::view);
+    }
+
+    @Override
+    public boolean issueLoan(int bookId, int visitorId, LocalDate loanDate, LocalDate dueDate, int issuedBy) {
+        // Без проверки свободных экземпляров, как INSERT в LoanDAO.issueLoan
+        return insertLoan(bookId, visitorId, loanDate, dueDate, false) > 0;
+    }
+
+    @Override
+    public boolean returnLoan(int loanId, LocalDate returnDate) {
+        Loan loan;
+        synchronized (store) {
+            loan = store.loans.get(loanId);
+            if (loan == null) {
+                return false;
+            }
+            Loan returned = InMemoryStore.copyOf(loan);
+            returned.setLoanStatus(LoanStatus.RETURNED);
+            returned.setReturnDate(returnDate);
+            store.write(store.loans, loanId, returned);
+            if (InMemoryStore.isOut(loan)) {
+                releaseCopy(loan.getBookId());
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int[] issueLoans(int visitorId, List<Integer> bookIds, LocalDate loanDate,
+                            LocalDate dueDate, int issuedBy) {
+        int[] loanIds = new int[bookIds.size()];
+        for (int i = 0; i < bookIds.size(); i++) {
+            loanIds[i] = insertLoan(bookIds.get(i), visitorId, loanDate, dueDate, true);
+        }
+        return loanIds;
+    }
+
+    @Override
+    public Set<Integer> returnLoans(Map<Integer, Double> finesByLoanId, LocalDate returnDate) {
+        Set<Integer> returned = new HashSet<>();
+        synchronized (store) {
+            for (Map.Entry<Integer, Double> entry : finesByLoanId.entrySet()) {
+                int loanId = entry.getKey();
+                Loan loan = store.loans.get(loanId);
+                if (loan == null || !InMemoryStore.isOut(loan)) {
+                    continue;
+                }
+                Loan updated = InMemoryStore.copyOf(loan);
+                updated.setLoanStatus(LoanStatus.RETURNED);
+                updated.setReturnDate(returnDate);
+                updated.setFineAmount(entry.getValue());
+                store.write(store.loans, loanId, updated);
+                releaseCopy(loan.getBookId());
+                returned.add(loanId);
+            }
+        }
+        return returned;
+    }
+
+    @Override
+    public ObservableList<Loan> getLoansByIds(Collection<Integer> loanIds) {
+        return InMemoryStore.rowsOf(store.loans, new HashSet<>(loanIds))
+                .map(this::view)
+                .collect(Collectors.toCollection(FXCollections::observableArrayList));
+    }
+
+    @Override
+    public List<Integer> findActiveLoanIds(int bookId, Integer visitorId) {
+        return InMemoryStore.rowsOf(store.loans, InMemoryStore.idsOf(store.loansByBook, bookId))
+                .filter(loan -> InMemoryStore.isOut(loan) &&
+                        (visitorId == null || loan.getVisitorId() == visitorId))
+                .sorted(BY_LOAN_DATE)
+                .map(Loan::getLoanId)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public int countActiveLoansByVisitor(int visitorId) {
+        return (int) InMemoryStore.rowsOf(store.loans, InMemoryStore.idsOf(store.loansByVisitor, visitorId))
+                .filter(InMemoryStore::isOut)
+                .count();
+    }
+
+    @Override
+    public int markOverdueLoans(int batchSize) {
+        LocalDate today = LocalDate.now();
+        int total = 0;
+        synchronized (store) {
+            for (Loan loan : store.loans.values().collect(Collectors.toList())) {
+                if (loan.getLoanStatus() == LoanStatus.ACTIVE && loan.getDueDate().isBefore(today)) {
+                    Loan overdue = InMemoryStore.copyOf(loan);
+                    overdue.setLoanStatus(LoanStatus.OVERDUE);
+                    store.write(store.loans, loan.getLoanId(), overdue);
+                    total++;
+                }
+            }
+        }
+        return total;
+    }
+
+    @Override
+    public int[] getOverdueLoanIdRange() {
+        int[] ids = store.loans.values()
+                .filter(loan -> loan.getLoanStatus() == LoanStatus.OVERDUE)
+                .mapToInt(Loan::getLoanId)
+                .sorted()
+                .toArray();
+        return ids.length > 0 ? new int[]{ids[0], ids[ids.length - 1]} : null;
+    }
+
+    @Override
+    public int accrueFines(int fromLoanId, int toLoanId, double finePerDay, int graceDays, double maxFine) {
+        LocalDate today = LocalDate.now();
+        int changed = 0;
+        synchronized (store) {
+            for (int loanId = fromLoanId; loanId <= toLoanId; loanId++) {
+                Loan loan = store.loans.get(loanId);
+                if (loan == null || loan.getLoanStatus() != LoanStatus.OVERDUE) {
+                    continue;
+                }
+                long daysOverdue = ChronoUnit.DAYS.between(loan.getDueDate(), today);
+                double fine = Math.round(Math.min(maxFine, Math.max(daysOverdue - graceDays, 0) * finePerDay) * 100) / 100.0;
+                if (loan.getFineAmount() == fine) {
+                    continue;
+                }
+                Loan updated = InMemoryStore.copyOf(loan);
+                updated.setFineAmount(fine);
+                store.write(store.loans, loanId, updated);
+                changed++;
+            }
+        }
+        return changed;
+    }
+
+    @Override
+    public double getTotalFinesByVisitor(int visitorId) {
+        double archived = InMemoryStore.idsOf(store.archiveByVisitor, visitorId).stream()
+                .map(store.archive::get)
+                .filter(loan -> loan != null)
+                .mapToDouble(Loan::getFineAmount)
+                .sum();
+        return archived + InMemoryStore.rowsOf(store.loans, InMemoryStore.idsOf(store.loansByVisitor, visitorId))
+                .mapToDouble(Loan::getFineAmount)
+                .sum();
+    }
+
+    @Override
+    public boolean updateFine(int loanId, double fineAmount) {
+        synchronized (store) {
+            Loan loan = store.loans.get(loanId);
+            if (loan == null) {
+                return false;
+            }
+            Loan updated = InMemoryStore.copyOf(loan);
+            updated.setFineAmount(fineAmount);
+            store.write(store.loans, loanId, updated);
+            return true;
+        }
+    }
+
+    @Override
+    public ObservableList<Loan> getLoansByVisitor(int visitorId) {
+        return withArchive(InMemoryStore.idsOf(store.loansByVisitor, visitorId),
+                InMemoryStore.idsOf(store.archiveByVisitor, visitorId));
+    }
+
+    @Override
+    public ObservableList<Loan> getLoansByBook(int bookId) {
+        return withArchive(InMemoryStore.idsOf(store.loansByBook, bookId),
+                InMemoryStore.idsOf(store.archiveByBook, bookId));
+    }
+
+    @Override
+    public ChangeSet<Loan> getChangedSince(long cursor) {
+        return store.changedSince(store.loans, cursor, this::view);
+    }
+
+    @Override
+    public int archiveReturnedLoans(LocalDate cutoff, int batchSize) {
+        synchronized (store) {
+            List<Loan> batch = store.loans.values()
+                    .filter(loan -> loan.getLoanStatus() == LoanStatus.RETURNED &&
+                            loan.getReturnDate() != null && loan.getReturnDate().isBefore(cutoff))
+                    .sorted(BY_ID)
+                    .limit(batchSize)
+                    .collect(Collectors.toList());
+
+            for (Loan loan : batch) {
+                store.archiveLoan(view(loan));
+            }
+            return batch.size();
+        }
+    }
+
+    @Override
+    public boolean ensureArchivePartitions(int upToYear) {
+        // Архив в памяти не секционирован
+        return true;
+    }
+
+    /**
+     * Вставить активную выдачу (триггер after_loan_insert уменьшает свободные экземпляры)
+     * @param onlyIfAvailable только при свободном экземпляре (issueLoans)
+     * @return ID выдачи или 0
+     */
+    private int insertLoan(int bookId, int visitorId, LocalDate loanDate, LocalDate dueDate,
+                           boolean onlyIfAvailable) {
+        // Экземпляр занимается до блокировки хранилища: выдачи разных книг не ждут друг друга
+        if (onlyIfAvailable && !store.takeCopy(bookId)) {
+            return 0;
+        }
+        synchronized (store) {
+            // FOREIGN KEY (book_id), (visitor_id)
+            if (store.books.get(bookId) == null || store.visitors.get(visitorId) == null) {
+                if (onlyIfAvailable) {
+                    store.addCopies(bookId, 1);
+                }
+                System.err.println("Ошибка выдачи книги " + bookId + ": нет книги или посетителя");
+                return 0;
+            }
+            if (!onlyIfAvailable) {
+                store.addCopies(bookId, -1);
+            }
+            int loanId = store.loans.nextId();
+            store.write(store.loans, loanId, new Loan(loanId, bookId, visitorId, loanDate, dueDate, null,
+                    LoanStatus.ACTIVE.getCode(), 0.0, null, null, null));
+            InMemoryStore.link(store.loansByBook, bookId, loanId);
+            InMemoryStore.link(store.loansByVisitor, visitorId, loanId);
+            // UPDATE books в триггере меняет и номер изменения книги
+            store.touch(store.books, bookId);
+            return loanId;
+        }
+    }
+
+    /**
+     * Вернуть экземпляр книги (триггер after_loan_update)
+     */
+    private void releaseCopy(int bookId) {
+        store.addCopies(bookId, 1);
+        store.touch(store.books, bookId);
+    }
+
+    /**
+     * Выдачи из рабочей таблицы и архива, новые первыми (UNION ALL в LoanDAO)
+     */
+    private ObservableList<Loan> withArchive(Set<Integer> loanIds, Set<Integer> archivedIds) {
+        return Stream.concat(
+                        InMemoryStore.rowsOf(store.loans, loanIds).map(this::view),
+                        archivedIds.stream().map(store.archive::get).filter(loan -> loan != null)
+                                .map(InMemoryStore::copyOf))
+                .sorted(BY_LOAN_DATE.reversed())
+                .collect(Collectors.toCollection(FXCollections::observableArrayList));
+    }
+
+    /**
+     * Выдача для ответа: название книги и имя посетителя (JOIN books, visitors), без notes
+     */
+    private Loan view(Loan loan) {
+        Loan copy = InMemoryStore.copyOf(loan);
+        Book book = store.books.get(loan.getBookId());
+        Visitor visitor = store.visitors.get(loan.getVisitorId());
+        copy.setBookTitle(book != null ? book.getTitle() : null);
+        copy.setVisitorName(visitor != null ? visitor.getFullName() : null);
+        copy.setNotes(null);
+        return copy;
+    }
+}
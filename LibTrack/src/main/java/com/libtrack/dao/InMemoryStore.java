@@ -0,0 +1,466 @@
+package com.libtrack.dao;
+
+import com.libtrack.model.Author;
+import com.libtrack.model.Book;
+import com.libtrack.model.Loan;
+import com.libtrack.model.LoanStatus;
+import com.libtrack.model.User;
+import com.libtrack.model.Visitor;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Данные хранилищ InMemory*Repository - база в памяти для юнит-тестов и бенчмарков сервисов.
+ * Повторяет ограничения и триггеры libtrack_schema.sql: уникальные ISBN, email и логины,
+ * внешние ключи с каскадным удалением, свободные экземпляры при выдаче и возврате,
+ * номера изменений и надгробия.
+ * Чтение без блокировок: строка в таблице не меняется, запись заменяет её новой копией.
+ * Запись строк идёт под монитором хранилища (номера изменений видны строго по возрастанию),
+ * свободные экземпляры - атомарные счётчики, выдача занимает экземпляр до этой блокировки
+ */
+public class InMemoryStore {
+
+    static final String AUTHORS = "authors";
+    static final String BOOKS = "books";
+    static final String VISITORS = "visitors";
+    static final String LOANS = "loans";
+
+    /**
+     * Строка таблицы с номером изменения (change_seq)
+     */
+    static final class Row<T> {
+        final T value;
+        final long changeSeq;
+
+        Row(T value, long changeSeq) {
+            this.value = value;
+            this.changeSeq = changeSeq;
+        }
+    }
+
+    /**
+     * Таблица: строки по первичному ключу и счётчик AUTO_INCREMENT
+     */
+    static final class Table<T> {
+        final String name;
+        final Map<Integer, Row<T>> rows = new ConcurrentHashMap<>();
+        private final AtomicInteger lastId = new AtomicInteger();
+
+        Table(String name) {
+            this.name = name;
+        }
+
+        int nextId() {
+            return lastId.incrementAndGet();
+        }
+
+        T get(int id) {
+            Row<T> row = rows.get(id);
+            return row != null ? row.value : null;
+        }
+
+        Stream<T> values() {
+            return rows.values().stream().map(row -> row.value);
+        }
+
+        int size() {
+            return rows.size();
+        }
+    }
+
+    /**
+     * Надгробие удалённой строки (deleted_rows)
+     */
+    private static final class Tombstone {
+        final String entity;
+        final int entityId;
+        final long changeSeq;
+
+        Tombstone(String entity, int entityId, long changeSeq) {
+            this.entity = entity;
+            this.entityId = entityId;
+            this.changeSeq = changeSeq;
+        }
+    }
+
+    final Table<Author> authors = new Table<>(AUTHORS);
+    final Table<Book> books = new Table<>(BOOKS);
+    final Table<Visitor> visitors = new Table<>(VISITORS);
+    final Table<Loan> loans = new Table<>(LOANS);
+    final Table<User> users = new Table<>("users");
+    // loans_archive: строки уже с названием книги и именем читателя
+    final Map<Integer, Loan> archive = new ConcurrentHashMap<>();
+
+    // books.copies_available: вне строки книги, чтобы выдачи разных книг не ждали друг друга
+    private final Map<Integer, AtomicInteger> copiesAvailable = new ConcurrentHashMap<>();
+
+    // Вторичные индексы (внешние ключи и уникальные колонки)
+    final Map<Integer, Set<Integer>> booksByAuthor = new ConcurrentHashMap<>();
+    final Map<Integer, Set<Integer>> loansByBook = new ConcurrentHashMap<>();
+    final Map<Integer, Set<Integer>> loansByVisitor = new ConcurrentHashMap<>();
+    final Map<Integer, Set<Integer>> archiveByBook = new ConcurrentHashMap<>();
+    final Map<Integer, Set<Integer>> archiveByVisitor = new ConcurrentHashMap<>();
+    final Map<String, Integer> bookIdsByIsbn = new ConcurrentHashMap<>();
+    final Map<String, Integer> bookIdsByNormalizedIsbn = new ConcurrentHashMap<>();
+    final Map<String, Integer> visitorIdsByEmail = new ConcurrentHashMap<>();
+    final Map<String, Integer> userIdsByUsername = new ConcurrentHashMap<>();
+
+    private final Queue<Tombstone> tombstones = new ConcurrentLinkedQueue<>();
+    // change_sequence: меняется только под монитором хранилища
+    private long changeSequence;
+
+    /**
+     * Последний номер изменения: все строки с номером не больше него уже записаны
+     * (аналог ChangeTracking.currentCursor() для getChangedSince)
+     */
+    public synchronized long currentCursor() {
+        return changeSequence;
+    }
+
+    /**
+     * Записать строку с новым номером изменения (триггеры before_*_insert/update)
+     */
+    synchronized <T> void write(Table<T> table, int id, T value) {
+        table.rows.put(id, new Row<>(value, ++changeSequence));
+    }
+
+    /**
+     * Отметить строку изменённой без изменения значения
+     */
+    synchronized <T> void touch(Table<T> table, int id) {
+        T value = table.get(id);
+        if (value != null) {
+            write(table, id, value);
+        }
+    }
+
+    /**
+     * Свободные экземпляры книги
+     */
+    int copiesAvailable(int bookId) {
+        AtomicInteger copies = copiesAvailable.get(bookId);
+        return copies != null ? copies.get() : 0;
+    }
+
+    /**
+     * Установить свободные экземпляры (INSERT и UPDATE книги)
+     */
+    void setCopiesAvailable(int bookId, int copies) {
+        copiesAvailable.computeIfAbsent(bookId, id -> new AtomicInteger()).set(copies);
+    }
+
+    /**
+     * Занять экземпляр, если есть свободный (WHERE copies_available > 0 в issueLoans)
+     */
+    boolean takeCopy(int bookId) {
+        AtomicInteger copies = copiesAvailable.get(bookId);
+        if (copies == null) {
+            return false;
+        }
+        int current;
+        do {
+            current = copies.get();
+            if (current <= 0) {
+                return false;
+            }
+        } while (!copies.compareAndSet(current, current - 1));
+        return true;
+    }
+
+    /**
+     * Изменить свободные экземпляры (триггеры выдачи и возврата)
+     */
+    void addCopies(int bookId, int delta) {
+        AtomicInteger copies = copiesAvailable.get(bookId);
+        if (copies != null) {
+            copies.addAndGet(delta);
+        }
+    }
+
+    /**
+     * Удалить автора с книгами и их выдачами (ON DELETE CASCADE)
+     */
+    synchronized boolean deleteAuthor(int authorId) {
+        Author author = authors.get(authorId);
+        if (author == null) {
+            return false;
+        }
+        long seq = ++changeSequence;
+        for (int bookId : idsOf(booksByAuthor, authorId)) {
+            removeBook(bookId, seq);
+        }
+        authors.rows.remove(authorId);
+        tombstones.add(new Tombstone(AUTHORS, authorId, seq));
+        return true;
+    }
+
+    /**
+     * Удалить книгу с её выдачами (ON DELETE CASCADE)
+     */
+    synchronized boolean deleteBook(int bookId) {
+        if (books.get(bookId) == null) {
+            return false;
+        }
+        removeBook(bookId, ++changeSequence);
+        return true;
+    }
+
+    /**
+     * Удалить посетителя с его выдачами (ON DELETE CASCADE)
+     */
+    synchronized boolean deleteVisitor(int visitorId) {
+        Visitor visitor = visitors.get(visitorId);
+        if (visitor == null) {
+            return false;
+        }
+        long seq = ++changeSequence;
+        for (int loanId : idsOf(loansByVisitor, visitorId)) {
+            removeLoan(loanId, seq);
+        }
+        visitors.rows.remove(visitorId);
+        if (visitor.getEmail() != null) {
+            visitorIdsByEmail.remove(key(visitor.getEmail()), visitorId);
+        }
+        tombstones.add(new Tombstone(VISITORS, visitorId, seq));
+        return true;
+    }
+
+    /**
+     * Перенести выдачу в loans_archive. Перенос - не удаление: надгробие не пишется
+     * (триггер loans_tombstone при @libtrack_archiving)
+     * @param archived строка архива с названием книги и именем читателя
+     */
+    synchronized void archiveLoan(Loan archived) {
+        int loanId = archived.getLoanId();
+        if (loans.get(loanId) == null) {
+            return;
+        }
+        unlinkLoan(loanId);
+        archive.put(loanId, archived);
+        link(archiveByBook, archived.getBookId(), loanId);
+        link(archiveByVisitor, archived.getVisitorId(), loanId);
+    }
+
+    private void removeBook(int bookId, long seq) {
+        for (int loanId : idsOf(loansByBook, bookId)) {
+            removeLoan(loanId, seq);
+        }
+        Book book = books.get(bookId);
+        books.rows.remove(bookId);
+        copiesAvailable.remove(bookId);
+        unlink(booksByAuthor, book.getAuthorId(), bookId);
+        unindexIsbn(book, bookId);
+        tombstones.add(new Tombstone(BOOKS, bookId, seq));
+    }
+
+    private void removeLoan(int loanId, long seq) {
+        unlinkLoan(loanId);
+        tombstones.add(new Tombstone(LOANS, loanId, seq));
+    }
+
+    private void unlinkLoan(int loanId) {
+        Loan loan = loans.get(loanId);
+        loans.rows.remove(loanId);
+        unlink(loansByBook, loan.getBookId(), loanId);
+        unlink(loansByVisitor, loan.getVisitorId(), loanId);
+    }
+
+    /**
+     * Занять уникальные ISBN книги (UNIQUE isbn и isbn_normalized)
+     * @return false если ISBN уже у другой книги
+     */
+    boolean indexIsbn(Book book, int bookId) {
+        String isbn = book.getIsbn();
+        if (isbn == null) {
+            return true;
+        }
+        Integer owner = bookIdsByIsbn.putIfAbsent(key(isbn), bookId);
+        if (owner != null && owner != bookId) {
+            return false;
+        }
+        Integer normalizedOwner = bookIdsByNormalizedIsbn.putIfAbsent(normalizeIsbn(isbn), bookId);
+        if (normalizedOwner != null && normalizedOwner != bookId) {
+            if (owner == null) {
+                bookIdsByIsbn.remove(key(isbn), bookId);
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Освободить ISBN книги
+     */
+    void unindexIsbn(Book book, int bookId) {
+        if (book.getIsbn() != null) {
+            bookIdsByIsbn.remove(key(book.getIsbn()), bookId);
+            bookIdsByNormalizedIsbn.remove(normalizeIsbn(book.getIsbn()), bookId);
+        }
+    }
+
+    /**
+     * Номера изменённых строк и надгробий в диапазоне (cursor, текущий номер]
+     * (тот же порядок и та же проверка курсора, что в ChangeTracking.load)
+     * @param view строка для ответа (копия с колонками списка)
+     */
+    <T> ChangeSet<T> changedSince(Table<T> table, long cursor, Function<T, T> view) {
+        long upTo = currentCursor();
+        if (cursor > upTo) {
+            return new ChangeSet<>(List.of(), Set.of(), upTo, true);
+        }
+
+        List<T> changed = table.rows.values().stream()
+                .filter(row -> row.changeSeq > cursor && row.changeSeq <= upTo)
+                .sorted(Comparator.comparingLong(row -> row.changeSeq))
+                .map(row -> view.apply(row.value))
+                .collect(Collectors.toCollection(ArrayList::new));
+
+        Set<Integer> deleted = new HashSet<>();
+        for (Tombstone tombstone : tombstones) {
+            if (tombstone.entity.equals(table.name) &&
+                    tombstone.changeSeq > cursor && tombstone.changeSeq <= upTo) {
+                deleted.add(tombstone.entityId);
+            }
+        }
+        return new ChangeSet<>(changed, deleted, upTo, false);
+    }
+
+    /**
+     * Выдача на руках (active или overdue)
+     */
+    static boolean isOut(Loan loan) {
+        return loan.getLoanStatus() == LoanStatus.ACTIVE || loan.getLoanStatus() == LoanStatus.OVERDUE;
+    }
+
+    /**
+     * Строка индекса: ID по ключу (пустое множество, если нет)
+     */
+    static Set<Integer> idsOf(Map<Integer, Set<Integer>> index, int key) {
+        Set<Integer> ids = index.get(key);
+        return ids != null ? Set.copyOf(ids) : Set.of();
+    }
+
+    static void link(Map<Integer, Set<Integer>> index, int key, int id) {
+        index.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(id);
+    }
+
+    static void unlink(Map<Integer, Set<Integer>> index, int key, int id) {
+        Set<Integer> ids = index.get(key);
+        if (ids != null) {
+            ids.remove(id);
+        }
+    }
+
+    /**
+     * Ключ уникальной строковой колонки (сравнение без учёта регистра, как в utf8mb4_unicode_ci)
+     */
+    static String key(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * isbn_normalized: ISBN без дефисов и пробелов в верхнем регистре
+     */
+    static String normalizeIsbn(String isbn) {
+        return isbn.replace("-", "").replace(" ", "").toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * LIKE '%keyword%' без учёта регистра
+     */
+    static boolean contains(String value, String keyword) {
+        return value != null && key(value).contains(key(keyword));
+    }
+
+    /**
+     * LIKE 'prefix%' без учёта регистра
+     */
+    static boolean startsWith(String value, String prefix) {
+        return value != null && key(value).startsWith(key(prefix));
+    }
+
+    /**
+     * Порядок строковой колонки: без учёта регистра, NULL первым (как ORDER BY в MySQL)
+     */
+    static <T> Comparator<T> text(Function<T, String> column) {
+        return Comparator.comparing(column, Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER));
+    }
+
+    /**
+     * Отсортировать, отфильтровать и обрезать строки в список для таблицы
+     */
+    static <T> ObservableList<T> select(Stream<T> rows, Predicate<T> where, Comparator<T> orderBy,
+                                        long offset, long limit, Function<T, T> view) {
+        return rows.filter(where)
+                .sorted(orderBy)
+                .skip(offset)
+                .limit(limit)
+                .map(view)
+                .collect(Collectors.toCollection(FXCollections::observableArrayList));
+    }
+
+    /**
+     * Порядок страницы: колонки ключа сортировки и ID в конце, в одном направлении (PageSql.orderBy)
+     */
+    static <T> Comparator<T> pageOrder(Comparator<T> columns, Comparator<T> id, boolean ascending) {
+        Comparator<T> order = columns.thenComparing(id);
+        return ascending ? order : order.reversed();
+    }
+
+    /**
+     * Строки по списку ID (пропуская удалённые)
+     */
+    static <T> Stream<T> rowsOf(Table<T> table, Collection<Integer> ids) {
+        return ids.stream().map(table::get).filter(row -> row != null);
+    }
+
+    static Author copyOf(Author author) {
+        Author copy = new Author();
+        copy.setAuthorId(author.getAuthorId());
+        copy.copyFrom(author);
+        return copy;
+    }
+
+    static Book copyOf(Book book) {
+        Book copy = new Book();
+        copy.setBookId(book.getBookId());
+        copy.copyFrom(book);
+        return copy;
+    }
+
+    static Visitor copyOf(Visitor visitor) {
+        Visitor copy = new Visitor();
+        copy.setVisitorId(visitor.getVisitorId());
+        copy.copyFrom(visitor);
+        return copy;
+    }
+
+    static Loan copyOf(Loan loan) {
+        Loan copy = new Loan();
+        copy.setLoanId(loan.getLoanId());
+        copy.copyFrom(loan);
+        return copy;
+    }
+
+    static User copyOf(User user) {
+        return new User(user.getUserId(), user.getUsername(), user.getPasswordHash(), user.getFullName(),
+                user.getRole(), user.getCreatedAt(), user.getLastLogin());
+    }
+}
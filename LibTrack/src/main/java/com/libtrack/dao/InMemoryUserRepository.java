@@ -0,0 +1,71 @@
+package com.libtrack.dao;
+
+import at.favre.lib.crypto.bcrypt.BCrypt;
+import com.libtrack.model.User;
+import com.libtrack.util.CurrentUser;
+
+import java.time.LocalDateTime;
+
+/**
+ * Пользователи в памяти (InMemoryStore): пароли проверяются BCrypt, как в UserDAO
+ */
+public class InMemoryUserRepository implements UserRepository {
+
+    // Минимальная стоимость BCrypt: тестам и бенчмаркам не нужна стойкость хеша
+    private static final int HASH_COST = 4;
+
+    private final InMemoryStore store;
+
+    public InMemoryUserRepository(InMemoryStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Добавить пользователя (в приложении пользователи заводятся скриптом схемы)
+     * @return пользователь с присвоенным ID или null, если логин занят
+     */
+    public User addUser(String username, String password, String fullName, String role) {
+        int userId = store.users.nextId();
+        if (store.userIdsByUsername.putIfAbsent(InMemoryStore.key(username), userId) != null) {
+            System.err.println("Ошибка добавления пользователя: логин " + username + " уже есть");
+            return null;
+        }
+        User user = new User(userId, username, hashPassword(password), fullName, role,
+                LocalDateTime.now(), null);
+        store.write(store.users, userId, user);
+        return InMemoryStore.copyOf(user);
+    }
+
+    @Override
+    public User authenticate(String username, String password) {
+        Integer userId = store.userIdsByUsername.get(InMemoryStore.key(username));
+        User stored = userId != null ? store.users.get(userId) : null;
+        if (stored == null) {
+            System.out.println("✗ Пользователь не найден");
+            return null;
+        }
+
+        BCrypt.Result result = BCrypt.verifyer().verify(password.toCharArray(), stored.getPasswordHash());
+        if (!result.verified) {
+            System.out.println("✗ Неверный пароль");
+            return null;
+        }
+
+        User user = InMemoryStore.copyOf(stored);
+        user.setLastLogin(LocalDateTime.now());
+        store.write(store.users, user.getUserId(), InMemoryStore.copyOf(user));
+        CurrentUser.getInstance().setUser(user);
+        return user;
+    }
+
+    @Override
+    public User getUserById(int userId) {
+        User user = store.users.get(userId);
+        return user != null ? InMemoryStore.copyOf(user) : null;
+    }
+
+    @Override
+    public String hashPassword(String password) {
+        return BCrypt.withDefaults().hashToString(HASH_COST, password.toCharArray());
+    }
+}
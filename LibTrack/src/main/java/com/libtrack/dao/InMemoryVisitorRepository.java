@@ -0,0 +1,163 @@
+package com.libtrack.dao;
+
+import com.libtrack.model.Visitor;
+import javafx.collections.ObservableList;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.Map;
+
+/**
+ * Посетители в памяти (InMemoryStore) - те же результаты, что у VisitorDAO, без базы
+ */
+public class InMemoryVisitorRepository implements VisitorRepository {
+
+    private static final Comparator<Visitor> BY_ID = Comparator.comparingInt(Visitor::getVisitorId);
+    private static final Comparator<Visitor> BY_NAME =
+            InMemoryStore.<Visitor>text(Visitor::getLastName).thenComparing(InMemoryStore.text(Visitor::getFirstName));
+
+    // Ключи сортировки для постраничной загрузки (как PAGE_SORT_COLUMNS в VisitorDAO)
+    private static final Map<String, Comparator<Visitor>> PAGE_SORT_COLUMNS = Map.of(
+            "visitorId", BY_ID,
+            "lastName", BY_NAME,
+            "email", InMemoryStore.text(Visitor::getEmail),
+            "status", InMemoryStore.text(Visitor::getStatus)
+    );
+
+    private final InMemoryStore store;
+
+    public InMemoryVisitorRepository(InMemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public ObservableList<Visitor> getAllVisitors() {
+        return InMemoryStore.select(store.visitors.values(), visitor -> true, BY_NAME,
+                0, Long.MAX_VALUE, this::listView);
+    }
+
+    @Override
+    public int countVisitors() {
+        return store.visitors.size();
+    }
+
+    @Override
+    public ObservableList<Visitor> getVisitorsPage(int offset, int limit, String sortKey, boolean ascending) {
+        Comparator<Visitor> columns = PAGE_SORT_COLUMNS.getOrDefault(sortKey, BY_NAME);
+        return InMemoryStore.select(store.visitors.values(), visitor -> true,
+                InMemoryStore.pageOrder(columns, BY_ID, ascending), offset, limit, this::listView);
+    }
+
+    @Override
+    public ObservableList<Visitor> findActiveVisitorsByPrefix(String prefix, int limit) {
+        return InMemoryStore.select(store.visitors.values(),
+                visitor -> visitor.isActive() &&
+                        (InMemoryStore.startsWith(visitor.getLastName(), prefix) ||
+                                InMemoryStore.startsWith(visitor.getEmail(), prefix) ||
+                                InMemoryStore.startsWith(visitor.getPhone(), prefix)),
+                BY_NAME.thenComparing(BY_ID), 0, limit, this::listView);
+    }
+
+    @Override
+    public Visitor getVisitorById(int visitorId) {
+        Visitor visitor = store.visitors.get(visitorId);
+        return visitor != null ? InMemoryStore.copyOf(visitor) : null;
+    }
+
+    @Override
+    public Visitor addVisitor(Visitor visitor) {
+        synchronized (store) {
+            int visitorId = store.visitors.nextId();
+            if (!indexEmail(visitor, visitorId)) {
+                System.err.println("Ошибка добавления посетителя: email " + visitor.getEmail() + " уже есть");
+                return null;
+            }
+            visitor.setVisitorId(visitorId);
+            Visitor row = InMemoryStore.copyOf(visitor);
+            if (row.getRegistrationDate() == null) {
+                row.setRegistrationDate(LocalDate.now());
+            }
+            store.write(store.visitors, visitorId, row);
+            return visitor;
+        }
+    }
+
+    @Override
+    public Visitor updateVisitor(Visitor visitor) {
+        int visitorId = visitor.getVisitorId();
+        synchronized (store) {
+            Visitor old = store.visitors.get(visitorId);
+            if (old == null) {
+                return null;
+            }
+            unindexEmail(old, visitorId);
+            if (!indexEmail(visitor, visitorId)) {
+                indexEmail(old, visitorId);
+                System.err.println("Ошибка обновления посетителя: email " + visitor.getEmail() + " уже есть");
+                return null;
+            }
+            // registration_date не обновляется (как в VisitorDAO)
+            Visitor row = InMemoryStore.copyOf(visitor);
+            row.setRegistrationDate(old.getRegistrationDate());
+            store.write(store.visitors, visitorId, row);
+            return visitor;
+        }
+    }
+
+    @Override
+    public boolean deleteVisitor(int visitorId) {
+        return store.deleteVisitor(visitorId);
+    }
+
+    @Override
+    public ObservableList<Visitor> searchVisitors(String keyword) {
+        return searchVisitors(keyword, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public ObservableList<Visitor> searchVisitors(String keyword, int limit) {
+        return InMemoryStore.select(store.visitors.values(),
+                visitor -> InMemoryStore.contains(visitor.getFirstName(), keyword) ||
+                        InMemoryStore.contains(visitor.getLastName(), keyword) ||
+                        InMemoryStore.contains(visitor.getEmail(), keyword) ||
+                        InMemoryStore.contains(visitor.getPhone(), keyword),
+                BY_NAME, 0, limit, this::listView);
+    }
+
+    @Override
+    public ObservableList<Visitor> getActiveVisitors() {
+        return InMemoryStore.select(store.visitors.values(), Visitor::isActive, BY_NAME,
+                0, Long.MAX_VALUE, this::listView);
+    }
+
+    @Override
+    public ChangeSet<Visitor> getChangedSince(long cursor) {
+        return store.changedSince(store.visitors, cursor, this::listView);
+    }
+
+    /**
+     * Занять уникальный email (NULL не ограничен)
+     */
+    private boolean indexEmail(Visitor visitor, int visitorId) {
+        if (visitor.getEmail() == null) {
+            return true;
+        }
+        Integer owner = store.visitorIdsByEmail.putIfAbsent(InMemoryStore.key(visitor.getEmail()), visitorId);
+        return owner == null || owner == visitorId;
+    }
+
+    private void unindexEmail(Visitor visitor, int visitorId) {
+        if (visitor.getEmail() != null) {
+            store.visitorIdsByEmail.remove(InMemoryStore.key(visitor.getEmail()), visitorId);
+        }
+    }
+
+    /**
+     * Строка списка: без address
+     */
+    private Visitor listView(Visitor visitor) {
+        Visitor copy = InMemoryStore.copyOf(visitor);
+        copy.setAddress(null);
+        return copy;
+    }
+}
@@ -0,0 +1,102 @@
+package com.libtrack.dao;
+
+import com.libtrack.util.Isbn;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Горячий индекс ISBN -> ID книги для сканера на стойке выдачи.
+ * Заполняется целиком в фоне при открытии экрана, промахи дочитываются
+ * из БД по уникальному индексу books.isbn_normalized.
+ * Сбрасывается при изменении или удалении книг
+ */
+public class IsbnIndex {
+
+    private static final IsbnIndex instance = new IsbnIndex();
+
+    private final Map<String, Integer> bookIds = new ConcurrentHashMap<>();
+    private final BookRepository bookDAO;
+    // Индекс содержит все книги: промах означает, что книги нет
+    private volatile boolean complete;
+    // Меняется при сбросе: выборка, начатая до сброса, в индекс не попадает
+    private long generation;
+
+    private IsbnIndex() {
+        this(Repositories.books());
+    }
+
+    /**
+     * Отдельный индекс над хранилищем книг (для LoanService в тестах).
+     * Такой индекс не сбрасывается при изменении книг: хранилище меняют только сами тесты
+     */
+    public IsbnIndex(BookRepository bookDAO) {
+        this.bookDAO = bookDAO;
+    }
+
+    public static IsbnIndex getInstance() {
+        return instance;
+    }
+
+    /**
+     * Загрузить все ISBN (вызывать из фонового потока)
+     */
+    public void preload() {
+        if (complete) {
+            return;
+        }
+        long started = currentGeneration();
+        Map<String, Integer> all = bookDAO.getBookIdsByNormalizedIsbn();
+        if (all == null) {
+            return;
+        }
+        synchronized (this) {
+            if (generation == started) {
+                bookIds.putAll(all);
+                complete = true;
+            }
+        }
+    }
+
+    /**
+     * Найти ID книги по отсканированному ISBN
+     * @return ID книги или null
+     */
+    public Integer findBookId(String rawIsbn) {
+        List<String> keys = Isbn.lookupKeys(rawIsbn);
+        for (String key : keys) {
+            Integer bookId = bookIds.get(key);
+            if (bookId != null) {
+                return bookId;
+            }
+        }
+        if (complete || keys.isEmpty()) {
+            return null;
+        }
+
+        long started = currentGeneration();
+        Integer bookId = bookDAO.findBookIdByNormalizedIsbn(keys);
+        if (bookId != null) {
+            synchronized (this) {
+                if (generation == started) {
+                    bookIds.put(keys.get(0), bookId);
+                }
+            }
+        }
+        return bookId;
+    }
+
+    /**
+     * Сбросить индекс (книга добавлена, изменена или удалена)
+     */
+    public synchronized void invalidate() {
+        generation++;
+        complete = false;
+        bookIds.clear();
+    }
+
+    private synchronized long currentGeneration() {
+        return generation;
+    }
+}
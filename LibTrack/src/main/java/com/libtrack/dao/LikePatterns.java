@@ -0,0 +1,22 @@
+package com.libtrack.dao;
+
+/**
+ * Шаблоны LIKE из пользовательского ввода
+ */
+class LikePatterns {
+
+    private LikePatterns() {
+    }
+
+    /**
+     * Шаблон "начинается с": спецсимволы LIKE в тексте экранируются,
+     * чтобы запрос оставался поиском по префиксу индекса
+     */
+    static String prefix(String text) {
+        String escaped = text
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+        return escaped + "%";
+    }
+}
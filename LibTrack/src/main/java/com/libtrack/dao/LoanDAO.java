@@ -5,25 +5,53 @@ import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import java.sql.*;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * DAO для работы с выдачей книг
  */
-public class LoanDAO {
+public class LoanDAO implements LoanRepository {
+
+    // Колонки выдачи без notes (TEXT)
+    private static final String LIST_COLUMNS =
+            "l.loan_id, l.book_id, l.visitor_id, l.loan_date, l.due_date, l.return_date, " +
+            "l.status, l.fine_amount";
+
+    // Те же колонки из архива (там только возвращённые выдачи) для UNION с горячей таблицей
+    private static final String ARCHIVE_COLUMNS =
+            "loan_id, book_id, visitor_id, loan_date, due_date, return_date, " +
+            "'returned' AS status, fine_amount, book_title, visitor_name";
+
+    // Дней просрочки на сегодня: у DATEDIFF в MySQL и H2 разные аргументы
+    private static final String DAYS_OVERDUE = DatabaseConnection.isEmbedded() ?
+            "DATEDIFF('DAY', due_date, CURRENT_DATE)" : "DATEDIFF(CURRENT_DATE, due_date)";
+
+    // Ключи сортировки для постраничной загрузки -> индексированные колонки
+    private static final Map<String, String> PAGE_SORT_COLUMNS = Map.of(
+            "loanId", "loan_id",
+            "loanDate", "loan_date",
+            "status", "status"
+    );
 
     /**
      * Получить все выдачи с информацией о книге и посетителе
      */
     public ObservableList<Loan> getAllLoans() {
         ObservableList<Loan> loans = FXCollections.observableArrayList();
-        String sql = "SELECT l.*, b.title as book_title, " +
+        String sql = "SELECT " + LIST_COLUMNS + ", b.title as book_title, " +
                 "CONCAT(v.first_name, ' ', v.last_name) as visitor_name " +
                 "FROM loans l " +
                 "JOIN books b ON l.book_id = b.book_id " +
                 "JOIN visitors v ON l.visitor_id = v.visitor_id " +
                 "ORDER BY l.loan_date DESC";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
@@ -39,20 +67,84 @@ public class LoanDAO {
         return loans;
     }
 
+    /**
+     * Получить количество всех выдач
+     */
+    public int countLoans() {
+        String sql = "SELECT COUNT(*) FROM loans";
+
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+
+            if (rs.next()) {
+                return rs.getInt(1);
+            }
+
+        } catch (SQLException e) {
+            System.err.println("Ошибка подсчёта выдач: " + e.getMessage());
+        }
+
+        return 0;
+    }
+
+    /**
+     * Получить страницу выдач.
+     * Сначала по индексу выбираются только loan_id страницы, затем к ним
+     * присоединяются книги и читатели - смещение не тянет за собой JOIN
+     * @param sortKey ключ из PAGE_SORT_COLUMNS, null - по дате выдачи (новые сверху)
+     */
+    public ObservableList<Loan> getLoansPage(int offset, int limit, String sortKey, boolean ascending) {
+        ObservableList<Loan> loans = FXCollections.observableArrayList();
+
+        String columns = PAGE_SORT_COLUMNS.get(sortKey);
+        if (columns == null) {
+            columns = "loan_date";
+            ascending = false;
+        }
+
+        String sql = "SELECT " + LIST_COLUMNS + ", b.title as book_title, " +
+                "CONCAT(v.first_name, ' ', v.last_name) as visitor_name " +
+                "FROM (SELECT loan_id FROM loans " +
+                "ORDER BY " + PageSql.orderBy("", columns, "loan_id", ascending) + " " +
+                "LIMIT ?, ?) page " +
+                "JOIN loans l ON l.loan_id = page.loan_id " +
+                "JOIN books b ON l.book_id = b.book_id " +
+                "JOIN visitors v ON l.visitor_id = v.visitor_id " +
+                "ORDER BY " + PageSql.orderBy("l", columns, "loan_id", ascending);
+
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, offset);
+            stmt.setInt(2, limit);
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                loans.add(extractLoanFromResultSet(rs));
+            }
+
+        } catch (SQLException e) {
+            System.err.println("Ошибка получения страницы выдач: " + e.getMessage());
+        }
+
+        return loans;
+    }
+
     /**
      * Получить активные выдачи
      */
     public ObservableList<Loan> getActiveLoans() {
         ObservableList<Loan> loans = FXCollections.observableArrayList();
-        String sql = "SELECT l.*, b.title as book_title, " +
+        String sql = "SELECT " + LIST_COLUMNS + ", b.title as book_title, " +
                 "CONCAT(v.first_name, ' ', v.last_name) as visitor_name " +
                 "FROM loans l " +
                 "JOIN books b ON l.book_id = b.book_id " +
                 "JOIN visitors v ON l.visitor_id = v.visitor_id " +
-                "WHERE l.status = 'active' " +
+                "WHERE l.status IN ('active', 'overdue') " +
                 "ORDER BY l.due_date";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
@@ -68,19 +160,20 @@ public class LoanDAO {
     }
 
     /**
-     * Получить просроченные выдачи
+     * Получить просроченные выдачи.
+     * Статус 'overdue' проставляет OverdueStatusJob при запуске и в полночь
      */
     public ObservableList<Loan> getOverdueLoans() {
         ObservableList<Loan> loans = FXCollections.observableArrayList();
-        String sql = "SELECT l.*, b.title as book_title, " +
+        String sql = "SELECT " + LIST_COLUMNS + ", b.title as book_title, " +
                 "CONCAT(v.first_name, ' ', v.last_name) as visitor_name " +
                 "FROM loans l " +
                 "JOIN books b ON l.book_id = b.book_id " +
                 "JOIN visitors v ON l.visitor_id = v.visitor_id " +
-                "WHERE l.status = 'active' AND l.due_date < CURDATE() " +
+                "WHERE l.status = 'overdue' " +
                 "ORDER BY l.due_date";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
@@ -111,7 +204,12 @@ public class LoanDAO {
             stmt.setDate(4, Date.valueOf(dueDate));
             stmt.setInt(5, issuedBy);
 
-            return stmt.executeUpdate() > 0;
+            // Триггер after_loan_insert уменьшает copies_available
+            boolean issued = stmt.executeUpdate() > 0;
+            if (issued) {
+                BookDAO.invalidateCached(bookId);
+            }
+            return issued;
 
         } catch (SQLException e) {
             System.err.println("Ошибка выдачи книги: " + e.getMessage());
@@ -133,7 +231,12 @@ public class LoanDAO {
             stmt.setDate(1, Date.valueOf(returnDate));
             stmt.setInt(2, loanId);
 
-            return stmt.executeUpdate() > 0;
+            // Триггер after_loan_update возвращает экземпляр книги
+            boolean returned = stmt.executeUpdate() > 0;
+            if (returned) {
+                BookDAO.invalidateCachedAll();
+            }
+            return returned;
 
         } catch (SQLException e) {
             System.err.println("Ошибка возврата книги: " + e.getMessage());
@@ -143,6 +246,330 @@ public class LoanDAO {
         return false;
     }
 
+    /**
+     * Выдать несколько книг одному читателю в одной транзакции.
+     * Книга выдаётся, только если у неё остались свободные экземпляры: строка книги
+     * блокируется (SELECT ... FOR UPDATE) до конца транзакции, а триггер after_loan_insert
+     * уменьшает счётчик в той же транзакции, поэтому одинаковые книги в пакете учитываются.
+     * INSERT ... SELECT FROM books здесь нельзя: триггер обновляет books, которую читает
+     * сама вставка (ошибка MySQL 1442)
+     * @return для каждой книги ID новой выдачи (0 - нет свободных экземпляров или книги);
+     *         null если транзакция не удалась и откачена целиком
+     */
+    public int[] issueLoans(int visitorId, List<Integer> bookIds, LocalDate loanDate,
+                                LocalDate dueDate, int issuedBy) {
+        String lockSql = "SELECT copies_available FROM books WHERE book_id = ? FOR UPDATE";
+        String insertSql = "INSERT INTO loans (book_id, visitor_id, loan_date, due_date, status, issued_by) " +
+                "VALUES (?, ?, ?, ?, 'active', ?)";
+
+        int[] loanIds = new int[bookIds.size()];
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+
+            try (PreparedStatement lock = conn.prepareStatement(lockSql);
+                 PreparedStatement insert = conn.prepareStatement(insertSql, Statement.RETURN_GENERATED_KEYS)) {
+                insert.setInt(2, visitorId);
+                insert.setDate(3, Date.valueOf(loanDate));
+                insert.setDate(4, Date.valueOf(dueDate));
+                insert.setInt(5, issuedBy);
+
+                for (int i = 0; i < bookIds.size(); i++) {
+                    int bookId = bookIds.get(i);
+                    lock.setInt(1, bookId);
+                    try (ResultSet rs = lock.executeQuery()) {
+                        if (!rs.next() || rs.getInt("copies_available") <= 0) {
+                            // Книгу удалили или последний экземпляр уже выдан
+                            continue;
+                        }
+                    }
+
+                    insert.setInt(1, bookId);
+                    insert.executeUpdate();
+                    try (ResultSet generatedKeys = insert.getGeneratedKeys()) {
+                        if (generatedKeys.next()) {
+                            loanIds[i] = generatedKeys.getInt(1);
+                        }
+                    }
+                }
+
+                conn.commit();
+                for (int i = 0; i < loanIds.length; i++) {
+                    if (loanIds[i] > 0) {
+                        BookDAO.invalidateCached(bookIds.get(i));
+                    }
+                }
+                return loanIds;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+
+        } catch (SQLException e) {
+            System.err.println("Ошибка пакетной выдачи: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        return null;
+    }
+
+    /**
+     * Вернуть несколько книг в одной транзакции.
+     * Выдача, возвращённая кем-то другим, пропускается (условие по статусу)
+     * @param finesByLoanId штраф для каждой выдачи
+     * @return ID фактически возвращённых выдач; пустое множество если транзакция не удалась
+     */
+    public Set<Integer> returnLoans(Map<Integer, Double> finesByLoanId, LocalDate returnDate) {
+        String sql = "UPDATE loans SET status = 'returned', return_date = ?, fine_amount = ? " +
+                "WHERE loan_id = ? AND status IN ('active', 'overdue')";
+
+        List<Integer> loanIds = List.copyOf(finesByLoanId.keySet());
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                for (int loanId : loanIds) {
+                    stmt.setDate(1, Date.valueOf(returnDate));
+                    stmt.setDouble(2, finesByLoanId.get(loanId));
+                    stmt.setInt(3, loanId);
+                    stmt.addBatch();
+                }
+
+                int[] counts = stmt.executeBatch();
+                conn.commit();
+                // Экземпляры вернулись триггером; ID книг здесь не известны
+                BookDAO.invalidateCachedAll();
+
+                Set<Integer> returned = new HashSet<>();
+                for (int i = 0; i < counts.length; i++) {
+                    if (counts[i] > 0) {
+                        returned.add(loanIds.get(i));
+                    }
+                }
+                return returned;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+
+        } catch (SQLException e) {
+            System.err.println("Ошибка пакетного возврата: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        return Collections.emptySet();
+    }
+
+    /**
+     * Получить выдачи по списку ID одним запросом
+     */
+    public ObservableList<Loan> getLoansByIds(Collection<Integer> loanIds) {
+        ObservableList<Loan> loans = FXCollections.observableArrayList();
+        if (loanIds.isEmpty()) {
+            return loans;
+        }
+
+        String placeholders = String.join(", ", Collections.nCopies(loanIds.size(), "?"));
+        String sql = "SELECT " + LIST_COLUMNS + ", b.title as book_title, " +
+                "CONCAT(v.first_name, ' ', v.last_name) as visitor_name " +
+                "FROM loans l " +
+                "JOIN books b ON l.book_id = b.book_id " +
+                "JOIN visitors v ON l.visitor_id = v.visitor_id " +
+                "WHERE l.loan_id IN (" + placeholders + ")";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            int index = 1;
+            for (int loanId : loanIds) {
+                stmt.setInt(index++, loanId);
+            }
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                loans.add(extractLoanFromResultSet(rs));
+            }
+
+        } catch (SQLException e) {
+            System.err.println("Ошибка получения выдач: " + e.getMessage());
+        }
+
+        return loans;
+    }
+
+    /**
+     * ID невозвращённых выдач книги (у конкретного читателя или у всех, если visitorId null)
+     */
+    public List<Integer> findActiveLoanIds(int bookId, Integer visitorId) {
+        String sql = "SELECT loan_id FROM loans WHERE book_id = ? AND status IN ('active', 'overdue')" +
+                (visitorId != null ? " AND visitor_id = ?" : "") +
+                " ORDER BY loan_date";
+        List<Integer> loanIds = new ArrayList<>();
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, bookId);
+            if (visitorId != null) {
+                stmt.setInt(2, visitorId);
+            }
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                loanIds.add(rs.getInt("loan_id"));
+            }
+
+        } catch (SQLException e) {
+            System.err.println("Ошибка поиска выдачи: " + e.getMessage());
+        }
+
+        return loanIds;
+    }
+
+    /**
+     * Получить количество книг на руках у читателя (активные и просроченные выдачи)
+     */
+    public int countActiveLoansByVisitor(int visitorId) {
+        String sql = "SELECT COUNT(*) FROM loans WHERE visitor_id = ? AND status IN ('active', 'overdue')";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, visitorId);
+            ResultSet rs = stmt.executeQuery();
+
+            if (rs.next()) {
+                return rs.getInt(1);
+            }
+
+        } catch (SQLException e) {
+            System.err.println("Ошибка подсчёта выдач читателя: " + e.getMessage());
+        }
+
+        return 0;
+    }
+
+    /**
+     * Перевести просроченные активные выдачи в статус 'overdue'.
+     * Обновляет порциями по batchSize строк, чтобы не держать длинные блокировки.
+     * @return количество переведённых выдач, -1 при ошибке
+     */
+    public int markOverdueLoans(int batchSize) {
+        // ORDER BY loan_id: порции детерминированы (UPDATE ... LIMIT без порядка
+        // небезопасен для репликации по операторам)
+        String sql = "UPDATE loans SET status = 'overdue' " +
+                "WHERE status = 'active' AND due_date < CURRENT_DATE " +
+                "ORDER BY loan_id LIMIT ?";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, batchSize);
+
+            int total = 0;
+            int updated;
+            do {
+                updated = stmt.executeUpdate();
+                total += updated;
+            } while (updated == batchSize);
+
+            return total;
+
+        } catch (SQLException e) {
+            System.err.println("Ошибка обновления просроченных выдач: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        return -1;
+    }
+
+    /**
+     * Диапазон ID просроченных выдач (для разбиения на порции)
+     * @return {min, max} или null если просроченных нет
+     */
+    public int[] getOverdueLoanIdRange() {
+        String sql = "SELECT MIN(loan_id), MAX(loan_id) FROM loans WHERE status = 'overdue'";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+
+            if (rs.next()) {
+                int min = rs.getInt(1);
+                if (!rs.wasNull()) {
+                    return new int[]{min, rs.getInt(2)};
+                }
+            }
+
+        } catch (SQLException e) {
+            System.err.println("Ошибка получения диапазона просроченных выдач: " + e.getMessage());
+        }
+
+        return null;
+    }
+
+    /**
+     * Начислить штрафы просроченным выдачам с ID в диапазоне [fromLoanId, toLoanId].
+     * Строки с тем же штрафом не обновляются: повторный запуск за день
+     * не вызывает триггеры и не пишет в журнал изменений
+     * @return количество изменённых строк, -1 при ошибке
+     */
+    public int accrueFines(int fromLoanId, int toLoanId, double finePerDay, int graceDays, double maxFine) {
+        String fine = "ROUND(LEAST(?, GREATEST(" + DAYS_OVERDUE + " - ?, 0) * ?), 2)";
+        String sql = "UPDATE loans SET fine_amount = " + fine + " " +
+                "WHERE status = 'overdue' AND loan_id BETWEEN ? AND ? " +
+                "AND (fine_amount IS NULL OR fine_amount <> " + fine + ")";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setDouble(1, maxFine);
+            stmt.setInt(2, graceDays);
+            stmt.setDouble(3, finePerDay);
+            stmt.setInt(4, fromLoanId);
+            stmt.setInt(5, toLoanId);
+            stmt.setDouble(6, maxFine);
+            stmt.setInt(7, graceDays);
+            stmt.setDouble(8, finePerDay);
+
+            return stmt.executeUpdate();
+
+        } catch (SQLException e) {
+            System.err.println("Ошибка начисления штрафов: " + e.getMessage());
+        }
+
+        return -1;
+    }
+
+    /**
+     * Сумма штрафов посетителя (начисленных и по возвращённым книгам)
+     */
+    public double getTotalFinesByVisitor(int visitorId) {
+        // Штрафы за всю историю: вместе с выдачами, перенесёнными в loans_archive
+        String sql = "SELECT COALESCE(SUM(fine_amount), 0) FROM (" +
+                "SELECT fine_amount FROM loans WHERE visitor_id = ? " +
+                "UNION ALL " +
+                "SELECT fine_amount FROM loans_archive WHERE visitor_id = ?) f";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, visitorId);
+            stmt.setInt(2, visitorId);
+            ResultSet rs = stmt.executeQuery();
+
+            if (rs.next()) {
+                return rs.getDouble(1);
+            }
+
+        } catch (SQLException e) {
+            System.err.println("Ошибка получения штрафов посетителя: " + e.getMessage());
+        }
+
+        return 0.0;
+    }
+
     /**
      * Обновить штраф
      */
@@ -165,22 +592,25 @@ public class LoanDAO {
     }
 
     /**
-     * Получить выдачи по посетителю
+     * Получить выдачи по посетителю (вся история, включая архив)
      */
     public ObservableList<Loan> getLoansByVisitor(int visitorId) {
         ObservableList<Loan> loans = FXCollections.observableArrayList();
-        String sql = "SELECT l.*, b.title as book_title, " +
+        String sql = "SELECT " + LIST_COLUMNS + ", b.title as book_title, " +
                 "CONCAT(v.first_name, ' ', v.last_name) as visitor_name " +
                 "FROM loans l " +
                 "JOIN books b ON l.book_id = b.book_id " +
                 "JOIN visitors v ON l.visitor_id = v.visitor_id " +
                 "WHERE l.visitor_id = ? " +
-                "ORDER BY l.loan_date DESC";
+                "UNION ALL " +
+                "SELECT " + ARCHIVE_COLUMNS + " FROM loans_archive WHERE visitor_id = ? " +
+                "ORDER BY loan_date DESC";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setInt(1, visitorId);
+            stmt.setInt(2, visitorId);
             ResultSet rs = stmt.executeQuery();
 
             while (rs.next()) {
@@ -195,22 +625,25 @@ public class LoanDAO {
     }
 
     /**
-     * Получить выдачи по книге
+     * Получить выдачи по книге (вся история, включая архив)
      */
     public ObservableList<Loan> getLoansByBook(int bookId) {
         ObservableList<Loan> loans = FXCollections.observableArrayList();
-        String sql = "SELECT l.*, b.title as book_title, " +
+        String sql = "SELECT " + LIST_COLUMNS + ", b.title as book_title, " +
                 "CONCAT(v.first_name, ' ', v.last_name) as visitor_name " +
                 "FROM loans l " +
                 "JOIN books b ON l.book_id = b.book_id " +
                 "JOIN visitors v ON l.visitor_id = v.visitor_id " +
                 "WHERE l.book_id = ? " +
-                "ORDER BY l.loan_date DESC";
+                "UNION ALL " +
+                "SELECT " + ARCHIVE_COLUMNS + " FROM loans_archive WHERE book_id = ? " +
+                "ORDER BY loan_date DESC";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setInt(1, bookId);
+            stmt.setInt(2, bookId);
             ResultSet rs = stmt.executeQuery();
 
             while (rs.next()) {
@@ -224,6 +657,140 @@ public class LoanDAO {
         return loans;
     }
 
+    /**
+     * Изменения выдач после курсора.
+     * Название книги и имя читателя в строке выдачи обновляются по изменениям books и visitors
+     * @param cursor курсор предыдущего запроса или ChangeTracking.currentCursor() после полной загрузки
+     * @return изменения или null при ошибке
+     */
+    public ChangeSet<Loan> getChangedSince(long cursor) {
+        String sql = "SELECT " + LIST_COLUMNS + ", b.title as book_title, " +
+                "CONCAT(v.first_name, ' ', v.last_name) as visitor_name " +
+                "FROM loans l " +
+                "JOIN books b ON l.book_id = b.book_id " +
+                "JOIN visitors v ON l.visitor_id = v.visitor_id " +
+                "WHERE l.change_seq > ? AND l.change_seq <= ? " +
+                "ORDER BY l.change_seq";
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return ChangeTracking.load(conn, "loans", sql, cursor, this::extractLoanFromResultSet);
+        } catch (SQLException e) {
+            System.err.println("Ошибка получения изменений выдач: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        return null;
+    }
+
+    /**
+     * Перенести в архив одну порцию возвращённых выдач, возвращённых до cutoff.
+     * Копирование и удаление идут в одной транзакции. Удаление идёт с @libtrack_archiving:
+     * триггер не пишет надгробия и журнал, рабочие места не получают удалений
+     * @return количество перенесённых выдач, -1 при ошибке
+     */
+    public int archiveReturnedLoans(LocalDate cutoff, int batchSize) {
+        String selectSql = "SELECT loan_id FROM loans " +
+                "WHERE status = 'returned' AND return_date < ? " +
+                "ORDER BY loan_id LIMIT ?";
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            List<Integer> loanIds = new ArrayList<>();
+            try (PreparedStatement stmt = conn.prepareStatement(selectSql)) {
+                stmt.setDate(1, Date.valueOf(cutoff));
+                stmt.setInt(2, batchSize);
+                ResultSet rs = stmt.executeQuery();
+                while (rs.next()) {
+                    loanIds.add(rs.getInt(1));
+                }
+            }
+            if (loanIds.isEmpty()) {
+                return 0;
+            }
+
+            String placeholders = String.join(", ", Collections.nCopies(loanIds.size(), "?"));
+            String copySql = "INSERT INTO loans_archive (loan_id, loan_year, book_id, visitor_id, " +
+                    "book_title, visitor_name, loan_date, due_date, return_date, fine_amount) " +
+                    "SELECT l.loan_id, EXTRACT(YEAR FROM l.loan_date), l.book_id, l.visitor_id, b.title, " +
+                    "CONCAT(v.first_name, ' ', v.last_name), l.loan_date, l.due_date, l.return_date, l.fine_amount " +
+                    "FROM loans l " +
+                    "JOIN books b ON l.book_id = b.book_id " +
+                    "JOIN visitors v ON l.visitor_id = v.visitor_id " +
+                    "WHERE l.loan_id IN (" + placeholders + ") AND l.status = 'returned'";
+            String deleteSql = "DELETE FROM loans WHERE loan_id IN (" + placeholders + ") AND status = 'returned'";
+
+            conn.setAutoCommit(false);
+            try (PreparedStatement copy = conn.prepareStatement(copySql);
+                 PreparedStatement delete = conn.prepareStatement(deleteSql);
+                 Statement session = conn.createStatement()) {
+                for (int i = 0; i < loanIds.size(); i++) {
+                    copy.setInt(i + 1, loanIds.get(i));
+                    delete.setInt(i + 1, loanIds.get(i));
+                }
+                int copied = copy.executeUpdate();
+                int deleted;
+                session.execute("SET @libtrack_archiving = 1");
+                try {
+                    deleted = delete.executeUpdate();
+                } finally {
+                    // Соединение вернётся в пул: следующие удаления снова пишут надгробия
+                    session.execute("SET @libtrack_archiving = NULL");
+                }
+                if (copied != deleted) {
+                    // Строку изменили между выборкой и переносом - повторим в следующий раз
+                    conn.rollback();
+                    return 0;
+                }
+                conn.commit();
+                return deleted;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+
+        } catch (SQLException e) {
+            System.err.println("Ошибка архивации выдач: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        return -1;
+    }
+
+    /**
+     * Отделить от секции pmax архива секции по год включительно
+     * (строки архива попадают в секцию своего года, а не в общую)
+     * @return false при ошибке
+     */
+    public boolean ensureArchivePartitions(int upToYear) {
+        if (DatabaseConnection.isEmbedded()) {
+            // Во встроенной базе архив без секций
+            return true;
+        }
+        String boundSql = "SELECT MAX(CAST(PARTITION_DESCRIPTION AS UNSIGNED)) FROM information_schema.PARTITIONS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'loans_archive' " +
+                "AND PARTITION_DESCRIPTION <> 'MAXVALUE'";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement()) {
+
+            ResultSet rs = stmt.executeQuery(boundSql);
+            // Граница секции - год, следующий за последним годом в ней
+            int nextYear = rs.next() && rs.getInt(1) > 0 ? rs.getInt(1) : upToYear;
+
+            for (int year = nextYear; year <= upToYear; year++) {
+                stmt.executeUpdate("ALTER TABLE loans_archive REORGANIZE PARTITION pmax INTO (" +
+                        "PARTITION p" + year + " VALUES LESS THAN (" + (year + 1) + "), " +
+                        "PARTITION pmax VALUES LESS THAN MAXVALUE)");
+            }
+            return true;
+
+        } catch (SQLException e) {
+            System.err.println("Ошибка подготовки секций архива: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        return false;
+    }
+
     /**
      * Создать объект Loan из ResultSet
      */
@@ -241,9 +808,11 @@ public class LoanDAO {
                 returnDate != null ? returnDate.toLocalDate() : null,
                 rs.getString("status"),
                 rs.getDouble("fine_amount"),
-                rs.getString("notes"),
-                rs.getString("book_title"),
-                rs.getString("visitor_name")
+                // notes (TEXT) в таблицах не показываются и не выбираются
+                null,
+                // У одной книги и одного читателя много выдач
+                StringPool.canonical(rs.getString("book_title")),
+                StringPool.canonical(rs.getString("visitor_name"))
         );
     }
 }
\ No newline at end of file
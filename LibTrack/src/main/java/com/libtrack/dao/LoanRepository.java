@@ -0,0 +1,146 @@
+package com.libtrack.dao;
+
+import com.libtrack.model.Loan;
+import javafx.collections.ObservableList;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Хранилище выдач. Реализации: LoanDAO (MySQL или встроенная H2)
+ */
+public interface LoanRepository {
+
+    /**
+     * Получить все выдачи с информацией о книге и посетителе
+     */
+    ObservableList<Loan> getAllLoans();
+
+    /**
+     * Получить количество всех выдач
+     */
+    int countLoans();
+
+    /**
+     * Получить страницу выдач
+     * @param sortKey ключ из PAGE_SORT_COLUMNS, null - по дате выдачи (новые сверху)
+     */
+    ObservableList<Loan> getLoansPage(int offset, int limit, String sortKey, boolean ascending);
+
+    /**
+     * Получить активные выдачи
+     */
+    ObservableList<Loan> getActiveLoans();
+
+    /**
+     * Получить просроченные выдачи.
+     * Статус 'overdue' проставляет OverdueStatusJob при запуске и в полночь
+     */
+    ObservableList<Loan> getOverdueLoans();
+
+    /**
+     * Выдать книгу
+     */
+    boolean issueLoan(int bookId, int visitorId, LocalDate loanDate, LocalDate dueDate, int issuedBy);
+
+    /**
+     * Вернуть книгу
+     */
+    boolean returnLoan(int loanId, LocalDate returnDate);
+
+    /**
+     * Выдать несколько книг одному читателю в одной транзакции.
+     * Книга выдаётся, только если у неё остались свободные экземпляры
+     * (одинаковые книги в пакете учитываются)
+     * @return для каждой книги ID новой выдачи (0 - не выдана); null если транзакция не удалась
+     */
+    int[] issueLoans(int visitorId, List<Integer> bookIds, LocalDate loanDate, LocalDate dueDate, int issuedBy);
+
+    /**
+     * Вернуть несколько книг в одной транзакции.
+     * Выдача, возвращённая кем-то другим, пропускается (условие по статусу)
+     * @param finesByLoanId штраф для каждой выдачи
+     * @return ID фактически возвращённых выдач; пустое множество если транзакция не удалась
+     */
+    Set<Integer> returnLoans(Map<Integer, Double> finesByLoanId, LocalDate returnDate);
+
+    /**
+     * Получить выдачи по списку ID одним запросом
+     */
+    ObservableList<Loan> getLoansByIds(Collection<Integer> loanIds);
+
+    /**
+     * ID невозвращённых выдач книги (у конкретного читателя или у всех, если visitorId null)
+     */
+    List<Integer> findActiveLoanIds(int bookId, Integer visitorId);
+
+    /**
+     * Получить количество книг на руках у читателя (активные и просроченные выдачи)
+     */
+    int countActiveLoansByVisitor(int visitorId);
+
+    /**
+     * Перевести просроченные активные выдачи в статус 'overdue'.
+     * Обновляет порциями по batchSize строк.
+     * @return количество переведённых выдач, -1 при ошибке
+     */
+    int markOverdueLoans(int batchSize);
+
+    /**
+     * Диапазон ID просроченных выдач (для разбиения на порции)
+     * @return {min, max} или null если просроченных нет
+     */
+    int[] getOverdueLoanIdRange();
+
+    /**
+     * Начислить штрафы просроченным выдачам с ID в диапазоне [fromLoanId, toLoanId].
+     * Строки, штраф которых не изменился, не обновляются
+     * @return количество изменённых строк, -1 при ошибке
+     */
+    int accrueFines(int fromLoanId, int toLoanId, double finePerDay, int graceDays, double maxFine);
+
+    /**
+     * Сумма штрафов посетителя (начисленных и по возвращённым книгам)
+     */
+    double getTotalFinesByVisitor(int visitorId);
+
+    /**
+     * Обновить штраф
+     */
+    boolean updateFine(int loanId, double fineAmount);
+
+    /**
+     * Получить выдачи по посетителю (вся история, включая архив)
+     */
+    ObservableList<Loan> getLoansByVisitor(int visitorId);
+
+    /**
+     * Получить выдачи по книге (вся история, включая архив)
+     */
+    ObservableList<Loan> getLoansByBook(int bookId);
+
+    /**
+     * Изменения выдач после курсора.
+     * Название книги и имя читателя в строке выдачи обновляются по изменениям books и visitors
+     * @param cursor курсор предыдущего запроса или ChangeTracking.currentCursor() после полной загрузки
+     * @return изменения или null при ошибке
+     */
+    ChangeSet<Loan> getChangedSince(long cursor);
+
+    /**
+     * Перенести в архив одну порцию возвращённых выдач, возвращённых до cutoff.
+     * Копирование и удаление идут в одной транзакции
+     * @return количество перенесённых выдач, -1 при ошибке
+     */
+    int archiveReturnedLoans(LocalDate cutoff, int batchSize);
+
+    /**
+     * Подготовить архив к приёму выдач по год включительно
+     * (MySQL: отделить секции от pmax; во встроенной базе секций нет)
+     * @return false при ошибке
+     */
+    boolean ensureArchivePartitions(int upToYear);
+}
@@ -0,0 +1,32 @@
+package com.libtrack.dao;
+
+/**
+ * Построение ORDER BY для постраничных запросов.
+ * Колонки приходят только из белых списков DAO, не от пользователя
+ */
+class PageSql {
+
+    private PageSql() {
+    }
+
+    /**
+     * ORDER BY по колонкам индекса с ID в конце, чтобы страницы не перекрывались
+     * @param alias    псевдоним таблицы ("" без псевдонима)
+     * @param columns  колонки через запятую, например "last_name, first_name"
+     * @param idColumn первичный ключ
+     */
+    static String orderBy(String alias, String columns, String idColumn, boolean ascending) {
+        String prefix = alias.isEmpty() ? "" : alias + ".";
+        String direction = ascending ? " ASC" : " DESC";
+
+        StringBuilder order = new StringBuilder();
+        for (String column : columns.split(",")) {
+            String name = column.trim();
+            if (!name.equals(idColumn)) {
+                order.append(prefix).append(name).append(direction).append(", ");
+            }
+        }
+        order.append(prefix).append(idColumn).append(direction);
+        return order.toString();
+    }
+}
@@ -0,0 +1,185 @@
+package com.libtrack.dao;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Проверка планов запросов (QueryPlanAuditor).
+ * Пока запись включена, пул оборачивает выданные Statement/PreparedStatement:
+ * перед выполнением каждый запрос прогоняется через EXPLAIN с теми же параметрами
+ * на том же соединении. Полный просмотр таблицы и filesort больше порога строк
+ * считаются нарушением. В обычной работе выключено и ничего не стоит
+ */
+public class QueryPlanRecorder {
+
+    private static volatile QueryPlanRecorder active;
+
+    private final long maxRows;
+    // SQL -> результат проверки (первый план каждого запроса)
+    private final Map<String, PlanCheck> checks = new LinkedHashMap<>();
+
+    private QueryPlanRecorder(long maxRows) {
+        this.maxRows = maxRows;
+    }
+
+    /**
+     * Включить запись планов
+     * @param maxRows сколько строк (по оценке EXPLAIN) допустимо просмотреть без индекса или отсортировать
+     */
+    public static void start(long maxRows) {
+        active = new QueryPlanRecorder(maxRows);
+    }
+
+    /**
+     * Выключить запись и вернуть проверенные запросы
+     */
+    public static List<PlanCheck> stop() {
+        QueryPlanRecorder recorder = active;
+        active = null;
+        if (recorder == null) {
+            return List.of();
+        }
+        synchronized (recorder) {
+            return new ArrayList<>(recorder.checks.values());
+        }
+    }
+
+    static boolean isActive() {
+        return active != null;
+    }
+
+    /**
+     * Обернуть результат prepareStatement/createStatement соединения пула
+     */
+    static Object wrap(Connection physical, String method, Object[] args, Object result) {
+        QueryPlanRecorder recorder = active;
+        if (recorder == null) {
+            return result;
+        }
+        if ("prepareStatement".equals(method) && result instanceof PreparedStatement prepared) {
+            return recorder.wrapPrepared(physical, (String) args[0], prepared);
+        }
+        if ("createStatement".equals(method) && result instanceof Statement statement) {
+            return recorder.wrapStatement(physical, statement);
+        }
+        return result;
+    }
+
+    private PreparedStatement wrapPrepared(Connection physical, String sql, PreparedStatement target) {
+        Map<Integer, Object> params = new TreeMap<>();
+
+        return (PreparedStatement) Proxy.newProxyInstance(
+                QueryPlanRecorder.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class},
+                (proxy, method, args) -> {
+                    String name = method.getName();
+                    if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                        params.put(index, name.equals("setNull") ? null : args[1]);
+                    } else if (name.equals("clearParameters")) {
+                        params.clear();
+                    } else if ((name.startsWith("execute") || name.equals("addBatch")) && args == null) {
+                        explain(physical, sql, params);
+                    }
+                    return invoke(target, method, args);
+                });
+    }
+
+    private Statement wrapStatement(Connection physical, Statement target) {
+        return (Statement) Proxy.newProxyInstance(
+                QueryPlanRecorder.class.getClassLoader(),
+                new Class<?>[]{Statement.class},
+                (proxy, method, args) -> {
+                    if (method.getName().startsWith("execute") && args != null && args[0] instanceof String sql) {
+                        explain(physical, sql, Map.of());
+                    }
+                    return invoke(target, method, args);
+                });
+    }
+
+    private static Object invoke(Object target, java.lang.reflect.Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void explain(Connection physical, String sql, Map<Integer, Object> params) {
+        String keyword = sql.stripLeading().toUpperCase(Locale.ROOT);
+        boolean explainable = keyword.startsWith("SELECT") || keyword.startsWith("WITH") ||
+                keyword.startsWith("UPDATE") || keyword.startsWith("DELETE") ||
+                (keyword.startsWith("INSERT") && keyword.contains("SELECT"));
+        if (!explainable) {
+            return;
+        }
+
+        synchronized (this) {
+            PlanCheck existing = checks.get(sql);
+            if (existing != null) {
+                existing.executions++;
+                return;
+            }
+        }
+
+        PlanCheck check = new PlanCheck(sql);
+        try (PreparedStatement stmt = physical.prepareStatement("EXPLAIN " + sql)) {
+            for (Map.Entry<Integer, Object> param : params.entrySet()) {
+                stmt.setObject(param.getKey(), param.getValue());
+            }
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                String table = rs.getString("table");
+                String type = rs.getString("type");
+                String key = rs.getString("key");
+                long rows = rs.getLong("rows");
+                String extra = rs.getString("Extra");
+
+                check.plan.add(String.format("%s: type=%s key=%s rows=%d %s",
+                        table, type, key, rows, extra == null ? "" : extra));
+                if ("ALL".equals(type) && rows > maxRows) {
+                    check.problems.add("полный просмотр " + table + " (~" + rows + " строк)");
+                }
+                if (extra != null && extra.contains("Using filesort") && rows > maxRows) {
+                    check.problems.add("filesort по " + table + " (~" + rows + " строк)");
+                }
+            }
+        } catch (SQLException e) {
+            check.problems.add("EXPLAIN не выполнен: " + e.getMessage());
+        }
+
+        synchronized (this) {
+            checks.putIfAbsent(sql, check);
+        }
+    }
+
+    /**
+     * План одного запроса
+     */
+    public static class PlanCheck {
+        private final String sql;
+        private final List<String> plan = new ArrayList<>();
+        private final List<String> problems = new ArrayList<>();
+        private int executions = 1;
+
+        PlanCheck(String sql) {
+            this.sql = sql;
+        }
+
+        public String getSql() { return sql; }
+        public List<String> getPlan() { return plan; }
+        public List<String> getProblems() { return problems; }
+        public int getExecutions() { return executions; }
+        public boolean isOk() { return problems.isEmpty(); }
+    }
+}
@@ -0,0 +1,153 @@
+package com.libtrack.dao;
+
+import com.libtrack.util.AppConfig;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Состояние реплики для чтения. Раз в полсекунды сравнивает номер изменения
+ * (change_sequence) на основном сервере и на реплике:
+ * реплика годится для чтения, если отвечает, отстаёт не больше libtrack.db.replicaMaxLagMs
+ * и уже получила свои записи этого клиента и изменения, о которых сообщил журнал
+ */
+class ReplicaMonitor {
+
+    private static final long CHECK_INTERVAL_MS = 500;
+    // Допустимое отставание реплики
+    private static final long MAX_LAG_MS = Math.max(0, AppConfig.getInt("libtrack.db.replicaMaxLagMs", 2_000));
+
+    private static final ReplicaMonitor instance = new ReplicaMonitor();
+
+    private ScheduledExecutorService timer;
+
+    private volatile boolean healthy;
+    private volatile long replicaSeq;
+    // Номер, которого реплика должна достичь (свои записи, изменения из журнала)
+    private volatile long requiredSeq;
+    // Номер основного сервера MAX_LAG_MS назад: реплика, не дошедшая до него, отстаёт
+    private volatile long freshSeq;
+    // Время последней своей записи и начала последней проверки (System.nanoTime)
+    private volatile long lastWriteAt = Long.MIN_VALUE;
+    private volatile long lastCheckAt = Long.MIN_VALUE;
+
+    // Номера основного сервера по времени проверки (только поток проверки)
+    private final Deque<long[]> primarySamples = new ArrayDeque<>();
+
+    private ReplicaMonitor() {
+    }
+
+    static ReplicaMonitor getInstance() {
+        return instance;
+    }
+
+    /**
+     * Можно ли сейчас читать с реплики
+     */
+    boolean isUsable() {
+        start();
+        long seq = replicaSeq;
+        // Запись после начала последней проверки ещё не учтена в requiredSeq
+        return healthy && lastWriteAt < lastCheckAt && seq >= requiredSeq && seq >= freshSeq;
+    }
+
+    /**
+     * Через основной сервер прошла запись этого клиента
+     */
+    void primaryWritten() {
+        lastWriteAt = System.nanoTime();
+    }
+
+    /**
+     * Не читать с реплики, пока она не дойдёт до этого номера изменения
+     */
+    void require(long seq) {
+        synchronized (this) {
+            if (seq > requiredSeq) {
+                requiredSeq = seq;
+            }
+        }
+    }
+
+    /**
+     * Реплика не выдала соединение: до следующей успешной проверки читаем с основного
+     */
+    void markDown() {
+        healthy = false;
+    }
+
+    synchronized void start() {
+        if (timer != null) {
+            return;
+        }
+        timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "libtrack-replica-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.scheduleWithFixedDelay(this::check, 0, CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    synchronized void stop() {
+        if (timer != null) {
+            timer.shutdownNow();
+            timer = null;
+        }
+    }
+
+    private void check() {
+        long startedAt = System.nanoTime();
+        boolean wasHealthy = healthy;
+
+        try (Connection primaryConn = DatabaseConnection.openPrimaryCheck();
+             Connection replicaConn = DatabaseConnection.openReplicaCheck()) {
+            if (replicaConn == null) {
+                return;
+            }
+            long primarySeq = ChangeTracking.currentSeq(primaryConn);
+            long seq = ChangeTracking.currentSeq(replicaConn);
+
+            // Свои записи, завершённые до начала проверки, входят в primarySeq
+            if (lastWriteAt < startedAt) {
+                require(primarySeq);
+            }
+            updateFreshSeq(startedAt, primarySeq);
+
+            replicaSeq = seq;
+            lastCheckAt = startedAt;
+            healthy = true;
+            if (!wasHealthy) {
+                System.out.println("✓ Реплика доступна, чтение списков и статистики идёт с неё");
+            }
+        } catch (SQLException | RuntimeException e) {
+            healthy = false;
+            DatabaseConnection.discardReplicaConnections();
+            if (wasHealthy) {
+                System.err.println("⚠ Реплика недоступна, чтение переключено на основной сервер: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Запомнить номер основного сервера и найти тот, что был MAX_LAG_MS назад
+     */
+    private void updateFreshSeq(long now, long primarySeq) {
+        primarySamples.addLast(new long[]{now, primarySeq});
+        long horizon = now - TimeUnit.MILLISECONDS.toNanos(MAX_LAG_MS);
+
+        long fresh = 0;
+        while (!primarySamples.isEmpty() && primarySamples.peekFirst()[0] <= horizon) {
+            fresh = primarySamples.pollFirst()[1];
+        }
+        if (fresh > 0) {
+            // Последний отброшенный образец - самый свежий из старше горизонта
+            primarySamples.addFirst(new long[]{horizon, fresh});
+            freshSeq = fresh;
+        }
+    }
+}
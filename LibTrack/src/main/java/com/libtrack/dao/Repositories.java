@@ -0,0 +1,38 @@
+package com.libtrack.dao;
+
+/**
+ * Хранилища, с которыми работают сервисы, контроллеры и ночные задачи.
+ * JDBC-реализации одни и те же для MySQL и встроенной H2:
+ * база выбирается в DatabaseConnection (-Dlibtrack.db.backend)
+ */
+public class Repositories {
+
+    private static final BookRepository books = new BookDAO();
+    private static final AuthorRepository authors = new AuthorDAO();
+    private static final VisitorRepository visitors = new VisitorDAO();
+    private static final LoanRepository loans = new LoanDAO();
+    private static final UserRepository users = new UserDAO();
+
+    private Repositories() {
+    }
+
+    public static BookRepository books() {
+        return books;
+    }
+
+    public static AuthorRepository authors() {
+        return authors;
+    }
+
+    public static VisitorRepository visitors() {
+        return visitors;
+    }
+
+    public static LoanRepository loans() {
+        return loans;
+    }
+
+    public static UserRepository users() {
+        return users;
+    }
+}
@@ -0,0 +1,41 @@
+package com.libtrack.dao;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Словарь повторяющихся строк для разбора строк ResultSet.
+ * Жанр, издатель, страна, имя автора и т.п. принимают немного различных значений
+ * на сотни тысяч строк; JDBC создаёт новую строку для каждой, а здесь
+ * одинаковые значения сводятся к одному экземпляру
+ */
+final class StringPool {
+
+    // Словарь не растёт дальше: редкие значения просто не сводятся
+    private static final int MAX_SIZE = 50_000;
+    // Длинные значения редко повторяются
+    private static final int MAX_LENGTH = 200;
+
+    private static final Map<String, String> pool = new ConcurrentHashMap<>();
+
+    private StringPool() {
+    }
+
+    /**
+     * Общий экземпляр строки с таким же значением
+     */
+    static String canonical(String value) {
+        if (value == null || value.length() > MAX_LENGTH) {
+            return value;
+        }
+        String pooled = pool.get(value);
+        if (pooled != null) {
+            return pooled;
+        }
+        if (pool.size() >= MAX_SIZE) {
+            return value;
+        }
+        pooled = pool.putIfAbsent(value, value);
+        return pooled != null ? pooled : value;
+    }
+}
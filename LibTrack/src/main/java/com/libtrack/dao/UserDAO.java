@@ -2,14 +2,21 @@ package com.libtrack.dao;
 
 import at.favre.lib.crypto.bcrypt.BCrypt;
 import com.libtrack.model.User;
+import com.libtrack.util.AppConfig;
+import com.libtrack.util.BackgroundTasks;
 import com.libtrack.util.CurrentUser;
 import java.sql.*;
 import java.time.LocalDateTime;
+import java.util.concurrent.Semaphore;
 
-public class UserDAO {
+public class UserDAO implements UserRepository {
+
+    // Одновременных проверок BCrypt: каждая занимает ядро на сотни миллисекунд
+    private static final Semaphore verifications = new Semaphore(
+            Math.max(1, AppConfig.getInt("libtrack.auth.maxConcurrentVerifications", 2)), true);
 
     /**
-     * Аутентификация пользователя с BCrypt
+     * Аутентификация пользователя с BCrypt (вызывать из фонового потока)
      */
     public User authenticate(String username, String password) {
         String sql = "SELECT * FROM users WHERE username = ?";
@@ -24,7 +31,7 @@ public class UserDAO {
                 String storedHash = rs.getString("password_hash");
 
                 // Проверка пароля через BCrypt
-                BCrypt.Result result = BCrypt.verifyer().verify(password.toCharArray(), storedHash);
+                BCrypt.Result result = verify(password, storedHash);
 
                 if (result.verified) {
                     User user = extractUserFromResultSet(rs);
@@ -32,8 +39,14 @@ public class UserDAO {
                     // Сохранить пользователя в CurrentUser
                     CurrentUser.getInstance().setUser(user);
 
-                    // Обновить время последнего входа
-                    updateLastLogin(user.getUserId());
+                    // Время последнего входа пишется в фоне и не задерживает переход на главный экран
+                    BackgroundTasks.execute(() -> updateLastLogin(user.getUserId()));
+
+                    // Хеш с меньшей стоимостью пересчитывается, пока пароль известен;
+                    // более стойкий хеш (например, с быстрой машины) не понижается
+                    if (BCryptCost.isCalibrated() && BCryptCost.costOf(storedHash) < BCryptCost.current()) {
+                        BackgroundTasks.execute(() -> rehashPassword(user.getUserId(), storedHash, password));
+                    }
 
                     System.out.println("✓ Аутентификация успешна: " + user.getFullName());
                     return user;
@@ -47,11 +60,25 @@ public class UserDAO {
         } catch (SQLException e) {
             System.err.println("✗ Ошибка аутентификации: " + e.getMessage());
             e.printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
 
         return null;
     }
 
+    /**
+     * Проверка пароля с ограничением числа одновременных проверок
+     */
+    private static BCrypt.Result verify(String password, String storedHash) throws InterruptedException {
+        verifications.acquire();
+        try {
+            return BCrypt.verifyer().verify(password.toCharArray(), storedHash);
+        } finally {
+            verifications.release();
+        }
+    }
+
     /**
      * Получить пользователя по ID
      */
@@ -92,6 +119,42 @@ public class UserDAO {
         }
     }
 
+    /**
+     * Заменить хеш пароля хешем текущей стоимости.
+     * Только если хеш не менялся с момента входа (пароль могли сменить параллельно)
+     */
+    private void rehashPassword(int userId, String oldHash, String password) {
+        String newHash;
+        try {
+            verifications.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        try {
+            newHash = hashPassword(password);
+        } finally {
+            verifications.release();
+        }
+
+        String sql = "UPDATE users SET password_hash = ? WHERE user_id = ? AND password_hash = ?";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setString(1, newHash);
+            stmt.setInt(2, userId);
+            stmt.setString(3, oldHash);
+            if (stmt.executeUpdate() > 0) {
+                BCryptCost.log("хеш пароля пересчитан, стоимость " + BCryptCost.costOf(oldHash) +
+                        " -> " + BCryptCost.current());
+            }
+
+        } catch (SQLException e) {
+            System.err.println("Ошибка пересчёта хеша пароля: " + e.getMessage());
+        }
+    }
+
     /**
      * Извлечь пользователя из ResultSet
      */
@@ -115,9 +178,9 @@ public class UserDAO {
     }
 
     /**
-     * Создать BCrypt хеш для пароля
+     * Создать BCrypt хеш для пароля (стоимость из BCryptCost)
      */
     public String hashPassword(String password) {
-        return BCrypt.withDefaults().hashToString(12, password.toCharArray());
+        return BCrypt.withDefaults().hashToString(BCryptCost.current(), password.toCharArray());
     }
 }
\ No newline at end of file
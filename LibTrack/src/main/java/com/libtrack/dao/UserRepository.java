@@ -0,0 +1,24 @@
+package com.libtrack.dao;
+
+import com.libtrack.model.User;
+
+/**
+ * Пользователи системы. Реализации: UserDAO (MySQL или встроенная H2)
+ */
+public interface UserRepository {
+
+    /**
+     * Аутентификация пользователя с BCrypt
+     */
+    User authenticate(String username, String password);
+
+    /**
+     * Получить пользователя по ID
+     */
+    User getUserById(int userId);
+
+    /**
+     * Создать BCrypt хеш для пароля
+     */
+    String hashPassword(String password);
+}
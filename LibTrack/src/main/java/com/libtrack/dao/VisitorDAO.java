@@ -5,25 +5,41 @@ import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import java.sql.*;
 import java.time.LocalDate;
+import java.util.Map;
 
 /**
  * DAO для работы с посетителями
  */
-public class VisitorDAO {
+public class VisitorDAO implements VisitorRepository {
+
+    private static final EntityCache<Visitor> cache = new EntityCache<>("visitors", VisitorDAO::copyOf);
+
+    // Колонки для списков и таблиц: без address (TEXT), он читается в getVisitorById
+    private static final String LIST_COLUMNS =
+            "v.visitor_id, v.first_name, v.last_name, v.email, v.phone, v.registration_date, " +
+            "v.birth_date, v.status";
+
+    // Ключи сортировки для постраничной загрузки -> индексированные колонки
+    private static final Map<String, String> PAGE_SORT_COLUMNS = Map.of(
+            "visitorId", "visitor_id",
+            "lastName", "last_name, first_name",
+            "email", "email",
+            "status", "status"
+    );
 
     /**
      * Получить всех посетителей
      */
     public ObservableList<Visitor> getAllVisitors() {
         ObservableList<Visitor> visitors = FXCollections.observableArrayList();
-        String sql = "SELECT * FROM visitors ORDER BY last_name, first_name";
+        String sql = "SELECT " + LIST_COLUMNS + " FROM visitors v ORDER BY last_name, first_name";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
             while (rs.next()) {
-                visitors.add(extractVisitorFromResultSet(rs));
+                visitors.add(extractVisitorFromResultSet(rs, false));
             }
 
         } catch (SQLException e) {
@@ -35,9 +51,102 @@ public class VisitorDAO {
     }
 
     /**
-     * Получить посетителя по ID
+     * Получить количество посетителей
+     */
+    public int countVisitors() {
+        String sql = "SELECT COUNT(*) FROM visitors";
+
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+
+            if (rs.next()) {
+                return rs.getInt(1);
+            }
+
+        } catch (SQLException e) {
+            System.err.println("Ошибка подсчёта посетителей: " + e.getMessage());
+        }
+
+        return 0;
+    }
+
+    /**
+     * Получить страницу посетителей
+     * @param sortKey ключ из PAGE_SORT_COLUMNS, null - по фамилии и имени
+     */
+    public ObservableList<Visitor> getVisitorsPage(int offset, int limit, String sortKey, boolean ascending) {
+        ObservableList<Visitor> visitors = FXCollections.observableArrayList();
+        String columns = PAGE_SORT_COLUMNS.getOrDefault(sortKey, "last_name, first_name");
+
+        String sql = "SELECT " + LIST_COLUMNS + " FROM (SELECT visitor_id FROM visitors " +
+                "ORDER BY " + PageSql.orderBy("", columns, "visitor_id", ascending) + " " +
+                "LIMIT ?, ?) page " +
+                "JOIN visitors v ON v.visitor_id = page.visitor_id " +
+                "ORDER BY " + PageSql.orderBy("v", columns, "visitor_id", ascending);
+
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, offset);
+            stmt.setInt(2, limit);
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                visitors.add(extractVisitorFromResultSet(rs, false));
+            }
+
+        } catch (SQLException e) {
+            System.err.println("Ошибка получения страницы посетителей: " + e.getMessage());
+        }
+
+        return visitors;
+    }
+
+    /**
+     * Активные посетители, у которых фамилия, email или телефон начинаются с префикса
+     * (для подсказок). Каждая ветка UNION идёт по своему индексу
+     */
+    public ObservableList<Visitor> findActiveVisitorsByPrefix(String prefix, int limit) {
+        ObservableList<Visitor> visitors = FXCollections.observableArrayList();
+        String sql = "SELECT " + LIST_COLUMNS + " FROM (" +
+                "(SELECT visitor_id FROM visitors WHERE last_name LIKE ? AND status = 'active' " +
+                "ORDER BY last_name, first_name LIMIT ?) " +
+                "UNION (SELECT visitor_id FROM visitors WHERE email LIKE ? AND status = 'active' LIMIT ?) " +
+                "UNION (SELECT visitor_id FROM visitors WHERE phone LIKE ? AND status = 'active' LIMIT ?)) m " +
+                "JOIN visitors v ON v.visitor_id = m.visitor_id " +
+                "ORDER BY v.last_name, v.first_name, v.visitor_id LIMIT ?";
+
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            String pattern = LikePatterns.prefix(prefix);
+            for (int i = 1; i <= 5; i += 2) {
+                stmt.setString(i, pattern);
+                stmt.setInt(i + 1, limit);
+            }
+            stmt.setInt(7, limit);
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                visitors.add(extractVisitorFromResultSet(rs, false));
+            }
+
+        } catch (SQLException e) {
+            System.err.println("Ошибка поиска посетителей по префиксу: " + e.getMessage());
+        }
+
+        return visitors;
+    }
+
+    /**
+     * Получить посетителя по ID (через кэш)
      */
     public Visitor getVisitorById(int visitorId) {
+        return cache.get(visitorId, this::loadVisitorById);
+    }
+
+    private Visitor loadVisitorById(int visitorId) {
         String sql = "SELECT * FROM visitors WHERE visitor_id = ?";
 
         try (Connection conn = DatabaseConnection.getConnection();
@@ -47,7 +156,7 @@ public class VisitorDAO {
             ResultSet rs = stmt.executeQuery();
 
             if (rs.next()) {
-                return extractVisitorFromResultSet(rs);
+                return extractVisitorFromResultSet(rs, true);
             }
 
         } catch (SQLException e) {
@@ -59,8 +168,9 @@ public class VisitorDAO {
 
     /**
      * Добавить посетителя
+     * @return посетитель с присвоенным ID или null при ошибке
      */
-    public boolean addVisitor(Visitor visitor) {
+    public Visitor addVisitor(Visitor visitor) {
         String sql = "INSERT INTO visitors (first_name, last_name, email, phone, address, " +
                 "registration_date, birth_date, status) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
 
@@ -85,7 +195,7 @@ public class VisitorDAO {
                 if (generatedKeys.next()) {
                     visitor.setVisitorId(generatedKeys.getInt(1));
                 }
-                return true;
+                return visitor;
             }
 
         } catch (SQLException e) {
@@ -93,13 +203,14 @@ public class VisitorDAO {
             e.printStackTrace();
         }
 
-        return false;
+        return null;
     }
 
     /**
      * Обновить посетителя
+     * @return обновлённый посетитель или null при ошибке
      */
-    public boolean updateVisitor(Visitor visitor) {
+    public Visitor updateVisitor(Visitor visitor) {
         String sql = "UPDATE visitors SET first_name = ?, last_name = ?, email = ?, " +
                 "phone = ?, address = ?, birth_date = ?, status = ? WHERE visitor_id = ?";
 
@@ -116,14 +227,18 @@ public class VisitorDAO {
             stmt.setString(7, visitor.getStatus());
             stmt.setInt(8, visitor.getVisitorId());
 
-            return stmt.executeUpdate() > 0;
+            if (stmt.executeUpdate() == 0) {
+                return null;
+            }
+            cache.invalidate(visitor.getVisitorId());
+            return visitor;
 
         } catch (SQLException e) {
             System.err.println("Ошибка обновления посетителя: " + e.getMessage());
             e.printStackTrace();
         }
 
-        return false;
+        return null;
     }
 
     /**
@@ -136,7 +251,11 @@ public class VisitorDAO {
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setInt(1, visitorId);
-            return stmt.executeUpdate() > 0;
+            boolean deleted = stmt.executeUpdate() > 0;
+            if (deleted) {
+                cache.invalidate(visitorId);
+            }
+            return deleted;
 
         } catch (SQLException e) {
             System.err.println("Ошибка удаления посетителя: " + e.getMessage());
@@ -150,12 +269,19 @@ public class VisitorDAO {
      * Поиск посетителей
      */
     public ObservableList<Visitor> searchVisitors(String keyword) {
+        return searchVisitors(keyword, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Поиск посетителей с ограничением количества результатов
+     */
+    public ObservableList<Visitor> searchVisitors(String keyword, int limit) {
         ObservableList<Visitor> visitors = FXCollections.observableArrayList();
-        String sql = "SELECT * FROM visitors WHERE " +
+        String sql = "SELECT " + LIST_COLUMNS + " FROM visitors v WHERE " +
                 "first_name LIKE ? OR last_name LIKE ? OR email LIKE ? OR phone LIKE ? " +
-                "ORDER BY last_name, first_name";
+                "ORDER BY last_name, first_name LIMIT ?";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             String searchPattern = "%" + keyword + "%";
@@ -163,11 +289,12 @@ public class VisitorDAO {
             stmt.setString(2, searchPattern);
             stmt.setString(3, searchPattern);
             stmt.setString(4, searchPattern);
+            stmt.setInt(5, limit);
 
             ResultSet rs = stmt.executeQuery();
 
             while (rs.next()) {
-                visitors.add(extractVisitorFromResultSet(rs));
+                visitors.add(extractVisitorFromResultSet(rs, false));
             }
 
         } catch (SQLException e) {
@@ -182,14 +309,14 @@ public class VisitorDAO {
      */
     public ObservableList<Visitor> getActiveVisitors() {
         ObservableList<Visitor> visitors = FXCollections.observableArrayList();
-        String sql = "SELECT * FROM visitors WHERE status = 'active' ORDER BY last_name, first_name";
+        String sql = "SELECT " + LIST_COLUMNS + " FROM visitors v WHERE status = 'active' ORDER BY last_name, first_name";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
             while (rs.next()) {
-                visitors.add(extractVisitorFromResultSet(rs));
+                visitors.add(extractVisitorFromResultSet(rs, false));
             }
 
         } catch (SQLException e) {
@@ -200,19 +327,53 @@ public class VisitorDAO {
     }
 
     /**
-     * Создать объект Visitor из ResultSet
+     * Сбросить кэш записи (изменение на другом рабочем месте)
+     */
+    static void invalidateCached(int visitorId) {
+        cache.invalidate(visitorId);
+    }
+
+    private static Visitor copyOf(Visitor visitor) {
+        Visitor copy = new Visitor();
+        copy.setVisitorId(visitor.getVisitorId());
+        copy.copyFrom(visitor);
+        return copy;
+    }
+
+    /**
+     * Изменения посетителей после курсора (строки без address, как в списках)
+     * @param cursor курсор предыдущего запроса или ChangeTracking.currentCursor() после полной загрузки
+     * @return изменения или null при ошибке
+     */
+    public ChangeSet<Visitor> getChangedSince(long cursor) {
+        String sql = "SELECT " + LIST_COLUMNS + " FROM visitors v " +
+                "WHERE v.change_seq > ? AND v.change_seq <= ? " +
+                "ORDER BY v.change_seq";
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return ChangeTracking.load(conn, "visitors", sql, cursor, rs -> extractVisitorFromResultSet(rs, false));
+        } catch (SQLException e) {
+            System.err.println("Ошибка получения изменений посетителей: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        return null;
+    }
+
+    /**
+     * Создать объект Visitor из ResultSet (detail - запрос выбрал и TEXT-колонку)
      */
-    private Visitor extractVisitorFromResultSet(ResultSet rs) throws SQLException {
+    private Visitor extractVisitorFromResultSet(ResultSet rs, boolean detail) throws SQLException {
         Date regDate = rs.getDate("registration_date");
         Date birthDate = rs.getDate("birth_date");
 
         return new Visitor(
                 rs.getInt("visitor_id"),
-                rs.getString("first_name"),
+                StringPool.canonical(rs.getString("first_name")),
                 rs.getString("last_name"),
                 rs.getString("email"),
                 rs.getString("phone"),
-                rs.getString("address"),
+                detail ? rs.getString("address") : null,
                 regDate != null ? regDate.toLocalDate() : null,
                 birthDate != null ? birthDate.toLocalDate() : null,
                 rs.getString("status")
@@ -0,0 +1,76 @@
+package com.libtrack.dao;
+
+import com.libtrack.model.Visitor;
+import javafx.collections.ObservableList;
+
+/**
+ * Хранилище посетителей. Реализации: VisitorDAO (MySQL или встроенная H2)
+ */
+public interface VisitorRepository {
+
+    /**
+     * Получить всех посетителей
+     */
+    ObservableList<Visitor> getAllVisitors();
+
+    /**
+     * Получить количество посетителей
+     */
+    int countVisitors();
+
+    /**
+     * Получить страницу посетителей
+     * @param sortKey ключ из PAGE_SORT_COLUMNS, null - по фамилии и имени
+     */
+    ObservableList<Visitor> getVisitorsPage(int offset, int limit, String sortKey, boolean ascending);
+
+    /**
+     * Активные посетители, у которых фамилия, email или телефон начинаются с префикса
+     * (для подсказок)
+     */
+    ObservableList<Visitor> findActiveVisitorsByPrefix(String prefix, int limit);
+
+    /**
+     * Получить посетителя по ID (через кэш)
+     */
+    Visitor getVisitorById(int visitorId);
+
+    /**
+     * Добавить посетителя
+     * @return посетитель с присвоенным ID или null при ошибке
+     */
+    Visitor addVisitor(Visitor visitor);
+
+    /**
+     * Обновить посетителя
+     * @return обновлённый посетитель или null при ошибке
+     */
+    Visitor updateVisitor(Visitor visitor);
+
+    /**
+     * Удалить посетителя
+     */
+    boolean deleteVisitor(int visitorId);
+
+    /**
+     * Поиск посетителей
+     */
+    ObservableList<Visitor> searchVisitors(String keyword);
+
+    /**
+     * Поиск посетителей с ограничением количества результатов
+     */
+    ObservableList<Visitor> searchVisitors(String keyword, int limit);
+
+    /**
+     * Получить активных посетителей
+     */
+    ObservableList<Visitor> getActiveVisitors();
+
+    /**
+     * Изменения посетителей после курсора (строки без address, как в списках)
+     * @param cursor курсор предыдущего запроса или ChangeTracking.currentCursor() после полной загрузки
+     * @return изменения или null при ошибке
+     */
+    ChangeSet<Visitor> getChangedSince(long cursor);
+}
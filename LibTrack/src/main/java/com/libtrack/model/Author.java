@@ -7,12 +7,21 @@ import javafx.beans.property.*;
  */
 public class Author {
 
-    private final IntegerProperty authorId;
-    private final StringProperty firstName;
-    private final StringProperty lastName;
-    private final StringProperty biography;
-    private final IntegerProperty birthYear;
-    private final StringProperty country;
+    private int authorId;
+    private String firstName;
+    private String lastName;
+    private String biography;
+    private int birthYear;
+    private String country;
+
+    // JavaFX-свойства создаются при первом обращении (ячейка таблицы, привязка);
+    // до этого значение хранится в обычном поле
+    private IntegerProperty authorIdProperty;
+    private StringProperty firstNameProperty;
+    private StringProperty lastNameProperty;
+    private StringProperty biographyProperty;
+    private IntegerProperty birthYearProperty;
+    private StringProperty countryProperty;
 
     public Author() {
         this(0, "", "", "", 0, "");
@@ -20,45 +29,122 @@ public class Author {
 
     public Author(int authorId, String firstName, String lastName,
                   String biography, int birthYear, String country) {
-        this.authorId = new SimpleIntegerProperty(authorId);
-        this.firstName = new SimpleStringProperty(firstName);
-        this.lastName = new SimpleStringProperty(lastName);
-        this.biography = new SimpleStringProperty(biography);
-        this.birthYear = new SimpleIntegerProperty(birthYear);
-        this.country = new SimpleStringProperty(country);
+        this.authorId = authorId;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.biography = biography;
+        this.birthYear = birthYear;
+        this.country = country;
     }
 
     // Геттеры и сеттеры
 
-    public int getAuthorId() { return authorId.get(); }
-    public void setAuthorId(int value) { authorId.set(value); }
-    public IntegerProperty authorIdProperty() { return authorId; }
+    public int getAuthorId() { return authorIdProperty != null ? authorIdProperty.get() : authorId; }
+    public void setAuthorId(int value) {
+        if (authorIdProperty != null) {
+            authorIdProperty.set(value);
+        } else {
+            authorId = value;
+        }
+    }
+    public IntegerProperty authorIdProperty() {
+        if (authorIdProperty == null) {
+            authorIdProperty = new SimpleIntegerProperty(this, "authorId", authorId);
+        }
+        return authorIdProperty;
+    }
 
-    public String getFirstName() { return firstName.get(); }
-    public void setFirstName(String value) { firstName.set(value); }
-    public StringProperty firstNameProperty() { return firstName; }
+    public String getFirstName() { return firstNameProperty != null ? firstNameProperty.get() : firstName; }
+    public void setFirstName(String value) {
+        if (firstNameProperty != null) {
+            firstNameProperty.set(value);
+        } else {
+            firstName = value;
+        }
+    }
+    public StringProperty firstNameProperty() {
+        if (firstNameProperty == null) {
+            firstNameProperty = new SimpleStringProperty(this, "firstName", firstName);
+        }
+        return firstNameProperty;
+    }
 
-    public String getLastName() { return lastName.get(); }
-    public void setLastName(String value) { lastName.set(value); }
-    public StringProperty lastNameProperty() { return lastName; }
+    public String getLastName() { return lastNameProperty != null ? lastNameProperty.get() : lastName; }
+    public void setLastName(String value) {
+        if (lastNameProperty != null) {
+            lastNameProperty.set(value);
+        } else {
+            lastName = value;
+        }
+    }
+    public StringProperty lastNameProperty() {
+        if (lastNameProperty == null) {
+            lastNameProperty = new SimpleStringProperty(this, "lastName", lastName);
+        }
+        return lastNameProperty;
+    }
 
-    public String getBiography() { return biography.get(); }
-    public void setBiography(String value) { biography.set(value); }
-    public StringProperty biographyProperty() { return biography; }
+    public String getBiography() { return biographyProperty != null ? biographyProperty.get() : biography; }
+    public void setBiography(String value) {
+        if (biographyProperty != null) {
+            biographyProperty.set(value);
+        } else {
+            biography = value;
+        }
+    }
+    public StringProperty biographyProperty() {
+        if (biographyProperty == null) {
+            biographyProperty = new SimpleStringProperty(this, "biography", biography);
+        }
+        return biographyProperty;
+    }
 
-    public Integer getBirthYear() { return birthYear.get(); }
-    public void setBirthYear(int value) { birthYear.set(value); }
-    public IntegerProperty birthYearProperty() { return birthYear; }
+    public Integer getBirthYear() { return birthYearProperty != null ? birthYearProperty.get() : birthYear; }
+    public void setBirthYear(int value) {
+        if (birthYearProperty != null) {
+            birthYearProperty.set(value);
+        } else {
+            birthYear = value;
+        }
+    }
+    public IntegerProperty birthYearProperty() {
+        if (birthYearProperty == null) {
+            birthYearProperty = new SimpleIntegerProperty(this, "birthYear", birthYear);
+        }
+        return birthYearProperty;
+    }
 
-    public String getCountry() { return country.get(); }
-    public void setCountry(String value) { country.set(value); }
-    public StringProperty countryProperty() { return country; }
+    public String getCountry() { return countryProperty != null ? countryProperty.get() : country; }
+    public void setCountry(String value) {
+        if (countryProperty != null) {
+            countryProperty.set(value);
+        } else {
+            country = value;
+        }
+    }
+    public StringProperty countryProperty() {
+        if (countryProperty == null) {
+            countryProperty = new SimpleStringProperty(this, "country", country);
+        }
+        return countryProperty;
+    }
 
     /**
      * Полное имя автора
      */
     public String getFullName() {
-        return firstName.get() + " " + lastName.get();
+        return getFirstName() + " " + getLastName();
+    }
+
+    /**
+     * Скопировать значения из свежей копии записи (обновление строки таблицы на месте)
+     */
+    public void copyFrom(Author other) {
+        setFirstName(other.getFirstName());
+        setLastName(other.getLastName());
+        setBiography(other.getBiography());
+        setBirthYear(other.getBirthYear());
+        setCountry(other.getCountry());
     }
 
     @Override
@@ -5,18 +5,33 @@ import javafx.beans.property.*;
 
 public class Book {
 
-    private final IntegerProperty bookId;
-    private final StringProperty isbn;
-    private final StringProperty title;
-    private final IntegerProperty authorId;
-    private final StringProperty authorName; // Для отображения
-    private final StringProperty genre;
-    private final StringProperty publisher;
-    private final IntegerProperty publicationYear;
-    private final IntegerProperty pages;
-    private final IntegerProperty copiesTotal;
-    private final IntegerProperty copiesAvailable;
-    private final StringProperty description;
+    private int bookId;
+    private String isbn;
+    private String title;
+    private int authorId;
+    private String authorName; // Для отображения
+    private String genre;
+    private String publisher;
+    private int publicationYear;
+    private int pages;
+    private int copiesTotal;
+    private int copiesAvailable;
+    private String description;
+
+    // JavaFX-свойства создаются при первом обращении (ячейка таблицы, привязка);
+    // до этого значение хранится в обычном поле
+    private IntegerProperty bookIdProperty;
+    private StringProperty isbnProperty;
+    private StringProperty titleProperty;
+    private IntegerProperty authorIdProperty;
+    private StringProperty authorNameProperty;
+    private StringProperty genreProperty;
+    private StringProperty publisherProperty;
+    private IntegerProperty publicationYearProperty;
+    private IntegerProperty pagesProperty;
+    private IntegerProperty copiesTotalProperty;
+    private IntegerProperty copiesAvailableProperty;
+    private StringProperty descriptionProperty;
 
     public Book() {
         this(0, "", "", 0, "", "", "", 0, 0, 0, 0, "");
@@ -26,72 +41,204 @@ public class Book {
                 String authorName, String genre, String publisher,
                 int publicationYear, int pages, int copiesTotal,
                 int copiesAvailable, String description) {
-        this.bookId = new SimpleIntegerProperty(bookId);
-        this.isbn = new SimpleStringProperty(isbn);
-        this.title = new SimpleStringProperty(title);
-        this.authorId = new SimpleIntegerProperty(authorId);
-        this.authorName = new SimpleStringProperty(authorName);
-        this.genre = new SimpleStringProperty(genre);
-        this.publisher = new SimpleStringProperty(publisher);
-        this.publicationYear = new SimpleIntegerProperty(publicationYear);
-        this.pages = new SimpleIntegerProperty(pages);
-        this.copiesTotal = new SimpleIntegerProperty(copiesTotal);
-        this.copiesAvailable = new SimpleIntegerProperty(copiesAvailable);
-        this.description = new SimpleStringProperty(description);
+        this.bookId = bookId;
+        this.isbn = isbn;
+        this.title = title;
+        this.authorId = authorId;
+        this.authorName = authorName;
+        this.genre = genre;
+        this.publisher = publisher;
+        this.publicationYear = publicationYear;
+        this.pages = pages;
+        this.copiesTotal = copiesTotal;
+        this.copiesAvailable = copiesAvailable;
+        this.description = description;
     }
 
 
-    public int getBookId() { return bookId.get(); }
-    public void setBookId(int value) { bookId.set(value); }
-    public IntegerProperty bookIdProperty() { return bookId; }
+    public int getBookId() { return bookIdProperty != null ? bookIdProperty.get() : bookId; }
+    public void setBookId(int value) {
+        if (bookIdProperty != null) {
+            bookIdProperty.set(value);
+        } else {
+            bookId = value;
+        }
+    }
+    public IntegerProperty bookIdProperty() {
+        if (bookIdProperty == null) {
+            bookIdProperty = new SimpleIntegerProperty(this, "bookId", bookId);
+        }
+        return bookIdProperty;
+    }
 
-    public String getIsbn() { return isbn.get(); }
-    public void setIsbn(String value) { isbn.set(value); }
-    public StringProperty isbnProperty() { return isbn; }
+    public String getIsbn() { return isbnProperty != null ? isbnProperty.get() : isbn; }
+    public void setIsbn(String value) {
+        if (isbnProperty != null) {
+            isbnProperty.set(value);
+        } else {
+            isbn = value;
+        }
+    }
+    public StringProperty isbnProperty() {
+        if (isbnProperty == null) {
+            isbnProperty = new SimpleStringProperty(this, "isbn", isbn);
+        }
+        return isbnProperty;
+    }
 
-    public String getTitle() { return title.get(); }
-    public void setTitle(String value) { title.set(value); }
-    public StringProperty titleProperty() { return title; }
+    public String getTitle() { return titleProperty != null ? titleProperty.get() : title; }
+    public void setTitle(String value) {
+        if (titleProperty != null) {
+            titleProperty.set(value);
+        } else {
+            title = value;
+        }
+    }
+    public StringProperty titleProperty() {
+        if (titleProperty == null) {
+            titleProperty = new SimpleStringProperty(this, "title", title);
+        }
+        return titleProperty;
+    }
 
-    public int getAuthorId() { return authorId.get(); }
-    public void setAuthorId(int value) { authorId.set(value); }
-    public IntegerProperty authorIdProperty() { return authorId; }
+    public int getAuthorId() { return authorIdProperty != null ? authorIdProperty.get() : authorId; }
+    public void setAuthorId(int value) {
+        if (authorIdProperty != null) {
+            authorIdProperty.set(value);
+        } else {
+            authorId = value;
+        }
+    }
+    public IntegerProperty authorIdProperty() {
+        if (authorIdProperty == null) {
+            authorIdProperty = new SimpleIntegerProperty(this, "authorId", authorId);
+        }
+        return authorIdProperty;
+    }
 
-    public String getAuthorName() { return authorName.get(); }
-    public void setAuthorName(String value) { authorName.set(value); }
-    public StringProperty authorNameProperty() { return authorName; }
+    public String getAuthorName() { return authorNameProperty != null ? authorNameProperty.get() : authorName; }
+    public void setAuthorName(String value) {
+        if (authorNameProperty != null) {
+            authorNameProperty.set(value);
+        } else {
+            authorName = value;
+        }
+    }
+    public StringProperty authorNameProperty() {
+        if (authorNameProperty == null) {
+            authorNameProperty = new SimpleStringProperty(this, "authorName", authorName);
+        }
+        return authorNameProperty;
+    }
 
-    public String getGenre() { return genre.get(); }
-    public void setGenre(String value) { genre.set(value); }
-    public StringProperty genreProperty() { return genre; }
+    public String getGenre() { return genreProperty != null ? genreProperty.get() : genre; }
+    public void setGenre(String value) {
+        if (genreProperty != null) {
+            genreProperty.set(value);
+        } else {
+            genre = value;
+        }
+    }
+    public StringProperty genreProperty() {
+        if (genreProperty == null) {
+            genreProperty = new SimpleStringProperty(this, "genre", genre);
+        }
+        return genreProperty;
+    }
 
-    public String getPublisher() { return publisher.get(); }
-    public void setPublisher(String value) { publisher.set(value); }
-    public StringProperty publisherProperty() { return publisher; }
+    public String getPublisher() { return publisherProperty != null ? publisherProperty.get() : publisher; }
+    public void setPublisher(String value) {
+        if (publisherProperty != null) {
+            publisherProperty.set(value);
+        } else {
+            publisher = value;
+        }
+    }
+    public StringProperty publisherProperty() {
+        if (publisherProperty == null) {
+            publisherProperty = new SimpleStringProperty(this, "publisher", publisher);
+        }
+        return publisherProperty;
+    }
 
-    public int getPublicationYear() { return publicationYear.get(); }
-    public void setPublicationYear(int value) { publicationYear.set(value); }
-    public IntegerProperty publicationYearProperty() { return publicationYear; }
+    public int getPublicationYear() { return publicationYearProperty != null ? publicationYearProperty.get() : publicationYear; }
+    public void setPublicationYear(int value) {
+        if (publicationYearProperty != null) {
+            publicationYearProperty.set(value);
+        } else {
+            publicationYear = value;
+        }
+    }
+    public IntegerProperty publicationYearProperty() {
+        if (publicationYearProperty == null) {
+            publicationYearProperty = new SimpleIntegerProperty(this, "publicationYear", publicationYear);
+        }
+        return publicationYearProperty;
+    }
 
-    public int getPages() { return pages.get(); }
-    public void setPages(int value) { pages.set(value); }
-    public IntegerProperty pagesProperty() { return pages; }
+    public int getPages() { return pagesProperty != null ? pagesProperty.get() : pages; }
+    public void setPages(int value) {
+        if (pagesProperty != null) {
+            pagesProperty.set(value);
+        } else {
+            pages = value;
+        }
+    }
+    public IntegerProperty pagesProperty() {
+        if (pagesProperty == null) {
+            pagesProperty = new SimpleIntegerProperty(this, "pages", pages);
+        }
+        return pagesProperty;
+    }
 
-    public int getCopiesTotal() { return copiesTotal.get(); }
-    public void setCopiesTotal(int value) { copiesTotal.set(value); }
-    public IntegerProperty copiesTotalProperty() { return copiesTotal; }
+    public int getCopiesTotal() { return copiesTotalProperty != null ? copiesTotalProperty.get() : copiesTotal; }
+    public void setCopiesTotal(int value) {
+        if (copiesTotalProperty != null) {
+            copiesTotalProperty.set(value);
+        } else {
+            copiesTotal = value;
+        }
+    }
+    public IntegerProperty copiesTotalProperty() {
+        if (copiesTotalProperty == null) {
+            copiesTotalProperty = new SimpleIntegerProperty(this, "copiesTotal", copiesTotal);
+        }
+        return copiesTotalProperty;
+    }
 
-    public int getCopiesAvailable() { return copiesAvailable.get(); }
-    public void setCopiesAvailable(int value) { copiesAvailable.set(value); }
-    public IntegerProperty copiesAvailableProperty() { return copiesAvailable; }
+    public int getCopiesAvailable() { return copiesAvailableProperty != null ? copiesAvailableProperty.get() : copiesAvailable; }
+    public void setCopiesAvailable(int value) {
+        if (copiesAvailableProperty != null) {
+            copiesAvailableProperty.set(value);
+        } else {
+            copiesAvailable = value;
+        }
+    }
+    public IntegerProperty copiesAvailableProperty() {
+        if (copiesAvailableProperty == null) {
+            copiesAvailableProperty = new SimpleIntegerProperty(this, "copiesAvailable", copiesAvailable);
+        }
+        return copiesAvailableProperty;
+    }
 
-    public String getDescription() { return description.get(); }
-    public void setDescription(String value) { description.set(value); }
-    public StringProperty descriptionProperty() { return description; }
+    public String getDescription() { return descriptionProperty != null ? descriptionProperty.get() : description; }
+    public void setDescription(String value) {
+        if (descriptionProperty != null) {
+            descriptionProperty.set(value);
+        } else {
+            description = value;
+        }
+    }
+    public StringProperty descriptionProperty() {
+        if (descriptionProperty == null) {
+            descriptionProperty = new SimpleStringProperty(this, "description", description);
+        }
+        return descriptionProperty;
+    }
 
 
     public boolean isAvailable() {
-        return copiesAvailable.get() > 0;
+        return getCopiesAvailable() > 0;
     }
 
 
@@ -99,8 +246,25 @@ public class Book {
         return isAvailable() ? "Доступна" : "Занята";
     }
 
+    /**
+     * Скопировать значения из свежей копии записи (обновление строки таблицы на месте)
+     */
+    public void copyFrom(Book other) {
+        setIsbn(other.getIsbn());
+        setTitle(other.getTitle());
+        setAuthorId(other.getAuthorId());
+        setAuthorName(other.getAuthorName());
+        setGenre(other.getGenre());
+        setPublisher(other.getPublisher());
+        setPublicationYear(other.getPublicationYear());
+        setPages(other.getPages());
+        setCopiesTotal(other.getCopiesTotal());
+        setCopiesAvailable(other.getCopiesAvailable());
+        setDescription(other.getDescription());
+    }
+
     @Override
     public String toString() {
-        return title.get() + " - " + authorName.get();
+        return getTitle() + " - " + getAuthorName();
     }
 }
\ No newline at end of file
@@ -8,19 +8,33 @@ import java.time.LocalDate;
  */
 public class Loan {
 
-    private final IntegerProperty loanId;
-    private final IntegerProperty bookId;
-    private final IntegerProperty visitorId;
-    private final ObjectProperty<LocalDate> loanDate;
-    private final ObjectProperty<LocalDate> dueDate;
-    private final ObjectProperty<LocalDate> returnDate;
-    private final StringProperty status;
-    private final DoubleProperty fineAmount;
-    private final StringProperty notes;
+    private int loanId;
+    private int bookId;
+    private int visitorId;
+    private LocalDate loanDate;
+    private LocalDate dueDate;
+    private LocalDate returnDate;
+    private LoanStatus status;
+    private double fineAmount;
+    private String notes;
 
     // Дополнительные поля для отображения
-    private final StringProperty bookTitle;
-    private final StringProperty visitorName;
+    private String bookTitle;
+    private String visitorName;
+
+    // JavaFX-свойства создаются при первом обращении (ячейка таблицы, привязка);
+    // до этого значение хранится в обычном поле
+    private IntegerProperty loanIdProperty;
+    private IntegerProperty bookIdProperty;
+    private IntegerProperty visitorIdProperty;
+    private ObjectProperty<LocalDate> loanDateProperty;
+    private ObjectProperty<LocalDate> dueDateProperty;
+    private ObjectProperty<LocalDate> returnDateProperty;
+    private ObjectProperty<LoanStatus> statusProperty;
+    private DoubleProperty fineAmountProperty;
+    private StringProperty notesProperty;
+    private StringProperty bookTitleProperty;
+    private StringProperty visitorNameProperty;
 
     public Loan() {
         this(0, 0, 0, null, null, null, "active", 0.0, "", "", "");
@@ -30,73 +44,209 @@ public class Loan {
                 LocalDate loanDate, LocalDate dueDate, LocalDate returnDate,
                 String status, double fineAmount, String notes,
                 String bookTitle, String visitorName) {
-        this.loanId = new SimpleIntegerProperty(loanId);
-        this.bookId = new SimpleIntegerProperty(bookId);
-        this.visitorId = new SimpleIntegerProperty(visitorId);
-        this.loanDate = new SimpleObjectProperty<>(loanDate);
-        this.dueDate = new SimpleObjectProperty<>(dueDate);
-        this.returnDate = new SimpleObjectProperty<>(returnDate);
-        this.status = new SimpleStringProperty(status);
-        this.fineAmount = new SimpleDoubleProperty(fineAmount);
-        this.notes = new SimpleStringProperty(notes);
-        this.bookTitle = new SimpleStringProperty(bookTitle);
-        this.visitorName = new SimpleStringProperty(visitorName);
+        this.loanId = loanId;
+        this.bookId = bookId;
+        this.visitorId = visitorId;
+        this.loanDate = loanDate;
+        this.dueDate = dueDate;
+        this.returnDate = returnDate;
+        this.status = LoanStatus.fromCode(status);
+        this.fineAmount = fineAmount;
+        this.notes = notes;
+        this.bookTitle = bookTitle;
+        this.visitorName = visitorName;
     }
 
     // Геттеры и сеттеры
 
-    public int getLoanId() { return loanId.get(); }
-    public void setLoanId(int value) { loanId.set(value); }
-    public IntegerProperty loanIdProperty() { return loanId; }
+    public int getLoanId() { return loanIdProperty != null ? loanIdProperty.get() : loanId; }
+    public void setLoanId(int value) {
+        if (loanIdProperty != null) {
+            loanIdProperty.set(value);
+        } else {
+            loanId = value;
+        }
+    }
+    public IntegerProperty loanIdProperty() {
+        if (loanIdProperty == null) {
+            loanIdProperty = new SimpleIntegerProperty(this, "loanId", loanId);
+        }
+        return loanIdProperty;
+    }
 
-    public int getBookId() { return bookId.get(); }
-    public void setBookId(int value) { bookId.set(value); }
-    public IntegerProperty bookIdProperty() { return bookId; }
+    public int getBookId() { return bookIdProperty != null ? bookIdProperty.get() : bookId; }
+    public void setBookId(int value) {
+        if (bookIdProperty != null) {
+            bookIdProperty.set(value);
+        } else {
+            bookId = value;
+        }
+    }
+    public IntegerProperty bookIdProperty() {
+        if (bookIdProperty == null) {
+            bookIdProperty = new SimpleIntegerProperty(this, "bookId", bookId);
+        }
+        return bookIdProperty;
+    }
 
-    public int getVisitorId() { return visitorId.get(); }
-    public void setVisitorId(int value) { visitorId.set(value); }
-    public IntegerProperty visitorIdProperty() { return visitorId; }
+    public int getVisitorId() { return visitorIdProperty != null ? visitorIdProperty.get() : visitorId; }
+    public void setVisitorId(int value) {
+        if (visitorIdProperty != null) {
+            visitorIdProperty.set(value);
+        } else {
+            visitorId = value;
+        }
+    }
+    public IntegerProperty visitorIdProperty() {
+        if (visitorIdProperty == null) {
+            visitorIdProperty = new SimpleIntegerProperty(this, "visitorId", visitorId);
+        }
+        return visitorIdProperty;
+    }
 
-    public LocalDate getLoanDate() { return loanDate.get(); }
-    public void setLoanDate(LocalDate value) { loanDate.set(value); }
-    public ObjectProperty<LocalDate> loanDateProperty() { return loanDate; }
+    public LocalDate getLoanDate() { return loanDateProperty != null ? loanDateProperty.get() : loanDate; }
+    public void setLoanDate(LocalDate value) {
+        if (loanDateProperty != null) {
+            loanDateProperty.set(value);
+        } else {
+            loanDate = value;
+        }
+    }
+    public ObjectProperty<LocalDate> loanDateProperty() {
+        if (loanDateProperty == null) {
+            loanDateProperty = new SimpleObjectProperty<>(this, "loanDate", loanDate);
+        }
+        return loanDateProperty;
+    }
+
+    public LocalDate getDueDate() { return dueDateProperty != null ? dueDateProperty.get() : dueDate; }
+    public void setDueDate(LocalDate value) {
+        if (dueDateProperty != null) {
+            dueDateProperty.set(value);
+        } else {
+            dueDate = value;
+        }
+    }
+    public ObjectProperty<LocalDate> dueDateProperty() {
+        if (dueDateProperty == null) {
+            dueDateProperty = new SimpleObjectProperty<>(this, "dueDate", dueDate);
+        }
+        return dueDateProperty;
+    }
+
+    public LocalDate getReturnDate() { return returnDateProperty != null ? returnDateProperty.get() : returnDate; }
+    public void setReturnDate(LocalDate value) {
+        if (returnDateProperty != null) {
+            returnDateProperty.set(value);
+        } else {
+            returnDate = value;
+        }
+    }
+    public ObjectProperty<LocalDate> returnDateProperty() {
+        if (returnDateProperty == null) {
+            returnDateProperty = new SimpleObjectProperty<>(this, "returnDate", returnDate);
+        }
+        return returnDateProperty;
+    }
 
-    public LocalDate getDueDate() { return dueDate.get(); }
-    public void setDueDate(LocalDate value) { dueDate.set(value); }
-    public ObjectProperty<LocalDate> dueDateProperty() { return dueDate; }
+    public LoanStatus getLoanStatus() { return statusProperty != null ? statusProperty.get() : status; }
+    public void setLoanStatus(LoanStatus value) {
+        if (statusProperty != null) {
+            statusProperty.set(value);
+        } else {
+            status = value;
+        }
+    }
+    public ObjectProperty<LoanStatus> statusProperty() {
+        if (statusProperty == null) {
+            statusProperty = new SimpleObjectProperty<>(this, "status", status);
+        }
+        return statusProperty;
+    }
 
-    public LocalDate getReturnDate() { return returnDate.get(); }
-    public void setReturnDate(LocalDate value) { returnDate.set(value); }
-    public ObjectProperty<LocalDate> returnDateProperty() { return returnDate; }
+    // Строковое значение статуса как в БД
+    public String getStatus() {
+        LoanStatus value = getLoanStatus();
+        return value != null ? value.getCode() : null;
+    }
+    public void setStatus(String value) { setLoanStatus(LoanStatus.fromCode(value)); }
 
-    public String getStatus() { return status.get(); }
-    public void setStatus(String value) { status.set(value); }
-    public StringProperty statusProperty() { return status; }
+    public double getFineAmount() { return fineAmountProperty != null ? fineAmountProperty.get() : fineAmount; }
+    public void setFineAmount(double value) {
+        if (fineAmountProperty != null) {
+            fineAmountProperty.set(value);
+        } else {
+            fineAmount = value;
+        }
+    }
+    public DoubleProperty fineAmountProperty() {
+        if (fineAmountProperty == null) {
+            fineAmountProperty = new SimpleDoubleProperty(this, "fineAmount", fineAmount);
+        }
+        return fineAmountProperty;
+    }
 
-    public double getFineAmount() { return fineAmount.get(); }
-    public void setFineAmount(double value) { fineAmount.set(value); }
-    public DoubleProperty fineAmountProperty() { return fineAmount; }
+    public String getNotes() { return notesProperty != null ? notesProperty.get() : notes; }
+    public void setNotes(String value) {
+        if (notesProperty != null) {
+            notesProperty.set(value);
+        } else {
+            notes = value;
+        }
+    }
+    public StringProperty notesProperty() {
+        if (notesProperty == null) {
+            notesProperty = new SimpleStringProperty(this, "notes", notes);
+        }
+        return notesProperty;
+    }
 
-    public String getNotes() { return notes.get(); }
-    public void setNotes(String value) { notes.set(value); }
-    public StringProperty notesProperty() { return notes; }
+    public String getBookTitle() { return bookTitleProperty != null ? bookTitleProperty.get() : bookTitle; }
+    public void setBookTitle(String value) {
+        if (bookTitleProperty != null) {
+            bookTitleProperty.set(value);
+        } else {
+            bookTitle = value;
+        }
+    }
+    public StringProperty bookTitleProperty() {
+        if (bookTitleProperty == null) {
+            bookTitleProperty = new SimpleStringProperty(this, "bookTitle", bookTitle);
+        }
+        return bookTitleProperty;
+    }
 
-    public String getBookTitle() { return bookTitle.get(); }
-    public void setBookTitle(String value) { bookTitle.set(value); }
-    public StringProperty bookTitleProperty() { return bookTitle; }
+    public String getVisitorName() { return visitorNameProperty != null ? visitorNameProperty.get() : visitorName; }
+    public void setVisitorName(String value) {
+        if (visitorNameProperty != null) {
+            visitorNameProperty.set(value);
+        } else {
+            visitorName = value;
+        }
+    }
+    public StringProperty visitorNameProperty() {
+        if (visitorNameProperty == null) {
+            visitorNameProperty = new SimpleStringProperty(this, "visitorName", visitorName);
+        }
+        return visitorNameProperty;
+    }
 
-    public String getVisitorName() { return visitorName.get(); }
-    public void setVisitorName(String value) { visitorName.set(value); }
-    public StringProperty visitorNameProperty() { return visitorName; }
+    /**
+     * Книга на руках (активная или просроченная выдача)
+     */
+    public boolean isActive() {
+        LoanStatus value = getLoanStatus();
+        return value == LoanStatus.ACTIVE || value == LoanStatus.OVERDUE;
+    }
 
     /**
      * Проверка просрочки
      */
     public boolean isOverdue() {
-        if (returnDate.get() != null) {
+        if (getReturnDate() != null) {
             return false; // Уже возвращено
         }
-        LocalDate due = dueDate.get();
+        LocalDate due = getDueDate();
         return due != null && LocalDate.now().isAfter(due);
     }
 
@@ -107,24 +257,40 @@ public class Loan {
         if (!isOverdue()) {
             return 0;
         }
-        return java.time.temporal.ChronoUnit.DAYS.between(dueDate.get(), LocalDate.now());
+        return java.time.temporal.ChronoUnit.DAYS.between(getDueDate(), LocalDate.now());
     }
 
     /**
      * Статус для отображения
      */
     public String getDisplayStatus() {
-        if ("returned".equals(status.get())) {
-            return "Возвращена";
+        if (getLoanStatus() == LoanStatus.RETURNED) {
+            return LoanStatus.RETURNED.getDisplayName();
         } else if (isOverdue()) {
-            return "Просрочена";
+            return LoanStatus.OVERDUE.getDisplayName();
         } else {
-            return "Активна";
+            return LoanStatus.ACTIVE.getDisplayName();
         }
     }
 
+    /**
+     * Скопировать значения из свежей копии записи (обновление строки таблицы на месте)
+     */
+    public void copyFrom(Loan other) {
+        setBookId(other.getBookId());
+        setVisitorId(other.getVisitorId());
+        setLoanDate(other.getLoanDate());
+        setDueDate(other.getDueDate());
+        setReturnDate(other.getReturnDate());
+        setLoanStatus(other.getLoanStatus());
+        setFineAmount(other.getFineAmount());
+        setNotes(other.getNotes());
+        setBookTitle(other.getBookTitle());
+        setVisitorName(other.getVisitorName());
+    }
+
     @Override
     public String toString() {
-        return bookTitle.get() + " - " + visitorName.get() + " (" + getDisplayStatus() + ")";
+        return getBookTitle() + " - " + getVisitorName() + " (" + getDisplayStatus() + ")";
     }
 }
\ No newline at end of file
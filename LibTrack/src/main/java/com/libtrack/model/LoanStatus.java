@@ -0,0 +1,50 @@
+package com.libtrack.model;
+
+/**
+ * Статус выдачи (значения колонки loans.status)
+ */
+public enum LoanStatus {
+
+    ACTIVE("active", "Активна"),
+    RETURNED("returned", "Возвращена"),
+    OVERDUE("overdue", "Просрочена");
+
+    private final String code;
+    private final String displayName;
+
+    LoanStatus(String code, String displayName) {
+        this.code = code;
+        this.displayName = displayName;
+    }
+
+    /**
+     * Значение в БД
+     */
+    public String getCode() {
+        return code;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    /**
+     * Статус по значению из БД (null - если значение пустое)
+     */
+    public static LoanStatus fromCode(String code) {
+        if (code == null || code.isEmpty()) {
+            return null;
+        }
+        for (LoanStatus status : values()) {
+            if (status.code.equalsIgnoreCase(code)) {
+                return status;
+            }
+        }
+        throw new IllegalArgumentException("Неизвестный статус выдачи: " + code);
+    }
+
+    @Override
+    public String toString() {
+        return code;
+    }
+}
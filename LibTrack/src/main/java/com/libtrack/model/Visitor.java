@@ -8,15 +8,27 @@ import java.time.LocalDate;
  */
 public class Visitor {
 
-    private final IntegerProperty visitorId;
-    private final StringProperty firstName;
-    private final StringProperty lastName;
-    private final StringProperty email;
-    private final StringProperty phone;
-    private final StringProperty address;
-    private final ObjectProperty<LocalDate> registrationDate;
-    private final ObjectProperty<LocalDate> birthDate;
-    private final StringProperty status;
+    private int visitorId;
+    private String firstName;
+    private String lastName;
+    private String email;
+    private String phone;
+    private String address;
+    private LocalDate registrationDate;
+    private LocalDate birthDate;
+    private VisitorStatus status;
+
+    // JavaFX-свойства создаются при первом обращении (ячейка таблицы, привязка);
+    // до этого значение хранится в обычном поле
+    private IntegerProperty visitorIdProperty;
+    private StringProperty firstNameProperty;
+    private StringProperty lastNameProperty;
+    private StringProperty emailProperty;
+    private StringProperty phoneProperty;
+    private StringProperty addressProperty;
+    private ObjectProperty<LocalDate> registrationDateProperty;
+    private ObjectProperty<LocalDate> birthDateProperty;
+    private ObjectProperty<VisitorStatus> statusProperty;
 
     public Visitor() {
         this(0, "", "", "", "", "", null, null, "active");
@@ -25,71 +37,191 @@ public class Visitor {
     public Visitor(int visitorId, String firstName, String lastName,
                    String email, String phone, String address,
                    LocalDate registrationDate, LocalDate birthDate, String status) {
-        this.visitorId = new SimpleIntegerProperty(visitorId);
-        this.firstName = new SimpleStringProperty(firstName);
-        this.lastName = new SimpleStringProperty(lastName);
-        this.email = new SimpleStringProperty(email);
-        this.phone = new SimpleStringProperty(phone);
-        this.address = new SimpleStringProperty(address);
-        this.registrationDate = new SimpleObjectProperty<>(registrationDate);
-        this.birthDate = new SimpleObjectProperty<>(birthDate);
-        this.status = new SimpleStringProperty(status);
+        this.visitorId = visitorId;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.email = email;
+        this.phone = phone;
+        this.address = address;
+        this.registrationDate = registrationDate;
+        this.birthDate = birthDate;
+        this.status = VisitorStatus.fromCode(status);
     }
 
     // Геттеры и сеттеры
 
-    public int getVisitorId() { return visitorId.get(); }
-    public void setVisitorId(int value) { visitorId.set(value); }
-    public IntegerProperty visitorIdProperty() { return visitorId; }
+    public int getVisitorId() { return visitorIdProperty != null ? visitorIdProperty.get() : visitorId; }
+    public void setVisitorId(int value) {
+        if (visitorIdProperty != null) {
+            visitorIdProperty.set(value);
+        } else {
+            visitorId = value;
+        }
+    }
+    public IntegerProperty visitorIdProperty() {
+        if (visitorIdProperty == null) {
+            visitorIdProperty = new SimpleIntegerProperty(this, "visitorId", visitorId);
+        }
+        return visitorIdProperty;
+    }
+
+    public String getFirstName() { return firstNameProperty != null ? firstNameProperty.get() : firstName; }
+    public void setFirstName(String value) {
+        if (firstNameProperty != null) {
+            firstNameProperty.set(value);
+        } else {
+            firstName = value;
+        }
+    }
+    public StringProperty firstNameProperty() {
+        if (firstNameProperty == null) {
+            firstNameProperty = new SimpleStringProperty(this, "firstName", firstName);
+        }
+        return firstNameProperty;
+    }
 
-    public String getFirstName() { return firstName.get(); }
-    public void setFirstName(String value) { firstName.set(value); }
-    public StringProperty firstNameProperty() { return firstName; }
+    public String getLastName() { return lastNameProperty != null ? lastNameProperty.get() : lastName; }
+    public void setLastName(String value) {
+        if (lastNameProperty != null) {
+            lastNameProperty.set(value);
+        } else {
+            lastName = value;
+        }
+    }
+    public StringProperty lastNameProperty() {
+        if (lastNameProperty == null) {
+            lastNameProperty = new SimpleStringProperty(this, "lastName", lastName);
+        }
+        return lastNameProperty;
+    }
 
-    public String getLastName() { return lastName.get(); }
-    public void setLastName(String value) { lastName.set(value); }
-    public StringProperty lastNameProperty() { return lastName; }
+    public String getEmail() { return emailProperty != null ? emailProperty.get() : email; }
+    public void setEmail(String value) {
+        if (emailProperty != null) {
+            emailProperty.set(value);
+        } else {
+            email = value;
+        }
+    }
+    public StringProperty emailProperty() {
+        if (emailProperty == null) {
+            emailProperty = new SimpleStringProperty(this, "email", email);
+        }
+        return emailProperty;
+    }
 
-    public String getEmail() { return email.get(); }
-    public void setEmail(String value) { email.set(value); }
-    public StringProperty emailProperty() { return email; }
+    public String getPhone() { return phoneProperty != null ? phoneProperty.get() : phone; }
+    public void setPhone(String value) {
+        if (phoneProperty != null) {
+            phoneProperty.set(value);
+        } else {
+            phone = value;
+        }
+    }
+    public StringProperty phoneProperty() {
+        if (phoneProperty == null) {
+            phoneProperty = new SimpleStringProperty(this, "phone", phone);
+        }
+        return phoneProperty;
+    }
 
-    public String getPhone() { return phone.get(); }
-    public void setPhone(String value) { phone.set(value); }
-    public StringProperty phoneProperty() { return phone; }
+    public String getAddress() { return addressProperty != null ? addressProperty.get() : address; }
+    public void setAddress(String value) {
+        if (addressProperty != null) {
+            addressProperty.set(value);
+        } else {
+            address = value;
+        }
+    }
+    public StringProperty addressProperty() {
+        if (addressProperty == null) {
+            addressProperty = new SimpleStringProperty(this, "address", address);
+        }
+        return addressProperty;
+    }
 
-    public String getAddress() { return address.get(); }
-    public void setAddress(String value) { address.set(value); }
-    public StringProperty addressProperty() { return address; }
+    public LocalDate getRegistrationDate() { return registrationDateProperty != null ? registrationDateProperty.get() : registrationDate; }
+    public void setRegistrationDate(LocalDate value) {
+        if (registrationDateProperty != null) {
+            registrationDateProperty.set(value);
+        } else {
+            registrationDate = value;
+        }
+    }
+    public ObjectProperty<LocalDate> registrationDateProperty() {
+        if (registrationDateProperty == null) {
+            registrationDateProperty = new SimpleObjectProperty<>(this, "registrationDate", registrationDate);
+        }
+        return registrationDateProperty;
+    }
 
-    public LocalDate getRegistrationDate() { return registrationDate.get(); }
-    public void setRegistrationDate(LocalDate value) { registrationDate.set(value); }
-    public ObjectProperty<LocalDate> registrationDateProperty() { return registrationDate; }
+    public LocalDate getBirthDate() { return birthDateProperty != null ? birthDateProperty.get() : birthDate; }
+    public void setBirthDate(LocalDate value) {
+        if (birthDateProperty != null) {
+            birthDateProperty.set(value);
+        } else {
+            birthDate = value;
+        }
+    }
+    public ObjectProperty<LocalDate> birthDateProperty() {
+        if (birthDateProperty == null) {
+            birthDateProperty = new SimpleObjectProperty<>(this, "birthDate", birthDate);
+        }
+        return birthDateProperty;
+    }
 
-    public LocalDate getBirthDate() { return birthDate.get(); }
-    public void setBirthDate(LocalDate value) { birthDate.set(value); }
-    public ObjectProperty<LocalDate> birthDateProperty() { return birthDate; }
+    public VisitorStatus getVisitorStatus() { return statusProperty != null ? statusProperty.get() : status; }
+    public void setVisitorStatus(VisitorStatus value) {
+        if (statusProperty != null) {
+            statusProperty.set(value);
+        } else {
+            status = value;
+        }
+    }
+    public ObjectProperty<VisitorStatus> statusProperty() {
+        if (statusProperty == null) {
+            statusProperty = new SimpleObjectProperty<>(this, "status", status);
+        }
+        return statusProperty;
+    }
 
-    public String getStatus() { return status.get(); }
-    public void setStatus(String value) { status.set(value); }
-    public StringProperty statusProperty() { return status; }
+    // Строковое значение статуса как в БД
+    public String getStatus() {
+        VisitorStatus value = getVisitorStatus();
+        return value != null ? value.getCode() : null;
+    }
+    public void setStatus(String value) { setVisitorStatus(VisitorStatus.fromCode(value)); }
 
     /**
      * Полное имя посетителя
      */
     public String getFullName() {
-        return firstName.get() + " " + lastName.get();
+        return getFirstName() + " " + getLastName();
     }
 
     /**
      * Проверка активности
      */
     public boolean isActive() {
-        return "active".equalsIgnoreCase(status.get());
+        return getVisitorStatus() == VisitorStatus.ACTIVE;
+    }
+
+    /**
+     * Скопировать значения из свежей копии записи (обновление строки таблицы на месте)
+     */
+    public void copyFrom(Visitor other) {
+        setFirstName(other.getFirstName());
+        setLastName(other.getLastName());
+        setEmail(other.getEmail());
+        setPhone(other.getPhone());
+        setAddress(other.getAddress());
+        setRegistrationDate(other.getRegistrationDate());
+        setBirthDate(other.getBirthDate());
+        setVisitorStatus(other.getVisitorStatus());
     }
 
     @Override
     public String toString() {
-        return getFullName() + " (" + email.get() + ")";
+        return getFullName() + " (" + getEmail() + ")";
     }
 }
\ No newline at end of file
@@ -0,0 +1,50 @@
+package com.libtrack.model;
+
+/**
+ * Статус читателя (значения колонки visitors.status)
+ */
+public enum VisitorStatus {
+
+    ACTIVE("active", "Активен"),
+    INACTIVE("inactive", "Неактивен"),
+    BLOCKED("blocked", "Заблокирован");
+
+    private final String code;
+    private final String displayName;
+
+    VisitorStatus(String code, String displayName) {
+        this.code = code;
+        this.displayName = displayName;
+    }
+
+    /**
+     * Значение в БД
+     */
+    public String getCode() {
+        return code;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    /**
+     * Статус по значению из БД (null - если значение пустое)
+     */
+    public static VisitorStatus fromCode(String code) {
+        if (code == null || code.isEmpty()) {
+            return null;
+        }
+        for (VisitorStatus status : values()) {
+            if (status.code.equalsIgnoreCase(code)) {
+                return status;
+            }
+        }
+        throw new IllegalArgumentException("Неизвестный статус читателя: " + code);
+    }
+
+    @Override
+    public String toString() {
+        return code;
+    }
+}
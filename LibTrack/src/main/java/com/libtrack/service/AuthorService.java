@@ -1,7 +1,8 @@
 package com.libtrack.service;
 
-import com.libtrack.dao.AuthorDAO;
-import com.libtrack.dao.BookDAO;
+import com.libtrack.dao.AuthorRepository;
+import com.libtrack.dao.BookRepository;
+import com.libtrack.dao.Repositories;
 import com.libtrack.model.Author;
 import javafx.collections.ObservableList;
 
@@ -10,12 +11,19 @@ import javafx.collections.ObservableList;
  */
 public class AuthorService {
 
-    private final AuthorDAO authorDAO;
-    private final BookDAO bookDAO;
+    private final AuthorRepository authorDAO;
+    private final BookRepository bookDAO;
 
     public AuthorService() {
-        this.authorDAO = new AuthorDAO();
-        this.bookDAO = new BookDAO();
+        this(Repositories.authors(), Repositories.books());
+    }
+
+    /**
+     * Сервис над заданными хранилищами (например, InMemory*Repository в тестах)
+     */
+    public AuthorService(AuthorRepository authorDAO, BookRepository bookDAO) {
+        this.authorDAO = authorDAO;
+        this.bookDAO = bookDAO;
     }
 
     /**
@@ -35,7 +43,7 @@ public class AuthorService {
     /**
      * Добавить автора с валидацией
      */
-    public boolean addAuthor(Author author) {
+    public Author addAuthor(Author author) {
         // Валидация имени
         if (author.getFirstName() == null || author.getFirstName().trim().isEmpty()) {
             throw new IllegalArgumentException("Имя автора обязательно");
@@ -69,7 +77,7 @@ public class AuthorService {
     /**
      * Обновить автора
      */
-    public boolean updateAuthor(Author author) {
+    public Author updateAuthor(Author author) {
         if (author.getAuthorId() <= 0) {
             throw new IllegalArgumentException("Некорректный ID автора");
         }
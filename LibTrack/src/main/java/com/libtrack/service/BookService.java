@@ -1,6 +1,7 @@
 package com.libtrack.service;
 
-import com.libtrack.dao.BookDAO;
+import com.libtrack.dao.BookRepository;
+import com.libtrack.dao.Repositories;
 import com.libtrack.model.Book;
 import javafx.collections.ObservableList;
 
@@ -9,10 +10,17 @@ import javafx.collections.ObservableList;
  */
 public class BookService {
 
-    private final BookDAO bookDAO;
+    private final BookRepository bookDAO;
 
     public BookService() {
-        this.bookDAO = new BookDAO();
+        this(Repositories.books());
+    }
+
+    /**
+     * Сервис над заданным хранилищем (например, InMemoryBookRepository в тестах)
+     */
+    public BookService(BookRepository bookDAO) {
+        this.bookDAO = bookDAO;
     }
 
     /**
@@ -32,7 +40,7 @@ public class BookService {
     /**
      * Добавить книгу с валидацией
      */
-    public boolean addBook(Book book) {
+    public Book addBook(Book book) {
         // Бизнес-правила
         if (book.getTitle() == null || book.getTitle().trim().isEmpty()) {
             throw new IllegalArgumentException("Название книги обязательно");
@@ -56,7 +64,7 @@ public class BookService {
     /**
      * Обновить книгу
      */
-    public boolean updateBook(Book book) {
+    public Book updateBook(Book book) {
         if (book.getBookId() <= 0) {
             throw new IllegalArgumentException("Некорректный ID книги");
         }
@@ -0,0 +1,25 @@
+package com.libtrack.service;
+
+import com.libtrack.dao.ChangeTracking;
+import com.libtrack.util.AppConfig;
+
+/**
+ * Ночная задача: чистит журнал изменений (нужен рабочим местам только на секунды)
+ * и старые надгробия удалённых строк (нужны клиентам getChangedSince)
+ */
+public class ChangeLogPurgeJob implements Runnable {
+
+    private static final int LOG_RETENTION_HOURS = AppConfig.getInt("libtrack.sync.logRetentionHours", 24);
+    private static final int TOMBSTONE_RETENTION_DAYS = AppConfig.getInt("libtrack.sync.tombstoneRetentionDays", 30);
+
+    @Override
+    public void run() {
+        long start = System.currentTimeMillis();
+        int purged = ChangeTracking.purge(LOG_RETENTION_HOURS, TOMBSTONE_RETENTION_DAYS);
+
+        if (purged >= 0) {
+            System.out.println("✓ Журнал изменений очищен: " + purged +
+                    " (" + (System.currentTimeMillis() - start) + " мс)");
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.libtrack.service;
+
+import com.libtrack.dao.LoanRepository;
+import com.libtrack.dao.Repositories;
+import com.libtrack.util.AppConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ночная задача: начисляет штрафы всем просроченным выдачам.
+ * Диапазон loan_id режется на порции, порции обновляются параллельно
+ * отдельными UPDATE, так что сумма штрафов читателя - это просто SUM(fine_amount).
+ * Обновляются только строки, где штраф изменился, поэтому повторный запуск
+ * в тот же день (при старте на каждом рабочем месте) ничего не пишет
+ */
+public class FineAccrualJob implements Runnable {
+
+    private final LoanRepository loanDAO;
+    private final FineRules rules;
+    private final int chunkSize;
+    private final int parallelism;
+
+    public FineAccrualJob() {
+        this(FineRules.fromConfig(),
+                AppConfig.getInt("libtrack.fine.chunkSize", 5000),
+                AppConfig.getInt("libtrack.fine.parallelism", 4));
+    }
+
+    public FineAccrualJob(FineRules rules, int chunkSize, int parallelism) {
+        if (chunkSize <= 0 || parallelism <= 0) {
+            throw new IllegalArgumentException("Размер порции и число потоков должны быть положительными");
+        }
+        this.loanDAO = Repositories.loans();
+        this.rules = rules;
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+    }
+
+    @Override
+    public void run() {
+        AccrualReport report = accrue();
+        System.out.println("✓ Начисление штрафов: " + report);
+    }
+
+    /**
+     * Начислить штрафы по всем порциям
+     */
+    public AccrualReport accrue() {
+        long start = System.currentTimeMillis();
+
+        int[] range = loanDAO.getOverdueLoanIdRange();
+        if (range == null) {
+            return new AccrualReport(0, 0, 0, System.currentTimeMillis() - start);
+        }
+
+        AtomicInteger failedChunks = new AtomicInteger();
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "libtrack-fines-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        List<Future<Integer>> chunks = new ArrayList<>();
+        for (long from = range[0]; from <= range[1]; from += chunkSize) {
+            int chunkFrom = (int) from;
+            int chunkTo = (int) Math.min(from + chunkSize - 1, range[1]);
+            chunks.add(executor.submit(() -> {
+                int rows = loanDAO.accrueFines(chunkFrom, chunkTo,
+                        rules.getFinePerDay(), rules.getGraceDays(), rules.getEffectiveMaxFine());
+                if (rows < 0) {
+                    failedChunks.incrementAndGet();
+                    return 0;
+                }
+                return rows;
+            }));
+        }
+
+        int rows = 0;
+        try {
+            for (Future<Integer> chunk : chunks) {
+                rows += chunk.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            System.err.println("✗ Ошибка начисления штрафов: " + e.getCause().getMessage());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return new AccrualReport(rows, chunks.size(), failedChunks.get(),
+                System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Итог начисления
+     */
+    public static class AccrualReport {
+        private final int rowsUpdated;
+        private final int chunks;
+        private final int failedChunks;
+        private final long elapsedMillis;
+
+        public AccrualReport(int rowsUpdated, int chunks, int failedChunks, long elapsedMillis) {
+            this.rowsUpdated = rowsUpdated;
+            this.chunks = chunks;
+            this.failedChunks = failedChunks;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public int getRowsUpdated() { return rowsUpdated; }
+        public int getChunks() { return chunks; }
+        public int getFailedChunks() { return failedChunks; }
+        public long getElapsedMillis() { return elapsedMillis; }
+
+        public double getRowsPerSecond() {
+            return elapsedMillis > 0 ? rowsUpdated * 1000.0 / elapsedMillis : rowsUpdated;
+        }
+
+        @Override
+        public String toString() {
+            return rowsUpdated + " строк, порций: " + chunks +
+                    (failedChunks > 0 ? " (с ошибкой: " + failedChunks + ")" : "") +
+                    ", " + elapsedMillis + " мс, " +
+                    String.format("%.0f", getRowsPerSecond()) + " строк/с";
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.libtrack.service;
+
+import com.libtrack.util.AppConfig;
+
+/**
+ * Правила начисления штрафов за просрочку
+ */
+public class FineRules {
+
+    // Верхняя граница DECIMAL(10, 2) в loans.fine_amount
+    private static final double MAX_STORED_FINE = 99_999_999.99;
+
+    private final double finePerDay;
+    private final int graceDays;
+    private final double maxFine;
+
+    /**
+     * @param finePerDay штраф за день просрочки
+     * @param graceDays  льготные дни без штрафа
+     * @param maxFine    максимальный штраф за выдачу (0 - без ограничения)
+     */
+    public FineRules(double finePerDay, int graceDays, double maxFine) {
+        if (finePerDay < 0 || graceDays < 0 || maxFine < 0) {
+            throw new IllegalArgumentException("Параметры штрафа не могут быть отрицательными");
+        }
+        this.finePerDay = finePerDay;
+        this.graceDays = graceDays;
+        this.maxFine = maxFine;
+    }
+
+    /**
+     * Правила из настроек: libtrack.fine.perDay, libtrack.fine.graceDays, libtrack.fine.max
+     */
+    public static FineRules fromConfig() {
+        return new FineRules(
+                AppConfig.getDouble("libtrack.fine.perDay", 100.0), // 100 тенге за день просрочки
+                AppConfig.getInt("libtrack.fine.graceDays", 0),
+                AppConfig.getDouble("libtrack.fine.max", 0)
+        );
+    }
+
+    /**
+     * Рассчитать штраф за указанное количество дней просрочки
+     */
+    public double calculate(long overdueDays) {
+        long chargeableDays = Math.max(0, overdueDays - graceDays);
+        return Math.min(chargeableDays * finePerDay, getEffectiveMaxFine());
+    }
+
+    /**
+     * Ограничение штрафа с учётом размерности столбца в БД
+     */
+    public double getEffectiveMaxFine() {
+        return maxFine > 0 ? Math.min(maxFine, MAX_STORED_FINE) : MAX_STORED_FINE;
+    }
+
+    public double getFinePerDay() { return finePerDay; }
+    public int getGraceDays() { return graceDays; }
+    public double getMaxFine() { return maxFine; }
+}
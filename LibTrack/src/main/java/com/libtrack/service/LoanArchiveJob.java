@@ -0,0 +1,53 @@
+package com.libtrack.service;
+
+import com.libtrack.dao.LoanRepository;
+import com.libtrack.dao.Repositories;
+import com.libtrack.util.AppConfig;
+
+import java.time.LocalDate;
+
+/**
+ * Ночная задача: переносит возвращённые выдачи старше N лет из loans в loans_archive.
+ * Горячая таблица остаётся маленькой (активные выдачи, отчёты за последние годы),
+ * а история читателя и книги по-прежнему собирается из обеих таблиц
+ */
+public class LoanArchiveJob implements Runnable {
+
+    // Возвращённые раньше, чем столько лет назад, уходят в архив (0 - не архивировать)
+    private static final int ARCHIVE_AFTER_YEARS = AppConfig.getInt("libtrack.archive.afterYears", 3);
+    // Размер порции: одна транзакция переноса
+    private static final int BATCH_SIZE = AppConfig.getInt("libtrack.archive.batchSize", 1000);
+
+    private final LoanRepository loanDAO;
+
+    public LoanArchiveJob() {
+        this.loanDAO = Repositories.loans();
+    }
+
+    @Override
+    public void run() {
+        if (ARCHIVE_AFTER_YEARS <= 0) {
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        LocalDate cutoff = LocalDate.now().minusYears(ARCHIVE_AFTER_YEARS);
+        if (!loanDAO.ensureArchivePartitions(cutoff.getYear())) {
+            return;
+        }
+
+        int total = 0;
+        int moved;
+        do {
+            moved = loanDAO.archiveReturnedLoans(cutoff, BATCH_SIZE);
+            if (moved > 0) {
+                total += moved;
+            }
+        } while (moved == BATCH_SIZE);
+
+        if (moved >= 0) {
+            System.out.println("✓ Выдач перенесено в архив: " + total +
+                    " (" + (System.currentTimeMillis() - start) + " мс)");
+        }
+    }
+}
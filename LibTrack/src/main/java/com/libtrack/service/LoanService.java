@@ -1,32 +1,57 @@
 package com.libtrack.service;
 
-import com.libtrack.dao.BookDAO;
-import com.libtrack.dao.LoanDAO;
-import com.libtrack.dao.VisitorDAO;
+import com.libtrack.dao.BookRepository;
+import com.libtrack.dao.IsbnIndex;
+import com.libtrack.dao.LoanRepository;
+import com.libtrack.dao.Repositories;
+import com.libtrack.dao.VisitorRepository;
 import com.libtrack.model.Book;
 import com.libtrack.model.Loan;
+import com.libtrack.model.LoanStatus;
 import com.libtrack.model.Visitor;
 import javafx.collections.ObservableList;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Сервис для работы с выдачей книг (бизнес-логика)
  */
 public class LoanService {
 
-    private final LoanDAO loanDAO;
-    private final BookDAO bookDAO;
-    private final VisitorDAO visitorDAO;
+    private final LoanRepository loanDAO;
+    private final BookRepository bookDAO;
+    private final VisitorRepository visitorDAO;
 
     // Константы
     private static final int DEFAULT_LOAN_DAYS = 14;
     private static final int MAX_BOOKS_PER_VISITOR = 5;
-    private static final double FINE_PER_DAY = 100.0; // 100 тенге за день просрочки
+
+    private final FineRules fineRules;
+    private final IsbnIndex isbnIndex;
 
     public LoanService() {
-        this.loanDAO = new LoanDAO();
-        this.bookDAO = new BookDAO();
-        this.visitorDAO = new VisitorDAO();
+        this(Repositories.loans(), Repositories.books(), Repositories.visitors(),
+                FineRules.fromConfig(), IsbnIndex.getInstance());
+    }
+
+    /**
+     * Сервис над заданными хранилищами (например, InMemory*Repository в тестах и бенчмарках)
+     * @param isbnIndex индекс ISBN над тем же хранилищем книг (new IsbnIndex(bookDAO))
+     */
+    public LoanService(LoanRepository loanDAO, BookRepository bookDAO, VisitorRepository visitorDAO,
+                       FineRules fineRules, IsbnIndex isbnIndex) {
+        this.loanDAO = loanDAO;
+        this.bookDAO = bookDAO;
+        this.visitorDAO = visitorDAO;
+        this.fineRules = fineRules;
+        this.isbnIndex = isbnIndex;
     }
 
     /**
@@ -49,7 +74,7 @@ public class LoanService {
             throw new IllegalArgumentException("Читатель не найден");
         }
 
-        if (!"active".equals(visitor.getStatus())) {
+        if (!visitor.isActive()) {
             throw new IllegalStateException("Читатель заблокирован или неактивен");
         }
 
@@ -76,21 +101,15 @@ public class LoanService {
             throw new IllegalArgumentException("Выдача не найдена");
         }
 
-        if (!"active".equals(loan.getStatus())) {
+        if (!loan.isActive()) {
             throw new IllegalStateException("Книга уже возвращена");
         }
 
         LocalDate returnDate = LocalDate.now();
-        double fine = 0.0;
+        double fine = calculateFineOnReturn(loan, returnDate);
 
-        // Расчет штрафа за просрочку
-        if (returnDate.isAfter(loan.getDueDate())) {
-            long overdueDays = java.time.temporal.ChronoUnit.DAYS.between(
-                    loan.getDueDate(), returnDate
-            );
-            fine = overdueDays * FINE_PER_DAY;
-
-            // Обновить штраф в БД
+        // Обновить штраф в БД
+        if (fine > 0) {
             loanDAO.updateFine(loanId, fine);
         }
 
@@ -100,6 +119,171 @@ public class LoanService {
         return fine;
     }
 
+    /**
+     * Выдать читателю несколько книг одной транзакцией.
+     * Проблемы с читателем (не найден, заблокирован, лимит исчерпан) отклоняют весь пакет,
+     * проблемы с отдельной книгой - только её
+     * @return результат по каждой книге в порядке bookIds
+     */
+    public List<BatchItemResult> issueBooks(int visitorId, List<Integer> bookIds,
+                                            LocalDate loanDate, LocalDate dueDate, int issuedBy) {
+        Visitor visitor = visitorDAO.getVisitorById(visitorId);
+        if (visitor == null) {
+            throw new IllegalArgumentException("Читатель не найден");
+        }
+
+        if (!visitor.isActive()) {
+            throw new IllegalStateException("Читатель заблокирован или неактивен");
+        }
+
+        int freeSlots = MAX_BOOKS_PER_VISITOR - getActiveLoansCountByVisitor(visitorId);
+        if (freeSlots <= 0) {
+            throw new IllegalStateException("Читатель уже взял максимальное количество книг (" + MAX_BOOKS_PER_VISITOR + ")");
+        }
+
+        BatchItemResult[] results = new BatchItemResult[bookIds.size()];
+        List<Integer> accepted = new ArrayList<>();
+        List<Integer> acceptedPositions = new ArrayList<>();
+        Map<Integer, String> titles = new HashMap<>();
+
+        for (int i = 0; i < bookIds.size(); i++) {
+            int bookId = bookIds.get(i);
+            Book book = bookDAO.getBookById(bookId);
+            if (book == null) {
+                results[i] = BatchItemResult.failed(bookId, "ID " + bookId, "Книга не найдена");
+            } else if (book.getCopiesAvailable() <= 0) {
+                results[i] = BatchItemResult.failed(bookId, book.getTitle(), "Нет свободных экземпляров");
+            } else if (accepted.size() >= freeSlots) {
+                results[i] = BatchItemResult.failed(bookId, book.getTitle(),
+                        "Превышен лимит " + MAX_BOOKS_PER_VISITOR + " книг на читателя");
+            } else {
+                titles.put(bookId, book.getTitle());
+                accepted.add(bookId);
+                acceptedPositions.add(i);
+            }
+        }
+
+        if (!accepted.isEmpty()) {
+            int[] loanIds = loanDAO.issueLoans(visitorId, accepted, loanDate, dueDate, issuedBy);
+            Map<Integer, Loan> created = loadByIds(loanIds != null ?
+                    Arrays.stream(loanIds).filter(id -> id > 0).boxed().toList() : List.of());
+
+            for (int j = 0; j < accepted.size(); j++) {
+                int bookId = accepted.get(j);
+                Loan loan = loanIds != null ? created.get(loanIds[j]) : null;
+                String failure = loanIds == null ? "Ошибка базы данных, выдача отменена" :
+                        loanIds[j] == 0 ? "Нет свободных экземпляров" : "Не удалось выдать книгу";
+                results[acceptedPositions.get(j)] = loan != null ?
+                        BatchItemResult.succeeded(bookId, titles.get(bookId), 0.0, loan) :
+                        BatchItemResult.failed(bookId, titles.get(bookId), failure);
+            }
+        }
+
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Вернуть несколько книг одной транзакцией с расчётом штрафов
+     * @return результат по каждой выдаче в порядке loanIds
+     */
+    public List<BatchItemResult> returnBooks(List<Integer> loanIds) {
+        LocalDate returnDate = LocalDate.now();
+
+        Map<Integer, Loan> loans = new HashMap<>();
+        for (Loan loan : loanDAO.getLoansByIds(loanIds)) {
+            loans.put(loan.getLoanId(), loan);
+        }
+
+        BatchItemResult[] results = new BatchItemResult[loanIds.size()];
+        Map<Integer, Double> fines = new LinkedHashMap<>();
+
+        for (int i = 0; i < loanIds.size(); i++) {
+            int loanId = loanIds.get(i);
+            Loan loan = loans.get(loanId);
+            if (loan == null) {
+                results[i] = BatchItemResult.failed(loanId, "ID " + loanId, "Выдача не найдена");
+            } else if (!loan.isActive()) {
+                results[i] = BatchItemResult.failed(loanId, loan.getBookTitle(), "Книга уже возвращена");
+            } else {
+                fines.put(loanId, calculateFineOnReturn(loan, returnDate));
+            }
+        }
+
+        Set<Integer> returned = fines.isEmpty() ? Set.of() : loanDAO.returnLoans(fines, returnDate);
+        Map<Integer, Loan> updated = loadByIds(returned);
+
+        for (int i = 0; i < loanIds.size(); i++) {
+            int loanId = loanIds.get(i);
+            if (results[i] != null) {
+                continue;
+            }
+            String title = loans.get(loanId).getBookTitle();
+            results[i] = returned.contains(loanId) ?
+                    BatchItemResult.succeeded(loanId, title, fines.get(loanId), updated.get(loanId)) :
+                    BatchItemResult.failed(loanId, title, "Не удалось вернуть книгу");
+        }
+
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Выдать книгу по отсканированному ISBN (ISBN-10 или ISBN-13, с дефисами или без)
+     */
+    public BatchItemResult issueByIsbn(String isbn, int visitorId, LocalDate loanDate,
+                                       LocalDate dueDate, int issuedBy) {
+        Integer bookId = isbnIndex.findBookId(isbn);
+        if (bookId == null) {
+            return BatchItemResult.failed(0, isbn, "Книга с таким ISBN не найдена");
+        }
+        return issueBooks(visitorId, List.of(bookId), loanDate, dueDate, issuedBy).get(0);
+    }
+
+    /**
+     * Вернуть книгу по отсканированному ISBN.
+     * Если читатель не указан, возвращается единственная невозвращённая выдача этой книги
+     * @param visitorId читатель или null
+     */
+    public BatchItemResult returnByIsbn(String isbn, Integer visitorId) {
+        Integer bookId = isbnIndex.findBookId(isbn);
+        if (bookId == null) {
+            return BatchItemResult.failed(0, isbn, "Книга с таким ISBN не найдена");
+        }
+
+        List<Integer> loanIds = loanDAO.findActiveLoanIds(bookId, visitorId);
+        if (loanIds.isEmpty()) {
+            return BatchItemResult.failed(0, isbn, visitorId != null ?
+                    "У читателя нет этой книги" : "Книга не числится выданной");
+        }
+        if (visitorId == null && loanIds.size() > 1) {
+            return BatchItemResult.failed(0, isbn, "Книга выдана нескольким читателям - выберите читателя");
+        }
+        return returnBooks(List.of(loanIds.get(0))).get(0);
+    }
+
+    /**
+     * Перечитать выдачи после записи (для обновления таблицы на месте)
+     */
+    private Map<Integer, Loan> loadByIds(Collection<Integer> loanIds) {
+        Map<Integer, Loan> loans = new HashMap<>();
+        if (!loanIds.isEmpty()) {
+            for (Loan loan : loanDAO.getLoansByIds(loanIds)) {
+                loans.put(loan.getLoanId(), loan);
+            }
+        }
+        return loans;
+    }
+
+    /**
+     * Штраф за просрочку при возврате в указанную дату
+     */
+    private double calculateFineOnReturn(Loan loan, LocalDate returnDate) {
+        if (!returnDate.isAfter(loan.getDueDate())) {
+            return 0.0;
+        }
+        long overdueDays = java.time.temporal.ChronoUnit.DAYS.between(loan.getDueDate(), returnDate);
+        return fineRules.calculate(overdueDays);
+    }
+
     /**
      * Получить все выдачи
      */
@@ -150,10 +334,7 @@ public class LoanService {
      * Получить количество активных выдач у читателя
      */
     public int getActiveLoansCountByVisitor(int visitorId) {
-        ObservableList<Loan> loans = loanDAO.getLoansByVisitor(visitorId);
-        return (int) loans.stream()
-                .filter(loan -> "active".equals(loan.getStatus()))
-                .count();
+        return loanDAO.countActiveLoansByVisitor(visitorId);
     }
 
     /**
@@ -184,20 +365,18 @@ public class LoanService {
 
         if (today.isAfter(dueDate)) {
             long overdueDays = java.time.temporal.ChronoUnit.DAYS.between(dueDate, today);
-            return overdueDays * FINE_PER_DAY;
+            return fineRules.calculate(overdueDays);
         }
 
         return 0.0;
     }
 
     /**
-     * Получить общую сумму штрафов посетителя
+     * Получить общую сумму штрафов посетителя.
+     * По просроченным выдачам учитывается штраф, начисленный FineAccrualJob
      */
     public double getTotalFinesByVisitor(int visitorId) {
-        ObservableList<Loan> loans = loanDAO.getLoansByVisitor(visitorId);
-        return loans.stream()
-                .mapToDouble(this::calculateFine)
-                .sum();
+        return loanDAO.getTotalFinesByVisitor(visitorId);
     }
 
     /**
@@ -209,7 +388,7 @@ public class LoanService {
             throw new IllegalArgumentException("Выдача не найдена");
         }
 
-        if (!"active".equals(loan.getStatus())) {
+        if (!loan.isActive()) {
             throw new IllegalStateException("Можно продлить только активную выдачу");
         }
 
@@ -233,10 +412,10 @@ public class LoanService {
 
         int total = allLoans.size();
         int active = (int) allLoans.stream()
-                .filter(l -> "active".equals(l.getStatus()))
+                .filter(Loan::isActive)
                 .count();
         int returned = (int) allLoans.stream()
-                .filter(l -> "returned".equals(l.getStatus()))
+                .filter(l -> l.getLoanStatus() == LoanStatus.RETURNED)
                 .count();
         int overdue = (int) allLoans.stream()
                 .filter(Loan::isOverdue)
@@ -245,6 +424,44 @@ public class LoanService {
         return new LoanStatistics(total, active, returned, overdue);
     }
 
+    /**
+     * Результат пакетной операции для одной книги или выдачи
+     */
+    public static class BatchItemResult {
+        private final int id;
+        private final String title;
+        private final boolean success;
+        private final String message;
+        private final double fine;
+        // Созданная или изменённая выдача (для обновления таблицы без перезагрузки)
+        private final Loan loan;
+
+        private BatchItemResult(int id, String title, boolean success, String message,
+                                double fine, Loan loan) {
+            this.id = id;
+            this.title = title;
+            this.success = success;
+            this.message = message;
+            this.fine = fine;
+            this.loan = loan;
+        }
+
+        public static BatchItemResult succeeded(int id, String title, double fine, Loan loan) {
+            return new BatchItemResult(id, title, true, null, fine, loan);
+        }
+
+        public static BatchItemResult failed(int id, String title, String message) {
+            return new BatchItemResult(id, title, false, message, 0.0, null);
+        }
+
+        public int getId() { return id; }
+        public String getTitle() { return title; }
+        public boolean isSuccess() { return success; }
+        public String getMessage() { return message; }
+        public double getFine() { return fine; }
+        public Loan getLoan() { return loan; }
+    }
+
     /**
      * Вложенный класс для статистики выдач
      */
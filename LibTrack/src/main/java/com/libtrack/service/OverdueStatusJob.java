@@ -0,0 +1,32 @@
+package com.libtrack.service;
+
+import com.libtrack.dao.LoanRepository;
+import com.libtrack.dao.Repositories;
+
+/**
+ * Ночная задача: переводит выдачи с истёкшим сроком в статус 'overdue'.
+ * После неё запросы просрочек идут по индексу idx_status,
+ * а не пересчитывают срок по всем активным выдачам
+ */
+public class OverdueStatusJob implements Runnable {
+
+    // Размер порции UPDATE ... LIMIT
+    private static final int BATCH_SIZE = 1000;
+
+    private final LoanRepository loanDAO;
+
+    public OverdueStatusJob() {
+        this.loanDAO = Repositories.loans();
+    }
+
+    @Override
+    public void run() {
+        long start = System.currentTimeMillis();
+        int updated = loanDAO.markOverdueLoans(BATCH_SIZE);
+
+        if (updated >= 0) {
+            System.out.println("✓ Просроченных выдач отмечено: " + updated +
+                    " (" + (System.currentTimeMillis() - start) + " мс)");
+        }
+    }
+}
@@ -4,6 +4,7 @@ import com.libtrack.dao.DatabaseConnection;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import java.sql.*;
+import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -12,6 +13,12 @@ import java.util.Map;
  */
 public class StatisticsService {
 
+    // Выдачи за всю историю: текущие и перенесённые в loans_archive (архивные всегда возвращены)
+    private static final String ALL_LOANS =
+            "(SELECT loan_id, book_id, visitor_id FROM loans " +
+            "UNION ALL " +
+            "SELECT loan_id, book_id, visitor_id FROM loans_archive)";
+
     /**
      * Класс для хранения статистических данных
      */
@@ -34,7 +41,7 @@ public class StatisticsService {
     public Map<String, Integer> getGeneralStatistics() {
         Map<String, Integer> stats = new HashMap<>();
 
-        try (Connection conn = DatabaseConnection.getConnection()) {
+        try (Connection conn = DatabaseConnection.getReadConnection()) {
 
             // Общее количество книг
             stats.put("totalBooks", getCount(conn, "SELECT COUNT(*) FROM books"));
@@ -57,18 +64,19 @@ public class StatisticsService {
 
             // Активных выдач
             stats.put("activeLoans", getCount(conn,
-                    "SELECT COUNT(*) FROM loans WHERE status = 'active'"));
+                    "SELECT COUNT(*) FROM loans WHERE status IN ('active', 'overdue')"));
 
             // Просроченных выдач
             stats.put("overdueLoans", getCount(conn,
-                    "SELECT COUNT(*) FROM loans WHERE status = 'active' AND due_date < CURDATE()"));
+                    "SELECT COUNT(*) FROM loans WHERE status = 'overdue'"));
 
             // Всего выдач за всё время
-            stats.put("totalLoans", getCount(conn, "SELECT COUNT(*) FROM loans"));
+            stats.put("totalLoans", getCount(conn, "SELECT COUNT(*) FROM " + ALL_LOANS + " l"));
 
             // Возвращенных книг
             stats.put("returnedLoans", getCount(conn,
-                    "SELECT COUNT(*) FROM loans WHERE status = 'returned'"));
+                    "SELECT COUNT(*) FROM loans WHERE status = 'returned'") +
+                    getCount(conn, "SELECT COUNT(*) FROM loans_archive"));
 
         } catch (SQLException e) {
             System.err.println("Ошибка получения статистики: " + e.getMessage());
@@ -86,12 +94,12 @@ public class StatisticsService {
 
         String sql = "SELECT b.title, COUNT(l.loan_id) as loan_count " +
                 "FROM books b " +
-                "LEFT JOIN loans l ON b.book_id = l.book_id " +
+                "LEFT JOIN " + ALL_LOANS + " l ON b.book_id = l.book_id " +
                 "GROUP BY b.book_id, b.title " +
                 "ORDER BY loan_count DESC " +
                 "LIMIT 10";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
@@ -121,7 +129,7 @@ public class StatisticsService {
                 "GROUP BY genre " +
                 "ORDER BY count DESC";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
@@ -145,20 +153,27 @@ public class StatisticsService {
     public ObservableList<StatData> getLoansByMonth() {
         ObservableList<StatData> data = FXCollections.observableArrayList();
 
-        String sql = "SELECT DATE_FORMAT(loan_date, '%Y-%m') as month, " +
+        // Без DATE_FORMAT и INTERVAL (их нет во встроенной H2): граница и подпись месяца - в Java
+        String sql = "SELECT EXTRACT(YEAR FROM loan_date) as loan_year, " +
+                "EXTRACT(MONTH FROM loan_date) as loan_month, " +
                 "COUNT(*) as count " +
-                "FROM loans " +
-                "WHERE loan_date >= DATE_SUB(CURDATE(), INTERVAL 12 MONTH) " +
-                "GROUP BY month " +
-                "ORDER BY month";
+                "FROM (SELECT loan_date FROM loans WHERE loan_date >= ? " +
+                "UNION ALL " +
+                "SELECT loan_date FROM loans_archive WHERE loan_date >= ?) l " +
+                "GROUP BY EXTRACT(YEAR FROM loan_date), EXTRACT(MONTH FROM loan_date) " +
+                "ORDER BY loan_year, loan_month";
 
-        try (Connection conn = DatabaseConnection.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            Date since = Date.valueOf(LocalDate.now().minusMonths(12));
+            stmt.setDate(1, since);
+            stmt.setDate(2, since);
+            ResultSet rs = stmt.executeQuery();
 
             while (rs.next()) {
                 data.add(new StatData(
-                        rs.getString("month"),
+                        String.format("%d-%02d", rs.getInt("loan_year"), rs.getInt("loan_month")),
                         rs.getInt("count")
                 ));
             }
@@ -179,12 +194,12 @@ public class StatisticsService {
         String sql = "SELECT CONCAT(v.first_name, ' ', v.last_name) as name, " +
                 "COUNT(l.loan_id) as loan_count " +
                 "FROM visitors v " +
-                "LEFT JOIN loans l ON v.visitor_id = l.visitor_id " +
-                "GROUP BY v.visitor_id, name " +
+                "LEFT JOIN " + ALL_LOANS + " l ON v.visitor_id = l.visitor_id " +
+                "GROUP BY v.visitor_id, v.first_name, v.last_name " +
                 "ORDER BY loan_count DESC " +
                 "LIMIT 10";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
@@ -208,22 +223,23 @@ public class StatisticsService {
     public Map<String, Integer> getReturnStatistics() {
         Map<String, Integer> stats = new HashMap<>();
 
-        try (Connection conn = DatabaseConnection.getConnection()) {
+        try (Connection conn = DatabaseConnection.getReadConnection()) {
 
             // Возвращено вовремя
             stats.put("onTime", getCount(conn,
                     "SELECT COUNT(*) FROM loans " +
-                            "WHERE status = 'returned' AND return_date <= due_date"));
+                            "WHERE status = 'returned' AND return_date <= due_date") +
+                    getCount(conn, "SELECT COUNT(*) FROM loans_archive WHERE return_date <= due_date"));
 
             // Возвращено с просрочкой
             stats.put("late", getCount(conn,
                     "SELECT COUNT(*) FROM loans " +
-                            "WHERE status = 'returned' AND return_date > due_date"));
+                            "WHERE status = 'returned' AND return_date > due_date") +
+                    getCount(conn, "SELECT COUNT(*) FROM loans_archive WHERE return_date > due_date"));
 
             // Текущие просрочки
             stats.put("currentOverdue", getCount(conn,
-                    "SELECT COUNT(*) FROM loans " +
-                            "WHERE status = 'active' AND due_date < CURDATE()"));
+                    "SELECT COUNT(*) FROM loans WHERE status = 'overdue'"));
 
         } catch (SQLException e) {
             System.err.println("Ошибка получения статистики возвратов: " + e.getMessage());
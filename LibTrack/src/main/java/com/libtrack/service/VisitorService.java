@@ -1,9 +1,11 @@
 package com.libtrack.service;
 
-import com.libtrack.dao.LoanDAO;
-import com.libtrack.dao.VisitorDAO;
+import com.libtrack.dao.LoanRepository;
+import com.libtrack.dao.Repositories;
+import com.libtrack.dao.VisitorRepository;
 import com.libtrack.model.Loan;
 import com.libtrack.model.Visitor;
+import com.libtrack.model.VisitorStatus;
 import javafx.collections.ObservableList;
 import java.time.LocalDate;
 import java.time.Period;
@@ -14,8 +16,8 @@ import java.util.regex.Pattern;
  */
 public class VisitorService {
 
-    private final VisitorDAO visitorDAO;
-    private final LoanDAO loanDAO;
+    private final VisitorRepository visitorDAO;
+    private final LoanRepository loanDAO;
 
     // Регулярное выражение для валидации email
     private static final Pattern EMAIL_PATTERN = Pattern.compile(
@@ -31,8 +33,15 @@ public class VisitorService {
     private static final int MIN_AGE = 6;
 
     public VisitorService() {
-        this.visitorDAO = new VisitorDAO();
-        this.loanDAO = new LoanDAO();
+        this(Repositories.visitors(), Repositories.loans());
+    }
+
+    /**
+     * Сервис над заданными хранилищами (например, InMemory*Repository в тестах)
+     */
+    public VisitorService(VisitorRepository visitorDAO, LoanRepository loanDAO) {
+        this.visitorDAO = visitorDAO;
+        this.loanDAO = loanDAO;
     }
 
     /**
@@ -52,7 +61,7 @@ public class VisitorService {
     /**
      * Добавить посетителя с валидацией
      */
-    public boolean addVisitor(Visitor visitor) {
+    public Visitor addVisitor(Visitor visitor) {
         // Валидация имени
         if (visitor.getFirstName() == null || visitor.getFirstName().trim().isEmpty()) {
             throw new IllegalArgumentException("Имя читателя обязательно");
@@ -102,8 +111,8 @@ public class VisitorService {
         }
 
         // Установить статус по умолчанию
-        if (visitor.getStatus() == null || visitor.getStatus().trim().isEmpty()) {
-            visitor.setStatus("active");
+        if (visitor.getVisitorStatus() == null) {
+            visitor.setVisitorStatus(VisitorStatus.ACTIVE);
         }
 
         return visitorDAO.addVisitor(visitor);
@@ -112,7 +121,7 @@ public class VisitorService {
     /**
      * Обновить посетителя
      */
-    public boolean updateVisitor(Visitor visitor) {
+    public Visitor updateVisitor(Visitor visitor) {
         if (visitor.getVisitorId() <= 0) {
             throw new IllegalArgumentException("Некорректный ID читателя");
         }
@@ -179,13 +188,13 @@ public class VisitorService {
             throw new IllegalArgumentException("Читатель не найден");
         }
 
-        visitor.setStatus("blocked");
+        visitor.setVisitorStatus(VisitorStatus.BLOCKED);
 
         // Можно добавить логирование причины блокировки
         System.out.println("Читатель " + visitor.getFullName() +
                 " заблокирован. Причина: " + reason);
 
-        return visitorDAO.updateVisitor(visitor);
+        return visitorDAO.updateVisitor(visitor) != null;
     }
 
     /**
@@ -197,27 +206,22 @@ public class VisitorService {
             throw new IllegalArgumentException("Читатель не найден");
         }
 
-        visitor.setStatus("active");
-        return visitorDAO.updateVisitor(visitor);
+        visitor.setVisitorStatus(VisitorStatus.ACTIVE);
+        return visitorDAO.updateVisitor(visitor) != null;
     }
 
     /**
      * Проверить, есть ли у посетителя активные выдачи
      */
     public boolean hasActiveLoans(int visitorId) {
-        ObservableList<Loan> loans = loanDAO.getLoansByVisitor(visitorId);
-        return loans.stream()
-                .anyMatch(loan -> "active".equals(loan.getStatus()));
+        return loanDAO.countActiveLoansByVisitor(visitorId) > 0;
     }
 
     /**
      * Получить количество активных выдач посетителя
      */
     public int getActiveLoansCount(int visitorId) {
-        ObservableList<Loan> loans = loanDAO.getLoansByVisitor(visitorId);
-        return (int) loans.stream()
-                .filter(loan -> "active".equals(loan.getStatus()))
-                .count();
+        return loanDAO.countActiveLoansByVisitor(visitorId);
     }
 
     /**
@@ -238,7 +242,7 @@ public class VisitorService {
         }
 
         // Проверка статуса
-        if (!"active".equals(visitor.getStatus())) {
+        if (!visitor.isActive()) {
             return false;
         }
 
@@ -0,0 +1,58 @@
+package com.libtrack.util;
+
+/**
+ * Настройки приложения из системных свойств (-Dlibtrack.*=...)
+ */
+public class AppConfig {
+
+    private AppConfig() {
+    }
+
+    /**
+     * Получить строковое значение
+     */
+    public static String getString(String key, String defaultValue) {
+        String value = System.getProperty(key);
+        return value != null && !value.trim().isEmpty() ? value.trim() : defaultValue;
+    }
+
+    /**
+     * Получить целое значение
+     */
+    public static int getInt(String key, int defaultValue) {
+        String value = getString(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            System.err.println("⚠ Некорректное значение " + key + "=" + value + ", используется " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Получить дробное значение
+     */
+    public static double getDouble(String key, double defaultValue) {
+        String value = getString(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            System.err.println("⚠ Некорректное значение " + key + "=" + value + ", используется " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Получить логическое значение
+     */
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        String value = getString(key, null);
+        return value != null ? Boolean.parseBoolean(value) : defaultValue;
+    }
+}
@@ -0,0 +1,72 @@
+package com.libtrack.util;
+
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Общий пул фоновых потоков для запросов к БД вне FX-потока
+ */
+public class BackgroundTasks {
+
+    private static final int POOL_SIZE = 4;
+
+    private static final AtomicInteger threadNumber = new AtomicInteger();
+    private static final ExecutorService executor = Executors.newFixedThreadPool(POOL_SIZE, runnable -> {
+        Thread thread = new Thread(runnable, "libtrack-bg-" + threadNumber.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private BackgroundTasks() {
+    }
+
+    /**
+     * Выполнить работу в фоне, результат передать в FX-поток
+     */
+    public static <T> Task<T> run(Callable<T> work, Consumer<T> onSuccess) {
+        return run(work, onSuccess, error -> {
+            System.err.println("✗ Ошибка фоновой задачи: " + error.getMessage());
+            error.printStackTrace();
+        });
+    }
+
+    /**
+     * Выполнить работу в фоне с обработкой ошибки (оба обработчика - в FX-потоке)
+     */
+    public static <T> Task<T> run(Callable<T> work, Consumer<T> onSuccess, Consumer<Throwable> onFailure) {
+        Task<T> task = new Task<>() {
+            @Override
+            protected T call() throws Exception {
+                return work.call();
+            }
+        };
+        task.setOnSucceeded(event -> onSuccess.accept(task.getValue()));
+        task.setOnFailed(event -> onFailure.accept(task.getException()));
+        executor.execute(task);
+        return task;
+    }
+
+    /**
+     * Выполнить действие в фоне без результата
+     */
+    public static void execute(Runnable work) {
+        executor.execute(work);
+    }
+
+    /**
+     * Выполнить действие в FX-потоке (сразу, если уже в нём)
+     */
+    public static void runOnFxThread(Runnable action) {
+        if (Platform.isFxApplicationThread()) {
+            action.run();
+        } else {
+            Platform.runLater(action);
+        }
+    }
+}
@@ -7,8 +7,9 @@ import com.libtrack.model.User;
  */
 public class CurrentUser {
 
-    private static CurrentUser instance;
-    private User user;
+    private static final CurrentUser instance = new CurrentUser();
+    // Устанавливается в фоновом потоке входа, читается в FX-потоке
+    private volatile User user;
 
     private CurrentUser() {
     }
@@ -17,9 +18,6 @@ public class CurrentUser {
      * Получить экземпляр CurrentUser
      */
     public static CurrentUser getInstance() {
-        if (instance == null) {
-            instance = new CurrentUser();
-        }
         return instance;
     }
 
@@ -0,0 +1,87 @@
+package com.libtrack.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Нормализация ISBN со сканера или из формы: без дефисов и пробелов, X в верхнем регистре.
+ * Совпадает с вычисляемой колонкой books.isbn_normalized
+ */
+public class Isbn {
+
+    private Isbn() {
+    }
+
+    /**
+     * Убрать дефисы и пробелы
+     */
+    public static String normalize(String raw) {
+        if (raw == null) {
+            return null;
+        }
+        return raw.replace("-", "").replace(" ", "").trim().toUpperCase();
+    }
+
+    /**
+     * Ключи для поиска книги по ISBN: сам нормализованный код и, если контрольная
+     * сумма сходится, его пара в другом формате (ISBN-10 <-> ISBN-13 с префиксом 978)
+     * @return пустой список, если строка не похожа на ISBN
+     */
+    public static List<String> lookupKeys(String raw) {
+        String isbn = normalize(raw);
+        List<String> keys = new ArrayList<>();
+        if (isbn == null) {
+            return keys;
+        }
+
+        if (isbn.matches("\\d{9}[\\dX]")) {
+            keys.add(isbn);
+            if (isValid10(isbn)) {
+                keys.add(to13(isbn));
+            }
+        } else if (isbn.matches("\\d{13}")) {
+            keys.add(isbn);
+            if (isbn.startsWith("978") && isValid13(isbn)) {
+                keys.add(to10(isbn));
+            }
+        }
+        return keys;
+    }
+
+    static boolean isValid10(String isbn) {
+        int sum = 0;
+        for (int i = 0; i < 10; i++) {
+            char c = isbn.charAt(i);
+            int digit = c == 'X' ? 10 : c - '0';
+            sum += digit * (10 - i);
+        }
+        return sum % 11 == 0;
+    }
+
+    static boolean isValid13(String isbn) {
+        return checkDigit13(isbn.substring(0, 12)) == isbn.charAt(12) - '0';
+    }
+
+    static String to13(String isbn10) {
+        String body = "978" + isbn10.substring(0, 9);
+        return body + checkDigit13(body);
+    }
+
+    static String to10(String isbn13) {
+        String body = isbn13.substring(3, 12);
+        int sum = 0;
+        for (int i = 0; i < 9; i++) {
+            sum += (body.charAt(i) - '0') * (10 - i);
+        }
+        int check = (11 - sum % 11) % 11;
+        return body + (check == 10 ? "X" : String.valueOf(check));
+    }
+
+    private static int checkDigit13(String first12) {
+        int sum = 0;
+        for (int i = 0; i < 12; i++) {
+            sum += (first12.charAt(i) - '0') * (i % 2 == 0 ? 1 : 3);
+        }
+        return (10 - sum % 10) % 10;
+    }
+}
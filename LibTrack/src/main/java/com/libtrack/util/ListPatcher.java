@@ -0,0 +1,195 @@
+package com.libtrack.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * Точечное обновление списка таблицы после записи в БД вместо полной перезагрузки.
+ * Изменённая строка обновляется на месте (через свойства модели),
+ * поэтому выделение и прокрутка таблицы сохраняются.
+ * В PagedList вставка и удаление сдвигают строки: таблица получает одно событие
+ * на одну позицию, а перечитывается только затронутая страница (PagedList.inserted/removed).
+ * Несколько вставок и удалений сразу (журнал изменений, пакетная выдача)
+ * перечитывают PagedList целиком
+ */
+public class ListPatcher<T> {
+
+    private final ToIntFunction<T> idOf;
+    private final BiConsumer<T, T> copy;
+
+    /**
+     * @param idOf ID записи
+     * @param copy скопировать значения (куда, откуда), например Book::copyFrom
+     */
+    public ListPatcher(ToIntFunction<T> idOf, BiConsumer<T, T> copy) {
+        this.idOf = idOf;
+        this.copy = copy;
+    }
+
+    /**
+     * Запись добавлена
+     */
+    public void inserted(List<T> list, T item) {
+        inserted(list, item, any -> true);
+    }
+
+    /**
+     * Запись добавлена
+     * @param belongs попадает ли запись в текущий вид (фильтр таблицы)
+     */
+    public void inserted(List<T> list, T item, Predicate<T> belongs) {
+        if (list instanceof PagedList<T> paged) {
+            paged.inserted(item, idOf);
+        } else if (belongs.test(item) && indexOf(list, idOf.applyAsInt(item)) < 0) {
+            list.add(item);
+        }
+    }
+
+    /**
+     * Добавлено несколько записей сразу (пакетная выдача): PagedList перечитывается
+     * один раз, а не сдвигается на каждую запись
+     * @param belongs попадает ли запись в текущий вид (фильтр таблицы)
+     */
+    public void insertedAll(List<T> list, Collection<T> items, Predicate<T> belongs) {
+        if (list instanceof PagedList<T> paged && items.size() > 1) {
+            paged.refresh();
+            return;
+        }
+        for (T item : items) {
+            inserted(list, item, belongs);
+        }
+    }
+
+    /**
+     * Запись изменена
+     */
+    public void updated(List<T> list, T item) {
+        updated(list, item, any -> true);
+    }
+
+    /**
+     * Запись изменена: строка обновляется на месте, а если запись
+     * больше не проходит фильтр вида - убирается из списка
+     */
+    public void updated(List<T> list, T item, Predicate<T> belongs) {
+        int id = idOf.applyAsInt(item);
+
+        if (list instanceof PagedList<T> paged) {
+            T existing = paged.findLoaded(row -> idOf.applyAsInt(row) == id);
+            if (existing != null && existing != item) {
+                copy.accept(existing, item);
+            }
+            return;
+        }
+
+        int index = indexOf(list, id);
+        if (index < 0) {
+            if (belongs.test(item)) {
+                list.add(item);
+            }
+        } else if (!belongs.test(item)) {
+            list.remove(index);
+        } else if (list.get(index) != item) {
+            copy.accept(list.get(index), item);
+        }
+    }
+
+    /**
+     * Запись удалена
+     */
+    public void removed(List<T> list, int id) {
+        if (list instanceof PagedList<T> paged) {
+            paged.removed(id, idOf);
+            return;
+        }
+
+        int index = indexOf(list, id);
+        if (index >= 0) {
+            list.remove(index);
+        }
+    }
+
+    /**
+     * Применить изменения с другого рабочего места (журнал изменений)
+     * @param changed перечитанные вставленные и изменённые записи
+     * @param insertedIds ID вставленных записей
+     * @param deletedIds ID удалённых записей
+     * @param belongs попадает ли запись в текущий вид (фильтр таблицы)
+     */
+    public void apply(List<T> list, Collection<T> changed, Collection<Integer> insertedIds,
+                      Collection<Integer> deletedIds, Predicate<T> belongs) {
+        if (list instanceof PagedList<T> paged && insertedIds.size() + deletedIds.size() > 1) {
+            // Позиции нескольких сдвигов по одной выборке не восстановить
+            paged.refresh();
+            return;
+        }
+
+        for (int id : deletedIds) {
+            removed(list, id);
+        }
+        for (T item : changed) {
+            if (list instanceof PagedList<T> && insertedIds.contains(idOf.applyAsInt(item))) {
+                inserted(list, item, belongs);
+            } else {
+                updated(list, item, belongs);
+            }
+        }
+    }
+
+    /**
+     * Привести список к свежей выборке: исчезнувшие строки удаляются,
+     * оставшиеся обновляются на месте, новые добавляются в конец
+     */
+    public void sync(List<T> list, List<T> fresh) {
+        Map<Integer, T> freshById = new LinkedHashMap<>();
+        for (T item : fresh) {
+            freshById.put(idOf.applyAsInt(item), item);
+        }
+
+        List<T> gone = new ArrayList<>();
+        Set<Integer> present = new HashSet<>();
+        for (T item : list) {
+            int id = idOf.applyAsInt(item);
+            T newer = freshById.get(id);
+            if (newer == null) {
+                gone.add(item);
+            } else {
+                present.add(id);
+                if (newer != item) {
+                    copy.accept(item, newer);
+                }
+            }
+        }
+        if (!gone.isEmpty()) {
+            list.removeAll(gone);
+        }
+
+        List<T> added = new ArrayList<>();
+        for (Map.Entry<Integer, T> entry : freshById.entrySet()) {
+            if (!present.contains(entry.getKey())) {
+                added.add(entry.getValue());
+            }
+        }
+        if (!added.isEmpty()) {
+            list.addAll(added);
+        }
+    }
+
+    private int indexOf(List<T> list, int id) {
+        for (int i = 0; i < list.size(); i++) {
+            T item = list.get(i);
+            if (item != null && idOf.applyAsInt(item) == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,120 @@
+package com.libtrack.util;
+
+import javafx.animation.PauseTransition;
+import javafx.beans.value.ObservableValue;
+import javafx.concurrent.Task;
+import javafx.util.Duration;
+
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Живой поиск по мере ввода: ждёт паузу в наборе, выполняет запрос
+ * в фоновом потоке и отбрасывает результаты устаревших запросов.
+ * final: конструктор подписывает слушателя на текст, подкласс увидел бы себя недостроенным
+ */
+public final class LiveSearch<R> {
+
+    // Максимум строк в результатах поиска
+    public static final int MAX_RESULTS = 200;
+
+    private static final int DEFAULT_DEBOUNCE_MS = 250;
+    private static final int DEFAULT_MIN_LENGTH = 2;
+
+    private final Function<String, R> query;
+    private final Consumer<R> onResults;
+    private final Runnable onCleared;
+    private final PauseTransition debounce;
+    private final int minLength;
+
+    // Номер последнего запроса: результаты более ранних игнорируются
+    private long generation;
+    private Task<R> running;
+    private boolean enabled = true;
+
+    /**
+     * @param text      текст поиска (например, searchField.textProperty())
+     * @param query     запрос к БД, выполняется в фоне
+     * @param onResults показать результаты (FX-поток)
+     * @param onCleared поле очищено - показать полный список (FX-поток)
+     */
+    public LiveSearch(ObservableValue<String> text, Function<String, R> query,
+                      Consumer<R> onResults, Runnable onCleared) {
+        this(text, query, onResults, onCleared, DEFAULT_DEBOUNCE_MS, DEFAULT_MIN_LENGTH);
+    }
+
+    public LiveSearch(ObservableValue<String> text, Function<String, R> query,
+                      Consumer<R> onResults, Runnable onCleared,
+                      int debounceMillis, int minLength) {
+        this.query = query;
+        this.onResults = onResults;
+        this.onCleared = onCleared;
+        this.minLength = minLength;
+
+        debounce = new PauseTransition(Duration.millis(debounceMillis));
+        debounce.setOnFinished(event -> search(text.getValue()));
+        text.addListener((obs, oldVal, newVal) -> {
+            if (enabled) {
+                debounce.playFromStart();
+            }
+        });
+    }
+
+    /**
+     * Включить или отключить серверный поиск (например, когда фильтрует клиент)
+     */
+    public void setEnabled(boolean enabled) {
+        if (!enabled) {
+            cancel();
+        }
+        this.enabled = enabled;
+    }
+
+    /**
+     * Выполнить поиск немедленно
+     */
+    public void search(String text) {
+        debounce.stop();
+        String keyword = text == null ? "" : text.trim();
+
+        if (keyword.isEmpty()) {
+            cancelRunning();
+            generation++;
+            onCleared.run();
+            return;
+        }
+
+        // Одна-две буквы совпадают почти со всей таблицей - ждём уточнения.
+        // Поиск по прежнему, более длинному запросу уже не нужен
+        if (keyword.length() < minLength) {
+            cancelRunning();
+            generation++;
+            return;
+        }
+
+        cancelRunning();
+        long requestGeneration = ++generation;
+        running = BackgroundTasks.run(() -> query.apply(keyword), result -> {
+            if (requestGeneration == generation) {
+                running = null;
+                onResults.accept(result);
+            }
+        });
+    }
+
+    /**
+     * Прервать ожидающий или выполняющийся поиск
+     */
+    public void cancel() {
+        debounce.stop();
+        cancelRunning();
+        generation++;
+    }
+
+    private void cancelRunning() {
+        if (running != null) {
+            running.cancel(true);
+            running = null;
+        }
+    }
+}
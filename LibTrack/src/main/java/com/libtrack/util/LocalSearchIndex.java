@@ -0,0 +1,116 @@
+package com.libtrack.util;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.collections.transformation.FilteredList;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Снимок таблицы в памяти с фильтрацией на клиенте.
+ * Ключи поиска (поля в нижнем регистре) считаются один раз при загрузке
+ * и пересчитываются только для изменённых записей
+ */
+public class LocalSearchIndex<T> {
+
+    // Порог по количеству строк: выше него выгоднее искать на сервере
+    public static final int CLIENT_FILTER_THRESHOLD =
+            AppConfig.getInt("libtrack.search.clientThreshold", 5000);
+
+    private final ObservableList<T> snapshot = FXCollections.observableArrayList();
+    private final FilteredList<T> filtered = new FilteredList<>(snapshot);
+    private final Map<T, String> keys = new IdentityHashMap<>();
+    private final Function<T, String> keyExtractor;
+
+    /**
+     * @param keyExtractor ключ поиска записи, см. {@link #key(String...)}
+     */
+    public LocalSearchIndex(Function<T, String> keyExtractor) {
+        this.keyExtractor = keyExtractor;
+    }
+
+    /**
+     * Собрать ключ поиска из полей записи
+     */
+    public static String key(String... fields) {
+        StringBuilder key = new StringBuilder();
+        for (String field : fields) {
+            if (field != null) {
+                // Разделитель не даёт совпасть строке на стыке двух полей
+                key.append(field.toLowerCase(Locale.ROOT)).append('\n');
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * Отфильтрованный список для таблицы
+     */
+    public FilteredList<T> getItems() {
+        return filtered;
+    }
+
+    /**
+     * Количество записей в снимке (без учёта фильтра)
+     */
+    public int getTotalCount() {
+        return snapshot.size();
+    }
+
+    /**
+     * Заменить снимок целиком
+     */
+    public void setAll(List<T> items) {
+        keys.clear();
+        for (T item : items) {
+            keys.put(item, keyExtractor.apply(item));
+        }
+        snapshot.setAll(items);
+    }
+
+    /**
+     * Применить фильтр (пустая строка - показать всё)
+     */
+    public void filter(String text) {
+        String query = text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+        if (query.isEmpty()) {
+            filtered.setPredicate(null);
+        } else {
+            filtered.setPredicate(item -> keys.getOrDefault(item, "").contains(query));
+        }
+    }
+
+    /**
+     * Добавить новую запись
+     */
+    public void add(T item) {
+        keys.put(item, keyExtractor.apply(item));
+        snapshot.add(item);
+    }
+
+    /**
+     * Обновить изменённую запись (тот же объект)
+     */
+    public void update(T item) {
+        keys.put(item, keyExtractor.apply(item));
+        int index = snapshot.indexOf(item);
+        if (index >= 0) {
+            // Замена элемента заставляет FilteredList заново проверить запись
+            snapshot.set(index, item);
+        } else {
+            snapshot.add(item);
+        }
+    }
+
+    /**
+     * Удалить запись
+     */
+    public void remove(T item) {
+        keys.remove(item);
+        snapshot.remove(item);
+    }
+}
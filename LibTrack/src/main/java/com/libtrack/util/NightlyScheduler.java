@@ -0,0 +1,99 @@
+package com.libtrack.util;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Планировщик ночных задач: выполняет зарегистрированные задачи
+ * при запуске приложения и затем каждый день сразу после полуночи
+ */
+public class NightlyScheduler {
+
+    // Запас после полуночи, чтобы CURDATE() на сервере уже сменилась
+    private static final long MIDNIGHT_MARGIN_MS = 5_000;
+
+    private static NightlyScheduler instance;
+
+    private final List<Runnable> tasks = new CopyOnWriteArrayList<>();
+    private ScheduledExecutorService executor;
+
+    private NightlyScheduler() {
+    }
+
+    /**
+     * Получить экземпляр планировщика
+     */
+    public static synchronized NightlyScheduler getInstance() {
+        if (instance == null) {
+            instance = new NightlyScheduler();
+        }
+        return instance;
+    }
+
+    /**
+     * Зарегистрировать задачу (выполняются по порядку регистрации)
+     */
+    public void register(Runnable task) {
+        tasks.add(task);
+    }
+
+    /**
+     * Запустить: задачи выполняются сразу, затем каждую полночь
+     */
+    public synchronized void start() {
+        if (executor != null) {
+            return;
+        }
+
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "libtrack-nightly");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.execute(this::runAndReschedule);
+    }
+
+    /**
+     * Остановить планировщик
+     */
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    /**
+     * Выполнить все задачи и запланировать следующий запуск.
+     * Задержка пересчитывается каждый раз, чтобы не «уплывать» при переводе часов
+     */
+    private void runAndReschedule() {
+        for (Runnable task : tasks) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                System.err.println("✗ Ошибка ночной задачи " +
+                        task.getClass().getSimpleName() + ": " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+
+        synchronized (this) {
+            if (executor != null && !executor.isShutdown()) {
+                executor.schedule(this::runAndReschedule, millisUntilMidnight(), TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private long millisUntilMidnight() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime midnight = LocalDate.now().plusDays(1).atStartOfDay();
+        return Duration.between(now, midnight).toMillis() + MIDNIGHT_MARGIN_MS;
+    }
+}
@@ -0,0 +1,455 @@
+package com.libtrack.util;
+
+import javafx.collections.ObservableListBase;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.IntSupplier;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * Ленивый список для TableView: знает общее количество строк,
+ * а сами строки подгружает страницами по мере прокрутки.
+ * Пока страница грузится, её строки равны null (таблица рисует пустые строки).
+ * В памяти держится ограниченное число страниц (LRU).
+ * Сортировка выполняется в SQL (ORDER BY), а не в памяти.
+ * Вставка и удаление одной строки (inserted/removed) дают таблице одно событие
+ * на одну позицию, поэтому выделение и прокрутка сохраняются
+ */
+public class PagedList<T> extends ObservableListBase<T> {
+
+    /**
+     * Запрос страницы данных
+     */
+    @FunctionalInterface
+    public interface PageQuery<T> {
+        List<T> fetch(int offset, int limit, String sortKey, boolean ascending);
+    }
+
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int DEFAULT_MAX_PAGES = 20;
+
+    private final IntSupplier countQuery;
+    private final PageQuery<T> pageQuery;
+    private final int pageSize;
+    private final Map<Integer, List<T>> pages;
+    private final Set<Integer> loading = new HashSet<>();
+
+    private int size;
+    private String sortKey;
+    private boolean ascending = true;
+    // Меняется при refresh() и сдвиге строк: страницы старой выборки отбрасываются
+    private long generation;
+    // Вставки и удаления выполняются по очереди: каждая сверяется с результатом предыдущей
+    private final Deque<Runnable> pendingShifts = new ArrayDeque<>();
+    private boolean shiftRunning;
+
+    public PagedList(IntSupplier countQuery, PageQuery<T> pageQuery) {
+        this(countQuery, pageQuery, DEFAULT_PAGE_SIZE, DEFAULT_MAX_PAGES);
+    }
+
+    public PagedList(IntSupplier countQuery, PageQuery<T> pageQuery, int pageSize, int maxPages) {
+        this.countQuery = countQuery;
+        this.pageQuery = pageQuery;
+        this.pageSize = pageSize;
+        this.pages = new LinkedHashMap<>(maxPages + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<T>> eldest) {
+                return size() > maxPages;
+            }
+        };
+    }
+
+    @Override
+    public T get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        }
+
+        int page = index / pageSize;
+        List<T> rows = pages.get(page);
+        if (rows == null) {
+            requestPage(page);
+            return null;
+        }
+
+        int offset = index % pageSize;
+        return offset < rows.size() ? rows.get(offset) : null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Перечитать количество строк и сбросить загруженные страницы
+     */
+    public void refresh() {
+        long requestGeneration = ++generation;
+        pages.clear();
+        loading.clear();
+        pendingShifts.clear();
+        shiftRunning = false;
+
+        BackgroundTasks.run(countQuery::getAsInt, newSize -> {
+            if (requestGeneration != generation) {
+                return;
+            }
+            int oldSize = size;
+            size = newSize;
+
+            beginChange();
+            if (oldSize > 0) {
+                nextRemove(0, Collections.nCopies(oldSize, null));
+            }
+            if (newSize > 0) {
+                nextAdd(0, newSize);
+            }
+            endChange();
+        });
+    }
+
+    /**
+     * Строка добавлена в БД. Её место в сортировке SQL известно только базе,
+     * поэтому загруженные страницы перечитываются и позиция находится по ним
+     * @param idOf ID строки
+     */
+    public void inserted(T item, ToIntFunction<T> idOf) {
+        int id = idOf.applyAsInt(item);
+        enqueueShift(() -> shift(id, idOf, true));
+    }
+
+    /**
+     * Строка удалена из БД: её позиция берётся из загруженных страниц
+     * (или по сдвигу строк, если страница не в памяти)
+     * @param idOf ID строки
+     */
+    public void removed(int id, ToIntFunction<T> idOf) {
+        enqueueShift(() -> shift(id, idOf, false));
+    }
+
+    private void enqueueShift(Runnable shift) {
+        pendingShifts.add(shift);
+        if (!shiftRunning) {
+            runNextShift();
+        }
+    }
+
+    private void runNextShift() {
+        Runnable next = pendingShifts.poll();
+        shiftRunning = next != null;
+        if (next != null) {
+            next.run();
+        }
+    }
+
+    /**
+     * Перечитать затронутую страницу и сообщить таблице о вставке или удалении одной строки.
+     * Страницы до неё не меняются, следующие сдвигаются на одну строку в памяти;
+     * страницы за пределами загруженных не запрашиваются
+     */
+    private void shift(int id, ToIntFunction<T> idOf, boolean insert) {
+        long requestGeneration = generation;
+        String requestSortKey = sortKey;
+        boolean requestAscending = ascending;
+        Map<Integer, List<T>> before = new TreeMap<>(pages);
+
+        BackgroundTasks.run(() -> {
+            Map<Integer, List<T>> after = refetch(id, idOf, insert, before, requestSortKey, requestAscending);
+            // Вставка за пределами загруженных страниц: повтор уже учтённой вставки отличает только COUNT
+            int count = insert && locate(id, idOf, true, before, after) < 0 ? countQuery.getAsInt() : -1;
+            return new Refetched<>(after, count);
+        }, refetched -> {
+            if (requestGeneration != generation) {
+                return;
+            }
+            applyShift(id, idOf, insert, before, refetched);
+            runNextShift();
+        }, error -> {
+            if (requestGeneration != generation) {
+                return;
+            }
+            System.err.println("✗ Ошибка загрузки страницы: " + error.getMessage());
+            refresh();
+        });
+    }
+
+    /**
+     * Страницы после вставки или удаления одной строки (выполняется в фоне)
+     */
+    private Map<Integer, List<T>> refetch(int id, ToIntFunction<T> idOf, boolean insert,
+                                          Map<Integer, List<T>> before, String sortKey, boolean ascending) {
+        List<Integer> loaded = new ArrayList<>(before.keySet());
+        int removedAt = insert ? -1 : indexOf(before, id, idOf);
+        int first;
+        if (removedAt >= 0) {
+            first = loaded.indexOf(removedAt / pageSize);
+        } else {
+            // Первая загруженная страница, первая строка которой сдвинулась (делением пополам,
+            // запросами по одной строке); изменение - на предыдущей странице или перед ней
+            int low = 0;
+            int high = loaded.size();
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                int page = loaded.get(middle);
+                // Пустая страница - за концом данных, то есть после изменения
+                if (!before.get(page).isEmpty()
+                        && sameFirstRow(before.get(page), pageQuery.fetch(page * pageSize, 1, sortKey, ascending), idOf)) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            first = Math.max(0, low - 1);
+        }
+
+        Map<Integer, List<T>> after = new TreeMap<>();
+        // Первая строка следующей страницы после сдвига (null - неизвестна)
+        T carried = null;
+        for (int i = 0; i < loaded.size(); i++) {
+            int page = loaded.get(i);
+            List<T> rows = before.get(page);
+            if (i < first) {
+                after.put(page, rows);
+                continue;
+            }
+
+            // Вставка берёт строку с предыдущей страницы - она должна быть соседней
+            List<T> shifted = i > first && (!insert || loaded.get(i - 1) == page - 1)
+                    ? shiftedPage(rows, before.get(page + 1), carried, insert) : null;
+            if (shifted == null) {
+                // Лишняя строка - первая строка следующей страницы
+                shifted = new ArrayList<>(pageQuery.fetch(page * pageSize, pageSize + 1, sortKey, ascending));
+                carried = shifted.size() > pageSize ? shifted.remove(pageSize) : null;
+            } else {
+                carried = insert && rows.size() == pageSize ? rows.get(pageSize - 1) : null;
+            }
+            after.put(page, shifted);
+        }
+        return after;
+    }
+
+    /**
+     * Страница, сдвинутая на одну строку без запроса (изменение выше её начала)
+     * @param carried первая строка страницы после вставки (последняя строка предыдущей)
+     * @return строки или null, если нужной соседней строки нет в памяти
+     */
+    private List<T> shiftedPage(List<T> rows, List<T> next, T carried, boolean insert) {
+        List<T> shifted = new ArrayList<>(pageSize);
+        if (insert) {
+            if (carried == null) {
+                return null;
+            }
+            shifted.add(carried);
+            shifted.addAll(rows.subList(0, Math.min(rows.size(), pageSize - 1)));
+            return shifted;
+        }
+
+        if (rows.isEmpty()) {
+            return rows;
+        }
+        shifted.addAll(rows.subList(1, rows.size()));
+        if (rows.size() == pageSize) {
+            // Снизу подтягивается первая строка следующей страницы
+            if (next == null) {
+                return null;
+            }
+            if (!next.isEmpty()) {
+                shifted.add(next.get(0));
+            }
+        }
+        return shifted;
+    }
+
+    /**
+     * Применить сдвиг. Повтор уже применённой вставки или удаления (своя запись,
+     * вернувшаяся через журнал изменений) ничего не меняет
+     */
+    private void applyShift(int id, ToIntFunction<T> idOf, boolean insert,
+                            Map<Integer, List<T>> before, Refetched<T> refetched) {
+        Map<Integer, List<T>> after = refetched.pages;
+        if (insert ? indexOf(before, id, idOf) >= 0 : size == 0) {
+            return;
+        }
+
+        int index = locate(id, idOf, insert, before, after);
+        if (index < 0) {
+            // Удалённой строки нет ни в страницах, ни по сдвигу - она уже убрана.
+            // Новая строка за последней загруженной страницей - только если COUNT вырос
+            if (!insert || refetched.count <= size) {
+                return;
+            }
+            index = size;
+        }
+        index = Math.max(0, Math.min(index, insert ? size : size - 1));
+
+        T removedRow = insert ? null : rowAt(before, index);
+        ++generation;
+        loading.clear();
+        pages.clear();
+        pages.putAll(after);
+        size += insert ? 1 : -1;
+
+        beginChange();
+        if (insert) {
+            nextAdd(index, index + 1);
+        } else {
+            nextRemove(index, removedRow);
+        }
+        endChange();
+    }
+
+    /**
+     * Позиция вставленной или удалённой строки по загруженным страницам
+     * @return индекс или -1, если по страницам её не найти
+     */
+    private int locate(int id, ToIntFunction<T> idOf, boolean insert,
+                       Map<Integer, List<T>> before, Map<Integer, List<T>> after) {
+        // Новая строка ищется в свежих страницах, удалённая - в прежних
+        int index = indexOf(insert ? after : before, id, idOf);
+        if (index >= 0) {
+            return index;
+        }
+        // Строка вне загруженных страниц: она перед первой страницей, строки которой сдвинулись
+        for (Map.Entry<Integer, List<T>> entry : after.entrySet()) {
+            int page = entry.getKey();
+            if (!sameFirstRow(before.get(page), entry.getValue(), idOf)) {
+                return insert ? page * pageSize : page * pageSize - 1;
+            }
+        }
+        return -1;
+    }
+
+    private int indexOf(Map<Integer, List<T>> loaded, int id, ToIntFunction<T> idOf) {
+        for (Map.Entry<Integer, List<T>> entry : loaded.entrySet()) {
+            List<T> rows = entry.getValue();
+            for (int i = 0; i < rows.size(); i++) {
+                T row = rows.get(i);
+                if (row != null && idOf.applyAsInt(row) == id) {
+                    return entry.getKey() * pageSize + i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private boolean sameFirstRow(List<T> before, List<T> after, ToIntFunction<T> idOf) {
+        if (before.isEmpty() || after.isEmpty()) {
+            return before.isEmpty() == after.isEmpty();
+        }
+        return idOf.applyAsInt(before.get(0)) == idOf.applyAsInt(after.get(0));
+    }
+
+    private T rowAt(Map<Integer, List<T>> loaded, int index) {
+        List<T> rows = loaded.get(index / pageSize);
+        int offset = index % pageSize;
+        return rows != null && offset < rows.size() ? rows.get(offset) : null;
+    }
+
+    /**
+     * Найти строку среди уже загруженных страниц (загрузку не запускает)
+     * @return строка или null, если её страница не в памяти
+     */
+    public T findLoaded(Predicate<T> predicate) {
+        for (List<T> rows : pages.values()) {
+            for (T row : rows) {
+                if (row != null && predicate.test(row)) {
+                    return row;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Установить сортировку (ключ понимает источник данных) и перечитать
+     */
+    public void setSort(String sortKey, boolean ascending) {
+        this.sortKey = sortKey;
+        this.ascending = ascending;
+        refresh();
+    }
+
+    private void requestPage(int page) {
+        if (!loading.add(page)) {
+            return;
+        }
+
+        long requestGeneration = generation;
+        String requestSortKey = sortKey;
+        boolean requestAscending = ascending;
+
+        BackgroundTasks.run(
+                () -> pageQuery.fetch(page * pageSize, pageSize, requestSortKey, requestAscending),
+                rows -> {
+                    if (requestGeneration != generation) {
+                        return;
+                    }
+                    loading.remove(page);
+                    pages.put(page, rows);
+
+                    int from = page * pageSize;
+                    int to = Math.min(from + pageSize, size);
+                    if (from < to) {
+                        beginChange();
+                        nextReplace(from, to, Collections.nCopies(to - from, null));
+                        endChange();
+                    }
+                },
+                error -> {
+                    loading.remove(page);
+                    System.err.println("✗ Ошибка загрузки страницы: " + error.getMessage());
+                });
+    }
+
+    /**
+     * Передавать сортировку таблицы в PagedList (ORDER BY в SQL).
+     * Колонки без ключа сортируются только в обычном списке
+     * (результаты поиска, фильтры), для PagedList сортировка по ним отклоняется
+     */
+    public static <S> void bindSorting(TableView<S> table, Map<TableColumn<S, ?>, String> sortKeys) {
+        table.setSortPolicy(t -> {
+            if (!(t.getItems() instanceof PagedList<S> paged)) {
+                return TableView.DEFAULT_SORT_POLICY.call(t);
+            }
+
+            if (t.getSortOrder().isEmpty()) {
+                paged.setSort(null, true);
+                return true;
+            }
+
+            TableColumn<S, ?> column = t.getSortOrder().get(0);
+            String key = sortKeys.get(column);
+            if (key == null) {
+                return false;
+            }
+            paged.setSort(key, column.getSortType() == TableColumn.SortType.ASCENDING);
+            return true;
+        });
+    }
+
+    /**
+     * Перечитанные страницы и, если понадобилось, свежее количество строк (-1 - не запрашивалось)
+     */
+    private static class Refetched<T> {
+        private final Map<Integer, List<T>> pages;
+        private final int count;
+
+        Refetched(Map<Integer, List<T>> pages, int count) {
+            this.pages = pages;
+            this.count = count;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.libtrack.util;
+
+import javafx.application.Platform;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Объединение запросов на перезагрузку данных.
+ * Запросы к одному источнику в пределах короткого окна сливаются в одну загрузку
+ * в фоне; в FX-поток применяется только результат последнего запроса.
+ * Методы вызываются из FX-потока
+ */
+public class RefreshScheduler {
+
+    // Окно объединения запросов (-Dlibtrack.refresh.windowMs=0 - без задержки)
+    private static final long WINDOW_MS = Math.max(0, AppConfig.getInt("libtrack.refresh.windowMs", 50));
+
+    private static final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "libtrack-refresh-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static RefreshScheduler instance;
+
+    private final Map<String, Source> sources = new HashMap<>();
+
+    private RefreshScheduler() {
+    }
+
+    public static RefreshScheduler getInstance() {
+        if (instance == null) {
+            instance = new RefreshScheduler();
+        }
+        return instance;
+    }
+
+    /**
+     * Запросить перезагрузку источника: loader выполняется в фоне, apply - в FX-потоке.
+     * Повторный запрос до начала загрузки заменяет предыдущий
+     */
+    public <T> void request(String source, Callable<T> loader, Consumer<T> apply) {
+        Source state = sources.computeIfAbsent(source, key -> new Source());
+        state.pending = new Request<>(loader, apply);
+        state.generation++;
+
+        if (!state.scheduled && !state.loading) {
+            schedule(source, state);
+        }
+    }
+
+    /**
+     * Отменить ожидающую перезагрузку источника (уже идущая загрузка не применится)
+     */
+    public void cancel(String source) {
+        Source state = sources.get(source);
+        if (state != null) {
+            state.pending = null;
+            state.generation++;
+        }
+    }
+
+    /**
+     * Отменить все ожидающие перезагрузки (при выходе из системы)
+     */
+    public void cancelAll() {
+        for (Source state : sources.values()) {
+            state.pending = null;
+            state.generation++;
+        }
+    }
+
+    private void schedule(String source, Source state) {
+        state.scheduled = true;
+        timer.schedule(() -> Platform.runLater(() -> start(source, state)), WINDOW_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private void start(String source, Source state) {
+        state.scheduled = false;
+        Request<?> request = state.pending;
+        if (request == null) {
+            return;
+        }
+        state.pending = null;
+        state.loading = true;
+        load(source, state, request, state.generation);
+    }
+
+    private <T> void load(String source, Source state, Request<T> request, long requestGeneration) {
+        BackgroundTasks.run(request.loader, result -> {
+            finish(source, state);
+            // Пока шла загрузка, пришёл более новый запрос - его результат и применится
+            if (requestGeneration == state.generation) {
+                request.apply.accept(result);
+            }
+        }, error -> {
+            finish(source, state);
+            System.err.println("✗ Ошибка обновления " + source + ": " + error.getMessage());
+            error.printStackTrace();
+        });
+    }
+
+    private void finish(String source, Source state) {
+        state.loading = false;
+        if (state.pending != null && !state.scheduled) {
+            schedule(source, state);
+        }
+    }
+
+    /**
+     * Состояние одного источника данных
+     */
+    private static class Source {
+        private Request<?> pending;
+        private long generation;
+        private boolean scheduled;
+        private boolean loading;
+    }
+
+    private static class Request<T> {
+        private final Callable<T> loader;
+        private final Consumer<T> apply;
+
+        Request(Callable<T> loader, Consumer<T> apply) {
+            this.loader = loader;
+            this.apply = apply;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.libtrack.util;
+
+/**
+ * Экран, который умеет перечитать свои данные без пересоздания.
+ * Вызывается, когда закэшированный экран показывается повторно
+ */
+public interface Refreshable {
+
+    /**
+     * Перечитать данные экрана
+     */
+    void refresh();
+}
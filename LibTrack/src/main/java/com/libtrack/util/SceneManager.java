@@ -1,5 +1,6 @@
 package com.libtrack.util;
 
+import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
@@ -26,6 +27,10 @@ public class SceneManager {
     // Путь к стилям
     private static final String STYLES_CSS = "/css/style.css";
 
+    // Главный экран, собранный заранее, пока открыт экран входа
+    private static Scene preparedDashboard;
+    private static Object preparedDashboardController;
+
     /**
      * Установить главный Stage
      */
@@ -127,6 +132,9 @@ public class SceneManager {
             loadScene(LOGIN_FXML, "Вход в систему", 450, 550);
             primaryStage.setMaximized(false);
             primaryStage.setResizable(true);
+
+            // Пока вводится пароль, собрать главный экран
+            Platform.runLater(SceneManager::prepareDashboard);
         } catch (IOException e) {
             System.err.println("✗ Ошибка загрузки экрана входа: " + e.getMessage());
             e.printStackTrace();
@@ -134,18 +142,69 @@ public class SceneManager {
     }
 
     /**
-     * Загрузить главный экран с боковым меню
+     * Заранее разобрать FXML главного экрана и применить к нему стили.
+     * Данные (приветствие, счётчики) загружаются только при показе, после входа
      */
-    public static void showDashboard() {
+    public static void prepareDashboard() {
+        if (preparedDashboard != null) {
+            return;
+        }
+
         try {
-            loadScene(DASHBOARD_FXML, "Главная", 1200, 800);
-            primaryStage.setMaximized(true);
+            FXMLLoader loader = new FXMLLoader(SceneManager.class.getResource(DASHBOARD_FXML));
+            Parent root = loader.load();
+
+            Scene scene = new Scene(root, 1200, 800);
+            applyStyles(scene);
+            root.applyCss();
+
+            preparedDashboard = scene;
+            preparedDashboardController = loader.getController();
+            StartupTimer.mark("Главный экран подготовлен");
         } catch (IOException e) {
-            System.err.println("✗ Ошибка загрузки главного экрана: " + e.getMessage());
+            System.err.println("✗ Ошибка подготовки главного экрана: " + e.getMessage());
             e.printStackTrace();
         }
     }
 
+    /**
+     * Показать главный экран с боковым меню
+     */
+    public static void showDashboard() {
+        if (primaryStage == null) {
+            throw new IllegalStateException("Primary stage не установлен");
+        }
+
+        prepareDashboard();
+        Scene scene = preparedDashboard;
+        Object controller = preparedDashboardController;
+        // Сцена используется один раз: после выхода соберётся заново
+        preparedDashboard = null;
+        preparedDashboardController = null;
+        if (scene == null) {
+            return;
+        }
+
+        if (controller instanceof Refreshable refreshable) {
+            refreshable.refresh();
+        }
+
+        Runnable firstPulse = new Runnable() {
+            @Override
+            public void run() {
+                scene.removePostLayoutPulseListener(this);
+                StartupTimer.mark("Главный экран показан");
+            }
+        };
+        scene.addPostLayoutPulseListener(firstPulse);
+
+        primaryStage.setScene(scene);
+        primaryStage.setTitle("LibTrack - Главная");
+        primaryStage.centerOnScreen();
+        primaryStage.setMaximized(true);
+        System.out.println("✓ Загружена сцена: " + DASHBOARD_FXML);
+    }
+
     /**
      * Открыть экран управления книгами
      * @deprecated Теперь загружается внутри Dashboard через DashboardController
@@ -0,0 +1,40 @@
+package com.libtrack.util;
+
+import java.time.Instant;
+
+/**
+ * Отметки времени этапов запуска и входа в систему (вывод в консоль).
+ * Время считается от старта JVM
+ */
+public class StartupTimer {
+
+    private static final long JVM_START_MS = ProcessHandle.current().info().startInstant()
+            .map(Instant::toEpochMilli)
+            .orElse(System.currentTimeMillis());
+
+    private static long lastMarkMs = JVM_START_MS;
+
+    private StartupTimer() {
+    }
+
+    /**
+     * Отметить завершение этапа основного сценария (время с прошлой отметки и с запуска)
+     */
+    public static synchronized void mark(String phase) {
+        long now = System.currentTimeMillis();
+        System.out.println("⏱ " + phase + ": +" + (now - lastMarkMs) + " мс" +
+                " (с запуска " + (now - JVM_START_MS) + " мс)");
+        lastMarkMs = now;
+    }
+
+    /**
+     * Выполнить и замерить отдельную задачу (прогрев идёт параллельно основному сценарию)
+     */
+    public static void measure(String phase, Runnable task) {
+        long start = System.currentTimeMillis();
+        task.run();
+        long end = System.currentTimeMillis();
+        System.out.println("⏱ " + phase + ": " + (end - start) + " мс" +
+                " (готово через " + (end - JVM_START_MS) + " мс после запуска)");
+    }
+}
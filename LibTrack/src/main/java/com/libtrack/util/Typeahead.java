@@ -0,0 +1,151 @@
+package com.libtrack.util;
+
+import javafx.beans.property.SimpleStringProperty;
+import javafx.beans.property.StringProperty;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.TextField;
+import javafx.util.StringConverter;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.BiPredicate;
+
+/**
+ * Выбор из большого справочника в ComboBox с подсказками по мере ввода.
+ * Список не загружается целиком: по введённому префиксу выполняется
+ * ограниченный запрос к индексу, ответы кэшируются по префиксу
+ */
+public final class Typeahead<T> {
+
+    // Максимум подсказок в выпадающем списке
+    public static final int MAX_SUGGESTIONS = 50;
+
+    private static final int MAX_CACHED_PREFIXES = 200;
+    private static final int DEBOUNCE_MS = 200;
+
+    private final ComboBox<T> comboBox;
+    private final BiFunction<String, Integer, List<T>> query;
+    private final BiPredicate<T, String> matches;
+    private final Map<String, List<T>> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, List<T>> eldest) {
+            return size() > MAX_CACHED_PREFIXES;
+        }
+    };
+
+    // Текст, набранный пользователем (без подстановки выбранного значения)
+    private final StringProperty typed = new SimpleStringProperty("");
+    private boolean applying;
+
+    /**
+     * @param comboBox ComboBox, становится редактируемым
+     * @param query    запрос подсказок (префикс, лимит), выполняется в фоне
+     * @param matches  совпадает ли элемент с префиксом в нижнем регистре
+     *                 (та же логика, что в запросе - для сужения закэшированного ответа)
+     */
+    public Typeahead(ComboBox<T> comboBox, BiFunction<String, Integer, List<T>> query,
+                     BiPredicate<T, String> matches) {
+        this.comboBox = comboBox;
+        this.query = query;
+        this.matches = matches;
+
+        comboBox.setEditable(true);
+        comboBox.setConverter(new StringConverter<>() {
+            @Override
+            public String toString(T item) {
+                return item == null ? "" : item.toString();
+            }
+
+            @Override
+            public T fromString(String text) {
+                T value = comboBox.getValue();
+                if (value != null && value.toString().equals(text)) {
+                    return value;
+                }
+                for (T item : comboBox.getItems()) {
+                    if (item.toString().equals(text)) {
+                        return item;
+                    }
+                }
+                return null;
+            }
+        });
+
+        comboBox.getEditor().textProperty().addListener((obs, oldVal, text) -> {
+            T value = comboBox.getValue();
+            if (applying || (value != null && value.toString().equals(text))) {
+                return;
+            }
+            typed.set(text);
+        });
+
+        new LiveSearch<>(typed, this::lookup, this::showSuggestions,
+                () -> comboBox.getItems().clear(), DEBOUNCE_MS, 1);
+    }
+
+    /**
+     * Сбросить кэш подсказок (данные изменились, например, после выдачи книги)
+     */
+    public void invalidate() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * Подсказки по префиксу: из кэша, сужением ответа на более короткий префикс
+     * (если тот был неполным, в нём уже есть все совпадения) или запросом к БД
+     */
+    private List<T> lookup(String prefix) {
+        String key = prefix.toLowerCase();
+
+        synchronized (cache) {
+            List<T> cached = cache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+            for (int length = key.length() - 1; length > 0; length--) {
+                List<T> shorter = cache.get(key.substring(0, length));
+                if (shorter != null && shorter.size() < MAX_SUGGESTIONS) {
+                    List<T> narrowed = shorter.stream()
+                            .filter(item -> matches.test(item, key))
+                            .toList();
+                    cache.put(key, narrowed);
+                    return narrowed;
+                }
+            }
+        }
+
+        List<T> results = List.copyOf(query.apply(prefix, MAX_SUGGESTIONS));
+        synchronized (cache) {
+            cache.put(key, results);
+        }
+        return results;
+    }
+
+    private void showSuggestions(List<T> suggestions) {
+        TextField editor = comboBox.getEditor();
+        String text = editor.getText();
+        int caret = editor.getCaretPosition();
+
+        // Замена элементов может сбросить значение и вместе с ним текст редактора
+        applying = true;
+        try {
+            comboBox.getItems().setAll(suggestions);
+            if (!text.equals(editor.getText())) {
+                editor.setText(text);
+                editor.positionCaret(caret);
+            }
+        } finally {
+            applying = false;
+        }
+
+        if (suggestions.isEmpty()) {
+            comboBox.hide();
+        } else if (editor.isFocused()) {
+            comboBox.show();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.libtrack.util;
+
+import javafx.application.Platform;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Parent;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Кэш экранов главного окна: каждый FXML разбирается один раз,
+ * узлы и контроллер живут до выхода из системы.
+ * Повторный показ экрана вызывает refresh() контроллера вместо пересоздания
+ */
+public class ViewRegistry {
+
+    private static ViewRegistry instance;
+
+    // Предзагрузка экранов после входа (-Dlibtrack.views.preload=false чтобы отключить)
+    private static final boolean PRELOAD_ENABLED = AppConfig.getBoolean("libtrack.views.preload", true);
+
+    private final Map<String, View> views = new HashMap<>();
+    private final Deque<String> preloadQueue = new ArrayDeque<>();
+
+    private ViewRegistry() {
+    }
+
+    public static ViewRegistry getInstance() {
+        if (instance == null) {
+            instance = new ViewRegistry();
+        }
+        return instance;
+    }
+
+    /**
+     * Получить экран для показа.
+     * Новый экран загружается, закэшированный - обновляется через Refreshable
+     * @return экран или null, если FXML не удалось загрузить
+     */
+    public View show(String fxmlPath) {
+        preloadQueue.remove(fxmlPath);
+
+        View view = views.get(fxmlPath);
+        if (view != null) {
+            if (view.controller instanceof Refreshable refreshable) {
+                refreshable.refresh();
+            }
+            return view;
+        }
+        return load(fxmlPath);
+    }
+
+    /**
+     * Предзагрузить экраны после входа.
+     * Загрузка идёт на FX-потоке по одному экрану за раз (контроллеры создают
+     * узлы и анимации), поэтому между экранами интерфейс остаётся отзывчивым
+     */
+    public void preload(String... fxmlPaths) {
+        if (!PRELOAD_ENABLED) {
+            return;
+        }
+        boolean idle = preloadQueue.isEmpty();
+        preloadQueue.addAll(Arrays.asList(fxmlPaths));
+        if (idle) {
+            Platform.runLater(this::preloadNext);
+        }
+    }
+
+    /**
+     * Забыть все экраны (при выходе из системы: данные и права другого пользователя)
+     */
+    public void clear() {
+        preloadQueue.clear();
+        views.clear();
+    }
+
+    private void preloadNext() {
+        String fxmlPath = preloadQueue.poll();
+        if (fxmlPath == null) {
+            return;
+        }
+        if (!views.containsKey(fxmlPath)) {
+            load(fxmlPath);
+        }
+        if (!preloadQueue.isEmpty()) {
+            Platform.runLater(this::preloadNext);
+        }
+    }
+
+    private View load(String fxmlPath) {
+        long start = System.nanoTime();
+        try {
+            FXMLLoader loader = new FXMLLoader(ViewRegistry.class.getResource(fxmlPath));
+            Parent root = loader.load();
+            View view = new View(root, loader.getController());
+            views.put(fxmlPath, view);
+
+            System.out.println("✓ Загружен экран: " + fxmlPath +
+                    " (" + (System.nanoTime() - start) / 1_000_000 + " мс)");
+            return view;
+        } catch (IOException e) {
+            System.err.println("✗ Ошибка загрузки экрана: " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Загруженный экран: корневой узел и его контроллер
+     */
+    public static class View {
+        private final Parent root;
+        private final Object controller;
+
+        View(Parent root, Object controller) {
+            this.root = root;
+            this.controller = controller;
+        }
+
+        public Parent getRoot() {
+            return root;
+        }
+
+        public Object getController() {
+            return controller;
+        }
+    }
+}
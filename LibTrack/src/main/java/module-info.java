@@ -4,6 +4,7 @@ module com.libtrack {
     requires javafx.graphics;
     requires java.sql;
     requires bcrypt;
+    requires com.h2database;
 
     opens com.libtrack to javafx.fxml;
     opens com.libtrack.model to javafx.fxml;
@@ -0,0 +1,154 @@
+package com.libtrack.dao;
+
+import com.libtrack.model.Author;
+import com.libtrack.model.Book;
+import com.libtrack.model.Loan;
+import com.libtrack.model.LoanStatus;
+import com.libtrack.model.Visitor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Хранилище в памяти: свободные экземпляры, каскадное удаление и архив - как в схеме MySQL
+ */
+class InMemoryStoreTest {
+
+    private static final LocalDate TODAY = LocalDate.now();
+
+    private InMemoryStore store;
+    private InMemoryAuthorRepository authors;
+    private InMemoryBookRepository books;
+    private InMemoryVisitorRepository visitors;
+    private InMemoryLoanRepository loans;
+
+    private int authorId;
+    private int visitorId;
+
+    @BeforeEach
+    void setUp() {
+        store = new InMemoryStore();
+        authors = new InMemoryAuthorRepository(store);
+        books = new InMemoryBookRepository(store);
+        visitors = new InMemoryVisitorRepository(store);
+        loans = new InMemoryLoanRepository(store);
+
+        authorId = authors.addAuthor(new Author(0, "Лев", "Толстой", "", 1828, "Россия")).getAuthorId();
+        visitorId = visitors.addVisitor(new Visitor(0, "Иван", "Петров", "ivan@example.com",
+                "+77010000000", "", TODAY, null, "active")).getVisitorId();
+    }
+
+    @Test
+    void issueLoansTakesCopiesUntilNoneLeft() {
+        int bookId = addBook("9785170000001", 1);
+
+        int[] loanIds = loans.issueLoans(visitorId, List.of(bookId, bookId, 9999), TODAY, TODAY.plusDays(14), 1);
+
+        assertTrue(loanIds[0] > 0);
+        assertArrayEquals(new int[]{0, 0}, new int[]{loanIds[1], loanIds[2]});
+        assertEquals(0, books.getBookById(bookId).getCopiesAvailable());
+        assertEquals(1, loans.countActiveLoansByVisitor(visitorId));
+    }
+
+    @Test
+    void issueLoansLeavesCopiesWhenVisitorIsMissing() {
+        int bookId = addBook("9785170000002", 2);
+
+        int[] loanIds = loans.issueLoans(9999, List.of(bookId), TODAY, TODAY.plusDays(14), 1);
+
+        assertEquals(0, loanIds[0]);
+        assertEquals(2, books.getBookById(bookId).getCopiesAvailable());
+    }
+
+    @Test
+    void returnLoansReleasesCopiesOnce() {
+        int bookId = addBook("9785170000003", 2);
+        int loanId = loans.issueLoans(visitorId, List.of(bookId), TODAY, TODAY.plusDays(14), 1)[0];
+        assertEquals(1, books.getBookById(bookId).getCopiesAvailable());
+
+        Set<Integer> returned = loans.returnLoans(Map.of(loanId, 0.0), TODAY);
+        Set<Integer> again = loans.returnLoans(Map.of(loanId, 0.0), TODAY);
+
+        assertEquals(Set.of(loanId), returned);
+        assertTrue(again.isEmpty());
+        assertEquals(2, books.getBookById(bookId).getCopiesAvailable());
+        assertEquals(LoanStatus.RETURNED, loans.getLoansByIds(List.of(loanId)).get(0).getLoanStatus());
+    }
+
+    @Test
+    void deleteBookCascadesToLoans() {
+        int bookId = addBook("9785170000004", 1);
+        int loanId = loans.issueLoans(visitorId, List.of(bookId), TODAY, TODAY.plusDays(14), 1)[0];
+        long cursor = store.currentCursor();
+
+        assertTrue(books.deleteBook(bookId));
+
+        assertNull(books.getBookById(bookId));
+        assertTrue(loans.getLoansByIds(List.of(loanId)).isEmpty());
+        assertTrue(loans.getLoansByVisitor(visitorId).isEmpty());
+        assertTrue(books.getChangedSince(cursor).getDeletedIds().contains(bookId));
+        assertTrue(loans.getChangedSince(cursor).getDeletedIds().contains(loanId));
+    }
+
+    @Test
+    void deleteAuthorCascadesToBooksAndLoans() {
+        int firstBook = addBook("9785170000005", 1);
+        int secondBook = addBook("9785170000006", 1);
+        int loanId = loans.issueLoans(visitorId, List.of(firstBook), TODAY, TODAY.plusDays(14), 1)[0];
+
+        assertTrue(authors.deleteAuthor(authorId));
+
+        assertNull(authors.getAuthorById(authorId));
+        assertNull(books.getBookById(firstBook));
+        assertNull(books.getBookById(secondBook));
+        assertTrue(loans.getLoansByIds(List.of(loanId)).isEmpty());
+        assertFalse(authors.deleteAuthor(authorId));
+    }
+
+    @Test
+    void deleteVisitorCascadesToLoansAndFreesEmail() {
+        int bookId = addBook("9785170000007", 1);
+        int loanId = loans.issueLoans(visitorId, List.of(bookId), TODAY, TODAY.plusDays(14), 1)[0];
+
+        assertTrue(visitors.deleteVisitor(visitorId));
+
+        assertNull(visitors.getVisitorById(visitorId));
+        assertTrue(loans.getLoansByIds(List.of(loanId)).isEmpty());
+        assertTrue(loans.getLoansByBook(bookId).isEmpty());
+        assertNotNull(visitors.addVisitor(new Visitor(0, "Пётр", "Иванов", "ivan@example.com",
+                "", "", TODAY, null, "active")));
+    }
+
+    @Test
+    void archivedLoansStayInVisitorHistoryAndFines() {
+        int bookId = addBook("9785170000008", 1);
+        int loanId = loans.issueLoans(visitorId, List.of(bookId), TODAY.minusDays(40), TODAY.minusDays(26), 1)[0];
+        loans.returnLoans(Map.of(loanId, 500.0), TODAY.minusDays(20));
+
+        assertEquals(1, loans.archiveReturnedLoans(TODAY, 100));
+
+        assertTrue(loans.getLoansByIds(List.of(loanId)).isEmpty());
+        List<Loan> history = loans.getLoansByVisitor(visitorId);
+        assertEquals(1, history.size());
+        assertEquals(loanId, history.get(0).getLoanId());
+        assertEquals(500.0, loans.getTotalFinesByVisitor(visitorId));
+        assertEquals(1, books.getBookById(bookId).getCopiesAvailable());
+    }
+
+    private int addBook(String isbn, int copies) {
+        Book book = new Book(0, isbn, "Книга " + isbn, authorId, "", "Роман", "", 2000, 100,
+                copies, copies, "");
+        return books.addBook(book).getBookId();
+    }
+}
@@ -0,0 +1,162 @@
+package com.libtrack.service;
+
+import com.libtrack.dao.InMemoryAuthorRepository;
+import com.libtrack.dao.InMemoryBookRepository;
+import com.libtrack.dao.InMemoryLoanRepository;
+import com.libtrack.dao.InMemoryStore;
+import com.libtrack.dao.InMemoryVisitorRepository;
+import com.libtrack.dao.IsbnIndex;
+import com.libtrack.model.Author;
+import com.libtrack.model.Book;
+import com.libtrack.model.Visitor;
+import com.libtrack.service.LoanService.BatchItemResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Выдача и возврат через LoanService над хранилищем в памяти
+ */
+class LoanServiceTest {
+
+    private static final LocalDate TODAY = LocalDate.now();
+
+    private InMemoryBookRepository books;
+    private InMemoryVisitorRepository visitors;
+    private LoanService service;
+
+    private int authorId;
+    private int visitorId;
+
+    @BeforeEach
+    void setUp() {
+        InMemoryStore store = new InMemoryStore();
+        InMemoryAuthorRepository authors = new InMemoryAuthorRepository(store);
+        books = new InMemoryBookRepository(store);
+        visitors = new InMemoryVisitorRepository(store);
+        service = new LoanService(new InMemoryLoanRepository(store), books, visitors,
+                new FineRules(100.0, 0, 0), new IsbnIndex(books));
+
+        authorId = authors.addAuthor(new Author(0, "Лев", "Толстой", "", 1828, "Россия")).getAuthorId();
+        visitorId = addVisitor("ivan@example.com", "active");
+    }
+
+    @Test
+    void issueBookTakesCopyAndReturnBookReleasesIt() {
+        int bookId = addBook("9785170000001", 2);
+
+        assertTrue(service.issueBook(bookId, visitorId, 14, 1));
+        assertEquals(1, copiesAvailable(bookId));
+
+        int loanId = service.getLoansByVisitor(visitorId).get(0).getLoanId();
+        assertEquals(0.0, service.returnBook(loanId));
+        assertEquals(2, copiesAvailable(bookId));
+        assertThrows(IllegalStateException.class, () -> service.returnBook(loanId));
+    }
+
+    @Test
+    void issueBookRefusesBookWithoutCopies() {
+        int bookId = addBook("9785170000002", 0);
+
+        assertThrows(IllegalStateException.class, () -> service.issueBook(bookId, visitorId, 14, 1));
+        assertEquals(0, service.getActiveLoansCountByVisitor(visitorId));
+    }
+
+    @Test
+    void issueBooksReportsEachBook() {
+        int available = addBook("9785170000003", 1);
+        int noCopies = addBook("9785170000004", 0);
+
+        List<BatchItemResult> results = service.issueBooks(visitorId, List.of(available, noCopies, 9999),
+                TODAY, TODAY.plusDays(14), 1);
+
+        assertTrue(results.get(0).isSuccess());
+        assertNotNull(results.get(0).getLoan());
+        assertEquals("Нет свободных экземпляров", results.get(1).getMessage());
+        assertEquals("Книга не найдена", results.get(2).getMessage());
+        assertEquals(0, copiesAvailable(available));
+    }
+
+    @Test
+    void issueBooksDoesNotGiveTheLastCopyTwice() {
+        int bookId = addBook("9785170000005", 1);
+
+        List<BatchItemResult> results = service.issueBooks(visitorId, List.of(bookId, bookId),
+                TODAY, TODAY.plusDays(14), 1);
+
+        assertTrue(results.get(0).isSuccess());
+        assertFalse(results.get(1).isSuccess());
+        assertEquals("Нет свободных экземпляров", results.get(1).getMessage());
+        assertEquals(0, copiesAvailable(bookId));
+        assertEquals(1, service.getActiveLoansCountByVisitor(visitorId));
+    }
+
+    @Test
+    void issueBooksStopsAtVisitorLimit() {
+        List<Integer> bookIds = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            bookIds.add(addBook("978517000001" + i, 1));
+        }
+
+        List<BatchItemResult> results = service.issueBooks(visitorId, bookIds, TODAY, TODAY.plusDays(14), 1);
+
+        assertEquals(5, results.stream().filter(BatchItemResult::isSuccess).count());
+        assertFalse(results.get(5).isSuccess());
+        assertEquals(1, copiesAvailable(bookIds.get(5)));
+        assertThrows(IllegalStateException.class,
+                () -> service.issueBooks(visitorId, List.of(bookIds.get(5)), TODAY, TODAY.plusDays(14), 1));
+    }
+
+    @Test
+    void issueBooksRejectsBlockedVisitor() {
+        int bookId = addBook("9785170000006", 1);
+        int blocked = addVisitor("blocked@example.com", "blocked");
+
+        assertThrows(IllegalStateException.class,
+                () -> service.issueBooks(blocked, List.of(bookId), TODAY, TODAY.plusDays(14), 1));
+        assertEquals(1, copiesAvailable(bookId));
+    }
+
+    @Test
+    void returnBooksChargesFineForOverdueDays() {
+        int bookId = addBook("9785170000007", 1);
+        int loanId = service.issueBooks(visitorId, List.of(bookId), TODAY.minusDays(20), TODAY.minusDays(6), 1)
+                .get(0).getLoan().getLoanId();
+
+        List<BatchItemResult> results = service.returnBooks(List.of(loanId, loanId + 100));
+
+        assertTrue(results.get(0).isSuccess());
+        assertEquals(600.0, results.get(0).getFine());
+        assertEquals("Выдача не найдена", results.get(1).getMessage());
+        assertEquals(1, copiesAvailable(bookId));
+        assertEquals(600.0, service.getTotalFinesByVisitor(visitorId));
+
+        List<BatchItemResult> again = service.returnBooks(List.of(loanId));
+        assertEquals("Книга уже возвращена", again.get(0).getMessage());
+        assertEquals(1, copiesAvailable(bookId));
+    }
+
+    private int addBook(String isbn, int copies) {
+        Book book = new Book(0, isbn, "Книга " + isbn, authorId, "", "Роман", "", 2000, 100,
+                copies, copies, "");
+        return books.addBook(book).getBookId();
+    }
+
+    private int addVisitor(String email, String status) {
+        return visitors.addVisitor(new Visitor(0, "Иван", "Петров", email, "", "", TODAY, null, status))
+                .getVisitorId();
+    }
+
+    private int copiesAvailable(int bookId) {
+        return books.getBookById(bookId).getCopiesAvailable();
+    }
+}